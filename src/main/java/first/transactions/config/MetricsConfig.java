@@ -0,0 +1,67 @@
+package first.transactions.config;
+
+import first.transactions.jwt.VerifiedTokenCache;
+import first.transactions.service.CompanyCache;
+import first.transactions.service.OrderFillWriter;
+import first.transactions.service.PortfolioLeaderboard;
+import first.transactions.service.PriceStreamService;
+import first.transactions.service.TickJournal;
+import first.transactions.service.TradeSequencer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cache sizes, queue depths and the services' own counters, read when Prometheus scrapes -
+ * nothing is recorded on the paths that fill them.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder queueAndCacheGauges(CompanyCache companyCache,
+                                           VerifiedTokenCache tokenCache,
+                                           TickJournal tickJournal,
+                                           TradeSequencer tradeSequencer,
+                                           PriceStreamService priceStreamService,
+                                           PortfolioLeaderboard leaderboard,
+                                           OrderFillWriter orderFillWriter) {
+        return registry -> {
+            Gauge.builder("cache.companies.size", companyCache, cache -> cache.getStats().getSize())
+                    .description("Companies held by the company cache")
+                    .register(registry);
+            Gauge.builder("cache.companies.dirty", companyCache, cache -> cache.getStats().getDirtyEntries())
+                    .description("Company changes waiting for the write-behind flush")
+                    .register(registry);
+            Gauge.builder("cache.jwt.size", tokenCache, VerifiedTokenCache::size)
+                    .description("Verified tokens cached by the JWT filter")
+                    .register(registry);
+            Gauge.builder("ticks.journal.queue.depth", tickJournal, TickJournal::getQueueDepth)
+                    .description("Price ticks waiting to be written to stockhistory")
+                    .register(registry);
+            FunctionCounter.builder("ticks.journal.dropped", tickJournal, TickJournal::getDroppedTicks)
+                    .description("Price ticks not written to stockhistory because the journal queue stayed full")
+                    .register(registry);
+            FunctionCounter.builder("ticks.journal.failed", tickJournal, TickJournal::getFailedTicks)
+                    .description("Price ticks not written to stockhistory because every write attempt failed")
+                    .register(registry);
+            Gauge.builder("trading.sequencer.queue.depth", tradeSequencer, TradeSequencer::queueDepth)
+                    .description("Trade commands claimed but not yet run, across all shards")
+                    .register(registry);
+            Gauge.builder("prices.stream.connections", priceStreamService, service -> service.getStats().getConnections())
+                    .description("Open live price stream connections")
+                    .register(registry);
+            FunctionCounter.builder("prices.stream.dropped", priceStreamService, service -> service.getStats().getDropped())
+                    .description("Live price stream connections dropped because a write was stuck")
+                    .register(registry);
+            Gauge.builder("portfolio.leaderboard.size", leaderboard, PortfolioLeaderboard::size)
+                    .description("Portfolios ranked on the leaderboard")
+                    .register(registry);
+            Gauge.builder("orders.fills.failed", orderFillWriter, OrderFillWriter::getPendingFailures)
+                    .description("Order book fills that failed and wait for a replay, their reservations held")
+                    .register(registry);
+        };
+    }
+}
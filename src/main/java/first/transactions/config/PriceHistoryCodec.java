@@ -0,0 +1,262 @@
+package first.transactions.config;
+
+import first.transactions.model.StockHistory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar little-endian binary encoding of one ticker's price history.
+ *
+ * <pre>
+ * int32   magic "PHB1"
+ * uint8   version (1)
+ * uint8   price decimals (4)
+ * uint16  ticker length, then ticker UTF-8 bytes
+ * uint32  point count
+ * int64   first time (epoch millis, LocalDateTime read as UTC)
+ * int64   first price (fixed point)
+ * count-1 zig-zag varint time deltas
+ * count-1 zig-zag varint price deltas
+ * </pre>
+ *
+ * Consecutive ticks are milliseconds and cents apart, so most deltas take one or two
+ * bytes - about 4 bytes per point against ~90 for a JSON object. Prices are rounded
+ * to 4 decimals, ids are not sent and points without a date are skipped.
+ */
+public final class PriceHistoryCodec {
+
+    public static final String MEDIA_TYPE = "application/x-price-history";
+
+    private static final int MAGIC = 0x31424850;   // "PHB1" read little-endian
+    private static final int VERSION = 1;
+    private static final int PRICE_DECIMALS = 4;
+    private static final double PRICE_SCALE = 10_000.0;
+
+    private PriceHistoryCodec() {}
+
+    /**
+     * Encode a ticker's points in list order
+     * @param ticker Ticker written in the header
+     * @param history Points of that ticker
+     * @return Encoded bytes
+     */
+    public static byte[] encode(String ticker, List<StockHistory> history) {
+        int count = 0;
+        for (StockHistory point : history) {
+            if (point.getPriceDate() != null) {
+                count++;
+            }
+        }
+
+        byte[] tickerBytes = (ticker != null ? ticker : "").getBytes(StandardCharsets.UTF_8);
+        Writer out = new Writer(32 + tickerBytes.length + count * 6);
+        out.int32(MAGIC);
+        out.int8(VERSION);
+        out.int8(PRICE_DECIMALS);
+        out.int16(tickerBytes.length);
+        out.bytes(tickerBytes);
+        out.int32(count);
+        if (count == 0) {
+            return out.toByteArray();
+        }
+
+        long[] times = new long[count];
+        long[] prices = new long[count];
+        int i = 0;
+        for (StockHistory point : history) {
+            if (point.getPriceDate() != null) {
+                times[i] = point.getPriceDate().toInstant(ZoneOffset.UTC).toEpochMilli();
+                prices[i] = Math.round(point.getStockPrice() * PRICE_SCALE);
+                i++;
+            }
+        }
+
+        out.int64(times[0]);
+        out.int64(prices[0]);
+        for (i = 1; i < count; i++) {
+            out.varint(zigZag(times[i] - times[i - 1]));
+        }
+        for (i = 1; i < count; i++) {
+            out.varint(zigZag(prices[i] - prices[i - 1]));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode bytes produced by encode
+     * @param data Encoded bytes
+     * @return Points with ticker, time and price set (no ids)
+     * @throws IllegalArgumentException if the data is not a price history
+     */
+    public static List<StockHistory> decode(byte[] data) {
+        Reader in = new Reader(data);
+        if (in.int32() != MAGIC) {
+            throw new IllegalArgumentException("Not a price history encoding");
+        }
+        int version = in.int8();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported price history version " + version);
+        }
+        double scale = Math.pow(10, in.int8());
+        String ticker = new String(in.bytes(in.int16()), StandardCharsets.UTF_8);
+        int count = in.int32();
+
+        List<StockHistory> history = new ArrayList<>(count);
+        if (count == 0) {
+            return history;
+        }
+
+        long[] times = new long[count];
+        times[0] = in.int64();
+        long firstPrice = in.int64();
+        for (int i = 1; i < count; i++) {
+            times[i] = times[i - 1] + unZigZag(in.varint());
+        }
+        long price = firstPrice;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                price += unZigZag(in.varint());
+            }
+            StockHistory point = new StockHistory();
+            point.setTickerSymbol(ticker);
+            point.setPriceDate(LocalDateTime.ofEpochSecond(Math.floorDiv(times[i], 1000),
+                    (int) Math.floorMod(times[i], 1000) * 1_000_000, ZoneOffset.UTC));
+            point.setStockPrice(price / scale);
+            history.add(point);
+        }
+        return history;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        private Writer(int capacity) {
+            this.buffer = new byte[Math.max(16, capacity)];
+        }
+
+        private void ensure(int bytes) {
+            if (position + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+            }
+        }
+
+        private void int8(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        private void int16(int value) {
+            ensure(2);
+            buffer[position++] = (byte) value;
+            buffer[position++] = (byte) (value >>> 8);
+        }
+
+        private void int32(int value) {
+            ensure(4);
+            for (int shift = 0; shift < 32; shift += 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void int64(long value) {
+            ensure(8);
+            for (int shift = 0; shift < 64; shift += 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void varint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void bytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        private Reader(byte[] data) {
+            this.data = data;
+        }
+
+        private int next() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("Truncated price history");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        private int int8() {
+            return next();
+        }
+
+        private int int16() {
+            return next() | next() << 8;
+        }
+
+        private int int32() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 8) {
+                value |= next() << shift;
+            }
+            return value;
+        }
+
+        private long int64() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 8) {
+                value |= (long) next() << shift;
+            }
+            return value;
+        }
+
+        private long varint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = next();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        private byte[] bytes(int length) {
+            if (position + length > data.length) {
+                throw new IllegalArgumentException("Truncated price history");
+            }
+            byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+            position += length;
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package first.transactions.config;
+
+import first.transactions.model.StockHistory;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes List&lt;StockHistory&gt; bodies with PriceHistoryCodec when the client sends
+ * Accept: application/x-price-history. JSON stays the default for every other Accept.
+ *
+ * Only bodies declared as a list of StockHistory are claimed, so any other endpoint
+ * asked for this media type answers 406 instead of failing to write.
+ */
+public class PriceHistoryMessageConverter extends AbstractGenericHttpMessageConverter<List<?>> {
+
+    public PriceHistoryMessageConverter() {
+        super(MediaType.parseMediaType(PriceHistoryCodec.MEDIA_TYPE));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        // Without the declared type the element type is unknown
+        return false;
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        // Offered for any list; canWrite with the declared type makes the final call
+        return supports(clazz) ? getSupportedMediaTypes() : List.of();
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (type == null || !canWrite(mediaType)) {
+            return false;
+        }
+        Class<?> element = ResolvableType.forType(type).asCollection().resolveGeneric(0);
+        return element != null && StockHistory.class.isAssignableFrom(element);
+    }
+
+    @Override
+    public List<?> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Price history bodies are response-only", inputMessage);
+    }
+
+    @Override
+    protected List<?> readInternal(Class<? extends List<?>> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Price history bodies are response-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(List<?> body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        List<StockHistory> history = new ArrayList<>(body.size());
+        for (Object point : body) {
+            if (!(point instanceof StockHistory)) {
+                throw new HttpMessageNotWritableException("Only stock history can be written as " + PriceHistoryCodec.MEDIA_TYPE);
+            }
+            history.add((StockHistory) point);
+        }
+        String ticker = history.isEmpty() ? "" : history.get(0).getTickerSymbol();
+        byte[] encoded = PriceHistoryCodec.encode(ticker, history);
+        outputMessage.getHeaders().setContentLength(encoded.length);
+        outputMessage.getBody().write(encoded);
+    }
+}
@@ -0,0 +1,37 @@
+package first.transactions.config;
+
+import first.transactions.service.SqlProfiler;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * DataSource that reports every statement to the SqlProfiler.
+ *
+ * Connections, statements and result sets are wrapped in plain delegating classes:
+ * executions are timed and their bound parameters captured, result set fetches add
+ * their time and row count to the execution. Only execute*, next, and the parameter
+ * setters do any work; every other call, ResultSet getters included, is a direct call
+ * to the pool's object, and unwrap still reaches it.
+ */
+public class ProfilingDataSource extends DelegatingDataSource {
+
+    private final SqlProfiler profiler;
+
+    public ProfilingDataSource(DataSource target, SqlProfiler profiler) {
+        super(target);
+        this.profiler = profiler;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return new ProfilingConnection(obtainTargetDataSource().getConnection(), profiler);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return new ProfilingConnection(obtainTargetDataSource().getConnection(username, password), profiler);
+    }
+}
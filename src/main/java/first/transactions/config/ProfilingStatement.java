@@ -0,0 +1,376 @@
+package first.transactions.config;
+
+import first.transactions.service.SqlProfiler;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+
+/**
+ * Statement that times its executions and reports them to the SqlProfiler; every other
+ * call goes straight to the pool's statement. Result sets of an execution are wrapped
+ * so their fetches count towards it.
+ */
+class ProfilingStatement implements Statement {
+
+    private final Statement statement;
+    // Text of a prepared statement, null for a plain one
+    private final String preparedSql;
+    final SqlProfiler profiler;
+    private SqlProfiler.Execution lastExecution;
+
+    ProfilingStatement(Statement statement, String preparedSql, SqlProfiler profiler) {
+        this.statement = statement;
+        this.preparedSql = preparedSql;
+        this.profiler = profiler;
+    }
+
+    /**
+     * Bound parameters of a prepared statement for the slow log, or null
+     */
+    Object[] capturedParameters() {
+        return null;
+    }
+
+    // execute(sql...) - the statement carries its own text
+    final void executed(String sql, long start) {
+        lastExecution = profiler.executed(sql, false, null, System.nanoTime() - start);
+    }
+
+    // execute() of a prepared statement, or a batch - plain statements' batches have no single text
+    final void executed(long start) {
+        long elapsed = System.nanoTime() - start;
+        lastExecution = profiler.executed(preparedSql != null ? preparedSql : "(batch)", true, capturedParameters(), elapsed);
+    }
+
+    final ResultSet wrap(ResultSet resultSet) {
+        return resultSet != null && lastExecution != null ? new ProfilingResultSet(resultSet, lastExecution) : resultSet;
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        long start = System.nanoTime();
+        ResultSet resultSet = statement.executeQuery(sql);
+        executed(sql, start);
+        return wrap(resultSet);
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        long start = System.nanoTime();
+        int rows = statement.executeUpdate(sql);
+        executed(sql, start);
+        return rows;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        statement.close();
+    }
+
+    @Override
+    public int getMaxFieldSize() throws SQLException {
+        return statement.getMaxFieldSize();
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) throws SQLException {
+        statement.setMaxFieldSize(max);
+    }
+
+    @Override
+    public int getMaxRows() throws SQLException {
+        return statement.getMaxRows();
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        statement.setMaxRows(max);
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        statement.setEscapeProcessing(enable);
+    }
+
+    @Override
+    public int getQueryTimeout() throws SQLException {
+        return statement.getQueryTimeout();
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        statement.setQueryTimeout(seconds);
+    }
+
+    @Override
+    public void cancel() throws SQLException {
+        statement.cancel();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return statement.getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        statement.clearWarnings();
+    }
+
+    @Override
+    public void setCursorName(String name) throws SQLException {
+        statement.setCursorName(name);
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        long start = System.nanoTime();
+        boolean hasResultSet = statement.execute(sql);
+        executed(sql, start);
+        return hasResultSet;
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        return wrap(statement.getResultSet());
+    }
+
+    @Override
+    public int getUpdateCount() throws SQLException {
+        return statement.getUpdateCount();
+    }
+
+    @Override
+    public boolean getMoreResults() throws SQLException {
+        return statement.getMoreResults();
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        statement.setFetchDirection(direction);
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        return statement.getFetchDirection();
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        statement.setFetchSize(rows);
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        return statement.getFetchSize();
+    }
+
+    @Override
+    public int getResultSetConcurrency() throws SQLException {
+        return statement.getResultSetConcurrency();
+    }
+
+    @Override
+    public int getResultSetType() throws SQLException {
+        return statement.getResultSetType();
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        statement.addBatch(sql);
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        statement.clearBatch();
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        long start = System.nanoTime();
+        int[] counts = statement.executeBatch();
+        executed(start);
+        return counts;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return statement.getConnection();
+    }
+
+    @Override
+    public boolean getMoreResults(int current) throws SQLException {
+        return statement.getMoreResults(current);
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        return statement.getGeneratedKeys();
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        long start = System.nanoTime();
+        int rows = statement.executeUpdate(sql, autoGeneratedKeys);
+        executed(sql, start);
+        return rows;
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        long start = System.nanoTime();
+        int rows = statement.executeUpdate(sql, columnIndexes);
+        executed(sql, start);
+        return rows;
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        long start = System.nanoTime();
+        int rows = statement.executeUpdate(sql, columnNames);
+        executed(sql, start);
+        return rows;
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        long start = System.nanoTime();
+        boolean hasResultSet = statement.execute(sql, autoGeneratedKeys);
+        executed(sql, start);
+        return hasResultSet;
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        long start = System.nanoTime();
+        boolean hasResultSet = statement.execute(sql, columnIndexes);
+        executed(sql, start);
+        return hasResultSet;
+    }
+
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        long start = System.nanoTime();
+        boolean hasResultSet = statement.execute(sql, columnNames);
+        executed(sql, start);
+        return hasResultSet;
+    }
+
+    @Override
+    public int getResultSetHoldability() throws SQLException {
+        return statement.getResultSetHoldability();
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return statement.isClosed();
+    }
+
+    @Override
+    public void setPoolable(boolean poolable) throws SQLException {
+        statement.setPoolable(poolable);
+    }
+
+    @Override
+    public boolean isPoolable() throws SQLException {
+        return statement.isPoolable();
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        statement.closeOnCompletion();
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() throws SQLException {
+        return statement.isCloseOnCompletion();
+    }
+
+    @Override
+    public long getLargeUpdateCount() throws SQLException {
+        return statement.getLargeUpdateCount();
+    }
+
+    @Override
+    public void setLargeMaxRows(long max) throws SQLException {
+        statement.setLargeMaxRows(max);
+    }
+
+    @Override
+    public long getLargeMaxRows() throws SQLException {
+        return statement.getLargeMaxRows();
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        long start = System.nanoTime();
+        long[] counts = statement.executeLargeBatch();
+        executed(start);
+        return counts;
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql) throws SQLException {
+        long start = System.nanoTime();
+        long rows = statement.executeLargeUpdate(sql);
+        executed(sql, start);
+        return rows;
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        long start = System.nanoTime();
+        long rows = statement.executeLargeUpdate(sql, autoGeneratedKeys);
+        executed(sql, start);
+        return rows;
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        long start = System.nanoTime();
+        long rows = statement.executeLargeUpdate(sql, columnIndexes);
+        executed(sql, start);
+        return rows;
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+        long start = System.nanoTime();
+        long rows = statement.executeLargeUpdate(sql, columnNames);
+        executed(sql, start);
+        return rows;
+    }
+
+    @Override
+    public String enquoteLiteral(String val) throws SQLException {
+        return statement.enquoteLiteral(val);
+    }
+
+    @Override
+    public String enquoteIdentifier(String identifier, boolean alwaysQuote) throws SQLException {
+        return statement.enquoteIdentifier(identifier, alwaysQuote);
+    }
+
+    @Override
+    public boolean isSimpleIdentifier(String identifier) throws SQLException {
+        return statement.isSimpleIdentifier(identifier);
+    }
+
+    @Override
+    public String enquoteNCharLiteral(String val) throws SQLException {
+        return statement.enquoteNCharLiteral(val);
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return statement.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return statement.isWrapperFor(iface);
+    }
+}
@@ -1,8 +1,11 @@
 package first.transactions.config;
 
 import first.transactions.jwt.JwtFilter;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -22,6 +25,12 @@ import java.util.List;
 @EnableMethodSecurity(prePostEnabled = true)
 public class SecurityConfig {
 
+    private final Environment environment;
+
+    public SecurityConfig(Environment environment) {
+        this.environment = environment;
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http, JwtFilter jwtFilter) throws Exception {
         http
@@ -29,6 +38,8 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource())) // 👈 enable CORS here
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Completion of streamed responses - the original request was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/auth/**").permitAll()
                         .requestMatchers("/v3/api-docs/**",
                                 "/swagger-ui/**",
@@ -36,6 +47,12 @@ public class SecurityConfig {
                         ).permitAll()
                         .requestMatchers("/users/delete_user/**").permitAll()
                         .requestMatchers("/companies/**").permitAll()
+                        // Probed without a token; Prometheus scrapes without one only on the management
+                        // port, which is not exposed publicly. The rest of actuator is admin only
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers(request -> "/actuator/prometheus".equals(request.getRequestURI())
+                                && onManagementPort(request)).permitAll()
+                        .requestMatchers("/actuator/**").hasRole("SUPER_ADMIN")
                         // Role-based URL access control
                         .requestMatchers("/investments/**").hasAnyRole("INVESTOR", "SUPER_ADMIN")
                         .requestMatchers("/transfers/**").hasAnyRole("INVESTOR", "SUPER_ADMIN")
@@ -73,4 +90,10 @@ public class SecurityConfig {
         source.registerCorsConfiguration("/**", configuration);
         return source;
     }
+
+    // Set once a separate management server (management.server.port) is listening
+    private boolean onManagementPort(HttpServletRequest request) {
+        Integer managementPort = environment.getProperty("local.management.port", Integer.class);
+        return managementPort != null && managementPort == request.getLocalPort();
+    }
 }
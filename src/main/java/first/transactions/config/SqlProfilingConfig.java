@@ -0,0 +1,63 @@
+package first.transactions.config;
+
+import first.transactions.service.SqlProfiler;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+
+/**
+ * Wires the SqlProfiler in: the DataSource is wrapped so every statement is reported,
+ * and a filter wrapped around the whole request (security included) decides which
+ * endpoint the statements are charged to.
+ */
+@Configuration
+public class SqlProfilingConfig {
+
+    @Bean
+    public static BeanPostProcessor profilingDataSourcePostProcessor(ObjectProvider<SqlProfiler> profiler) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProfilingDataSource)
+                        && profiler.getObject().isEnabled()) {
+                    return new ProfilingDataSource(dataSource, profiler.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> sqlProfilingFilter(SqlProfiler profiler) {
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                            FilterChain filterChain) throws ServletException, IOException {
+                SqlProfiler.RequestProfile profile = profiler.begin();
+                profile.setEndpointHint(request.getMethod() + " " + request.getRequestURI());
+                try {
+                    filterChain.doFilter(request, response);
+                } finally {
+                    // Pattern rather than URI, so /users/1 and /users/2 share one entry
+                    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                    profiler.end(profile, request.getMethod() + " " + (pattern != null ? pattern : "(unmapped)"));
+                }
+            }
+        });
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        registration.setEnabled(profiler.isEnabled());
+        return registration;
+    }
+}
@@ -0,0 +1,17 @@
+package first.transactions.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Appended after Jackson, so it is only chosen when explicitly accepted
+        converters.add(new PriceHistoryMessageConverter());
+    }
+}
@@ -1,23 +1,75 @@
 package first.transactions.controller;
 
-import first.transactions.model.Company;
-import first.transactions.repository.CompanyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import first.transactions.service.CompanyCache;
+import first.transactions.service.MarketDataVersions;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.List;
 @RestController
 @RequestMapping("/companies")
 @CrossOrigin("*")
 public class CompanyController {
-    private final CompanyRepository companyRepository;
-    public CompanyController(CompanyRepository companyRepository) {
-        this.companyRepository = companyRepository;
+    private final CompanyCache companyCache;
+    private final MarketDataVersions versions;
+    private final ObjectMapper objectMapper;
 
+    // Serialized company list and the table version it was built from
+    private volatile CachedPayload companiesPayload;
+
+    public CompanyController(CompanyCache companyCache, MarketDataVersions versions, ObjectMapper objectMapper) {
+        this.companyCache = companyCache;
+        this.versions = versions;
+        this.objectMapper = objectMapper;
     }
+
+    /**
+     * All companies. Polling clients send If-None-Match / If-Modified-Since and get
+     * 304 until a trade changes a company; the JSON is serialized once per change.
+     */
     @GetMapping
-    public List<Company> getCompanies() {
-        return companyRepository.findAll();
+    public ResponseEntity<byte[]> getCompanies(WebRequest request) throws JsonProcessingException {
+        long version = versions.tableVersion();
+        String etag = versions.etag(version, null);
+        if (request.checkNotModified(etag, versions.tableLastModified())) {
+            return null;
+        }
+
+        CachedPayload payload = companiesPayload;
+        if (payload == null || payload.version != version) {
+            // Version read before serializing: a change racing with this only makes the payload newer than its tag
+            payload = new CachedPayload(version, objectMapper.writeValueAsBytes(companyCache.getAll()));
+            companiesPayload = payload;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .lastModified(versions.tableLastModified())
+                .body(payload.body);
     }
 
+    /**
+     * Hit rate and write-behind lag of the company cache
+     */
+    @GetMapping("/cache-stats")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public CompanyCache.CacheStats getCacheStats() {
+        return companyCache.getStats();
+    }
+
+    private static final class CachedPayload {
+        private final long version;
+        private final byte[] body;
+
+        private CachedPayload(long version, byte[] body) {
+            this.version = version;
+            this.body = body;
+        }
+    }
 }
@@ -0,0 +1,67 @@
+package first.transactions.controller;
+
+import first.transactions.service.FlightRecording;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/jfr")
+@CrossOrigin("*")
+@PreAuthorize("hasRole('SUPER_ADMIN')")
+public class FlightRecordingController {
+    private static final byte[] NOT_RECORDING =
+            "No flight recording is running (start with the jfr profile)".getBytes(StandardCharsets.UTF_8);
+
+    private final FlightRecording flightRecording;
+
+    public FlightRecordingController(FlightRecording flightRecording) {
+        this.flightRecording = flightRecording;
+    }
+
+    /**
+     * Whether the continuous recording runs, and with which settings
+     */
+    @GetMapping
+    public Map<String, Object> getStatus() {
+        return Map.of(
+                "recording", flightRecording.isRecording(),
+                "settings", flightRecording.getSettings(),
+                "maxAge", flightRecording.getMaxAge().toString());
+    }
+
+    /**
+     * Dump the recording as a .jfr file (open it in JDK Mission Control); the file is
+     * removed from the server once sent
+     */
+    @PostMapping("/dump")
+    public ResponseEntity<StreamingResponseBody> dump() throws IOException {
+        Path file = flightRecording.dump();
+        if (file == null) {
+            StreamingResponseBody message = out -> out.write(NOT_RECORDING);
+            return ResponseEntity.status(HttpStatus.CONFLICT).contentType(MediaType.TEXT_PLAIN).body(message);
+        }
+        StreamingResponseBody body = out -> {
+            try {
+                Files.copy(file, out);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(Files.size(file))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                .body(body);
+    }
+}
@@ -0,0 +1,82 @@
+package first.transactions.controller;
+
+import first.transactions.dto.OrderRequest;
+import first.transactions.service.MatchingEngine;
+import first.transactions.service.OrderBook;
+import first.transactions.service.OrderService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/investments/orders")
+@CrossOrigin("*")
+@PreAuthorize("hasRole('INVESTOR') or hasRole('SUPER_ADMIN')")
+public class OrderController {
+
+    private final OrderService orderService;
+
+    public OrderController(OrderService orderService) {
+        this.orderService = orderService;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> placeOrder(@Valid @RequestBody OrderRequest request, Authentication authentication) {
+        // Delegate to service layer
+        OrderService.OrderResult result = orderService.placeOrder(request, authentication.getName());
+
+        if (result.isSuccess()) {
+            return ResponseEntity.ok(result.getOrder());
+        } else {
+            return ResponseEntity.badRequest().body(result.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{ticker}/{orderId}")
+    public ResponseEntity<String> cancelOrder(@PathVariable String ticker,
+                                              @PathVariable long orderId,
+                                              Authentication authentication) {
+        OrderService.OrderResult result = orderService.cancelOrder(ticker, orderId, authentication.getName());
+
+        if (result.isSuccess()) {
+            return ResponseEntity.ok(result.getMessage());
+        } else {
+            return ResponseEntity.badRequest().body(result.getMessage());
+        }
+    }
+
+    /**
+     * Aggregated order book depth - price levels with total open quantity, best price first
+     */
+    @GetMapping("/{ticker}/book")
+    public ResponseEntity<Map<String, Object>> getBook(@PathVariable String ticker,
+                                                       @RequestParam(defaultValue = "10") @Min(1) @Max(100) int levels) {
+        MatchingEngine.DepthSnapshot depth = orderService.getDepth(ticker, levels);
+
+        Map<String, Object> book = new LinkedHashMap<>();
+        book.put("ticker", ticker.toUpperCase());
+        book.put("bids", toLevels(depth.getBidPrices(), depth.getBidQuantities(), depth.getBidCount()));
+        book.put("asks", toLevels(depth.getAskPrices(), depth.getAskQuantities(), depth.getAskCount()));
+        return ResponseEntity.ok(book);
+    }
+
+    private List<Map<String, Double>> toLevels(long[] prices, long[] quantities, int count) {
+        List<Map<String, Double>> levels = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Double> level = new LinkedHashMap<>();
+            level.put("price", (double) prices[i] / OrderBook.PRICE_SCALE);
+            level.put("quantity", (double) quantities[i] / OrderBook.QUANTITY_SCALE);
+            levels.add(level);
+        }
+        return levels;
+    }
+}
@@ -1,12 +1,17 @@
 package first.transactions.controller;
 
+import first.transactions.dto.PortfolioPage;
+import first.transactions.model.LeaderboardMetric;
 import first.transactions.model.Portfolio;
 import first.transactions.model.User;
+import first.transactions.service.PortfolioLeaderboard;
 import first.transactions.service.PortfolioService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -17,9 +22,11 @@ import java.util.List;
 public class PortfolioController {
     
     private final PortfolioService portfolioService;
+    private final PortfolioLeaderboard leaderboard;
     
-    public PortfolioController(PortfolioService portfolioService) {
+    public PortfolioController(PortfolioService portfolioService, PortfolioLeaderboard leaderboard) {
         this.portfolioService = portfolioService;
+        this.leaderboard = leaderboard;
     }
     
     @GetMapping("/my-portfolio")
@@ -73,6 +80,75 @@ public class PortfolioController {
         return ResponseEntity.ok(portfolios);
     }
 
+    /**
+     * Keyset-paged portfolios with their owner's username (admin only)
+     * e.g. /portfolio/all/page?limit=200&cursor=4711
+     */
+    @GetMapping("/all/page")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<PortfolioPage> getPortfoliosPage(@RequestParam(value = "cursor", required = false) Long cursor,
+                                                           @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return ResponseEntity.ok(portfolioService.getPortfoliosPage(cursor, limit));
+    }
+
+    /**
+     * Every portfolio as one JSON array, written row by row from a DB cursor (admin only)
+     */
+    @GetMapping("/all/stream")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamPortfolios() {
+        StreamingResponseBody body = portfolioService::writePortfolios;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Top portfolios ranked by profit, profitPercentage or totalValue
+     * e.g. /portfolio/leaderboard?metric=profitPercentage&limit=20
+     */
+    @GetMapping("/leaderboard")
+    @PreAuthorize("hasRole('INVESTOR') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<?> getLeaderboard(@RequestParam(value = "metric", defaultValue = "profit") String metric,
+                                            @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(leaderboard.top(LeaderboardMetric.fromCode(metric), offset, Math.min(limit, 100)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * The current user's rank on the leaderboard
+     */
+    @GetMapping("/leaderboard/me")
+    @PreAuthorize("hasRole('INVESTOR') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<?> getMyStanding(@RequestParam(value = "metric", defaultValue = "profit") String metric,
+                                           Authentication authentication) {
+        Portfolio portfolio = portfolioService.getPortfolioByUsername(authentication.getName());
+        return getStanding(metric, portfolio.getUser().getId());
+    }
+
+    /**
+     * Any user's rank on the leaderboard
+     */
+    @GetMapping("/leaderboard/user/{userId}")
+    @PreAuthorize("hasRole('INVESTOR') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<?> getUserStanding(@PathVariable Long userId,
+                                             @RequestParam(value = "metric", defaultValue = "profit") String metric) {
+        return getStanding(metric, userId);
+    }
+
+    private ResponseEntity<?> getStanding(String metric, Long userId) {
+        LeaderboardMetric leaderboardMetric;
+        try {
+            leaderboardMetric = LeaderboardMetric.fromCode(metric);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        PortfolioLeaderboard.Standing standing = leaderboard.standingOf(leaderboardMetric, userId);
+        return standing != null ? ResponseEntity.ok(standing) : ResponseEntity.notFound().build();
+    }
+
     /**
      * Simple DTO for portfolio summary - perfect for frontend charts
      */
@@ -0,0 +1,64 @@
+package first.transactions.controller;
+
+import first.transactions.service.SqlProfiler;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+@RestController
+@RequestMapping("/admin/sql")
+@CrossOrigin("*")
+@PreAuthorize("hasRole('SUPER_ADMIN')")
+public class SqlProfileController {
+    private final SqlProfiler profiler;
+    private final DataSource dataSource;
+
+    public SqlProfileController(SqlProfiler profiler, DataSource dataSource) {
+        this.profiler = profiler;
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Statements, database time and rows per endpoint, most statements per request first,
+     * with the statements that one request repeated (N+1 suspects)
+     */
+    @GetMapping("/endpoints")
+    public List<SqlProfiler.EndpointStats> getEndpointStats() {
+        return profiler.getEndpointStats();
+    }
+
+    /**
+     * Recent statements slower than profiler.sql.slow-threshold-ms, with their parameters
+     */
+    @GetMapping("/slow")
+    public List<SqlProfiler.SlowQuery> getSlowQueries() {
+        return profiler.getSlowQueries();
+    }
+
+    /**
+     * Execution plan of a slow query, explained with its captured parameters
+     */
+    @GetMapping("/slow/{id}/plan")
+    public ResponseEntity<?> explain(@PathVariable long id) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            List<String> plan = profiler.explain(id, connection);
+            return plan != null ? ResponseEntity.ok(plan) : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Start measuring from scratch
+     */
+    @DeleteMapping
+    public ResponseEntity<Void> reset() {
+        profiler.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,11 +1,25 @@
 package first.transactions.controller;
 
+import first.transactions.model.CandleInterval;
 import first.transactions.model.StockHistory;
+import first.transactions.service.MarketDataVersions;
+import first.transactions.service.PriceStreamService;
 import first.transactions.service.StockHistoryService;
+import first.transactions.service.TickStore;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 @RestController
@@ -13,24 +27,117 @@ import java.util.List;
 public class StockHistoryController {
 
     private final StockHistoryService stockHistoryService;
+    private final PriceStreamService priceStreamService;
+    private final TickStore tickStore;
+    private final MarketDataVersions versions;
 
-    public StockHistoryController(StockHistoryService stockHistoryService) {
+    public StockHistoryController(StockHistoryService stockHistoryService, PriceStreamService priceStreamService, TickStore tickStore, MarketDataVersions versions) {
         this.stockHistoryService = stockHistoryService;
+        this.priceStreamService = priceStreamService;
+        this.tickStore = tickStore;
+        this.versions = versions;
     }
 
-    // Get all history for a ticker
+    // Live prices as Server-Sent Events, e.g. /stream?tickers=AAPL,MSFT
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamPrices(@RequestParam("tickers") String tickers) {
+        try {
+            return ResponseEntity.ok(priceStreamService.subscribe(new LinkedHashSet<>(Arrays.asList(tickers.split(",")))));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+        }
+    }
+
+    // Subscriber and conflation counters for the price stream
+    @GetMapping("/stream/stats")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public PriceStreamService.StreamStats getStreamStats() {
+        return priceStreamService.getStats();
+    }
+
+    // Ticker, segment and tick counters of the memory-mapped tick store
+    @GetMapping("/store/stats")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public TickStore.StoreStats getStoreStats() {
+        return tickStore.getStats();
+    }
+
+    // Get all history for a ticker; maxPoints downsamples for charts (e.g. ?maxPoints=800).
+    // The declared element type lets the binary converter claim it
     @GetMapping("/{ticker}")
-    public List<StockHistory> getHistoryByTicker(@PathVariable String ticker) {
-        return stockHistoryService.getHistoryByTicker(ticker);
+    public ResponseEntity<List<StockHistory>> getHistoryByTicker(@PathVariable String ticker,
+                                                @RequestParam(value = "maxPoints", required = false) Integer maxPoints,
+                                                WebRequest request) {
+        // Repository-backed history lags the journal's batch writes, so only tick store data is validated
+        String etag = tickStore.covers(ticker) ? tickerEtag(ticker, request) : null;
+        if (etag != null && request.checkNotModified(etag, versions.tickerLastModified(ticker))) {
+            return null;
+        }
+        return withValidators(etag, ticker).body(stockHistoryService.getHistoryByTicker(ticker, maxPoints));
     }
 
     // Get history for a ticker between two dates
     @GetMapping("/{ticker}/between")
-    public List<StockHistory> getHistoryBetweenDates(
+    public ResponseEntity<List<StockHistory>> getHistoryBetweenDates(
             @PathVariable String ticker,
             @RequestParam("start") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
-            @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end
+            @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(value = "maxPoints", required = false) Integer maxPoints,
+            WebRequest request
+    ) {
+        String etag = tickStore.covers(ticker) ? tickerEtag(ticker, request) : null;
+        if (etag != null && request.checkNotModified(etag, versions.tickerLastModified(ticker))) {
+            return null;
+        }
+        return withValidators(etag, ticker).body(stockHistoryService.getHistoryBetweenDates(ticker, start, end, maxPoints));
+    }
+
+    // Get OHLCV candles (1m, 5m, 1h, 1d) for a ticker
+    @GetMapping("/{ticker}/candles")
+    public ResponseEntity<?> getCandles(
+            @PathVariable String ticker,
+            @RequestParam(value = "interval", defaultValue = "1m") String interval,
+            @RequestParam(value = "start", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(value = "end", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            WebRequest request
     ) {
-        return stockHistoryService.getHistoryBetweenDates(ticker, start, end);
+        CandleInterval candleInterval;
+        try {
+            candleInterval = CandleInterval.fromCode(interval);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        // Candles are updated in memory on every tick, so the ticker version always covers them.
+        // Without an end the window slides with the clock, so only an explicit end is cacheable.
+        String etag = end != null ? tickerEtag(ticker, request) : null;
+        if (etag != null && request.checkNotModified(etag, versions.tickerLastModified(ticker))) {
+            return null;
+        }
+        return withValidators(etag, ticker).body(stockHistoryService.getCandles(ticker, candleInterval, start, end));
+    }
+
+    // Invalid history arguments (e.g. maxPoints) - a typed body cannot carry the message itself
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    // Ticker version qualified by the query and Accept header, which select the representation
+    private String tickerEtag(String ticker, WebRequest request) {
+        String query = request instanceof ServletWebRequest servletRequest ? servletRequest.getRequest().getQueryString() : null;
+        return versions.etag(versions.tickerVersion(ticker), query + "|" + request.getHeader(HttpHeaders.ACCEPT));
+    }
+
+    private ResponseEntity.BodyBuilder withValidators(String etag, String ticker) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (etag != null) {
+            builder.eTag(etag)
+                    .lastModified(versions.tickerLastModified(ticker))
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT);
+        }
+        return builder;
     }
 }
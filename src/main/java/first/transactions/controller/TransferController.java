@@ -1,8 +1,11 @@
 package first.transactions.controller;
 
 import first.transactions.model.Transfers;
+import first.transactions.dto.BatchTransferRequest;
 import first.transactions.dto.TransferRequest;
 import first.transactions.dto.DeleteTransactionRequest;
+import first.transactions.dto.TransferHistoryFilter;
+import first.transactions.dto.TransferTotalsResponse;
 import first.transactions.service.TransferService;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -10,6 +13,8 @@ import org.springframework.web.bind.annotation.*;
 import java.util.List;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/transfers")
@@ -33,6 +38,17 @@ public class TransferController {
             return ResponseEntity.badRequest().body(result.getMessage());
         }
     }
+    @PostMapping("/batch")
+    public ResponseEntity<?> sendBatch(@RequestBody BatchTransferRequest request, Authentication authentication) {
+        // Delegate to service layer - all transfers are applied in one transaction
+        TransferService.BatchTransferResult result = transferService.sendBatch(request, authentication.getName());
+
+        if (result.isSuccess()) {
+            return ResponseEntity.ok(result.getResponse());
+        } else {
+            return ResponseEntity.badRequest().body(result.getMessage());
+        }
+    }
     @GetMapping("/my_transactions")
     public ResponseEntity<List<Transfers>> getUserTransfers(Authentication authentication) {
         // Delegate to service layer
@@ -40,6 +56,28 @@ public class TransferController {
         return ResponseEntity.ok(transfers);
     }
 
+    // Keyset-paged history, e.g. /history?limit=100&minAmount=50&cursor=...
+    @GetMapping("/history")
+    public ResponseEntity<?> getHistory(TransferHistoryFilter filter,
+                                        @RequestParam(value = "cursor", required = false) String cursor,
+                                        @RequestParam(value = "limit", defaultValue = "50") int limit,
+                                        Authentication authentication) {
+        try {
+            return ResponseEntity.ok(transferService.getTransferHistory(authentication.getName(), filter, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Full filtered history as one JSON array, written row by row from a DB cursor
+    @GetMapping("/history/stream")
+    public ResponseEntity<StreamingResponseBody> streamHistory(TransferHistoryFilter filter, Authentication authentication) {
+        // Resolve the user here - the body is written on another thread
+        String username = authentication.getName();
+        StreamingResponseBody body = out -> transferService.writeTransferHistory(username, filter, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     @PostMapping("/delete_transaction")
     public ResponseEntity<String> delete(@RequestBody DeleteTransactionRequest request, Authentication authentication) {
         // Delegate to service layer
@@ -66,6 +104,12 @@ public class TransferController {
         double total = transferService.calculateTotalTransfers(authentication.getName());
         return ResponseEntity.ok(total);
     }
+
+    @GetMapping("/totals")
+    public ResponseEntity<TransferTotalsResponse> totals(Authentication authentication) {
+        // Delegate to service layer
+        return ResponseEntity.ok(transferService.getTransferTotals(authentication.getName()));
+    }
 //    @PostMapping("/send_to_user")
 //    public ResponseEntity<String> sendToUser(Authentication authentication, @RequestBody TransferRequest transferRequest) {
 //        // Delegate to service layer
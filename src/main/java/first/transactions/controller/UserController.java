@@ -1,11 +1,15 @@
 package first.transactions.controller;
 
+import first.transactions.dto.UserPage;
+import first.transactions.dto.UserResponseDto;
 import first.transactions.model.User;
 import first.transactions.service.UserService;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.core.Authentication;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import jakarta.validation.constraints.*;
 import java.util.List;
 
@@ -26,6 +30,22 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
 
+    // Keyset-paged users as DTOs, e.g. /users/page?limit=200&cursor=4711
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<UserPage> getUsersPage(@RequestParam(value = "cursor", required = false) Long cursor,
+                                                 @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return ResponseEntity.ok(userService.getUsersPage(cursor, limit));
+    }
+
+    // Every user as one JSON array, written row by row from a DB cursor
+    @GetMapping("/stream")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        StreamingResponseBody body = userService::writeUsers;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     @PostMapping("/add_balance")
     public ResponseEntity<String> addBalance(
             @RequestBody @NotNull(message = "Balance amount is required") 
@@ -46,16 +66,16 @@ public class UserController {
     }
 
     @GetMapping("/user_profile")
-    public ResponseEntity<User> getUserProfile(Authentication authentication){
+    public ResponseEntity<UserResponseDto> getUserProfile(Authentication authentication){
         // Delegate to service layer
-        User user = userService.getUserProfile(authentication.getName());
+        UserResponseDto user = userService.getUserProfile(authentication.getName());
         return ResponseEntity.ok(user);
     }
 
     @GetMapping("/profile/{username}")
-    public ResponseEntity<User> getUserByUsername(@PathVariable("username") String username) {
+    public ResponseEntity<UserResponseDto> getUserByUsername(@PathVariable("username") String username) {
         try {
-            User user = userService.getUserByUsername(username);
+            UserResponseDto user = userService.getUserByUsername(username);
             return ResponseEntity.ok(user);
         } catch (Exception e) {
             return ResponseEntity.notFound().build();
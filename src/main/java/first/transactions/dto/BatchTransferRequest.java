@@ -0,0 +1,24 @@
+package first.transactions.dto;
+
+import java.util.List;
+
+public class BatchTransferRequest {
+
+    private List<TransferRequest> transfers;
+
+    // Constructors
+    public BatchTransferRequest() {}
+
+    public BatchTransferRequest(List<TransferRequest> transfers) {
+        this.transfers = transfers;
+    }
+
+    // Getters and setters
+    public List<TransferRequest> getTransfers() {
+        return transfers;
+    }
+
+    public void setTransfers(List<TransferRequest> transfers) {
+        this.transfers = transfers;
+    }
+}
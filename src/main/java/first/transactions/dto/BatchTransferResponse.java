@@ -0,0 +1,52 @@
+package first.transactions.dto;
+
+public class BatchTransferResponse {
+
+    private int transferCount;
+    private double totalAmount;
+    private long durationMillis;
+    private double transfersPerSecond;
+
+    // Constructors
+    public BatchTransferResponse() {}
+
+    public BatchTransferResponse(int transferCount, double totalAmount, long durationMillis, double transfersPerSecond) {
+        this.transferCount = transferCount;
+        this.totalAmount = totalAmount;
+        this.durationMillis = durationMillis;
+        this.transfersPerSecond = transfersPerSecond;
+    }
+
+    // Getters and setters
+    public int getTransferCount() {
+        return transferCount;
+    }
+
+    public void setTransferCount(int transferCount) {
+        this.transferCount = transferCount;
+    }
+
+    public double getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(double totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public double getTransfersPerSecond() {
+        return transfersPerSecond;
+    }
+
+    public void setTransfersPerSecond(double transfersPerSecond) {
+        this.transfersPerSecond = transfersPerSecond;
+    }
+}
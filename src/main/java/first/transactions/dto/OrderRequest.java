@@ -0,0 +1,83 @@
+package first.transactions.dto;
+
+import first.transactions.model.OrderSide;
+import first.transactions.model.OrderType;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+
+public class OrderRequest {
+
+    @NotBlank(message = "Ticker symbol is required")
+    @Pattern(regexp = "^[A-Z]{1,5}$", message = "Ticker must be 1-5 uppercase letters")
+    private String ticker;
+
+    @NotNull(message = "Order side is required")
+    private OrderSide side;
+
+    @NotNull(message = "Order type is required")
+    private OrderType type = OrderType.LIMIT;
+
+    @NotNull(message = "Quantity is required")
+    @DecimalMin(value = "0.001", message = "Minimum quantity is 0.001 shares")
+    @DecimalMax(value = "1000000.0", message = "Maximum quantity is 1,000,000 shares")
+    private Double quantity;
+
+    // Required for LIMIT orders, ignored for MARKET orders
+    @DecimalMin(value = "0.01", message = "Minimum limit price is $0.01")
+    private Double limitPrice;
+
+    // Constructors
+    public OrderRequest() {}
+
+    public OrderRequest(String ticker, OrderSide side, OrderType type, Double quantity, Double limitPrice) {
+        this.ticker = ticker;
+        this.side = side;
+        this.type = type;
+        this.quantity = quantity;
+        this.limitPrice = limitPrice;
+    }
+
+    // Getters and setters
+    public String getTicker() {
+        return ticker;
+    }
+
+    public void setTicker(String ticker) {
+        this.ticker = ticker;
+    }
+
+    public OrderSide getSide() {
+        return side;
+    }
+
+    public void setSide(OrderSide side) {
+        this.side = side;
+    }
+
+    public OrderType getType() {
+        return type;
+    }
+
+    public void setType(OrderType type) {
+        this.type = type;
+    }
+
+    public Double getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Double quantity) {
+        this.quantity = quantity;
+    }
+
+    public Double getLimitPrice() {
+        return limitPrice;
+    }
+
+    public void setLimitPrice(Double limitPrice) {
+        this.limitPrice = limitPrice;
+    }
+}
@@ -0,0 +1,96 @@
+package first.transactions.dto;
+
+import first.transactions.model.OrderSide;
+import first.transactions.model.OrderType;
+
+public class OrderResponse {
+
+    private Long orderId;            // null when nothing rests in the book
+    private String ticker;
+    private OrderSide side;
+    private OrderType type;
+    private String status;           // FILLED, PARTIALLY_FILLED, OPEN, CANCELLED
+    private Double filledQuantity;
+    private Double openQuantity;
+    private Double averagePrice;     // null when nothing was filled
+
+    // Constructors
+    public OrderResponse() {}
+
+    public OrderResponse(Long orderId, String ticker, OrderSide side, OrderType type, String status,
+                         Double filledQuantity, Double openQuantity, Double averagePrice) {
+        this.orderId = orderId;
+        this.ticker = ticker;
+        this.side = side;
+        this.type = type;
+        this.status = status;
+        this.filledQuantity = filledQuantity;
+        this.openQuantity = openQuantity;
+        this.averagePrice = averagePrice;
+    }
+
+    // Getters and setters
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getTicker() {
+        return ticker;
+    }
+
+    public void setTicker(String ticker) {
+        this.ticker = ticker;
+    }
+
+    public OrderSide getSide() {
+        return side;
+    }
+
+    public void setSide(OrderSide side) {
+        this.side = side;
+    }
+
+    public OrderType getType() {
+        return type;
+    }
+
+    public void setType(OrderType type) {
+        this.type = type;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Double getFilledQuantity() {
+        return filledQuantity;
+    }
+
+    public void setFilledQuantity(Double filledQuantity) {
+        this.filledQuantity = filledQuantity;
+    }
+
+    public Double getOpenQuantity() {
+        return openQuantity;
+    }
+
+    public void setOpenQuantity(Double openQuantity) {
+        this.openQuantity = openQuantity;
+    }
+
+    public Double getAveragePrice() {
+        return averagePrice;
+    }
+
+    public void setAveragePrice(Double averagePrice) {
+        this.averagePrice = averagePrice;
+    }
+}
@@ -0,0 +1,125 @@
+package first.transactions.dto;
+
+import java.time.LocalDateTime;
+
+public class PortfolioItem {
+
+    private Long id;
+    private Long userId;
+    private String username;
+    private Double totalValue;
+    private Double cashBalance;
+    private Double investmentsValue;
+    private Double totalInvested;
+    private Double profit;
+    private Double profitPercentage;
+    private Integer totalHoldings;
+    private LocalDateTime lastUpdated;
+
+    // Constructors
+    public PortfolioItem() {}
+
+    // Used by JPQL constructor expressions, so rows are never managed entities
+    public PortfolioItem(Long id, Long userId, String username, Double totalValue, Double cashBalance, Double investmentsValue, Double totalInvested, Double profit, Double profitPercentage, Integer totalHoldings, LocalDateTime lastUpdated) {
+        this.id = id;
+        this.userId = userId;
+        this.username = username;
+        this.totalValue = totalValue;
+        this.cashBalance = cashBalance;
+        this.investmentsValue = investmentsValue;
+        this.totalInvested = totalInvested;
+        this.profit = profit;
+        this.profitPercentage = profitPercentage;
+        this.totalHoldings = totalHoldings;
+        this.lastUpdated = lastUpdated;
+    }
+
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public Double getTotalValue() {
+        return totalValue;
+    }
+
+    public void setTotalValue(Double totalValue) {
+        this.totalValue = totalValue;
+    }
+
+    public Double getCashBalance() {
+        return cashBalance;
+    }
+
+    public void setCashBalance(Double cashBalance) {
+        this.cashBalance = cashBalance;
+    }
+
+    public Double getInvestmentsValue() {
+        return investmentsValue;
+    }
+
+    public void setInvestmentsValue(Double investmentsValue) {
+        this.investmentsValue = investmentsValue;
+    }
+
+    public Double getTotalInvested() {
+        return totalInvested;
+    }
+
+    public void setTotalInvested(Double totalInvested) {
+        this.totalInvested = totalInvested;
+    }
+
+    public Double getProfit() {
+        return profit;
+    }
+
+    public void setProfit(Double profit) {
+        this.profit = profit;
+    }
+
+    public Double getProfitPercentage() {
+        return profitPercentage;
+    }
+
+    public void setProfitPercentage(Double profitPercentage) {
+        this.profitPercentage = profitPercentage;
+    }
+
+    public Integer getTotalHoldings() {
+        return totalHoldings;
+    }
+
+    public void setTotalHoldings(Integer totalHoldings) {
+        this.totalHoldings = totalHoldings;
+    }
+
+    public LocalDateTime getLastUpdated() {
+        return lastUpdated;
+    }
+
+    public void setLastUpdated(LocalDateTime lastUpdated) {
+        this.lastUpdated = lastUpdated;
+    }
+}
@@ -0,0 +1,35 @@
+package first.transactions.dto;
+
+import java.util.List;
+
+public class PortfolioPage {
+
+    private List<PortfolioItem> portfolios;
+    // Pass back as ?cursor= for the next page; null on the last page
+    private Long nextCursor;
+
+    // Constructors
+    public PortfolioPage() {}
+
+    public PortfolioPage(List<PortfolioItem> portfolios, Long nextCursor) {
+        this.portfolios = portfolios;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and setters
+    public List<PortfolioItem> getPortfolios() {
+        return portfolios;
+    }
+
+    public void setPortfolios(List<PortfolioItem> portfolios) {
+        this.portfolios = portfolios;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
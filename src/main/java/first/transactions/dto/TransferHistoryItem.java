@@ -0,0 +1,55 @@
+package first.transactions.dto;
+
+import java.time.LocalDateTime;
+
+public class TransferHistoryItem {
+
+    private Long id;
+    private double amount;
+    private String recipient;
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public TransferHistoryItem() {}
+
+    // Used by JPQL constructor expressions, so rows are never managed entities
+    public TransferHistoryItem(Long id, double amount, String recipient, LocalDateTime createdAt) {
+        this.id = id;
+        this.amount = amount;
+        this.recipient = recipient;
+        this.createdAt = createdAt;
+    }
+
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(double amount) {
+        this.amount = amount;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public void setRecipient(String recipient) {
+        this.recipient = recipient;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
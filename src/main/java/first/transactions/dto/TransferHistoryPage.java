@@ -0,0 +1,35 @@
+package first.transactions.dto;
+
+import java.util.List;
+
+public class TransferHistoryPage {
+
+    private List<TransferHistoryItem> transfers;
+    // Pass back as ?cursor= for the next page; null on the last page
+    private String nextCursor;
+
+    // Constructors
+    public TransferHistoryPage() {}
+
+    public TransferHistoryPage(List<TransferHistoryItem> transfers, String nextCursor) {
+        this.transfers = transfers;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and setters
+    public List<TransferHistoryItem> getTransfers() {
+        return transfers;
+    }
+
+    public void setTransfers(List<TransferHistoryItem> transfers) {
+        this.transfers = transfers;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
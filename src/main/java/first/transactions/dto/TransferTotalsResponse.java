@@ -0,0 +1,114 @@
+package first.transactions.dto;
+
+public class TransferTotalsResponse {
+
+    private double totalSent;
+    private double totalReceived;
+    private long transferCount;
+    private double netAmount;
+    private WindowTotals last30Days;
+    private WindowTotals yearToDate;
+
+    // Constructors
+    public TransferTotalsResponse() {}
+
+    public TransferTotalsResponse(double totalSent, double totalReceived, long transferCount, double netAmount,
+                                  WindowTotals last30Days, WindowTotals yearToDate) {
+        this.totalSent = totalSent;
+        this.totalReceived = totalReceived;
+        this.transferCount = transferCount;
+        this.netAmount = netAmount;
+        this.last30Days = last30Days;
+        this.yearToDate = yearToDate;
+    }
+
+    // Getters and setters
+    public double getTotalSent() {
+        return totalSent;
+    }
+
+    public void setTotalSent(double totalSent) {
+        this.totalSent = totalSent;
+    }
+
+    public double getTotalReceived() {
+        return totalReceived;
+    }
+
+    public void setTotalReceived(double totalReceived) {
+        this.totalReceived = totalReceived;
+    }
+
+    public long getTransferCount() {
+        return transferCount;
+    }
+
+    public void setTransferCount(long transferCount) {
+        this.transferCount = transferCount;
+    }
+
+    public double getNetAmount() {
+        return netAmount;
+    }
+
+    public void setNetAmount(double netAmount) {
+        this.netAmount = netAmount;
+    }
+
+    public WindowTotals getLast30Days() {
+        return last30Days;
+    }
+
+    public void setLast30Days(WindowTotals last30Days) {
+        this.last30Days = last30Days;
+    }
+
+    public WindowTotals getYearToDate() {
+        return yearToDate;
+    }
+
+    public void setYearToDate(WindowTotals yearToDate) {
+        this.yearToDate = yearToDate;
+    }
+
+    /**
+     * Sent / received / count within a time window
+     */
+    public static class WindowTotals {
+        private double sent;
+        private double received;
+        private long count;
+
+        public WindowTotals() {}
+
+        public WindowTotals(double sent, double received, long count) {
+            this.sent = sent;
+            this.received = received;
+            this.count = count;
+        }
+
+        public double getSent() {
+            return sent;
+        }
+
+        public void setSent(double sent) {
+            this.sent = sent;
+        }
+
+        public double getReceived() {
+            return received;
+        }
+
+        public void setReceived(double received) {
+            this.received = received;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+    }
+}
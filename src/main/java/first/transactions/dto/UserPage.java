@@ -0,0 +1,35 @@
+package first.transactions.dto;
+
+import java.util.List;
+
+public class UserPage {
+
+    private List<UserResponseDto> users;
+    // Pass back as ?cursor= for the next page; null on the last page
+    private Long nextCursor;
+
+    // Constructors
+    public UserPage() {}
+
+    public UserPage(List<UserResponseDto> users, Long nextCursor) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and setters
+    public List<UserResponseDto> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<UserResponseDto> users) {
+        this.users = users;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
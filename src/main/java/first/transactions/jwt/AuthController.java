@@ -36,8 +36,8 @@ public class AuthController {
             throw new RuntimeException("Wrong password");
         }
         
-        // Generate token
-        String token = jwtUtil.generateToken(loginRequest.getUsername());
+        // Generate token (role travels in the token so requests need no user lookup)
+        String token = jwtUtil.generateToken(loginRequest.getUsername(), user.getRole().name());
         
         // Return structured response
         return new LoginResponseDto(
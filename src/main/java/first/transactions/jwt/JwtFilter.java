@@ -1,27 +1,38 @@
 package first.transactions.jwt;
 
+import first.transactions.service.TradingMetrics;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collections;
 
 @Component
 public class JwtFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final VerifiedTokenCache tokenCache;
+    private final TradingMetrics metrics;
 
-    public JwtFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+    public JwtFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService, VerifiedTokenCache tokenCache,
+                     TradingMetrics metrics) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
+        this.tokenCache = tokenCache;
+        this.metrics = metrics;
     }
 
     @Override
@@ -38,27 +49,63 @@ public class JwtFilter extends OncePerRequestFilter {
             return;
         }
 
+        long start = System.nanoTime();
+        TradingMetrics.JwtOutcome outcome = TradingMetrics.JwtOutcome.ANONYMOUS;
         String authHeader = request.getHeader("Authorization");
 
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+        if (authHeader != null && authHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
             String token = authHeader.substring(7);
-            String username = jwtUtil.extractUsername(token);
+            Authentication authentication = tokenCache.get(token);
+            outcome = TradingMetrics.JwtOutcome.CACHED;
+            if (authentication == null) {
+                authentication = authenticate(token);
+                outcome = authentication != null ? TradingMetrics.JwtOutcome.VERIFIED : TradingMetrics.JwtOutcome.INVALID;
+            }
+            if (authentication != null) {
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
+        }
+        metrics.jwtFiltered(outcome, start);
 
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        filterChain.doFilter(request, response);
+    }
 
-                if (jwtUtil.validateToken(token, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken =
-                            new UsernamePasswordAuthenticationToken(
-                                    userDetails,
-                                    null,
-                                    userDetails.getAuthorities()
-                            );
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                }
+    /**
+     * Verify a token once and build its authentication.
+     * The role comes from the token; only tokens issued before the role claim existed
+     * fall back to loading the user.
+     */
+    private Authentication authenticate(String token) {
+        Claims claims = jwtUtil.parseToken(token);
+        if (claims == null || claims.getSubject() == null || claims.getExpiration() == null) {
+            return null;
+        }
+
+        String username = claims.getSubject();
+        String role = claims.get(JwtUtil.ROLE_CLAIM, String.class);
+
+        UserDetails userDetails;
+        if (role != null) {
+            userDetails = org.springframework.security.core.userdetails.User
+                    .withUsername(username)
+                    .password("")
+                    .authorities(Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role)))
+                    .build();
+        } else {
+            try {
+                userDetails = userDetailsService.loadUserByUsername(username);
+            } catch (UsernameNotFoundException e) {
+                return null;
             }
         }
 
-        filterChain.doFilter(request, response);
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+                userDetails,
+                null,
+                userDetails.getAuthorities()
+        );
+        tokenCache.put(token, authentication, claims.getExpiration().getTime());
+        return authentication;
     }
-}
\ No newline at end of file
+}
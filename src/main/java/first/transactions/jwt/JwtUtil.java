@@ -11,50 +11,69 @@ import java.util.Date;
 @Component
 public class JwtUtil {
 
+    public static final String ROLE_CLAIM = "role";
+
     private final String SECRET_KEY = "mySuperSecretKey123456789012345678901234567890";
     private final long EXPIRATION_TIME = 1000 * 60 * 60; // 1 hour
 
     private final Key key = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
 
+    // Parsers are immutable and thread-safe - build once instead of per call
+    private final JwtParser parser = Jwts.parserBuilder()
+            .setSigningKey(key)
+            .build();
+
     // Generate token from username
     public String generateToken(String username) {
-        return Jwts.builder()
+        return generateToken(username, null);
+    }
+
+    // Generate token carrying the user's role, so requests can be authorized without a DB lookup
+    public String generateToken(String username, String role) {
+        JwtBuilder builder = Jwts.builder()
                 .setSubject(username)
                 .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(key, SignatureAlgorithm.HS256)
-                .compact();
+                .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME));
+        if (role != null) {
+            builder.claim(ROLE_CLAIM, role);
+        }
+        return builder.signWith(key, SignatureAlgorithm.HS256).compact();
+    }
+
+    /**
+     * Verify the signature and expiry once and return the claims
+     * @param token Compact JWT
+     * @return Claims, or null if the token is invalid or expired
+     */
+    public Claims parseToken(String token) {
+        try {
+            return parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
     }
 
     // Extract username from token
     public String extractUsername(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
+        return parser.parseClaimsJws(token)
                 .getBody()
                 .getSubject();
     }
 
     // Validate token against UserDetails
     public boolean validateToken(String token, UserDetails userDetails) {
-        String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return validateToken(token, userDetails.getUsername());
     }
 
-    // Validate token against plain username
+    // Validate token against plain username (the parser already rejects expired tokens)
     public boolean validateToken(String token, String username) {
-        return (username.equals(extractUsername(token)) && !isTokenExpired(token));
+        Claims claims = parseToken(token);
+        return claims != null && username.equals(claims.getSubject()) && !isTokenExpired(claims);
     }
 
     // Check if token is expired
-    private boolean isTokenExpired(String token) {
-        Date expiration = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getExpiration();
-        return expiration.before(new Date());
+    private boolean isTokenExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.before(new Date());
     }
 }
@@ -0,0 +1,92 @@
+package first.transactions.jwt;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of already verified tokens.
+ * An entry lives until the earlier of the token's expiry and the configured TTL, so a
+ * repeat request with the same token skips both signature verification and the
+ * user lookup.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile long lastEvictionMillis;
+
+    public VerifiedTokenCache(@Value("${jwt.cache.max-size:10000}") int maxSize,
+                              @Value("${jwt.cache.ttl-ms:300000}") long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Get the authentication for a token verified earlier
+     * @param token Compact JWT
+     * @return Authentication, or null if not cached or expired
+     */
+    public Authentication get(String token) {
+        Entry entry = entries.get(token);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(token, entry);
+            return null;
+        }
+        return entry.authentication;
+    }
+
+    /**
+     * Cache a verified token
+     * @param token Compact JWT
+     * @param authentication Authentication built from the token
+     * @param tokenExpiresAt Token expiry (epoch millis)
+     */
+    public void put(String token, Authentication authentication, long tokenExpiresAt) {
+        long now = System.currentTimeMillis();
+        long expiresAt = Math.min(tokenExpiresAt, now + ttlMillis);
+        if (expiresAt <= now) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            evictExpired(now);
+            if (entries.size() >= maxSize) {
+                // Still full of live tokens - skip caching rather than grow without bound
+                return;
+            }
+        }
+        entries.put(token, new Entry(authentication, expiresAt));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evictExpired(long now) {
+        // At most one full scan per second when the cache is saturated
+        if (now - lastEvictionMillis < 1000) {
+            return;
+        }
+        lastEvictionMillis = now;
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+    }
+
+    private static final class Entry {
+        private final Authentication authentication;
+        private final long expiresAt;
+
+        private Entry(Authentication authentication, long expiresAt) {
+            this.authentication = authentication;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
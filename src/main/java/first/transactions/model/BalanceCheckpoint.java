@@ -0,0 +1,55 @@
+package first.transactions.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running balance of a ledger account up to and including entry lastEntryId.
+ * Current balance = balance + sum of the account's entries with id > lastEntryId.
+ */
+@Entity
+@Table(name = "balance_checkpoints")
+public class BalanceCheckpoint {
+
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Column(nullable = false)
+    private double balance;
+
+    @Column(name = "last_entry_id", nullable = false)
+    private long lastEntryId;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    public BalanceCheckpoint() {}
+
+    public BalanceCheckpoint(Long accountId, double balance, long lastEntryId) {
+        this.accountId = accountId;
+        this.balance = balance;
+        this.lastEntryId = lastEntryId;
+    }
+
+    // Roll the checkpoint forward over newer entries
+    public void advance(double delta, long upToEntryId) {
+        this.balance += delta;
+        this.lastEntryId = upToEntryId;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // Getters and setters
+    public Long getAccountId() { return accountId; }
+    public void setAccountId(Long accountId) { this.accountId = accountId; }
+
+    public double getBalance() { return balance; }
+    public void setBalance(double balance) { this.balance = balance; }
+
+    public long getLastEntryId() { return lastEntryId; }
+    public void setLastEntryId(long lastEntryId) { this.lastEntryId = lastEntryId; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,44 @@
+package first.transactions.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+public enum CandleInterval {
+    ONE_MINUTE("1m", Duration.ofMinutes(1)),
+    FIVE_MINUTES("5m", Duration.ofMinutes(5)),
+    ONE_HOUR("1h", Duration.ofHours(1)),
+    ONE_DAY("1d", Duration.ofDays(1));
+
+    private final String code;
+    private final Duration length;
+
+    CandleInterval(String code, Duration length) {
+        this.code = code;
+        this.length = length;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public Duration getLength() {
+        return length;
+    }
+
+    // Start of the bucket containing the given time
+    public LocalDateTime bucketStart(LocalDateTime time) {
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        long lengthSeconds = length.getSeconds();
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(seconds, lengthSeconds) * lengthSeconds, 0, ZoneOffset.UTC);
+    }
+
+    public static CandleInterval fromCode(String code) {
+        for (CandleInterval interval : values()) {
+            if (interval.code.equalsIgnoreCase(code)) {
+                return interval;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported candle interval: " + code + " (use 1m, 5m, 1h or 1d)");
+    }
+}
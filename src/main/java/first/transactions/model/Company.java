@@ -19,6 +19,18 @@ public class Company {
     private Long totalShares;
     private Long availableShares;
 
+    public Company() {}
+
+    // Detached copy with the same id, for changes that must stay private until they commit
+    public Company(Company other) {
+        this.id = other.id;
+        this.tickerSymbol = other.tickerSymbol;
+        this.name = other.name;
+        this.lastStockPrice = other.lastStockPrice;
+        this.totalShares = other.totalShares;
+        this.availableShares = other.availableShares;
+    }
+
     // Getters + Setters
     public Long getId() { return id; }
     public String getTickerSymbol() { return tickerSymbol; }
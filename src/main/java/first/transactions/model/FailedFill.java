@@ -0,0 +1,88 @@
+package first.transactions.model;
+
+import first.transactions.service.MatchingEngine;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Order book fill that could not be persisted after its retries. The matched cash and
+ * shares stay reserved while the row exists, and OrderFillWriter replays it until it
+ * goes through.
+ */
+@Entity
+@Table(name = "failed_fills")
+public class FailedFill {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "ticker_symbol", nullable = false)
+    private String tickerSymbol;
+
+    @Column(name = "maker_order_id", nullable = false)
+    private long makerOrderId;
+
+    @Column(name = "maker_user_id", nullable = false)
+    private long makerUserId;
+
+    @Column(name = "taker_user_id", nullable = false)
+    private long takerUserId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "taker_side", nullable = false)
+    private OrderSide takerSide;
+
+    @Column(name = "price_ticks", nullable = false)
+    private long priceTicks;
+
+    @Column(nullable = false)
+    private long quantity;
+
+    @Column(name = "taker_limit_ticks", nullable = false)
+    private long takerLimitTicks;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "failed_at")
+    private LocalDateTime failedAt = LocalDateTime.now();
+
+    public FailedFill() {}
+
+    public FailedFill(MatchingEngine.Fill fill, String lastError, int attempts) {
+        this.tickerSymbol = fill.getTickerSymbol();
+        this.makerOrderId = fill.getMakerOrderId();
+        this.makerUserId = fill.getMakerUserId();
+        this.takerUserId = fill.getTakerUserId();
+        this.takerSide = fill.getTakerSide();
+        this.priceTicks = fill.getPriceTicks();
+        this.quantity = fill.getQuantity();
+        this.takerLimitTicks = fill.getTakerLimitTicks();
+        this.attempts = attempts;
+        failedAgain(lastError, 0);
+    }
+
+    public MatchingEngine.Fill toFill() {
+        return new MatchingEngine.Fill(tickerSymbol, makerOrderId, makerUserId, takerUserId,
+                takerSide, priceTicks, quantity, takerLimitTicks);
+    }
+
+    // Another replay failed
+    public void failedAgain(String error, int moreAttempts) {
+        this.lastError = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+        this.attempts += moreAttempts;
+        this.failedAt = LocalDateTime.now();
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public String getTickerSymbol() { return tickerSymbol; }
+    public String getLastError() { return lastError; }
+    public int getAttempts() { return attempts; }
+    public LocalDateTime getFailedAt() { return failedAt; }
+}
@@ -0,0 +1,26 @@
+package first.transactions.model;
+
+public enum LeaderboardMetric {
+    PROFIT("profit"),
+    PROFIT_PERCENTAGE("profitPercentage"),
+    TOTAL_VALUE("totalValue");
+
+    private final String code;
+
+    LeaderboardMetric(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public static LeaderboardMetric fromCode(String code) {
+        for (LeaderboardMetric metric : values()) {
+            if (metric.code.equalsIgnoreCase(code)) {
+                return metric;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported leaderboard metric: " + code + " (use profit, profitPercentage or totalValue)");
+    }
+}
@@ -0,0 +1,74 @@
+package first.transactions.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One leg of a double-entry cash posting.
+ * Every movement writes two rows with opposite amounts (debit negative, credit
+ * positive), so the amounts of all entries always sum to zero. Rows are never
+ * updated or deleted.
+ */
+@Entity
+@Table(name = "ledger_entries",
+       indexes = @Index(name = "idx_ledger_account_id", columnList = "account_id, id"))
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_entry_seq")
+    @SequenceGenerator(name = "ledger_entry_seq", sequenceName = "LEDGER_ENTRY_SEQ", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;          // user id, or a negative system account
+
+    @Column(name = "counterparty_account_id", nullable = false)
+    private Long counterpartyAccountId;
+
+    @Column(nullable = false)
+    private double amount;           // signed: credit > 0, debit < 0
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false, length = 20)
+    private LedgerEntryType entryType;
+
+    @Column(length = 100)
+    private String reference;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public LedgerEntry() {}
+
+    public LedgerEntry(Long accountId, Long counterpartyAccountId, double amount,
+                       LedgerEntryType entryType, String reference) {
+        this.accountId = accountId;
+        this.counterpartyAccountId = counterpartyAccountId;
+        this.amount = amount;
+        this.entryType = entryType;
+        this.reference = reference;
+    }
+
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getAccountId() { return accountId; }
+    public void setAccountId(Long accountId) { this.accountId = accountId; }
+
+    public Long getCounterpartyAccountId() { return counterpartyAccountId; }
+    public void setCounterpartyAccountId(Long counterpartyAccountId) { this.counterpartyAccountId = counterpartyAccountId; }
+
+    public double getAmount() { return amount; }
+    public void setAmount(double amount) { this.amount = amount; }
+
+    public LedgerEntryType getEntryType() { return entryType; }
+    public void setEntryType(LedgerEntryType entryType) { this.entryType = entryType; }
+
+    public String getReference() { return reference; }
+    public void setReference(String reference) { this.reference = reference; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
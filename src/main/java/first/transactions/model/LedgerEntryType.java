@@ -0,0 +1,12 @@
+package first.transactions.model;
+
+/**
+ * Why cash moved - recorded on every ledger posting
+ */
+public enum LedgerEntryType {
+    DEPOSIT,
+    TRANSFER,
+    STOCK_BUY,
+    STOCK_SELL,
+    ORDER_FILL
+}
@@ -0,0 +1,6 @@
+package first.transactions.model;
+
+public enum OrderSide {
+    BUY,
+    SELL
+}
@@ -0,0 +1,6 @@
+package first.transactions.model;
+
+public enum OrderType {
+    LIMIT,   // rests in the book until filled or cancelled
+    MARKET   // fills what it can against the book, remainder is cancelled
+}
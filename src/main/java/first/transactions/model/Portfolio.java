@@ -1,5 +1,6 @@
 package first.transactions.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
@@ -14,6 +15,7 @@ public class Portfolio {
     // One-to-One relationship - each user has exactly one portfolio
     @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", unique = true)
+    @JsonIgnoreProperties({"transactions", "hibernateLazyInitializer", "handler"}) // owner only, not every transfer
     private User user;
     
     @Column(nullable = false)
@@ -0,0 +1,123 @@
+package first.transactions.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * OHLCV bar for one ticker, interval and time bucket.
+ * Keyed by (ticker, interval, bucket start) so rollups are upserts by natural key.
+ */
+@Entity
+@Table(name = "stock_candles")
+@IdClass(StockCandle.CandleKey.class)
+public class StockCandle {
+
+    @Id
+    @Column(name = "ticker_symbol", length = 10)
+    private String tickerSymbol;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "candle_interval", length = 16)
+    private CandleInterval interval;
+
+    @Id
+    @Column(name = "bucket_start")
+    private LocalDateTime bucketStart;
+
+    @Column(name = "open_price", nullable = false)
+    private double open;
+
+    @Column(name = "high_price", nullable = false)
+    private double high;
+
+    @Column(name = "low_price", nullable = false)
+    private double low;
+
+    @Column(name = "close_price", nullable = false)
+    private double close;
+
+    @Column(nullable = false)
+    private double volume;        // shares traded
+
+    @Column(name = "trade_count", nullable = false)
+    private long tradeCount;
+
+    public StockCandle() {}
+
+    public StockCandle(String tickerSymbol, CandleInterval interval, LocalDateTime bucketStart,
+                       double open, double high, double low, double close, double volume, long tradeCount) {
+        this.tickerSymbol = tickerSymbol;
+        this.interval = interval;
+        this.bucketStart = bucketStart;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.tradeCount = tradeCount;
+    }
+
+    // Getters and setters
+    public String getTickerSymbol() { return tickerSymbol; }
+    public void setTickerSymbol(String tickerSymbol) { this.tickerSymbol = tickerSymbol; }
+
+    public CandleInterval getInterval() { return interval; }
+    public void setInterval(CandleInterval interval) { this.interval = interval; }
+
+    public LocalDateTime getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+
+    public double getOpen() { return open; }
+    public void setOpen(double open) { this.open = open; }
+
+    public double getHigh() { return high; }
+    public void setHigh(double high) { this.high = high; }
+
+    public double getLow() { return low; }
+    public void setLow(double low) { this.low = low; }
+
+    public double getClose() { return close; }
+    public void setClose(double close) { this.close = close; }
+
+    public double getVolume() { return volume; }
+    public void setVolume(double volume) { this.volume = volume; }
+
+    public long getTradeCount() { return tradeCount; }
+    public void setTradeCount(long tradeCount) { this.tradeCount = tradeCount; }
+
+    /**
+     * Composite primary key
+     */
+    public static class CandleKey implements Serializable {
+        private String tickerSymbol;
+        private CandleInterval interval;
+        private LocalDateTime bucketStart;
+
+        public CandleKey() {}
+
+        public CandleKey(String tickerSymbol, CandleInterval interval, LocalDateTime bucketStart) {
+            this.tickerSymbol = tickerSymbol;
+            this.interval = interval;
+            this.bucketStart = bucketStart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CandleKey)) return false;
+            CandleKey that = (CandleKey) o;
+            return Objects.equals(tickerSymbol, that.tickerSymbol)
+                    && interval == that.interval
+                    && Objects.equals(bucketStart, that.bucketStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tickerSymbol, interval, bucketStart);
+        }
+    }
+}
@@ -7,8 +7,11 @@ import java.time.LocalDateTime;
 @Table(name = "stockhistory")
 public class StockHistory {
 
+    // Sequence ids (allocated 50 at a time) so Hibernate can batch tick inserts - IDENTITY disables JDBC batching.
+    // Existing Oracle schemas need db/oracle/V1__stockhistory_sequence_ids.sql once before this mapping runs.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stockhistory_seq")
+    @SequenceGenerator(name = "stockhistory_seq", sequenceName = "STOCKHISTORY_SEQ", allocationSize = 50)
     private Long id;
 
     @Column(name = "price_date") // optional, maps DB column
@@ -0,0 +1,21 @@
+package first.transactions.model;
+
+public enum TradeRejection {
+    TICKER_NOT_FOUND("ticker_not_found"),
+    ACCOUNT_BUSY("account_busy"),
+    HISTORY_BACKLOG("history_backlog"),
+    INSUFFICIENT_BALANCE("insufficient_balance"),
+    NO_SHARES_AVAILABLE("no_shares_available"),
+    NO_POSITION("no_position"),
+    INSUFFICIENT_SHARES("insufficient_shares");
+
+    private final String code;
+
+    TradeRejection(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+}
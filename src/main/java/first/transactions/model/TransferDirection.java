@@ -0,0 +1,9 @@
+package first.transactions.model;
+
+/**
+ * Which side of a transfer a record belongs to - the sender's record or the receiver's
+ */
+public enum TransferDirection {
+    SENT,
+    RECEIVED
+}
@@ -0,0 +1,51 @@
+package first.transactions.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Running transfer aggregates of one user, maintained on every transfer write so
+ * totals never need the user's full history.
+ * netAmount is the plain sum of the user's transfer record amounts.
+ */
+@Entity
+@Table(name = "transfer_totals")
+public class TransferTotals {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "total_sent", nullable = false)
+    private double totalSent;
+
+    @Column(name = "total_received", nullable = false)
+    private double totalReceived;
+
+    @Column(name = "transfer_count", nullable = false)
+    private long transferCount;
+
+    @Column(name = "net_amount", nullable = false)
+    private double netAmount;
+
+    public TransferTotals() {}
+
+    public TransferTotals(Long userId) {
+        this.userId = userId;
+    }
+
+    // Getters and setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public double getTotalSent() { return totalSent; }
+    public void setTotalSent(double totalSent) { this.totalSent = totalSent; }
+
+    public double getTotalReceived() { return totalReceived; }
+    public void setTotalReceived(double totalReceived) { this.totalReceived = totalReceived; }
+
+    public long getTransferCount() { return transferCount; }
+    public void setTransferCount(long transferCount) { this.transferCount = transferCount; }
+
+    public double getNetAmount() { return netAmount; }
+    public void setNetAmount(double netAmount) { this.netAmount = netAmount; }
+}
@@ -5,13 +5,25 @@ import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = @Index(name = "idx_transactions_user_created_id", columnList = "user_id, createdAt, id"))
 public class Transfers {
+    // Recipient text shown in a user's history
+    private static final String SENT_PREFIX = "Sent to ";
+    private static final String RECEIVED_PREFIX = "Received from ";
+
+    // Sequence ids so batch transfer rows are JDBC-batched; existing Oracle schemas need
+    // db/oracle/V2__transactions_sequence_ids.sql once before this mapping runs
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "TRANSACTIONS_SEQ", allocationSize = 50)
     private Long id;
     private double amount;
     private String recipient;
+    // What the totals aggregate on; rows older than the column get it from
+    // db/oracle/V3__transactions_direction.sql
+    @Enumerated(EnumType.STRING)
+    @Column(length = 8)
+    private TransferDirection direction;
     private LocalDateTime createdAt = LocalDateTime.now();
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
@@ -19,10 +31,21 @@ public class Transfers {
     private User user;
     public Transfers() {}
 
-    public Transfers(double amount, String recipient, User user) {
+    public Transfers(double amount, String recipient, User user, TransferDirection direction) {
         this.amount = amount;
         this.recipient = recipient;
         this.user = user;
+        this.direction = direction;
+    }
+
+    /** The sender's record of a transfer */
+    public static Transfers sent(double amount, String receiverUsername, User sender) {
+        return new Transfers(amount, SENT_PREFIX + receiverUsername, sender, TransferDirection.SENT);
+    }
+
+    /** The receiver's record of a transfer */
+    public static Transfers received(double amount, String senderUsername, User receiver) {
+        return new Transfers(amount, RECEIVED_PREFIX + senderUsername, receiver, TransferDirection.RECEIVED);
     }
 
     // Getters and setters below
@@ -35,6 +58,9 @@ public class Transfers {
     public String getRecipient() { return recipient; }
     public void setRecipient(String recipient) { this.recipient = recipient; }
 
+    public TransferDirection getDirection() { return direction; }
+    public void setDirection(TransferDirection direction) { this.direction = direction; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
@@ -0,0 +1,13 @@
+package first.transactions.repository;
+
+import first.transactions.model.BalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BalanceCheckpointRepository extends JpaRepository<BalanceCheckpoint, Long> {
+
+    @Query("SELECT COALESCE(MAX(c.lastEntryId), 0) FROM BalanceCheckpoint c")
+    long findHighestCheckpointedEntryId();
+}
@@ -2,8 +2,10 @@ package first.transactions.repository;
 
 import first.transactions.model.Company;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface CompanyRepository extends JpaRepository<Company, Long> {
 
@@ -12,4 +14,12 @@ public interface CompanyRepository extends JpaRepository<Company, Long> {
             nativeQuery = true
     )
     Company findByTickerSymbol(@Param("tickerSymbol") String tickerSymbol);
+
+    // Write-behind of the trading fields only - no select-before-update like merge()
+    @Modifying
+    @Transactional
+    @Query("UPDATE Company c SET c.lastStockPrice = :lastStockPrice, c.availableShares = :availableShares WHERE c.id = :id")
+    int updateTradingState(@Param("id") Long id,
+                           @Param("lastStockPrice") Double lastStockPrice,
+                           @Param("availableShares") Long availableShares);
 }
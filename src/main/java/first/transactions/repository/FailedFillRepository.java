@@ -0,0 +1,14 @@
+package first.transactions.repository;
+
+import first.transactions.model.FailedFill;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface FailedFillRepository extends JpaRepository<FailedFill, Long> {
+
+    // Oldest first, so replays keep match order
+    List<FailedFill> findAllByOrderByIdAsc();
+}
@@ -0,0 +1,31 @@
+package first.transactions.repository;
+
+import first.transactions.model.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    // Tail of an account after its checkpoint (served by the (account_id, id) index)
+    @Query("SELECT COALESCE(SUM(e.amount), 0) FROM LedgerEntry e WHERE e.accountId = :accountId AND e.id > :afterId")
+    double sumAmountAfter(@Param("accountId") Long accountId, @Param("afterId") long afterId);
+
+    // Tails of several accounts after their own checkpoints (all entries without one): [accountId, sum]
+    @Query("SELECT e.accountId, SUM(e.amount) FROM LedgerEntry e WHERE e.accountId IN :accountIds AND e.id > " +
+           "COALESCE((SELECT c.lastEntryId FROM BalanceCheckpoint c WHERE c.accountId = e.accountId), 0) GROUP BY e.accountId")
+    List<Object[]> sumAmountsAfterCheckpoints(@Param("accountIds") Collection<Long> accountIds);
+
+    // Per-account totals of a range of entries: [accountId, sum]
+    @Query("SELECT e.accountId, SUM(e.amount) FROM LedgerEntry e WHERE e.id > :afterId AND e.id <= :upToId GROUP BY e.accountId")
+    List<Object[]> sumByAccountBetween(@Param("afterId") long afterId, @Param("upToId") long upToId);
+
+    @Query("SELECT MAX(e.id) FROM LedgerEntry e WHERE e.createdAt < :before")
+    Long findMaxIdCreatedBefore(@Param("before") LocalDateTime before);
+}
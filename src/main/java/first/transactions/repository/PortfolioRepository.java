@@ -1,25 +1,84 @@
 package first.transactions.repository;
 
+import first.transactions.dto.PortfolioItem;
 import first.transactions.model.Portfolio;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PortfolioRepository extends JpaRepository<Portfolio, Long> {
     
     Optional<Portfolio> findByUserId(Long userId);
-    
-    @Query("SELECT p FROM Portfolio p JOIN p.user u WHERE u.username = :username")
+
+    // Portfolio and its owner in one select
+    @EntityGraph(attributePaths = "user")
+    @Query("SELECT p FROM Portfolio p WHERE p.user.username = :username")
     Optional<Portfolio> findByUserUsername(@Param("username") String username);
+
+    // Every portfolio with its owner in one select
+    @EntityGraph(attributePaths = "user")
+    @Query("SELECT p FROM Portfolio p")
+    List<Portfolio> findAllWithUser();
     
     boolean existsByUserId(Long userId);
     
     void deleteByUserId(Long userId);
     
+    // (userId, profit, profitPercentage, totalValue, lastUpdated) of every portfolio, for the leaderboard
+    @Query("SELECT p.user.id, p.profit, p.profitPercentage, p.totalValue, p.lastUpdated FROM Portfolio p")
+    List<Object[]> findLeaderboardRows();
+
+    // Leaderboard rows of the given users
+    @Query("SELECT p.user.id, p.profit, p.profitPercentage, p.totalValue, p.lastUpdated FROM Portfolio p WHERE p.user.id IN :userIds")
+    List<Object[]> findLeaderboardRowsByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    // Value change of a portfolio holding the ticker when its price moves by :priceDelta
+    String HOLDING_VALUE_CHANGE = "(:priceDelta * COALESCE((SELECT SUM(i.SharesPurchased) FROM Investment i " +
+            "WHERE i.userId = p.user.id AND i.tickerSymbol = :ticker), 0))";
+
+    // Mark-to-market in place: each row is shifted by its own holding, so concurrent revaluations add up
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Portfolio p SET p.investmentsValue = p.investmentsValue + " + HOLDING_VALUE_CHANGE + ", " +
+           "p.profit = p.profit + " + HOLDING_VALUE_CHANGE + ", " +
+           "p.totalValue = p.totalValue + " + HOLDING_VALUE_CHANGE + ", " +
+           "p.profitPercentage = CASE WHEN p.totalInvested > 0 " +
+           "THEN (p.profit + " + HOLDING_VALUE_CHANGE + ") * 100 / p.totalInvested ELSE 0.0 END, " +
+           "p.lastUpdated = :now WHERE p.user.id IN :userIds")
+    int applyPriceMove(@Param("ticker") String ticker,
+                       @Param("priceDelta") double priceDelta,
+                       @Param("userIds") Collection<Long> userIds,
+                       @Param("now") LocalDateTime now);
+
+    String ITEM_SELECT = "SELECT new first.transactions.dto.PortfolioItem(p.id, u.id, u.username, p.totalValue, " +
+            "p.cashBalance, p.investmentsValue, p.totalInvested, p.profit, p.profitPercentage, p.totalHoldings, p.lastUpdated) " +
+            "FROM Portfolio p JOIN p.user u ";
+
+    // Portfolios after an id, as DTOs - neither portfolios nor users become managed entities
+    @Query(ITEM_SELECT + "WHERE (:afterId IS NULL OR p.id > :afterId) ORDER BY p.id")
+    List<PortfolioItem> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Every portfolio as a forward-only cursor; the caller must consume it inside a transaction and close it
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(ITEM_SELECT + "ORDER BY p.id")
+    Stream<PortfolioItem> streamAll();
+
     // Custom query to get portfolio with user data in one query
     @Query("SELECT p FROM Portfolio p JOIN FETCH p.user WHERE p.user.id = :userId")
     Optional<Portfolio> findByUserIdWithUser(@Param("userId") Long userId);
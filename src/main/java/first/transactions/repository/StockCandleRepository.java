@@ -0,0 +1,20 @@
+package first.transactions.repository;
+
+import first.transactions.model.CandleInterval;
+import first.transactions.model.StockCandle;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockCandleRepository extends JpaRepository<StockCandle, StockCandle.CandleKey> {
+
+    List<StockCandle> findByTickerSymbolAndIntervalAndBucketStartBetweenOrderByBucketStartAsc(
+            String tickerSymbol,
+            CandleInterval interval,
+            LocalDateTime start,
+            LocalDateTime end
+    );
+}
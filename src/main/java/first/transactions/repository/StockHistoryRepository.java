@@ -1,11 +1,17 @@
 package first.transactions.repository;
 
 import first.transactions.model.StockHistory;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface StockHistoryRepository extends JpaRepository<StockHistory, Long> {
@@ -22,4 +28,16 @@ public interface StockHistoryRepository extends JpaRepository<StockHistory, Long
 
     // Find the most recent history entry for a ticker
     StockHistory findTopByTickerSymbolOrderByPriceDateDesc(String tickerSymbol);
+
+    @Query("SELECT DISTINCT h.tickerSymbol FROM StockHistory h")
+    List<String> findDistinctTickerSymbols();
+
+    // (priceDate, stockPrice) rows after a time, oldest first, as a forward-only cursor
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT h.priceDate, h.stockPrice FROM StockHistory h WHERE h.tickerSymbol = :ticker " +
+           "AND (:after IS NULL OR h.priceDate > :after) ORDER BY h.priceDate ASC, h.id ASC")
+    Stream<Object[]> streamTicksAfter(@Param("ticker") String ticker, @Param("after") LocalDateTime after);
 }
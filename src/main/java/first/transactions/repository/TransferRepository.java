@@ -1,15 +1,58 @@
 package first.transactions.repository;
 
+import first.transactions.dto.TransferHistoryItem;
 import first.transactions.model.Transfers;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface TransferRepository extends JpaRepository<Transfers, Long> {
     List<Transfers> findByUserUsername(String username);
     @Query(value = "select * from transactions where amount > :sent", nativeQuery = true)
     List<Transfers> findAllByAmountGreaterThanZero(@Param("sent") double sent);
 
+    // Sent, received and count of a user's transfers since a point in time
+    @Query("SELECT COALESCE(SUM(CASE WHEN t.direction = first.transactions.model.TransferDirection.SENT THEN ABS(t.amount) ELSE 0.0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN t.direction = first.transactions.model.TransferDirection.RECEIVED THEN ABS(t.amount) ELSE 0.0 END), 0), " +
+           "COUNT(t) FROM Transfers t WHERE t.user.id = :userId AND t.createdAt >= :since")
+    List<Object[]> sumSince(@Param("userId") Long userId, @Param("since") LocalDateTime since);
+
+    String HISTORY_FILTER = "FROM Transfers t WHERE t.user.id = :userId " +
+            "AND (:from IS NULL OR t.createdAt >= :from) AND (:to IS NULL OR t.createdAt < :to) " +
+            "AND (:minAmount IS NULL OR t.amount >= :minAmount) AND (:maxAmount IS NULL OR t.amount <= :maxAmount) ";
+
+    // Newest first, strictly after the (createdAt, id) cursor - seeks on the (user_id, createdAt, id) index
+    @Query("SELECT new first.transactions.dto.TransferHistoryItem(t.id, t.amount, t.recipient, t.createdAt) " + HISTORY_FILTER +
+           "AND (:cursorTime IS NULL OR t.createdAt < :cursorTime OR (t.createdAt = :cursorTime AND t.id < :cursorId)) " +
+           "ORDER BY t.createdAt DESC, t.id DESC")
+    List<TransferHistoryItem> findHistoryPage(@Param("userId") Long userId,
+                                              @Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to,
+                                              @Param("minAmount") Double minAmount,
+                                              @Param("maxAmount") Double maxAmount,
+                                              @Param("cursorTime") LocalDateTime cursorTime,
+                                              @Param("cursorId") Long cursorId,
+                                              Pageable pageable);
+
+    // Same rows as a forward-only cursor; the caller must consume it inside a transaction and close it
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new first.transactions.dto.TransferHistoryItem(t.id, t.amount, t.recipient, t.createdAt) " + HISTORY_FILTER +
+           "ORDER BY t.createdAt DESC, t.id DESC")
+    Stream<TransferHistoryItem> streamHistory(@Param("userId") Long userId,
+                                              @Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to,
+                                              @Param("minAmount") Double minAmount,
+                                              @Param("maxAmount") Double maxAmount);
+
 }
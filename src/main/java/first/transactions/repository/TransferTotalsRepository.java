@@ -0,0 +1,45 @@
+package first.transactions.repository;
+
+import first.transactions.model.TransferTotals;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TransferTotalsRepository extends JpaRepository<TransferTotals, Long> {
+
+    // Atomic increment, so concurrent transfers to one user never lose an update.
+    // Totals are never managed entities, so there is nothing to auto-flush first - and dirty
+    // checking a batch's thousands of new transfer rows once per user would dominate the batch
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+    @Query("UPDATE TransferTotals t SET t.totalSent = t.totalSent + :sent, t.totalReceived = t.totalReceived + :received, " +
+           "t.transferCount = t.transferCount + :count, t.netAmount = t.netAmount + :net WHERE t.userId = :userId")
+    int addToTotals(@Param("userId") Long userId,
+                    @Param("sent") double sent,
+                    @Param("received") double received,
+                    @Param("count") long count,
+                    @Param("net") double net);
+
+    @Modifying
+    @Query(value = "INSERT INTO transfer_totals (user_id, total_sent, total_received, transfer_count, net_amount) " +
+           "VALUES (:userId, 0, 0, 0, 0)", nativeQuery = true)
+    int insertEmpty(@Param("userId") Long userId);
+
+    // Build the aggregates of users without a row from their existing transfer history
+    @Modifying
+    @Query(value = "INSERT INTO transfer_totals (user_id, total_sent, total_received, transfer_count, net_amount) " +
+           "SELECT u.id, " +
+           "COALESCE(SUM(CASE WHEN t.direction = 'SENT' THEN ABS(t.amount) ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN t.direction = 'RECEIVED' THEN ABS(t.amount) ELSE 0 END), 0), " +
+           "COUNT(t.id), COALESCE(SUM(t.amount), 0) " +
+           "FROM users u LEFT JOIN transactions t ON t.user_id = u.id " +
+           "WHERE NOT EXISTS (SELECT 1 FROM transfer_totals x WHERE x.user_id = u.id) " +
+           "GROUP BY u.id", nativeQuery = true)
+    int backfillMissing();
+}
@@ -1,18 +1,61 @@
 package first.transactions.repository;
 
+import first.transactions.dto.UserResponseDto;
 import first.transactions.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
 
+    // Users after an id, as DTOs - the transactions collection is never loaded
+    @Query("SELECT new first.transactions.dto.UserResponseDto(u.id, u.username, u.email, u.role, u.balance) " +
+           "FROM User u WHERE (:afterId IS NULL OR u.id > :afterId) ORDER BY u.id")
+    List<UserResponseDto> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Every user as a forward-only cursor; the caller must consume it inside a transaction and close it
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new first.transactions.dto.UserResponseDto(u.id, u.username, u.email, u.role, u.balance) " +
+           "FROM User u ORDER BY u.id")
+    Stream<UserResponseDto> streamAll();
+
+    // Profile fields only, so the transactions collection is never touched
+    @Query("SELECT new first.transactions.dto.UserResponseDto(u.id, u.username, u.email, u.role, u.balance) " +
+           "FROM User u WHERE u.username = :username")
+    Optional<UserResponseDto> findProfileByUsername(@Param("username") String username);
+
+    @Query("SELECT u FROM User u WHERE NOT EXISTS (SELECT p.id FROM Portfolio p WHERE p.user = u)")
+    List<User> findWithoutPortfolio();
+
+    // Pre-ledger balances of several users: [id, balance]
+    @Query("SELECT u.id, u.balance FROM User u WHERE u.id IN :ids")
+    List<Object[]> findBalancesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT u.balance FROM User u WHERE u.id = :id")
+    Double findBalanceById(@Param("id") Long id);
+
+    // Balance column is a projection of the ledger, refreshed by LedgerService checkpoints
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.balance = :balance WHERE u.id = :id")
+    int updateBalance(@Param("id") Long id, @Param("balance") Double balance);
+
     @Modifying
     @Transactional
     @Query(value = "DELETE FROM transactions WHERE user_id = :id", nativeQuery = true)
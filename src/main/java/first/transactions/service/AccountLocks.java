@@ -0,0 +1,126 @@
+package first.transactions.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process striped locks for cash accounts.
+ *
+ * A debit must check the balance and insert its ledger entries without another debit
+ * of the same account slipping in between, so the account is locked from the check
+ * until the transaction completes. Stripes are always acquired in ascending stripe
+ * order, so two transactions locking overlapping accounts cannot deadlock, and the
+ * database never has to arbitrate.
+ */
+@Component
+public class AccountLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final long timeoutMillis;
+
+    public AccountLocks(@Value("${accounts.lock.stripes:1024}") int stripeCount,
+                        @Value("${accounts.lock.timeout-ms:2000}") long timeoutMillis) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Lock accounts until the current transaction commits or rolls back
+     * @param accountIds Accounts about to be debited
+     * @throws CannotAcquireLockException if a lock is not available within the timeout
+     */
+    public void lockUntilCompletion(Long... accountIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Account locks must be taken inside a transaction");
+        }
+
+        List<ReentrantLock> acquired = lockInOrder(accountIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                unlock(acquired);
+            }
+        });
+    }
+
+    /**
+     * Lock accounts until the current transaction completes, without waiting. For
+     * callers that must never block, such as trade sequencer commands.
+     * @param accountIds Accounts about to be debited
+     * @return false (and nothing locked) if another transaction holds any of them
+     */
+    public boolean tryLockUntilCompletion(Long... accountIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Account locks must be taken inside a transaction");
+        }
+
+        int[] indexes = Arrays.stream(accountIds).mapToInt(this::stripeOf).sorted().distinct().toArray();
+        List<ReentrantLock> acquired = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            ReentrantLock lock = stripes[index];
+            if (!lock.tryLock()) {
+                unlock(acquired);
+                return false;
+            }
+            acquired.add(lock);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                unlock(acquired);
+            }
+        });
+        return true;
+    }
+
+    private List<ReentrantLock> lockInOrder(Long... accountIds) {
+        // Canonical order: ascending stripe index, each stripe once
+        int[] indexes = Arrays.stream(accountIds).mapToInt(this::stripeOf).sorted().distinct().toArray();
+
+        List<ReentrantLock> acquired = new ArrayList<>(indexes.length);
+        try {
+            for (int index : indexes) {
+                ReentrantLock lock = stripes[index];
+                if (!lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new CannotAcquireLockException("Timed out locking accounts " + Arrays.toString(accountIds));
+                }
+                acquired.add(lock);
+            }
+            return acquired;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unlock(acquired);
+            throw new CannotAcquireLockException("Interrupted while locking accounts " + Arrays.toString(accountIds), e);
+        } catch (RuntimeException e) {
+            unlock(acquired);
+            throw e;
+        }
+    }
+
+    private static void unlock(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    private int stripeOf(Long accountId) {
+        // Spread sequential ids across stripes
+        long h = accountId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,254 @@
+package first.transactions.service;
+
+import first.transactions.model.CandleInterval;
+import first.transactions.model.StockCandle;
+import first.transactions.repository.StockCandleRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Streaming OHLCV aggregation.
+ * Every tick updates the open candle of each interval in memory. Candles whose bucket
+ * has ended, and dirty open candles, are upserted into stock_candles by a scheduled
+ * flush, so chart reads come from pre-aggregated bars instead of raw ticks.
+ */
+@Service
+public class CandleService {
+
+    private static final CandleInterval[] INTERVALS = CandleInterval.values();
+
+    private final StockCandleRepository stockCandleRepository;
+
+    // ticker -> open candle per interval (indexed by CandleInterval ordinal)
+    private final Map<String, OpenCandle[]> openCandles = new ConcurrentHashMap<>();
+
+    // Candles whose bucket ended, waiting for the next flush
+    private final Queue<ClosedCandle> closedCandles = new ConcurrentLinkedQueue<>();
+
+    public CandleService(StockCandleRepository stockCandleRepository) {
+        this.stockCandleRepository = stockCandleRepository;
+    }
+
+    /**
+     * Fold a trade tick into the open candles of the ticker
+     * @param ticker Ticker symbol
+     * @param time Tick time
+     * @param price Traded price
+     * @param volume Shares traded
+     */
+    public void onTick(String ticker, LocalDateTime time, double price, double volume) {
+        OpenCandle[] candles = openCandles.computeIfAbsent(ticker, t -> new OpenCandle[INTERVALS.length]);
+
+        synchronized (candles) {
+            for (CandleInterval interval : INTERVALS) {
+                LocalDateTime bucketStart = interval.bucketStart(time);
+                OpenCandle candle = candles[interval.ordinal()];
+
+                if (candle == null || !candle.bucketStart.equals(bucketStart)) {
+                    if (candle != null && candle.bucketStart.isBefore(bucketStart)) {
+                        closedCandles.add(new ClosedCandle(candle.toEntity(ticker, interval), candle.persisted));
+                    } else if (candle != null) {
+                        // Late tick for an older bucket - keep the current candle open
+                        continue;
+                    }
+                    candles[interval.ordinal()] = new OpenCandle(bucketStart, price, volume);
+                } else {
+                    candle.update(price, volume);
+                }
+            }
+        }
+    }
+
+    /**
+     * Candles for a ticker between two times, oldest first.
+     * Includes the still-open candle so the latest bar is always current.
+     */
+    public List<StockCandle> getCandles(String ticker, CandleInterval interval, LocalDateTime start, LocalDateTime end) {
+        List<StockCandle> candles = new ArrayList<>(stockCandleRepository
+                .findByTickerSymbolAndIntervalAndBucketStartBetweenOrderByBucketStartAsc(ticker, interval, start, end));
+
+        OpenCandle[] open = openCandles.get(ticker);
+        if (open == null) {
+            return candles;
+        }
+
+        StockCandle current;
+        synchronized (open) {
+            OpenCandle candle = open[interval.ordinal()];
+            if (candle == null || candle.bucketStart.isBefore(start) || candle.bucketStart.isAfter(end)) {
+                return candles;
+            }
+            current = candle.toEntity(ticker, interval);
+        }
+
+        // Replace the (possibly stale) persisted copy of the open bucket
+        if (!candles.isEmpty() && candles.get(candles.size() - 1).getBucketStart().equals(current.getBucketStart())) {
+            candles.set(candles.size() - 1, current);
+        } else {
+            candles.add(current);
+        }
+        return candles;
+    }
+
+    /**
+     * Upsert closed candles and dirty open candles. If the write fails, the closed candles
+     * go back on the queue and the open ones are marked dirty again for the next flush.
+     */
+    @Scheduled(fixedDelayString = "${candles.flush-interval-ms:1000}")
+    public void flush() {
+        List<StockCandle> toSave = new ArrayList<>();
+
+        ClosedCandle closed;
+        while ((closed = closedCandles.poll()) != null) {
+            toSave.add(closed.persisted ? closed.candle : mergeWithStored(closed.candle));
+        }
+        int closedCount = toSave.size();
+
+        // Open candles written by this flush, with the array each is guarded by
+        List<OpenCandle> written = new ArrayList<>();
+        List<OpenCandle[]> writtenLocks = new ArrayList<>();
+        for (Map.Entry<String, OpenCandle[]> entry : openCandles.entrySet()) {
+            OpenCandle[] candles = entry.getValue();
+            for (CandleInterval interval : INTERVALS) {
+                StockCandle snapshot;
+                boolean firstWrite;
+                OpenCandle open;
+                synchronized (candles) {
+                    open = candles[interval.ordinal()];
+                    if (open == null || !open.dirty) {
+                        continue;
+                    }
+                    snapshot = open.toEntity(entry.getKey(), interval);
+                    firstWrite = !open.persisted;
+                    open.dirty = false;
+                    // Set even if the write fails: a stored row is absorbed below, and must not be absorbed twice
+                    open.persisted = true;
+                }
+
+                if (firstWrite) {
+                    // A row for this bucket may predate a restart - fold it into the in-memory candle
+                    StockCandle stored = stockCandleRepository.findById(key(snapshot)).orElse(null);
+                    if (stored != null) {
+                        synchronized (candles) {
+                            OpenCandle candle = candles[interval.ordinal()];
+                            if (candle != null && candle.bucketStart.equals(snapshot.getBucketStart())) {
+                                candle.absorb(stored);
+                                snapshot = candle.toEntity(entry.getKey(), interval);
+                            }
+                        }
+                    }
+                }
+                toSave.add(snapshot);
+                written.add(open);
+                writtenLocks.add(candles);
+            }
+        }
+
+        if (!toSave.isEmpty()) {
+            try {
+                stockCandleRepository.saveAll(toSave);
+            } catch (Exception e) {
+                System.err.println("Failed to write " + toSave.size() + " candles, retrying on the next flush: " + e.getMessage());
+                // Already merged with any stored row, so they are written as they are next time
+                for (int i = 0; i < closedCount; i++) {
+                    closedCandles.add(new ClosedCandle(toSave.get(i), true));
+                }
+                // A candle that closed meanwhile is queued with everything it had, so this only matters while open
+                for (int i = 0; i < written.size(); i++) {
+                    synchronized (writtenLocks.get(i)) {
+                        written.get(i).dirty = true;
+                    }
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private StockCandle mergeWithStored(StockCandle candle) {
+        return stockCandleRepository.findById(key(candle))
+                .map(stored -> new StockCandle(
+                        candle.getTickerSymbol(),
+                        candle.getInterval(),
+                        candle.getBucketStart(),
+                        stored.getOpen(),
+                        Math.max(stored.getHigh(), candle.getHigh()),
+                        Math.min(stored.getLow(), candle.getLow()),
+                        candle.getClose(),
+                        stored.getVolume() + candle.getVolume(),
+                        stored.getTradeCount() + candle.getTradeCount()))
+                .orElse(candle);
+    }
+
+    private static StockCandle.CandleKey key(StockCandle candle) {
+        return new StockCandle.CandleKey(candle.getTickerSymbol(), candle.getInterval(), candle.getBucketStart());
+    }
+
+    /**
+     * Mutable in-memory candle for the current bucket
+     */
+    private static final class OpenCandle {
+        private final LocalDateTime bucketStart;
+        private double open;
+        private double high;
+        private double low;
+        private double close;
+        private double volume;
+        private long tradeCount;
+        private boolean dirty = true;
+        private boolean persisted;     // written at least once by this process
+
+        private OpenCandle(LocalDateTime bucketStart, double price, double volume) {
+            this.bucketStart = bucketStart;
+            this.open = price;
+            this.high = price;
+            this.low = price;
+            this.close = price;
+            this.volume = volume;
+            this.tradeCount = 1;
+        }
+
+        private void update(double price, double tradeVolume) {
+            high = Math.max(high, price);
+            low = Math.min(low, price);
+            close = price;
+            volume += tradeVolume;
+            tradeCount++;
+            dirty = true;
+        }
+
+        private void absorb(StockCandle stored) {
+            open = stored.getOpen();
+            high = Math.max(high, stored.getHigh());
+            low = Math.min(low, stored.getLow());
+            volume += stored.getVolume();
+            tradeCount += stored.getTradeCount();
+        }
+
+        private StockCandle toEntity(String ticker, CandleInterval interval) {
+            return new StockCandle(ticker, interval, bucketStart, open, high, low, close, volume, tradeCount);
+        }
+    }
+
+    private static final class ClosedCandle {
+        private final StockCandle candle;
+        private final boolean persisted;
+
+        private ClosedCandle(StockCandle candle, boolean persisted) {
+            this.candle = candle;
+            this.persisted = persisted;
+        }
+    }
+}
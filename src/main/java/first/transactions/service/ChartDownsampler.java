@@ -0,0 +1,88 @@
+package first.transactions.service;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling for price charts.
+ *
+ * Keeps the first and last point, splits the rest into (maxPoints - 2) buckets and
+ * from each bucket keeps the point forming the largest triangle with the previously
+ * kept point and the average of the next bucket. Peaks and troughs survive, so the
+ * chart looks the same at screen resolution. One pass over the series, reading each
+ * point at most twice, with no allocation beyond the selected indexes.
+ */
+public final class ChartDownsampler {
+
+    public static final int MIN_POINTS = 3;
+
+    private ChartDownsampler() {}
+
+    /**
+     * Random-access view of a time series
+     */
+    public interface Series {
+        int size();
+        long timeAt(int index);
+        double valueAt(int index);
+    }
+
+    /**
+     * Choose which points of a series to draw
+     * @param series Points in time order
+     * @param maxPoints Upper bound on returned points (at least MIN_POINTS)
+     * @return Ascending indexes into the series; every index when it already fits
+     */
+    public static int[] lttb(Series series, int maxPoints) {
+        int n = series.size();
+        if (maxPoints < MIN_POINTS) {
+            throw new IllegalArgumentException("maxPoints must be at least " + MIN_POINTS);
+        }
+        if (n <= maxPoints) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        // Times relative to the first point keep full precision as doubles
+        long origin = series.timeAt(0);
+        int[] selected = new int[maxPoints];
+        double bucketSize = (double) (n - 2) / (maxPoints - 2);
+
+        int a = 0;
+        selected[0] = 0;
+        for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+            // Average of the next bucket (the last point for the final bucket)
+            int nextStart = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, n);
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += series.timeAt(i) - origin;
+                avgY += series.valueAt(i);
+            }
+            int nextCount = nextEnd - nextStart;
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            // Point of this bucket forming the largest triangle with a and the average
+            int start = (int) Math.floor(bucket * bucketSize) + 1;
+            int end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            double ax = series.timeAt(a) - origin;
+            double ay = series.valueAt(a);
+            double maxArea = -1;
+            int chosen = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((ax - avgX) * (series.valueAt(i) - ay)
+                        - (ax - (series.timeAt(i) - origin)) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = i;
+                }
+            }
+            selected[bucket + 1] = chosen;
+            a = chosen;
+        }
+        selected[maxPoints - 1] = n - 1;
+        return selected;
+    }
+}
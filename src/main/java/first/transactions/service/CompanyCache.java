@@ -0,0 +1,226 @@
+package first.transactions.service;
+
+import first.transactions.model.Company;
+import first.transactions.repository.CompanyRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process ticker -> Company cache with write-behind to the companies table.
+ *
+ * Keys are normalized (trimmed, upper case) so lookups never need the
+ * UPPER(TICKER_SYMBOL) query. Cached instances are never changed in place: a trade
+ * (on the ticker's sequencer thread) changes a private copy from getForUpdate, which
+ * only its own transaction sees, and markDirty swaps the copy in once the transaction
+ * commits - a rollback just drops it. A scheduled flush writes price and available
+ * shares back. The cache is the source of truth for those two fields while the app
+ * runs - anything changed directly in the table is not picked up.
+ */
+@Service
+public class CompanyCache {
+
+    private final CompanyRepository companyRepository;
+    private final MarketDataVersions versions;
+
+    private final Map<String, Company> companies = new ConcurrentHashMap<>();
+
+    // ticker -> time (millis) it first became dirty since the last flush
+    private final Map<String, Long> dirtySince = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong writesFlushed = new AtomicLong();
+    private volatile long lastFlushMillis = System.currentTimeMillis();
+
+    public CompanyCache(CompanyRepository companyRepository, MarketDataVersions versions) {
+        this.companyRepository = companyRepository;
+        this.versions = versions;
+    }
+
+    /**
+     * Load every company once the app is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        for (Company company : companyRepository.findAll()) {
+            companies.putIfAbsent(normalize(company.getTickerSymbol()), company);
+        }
+        versions.bumpTable();
+    }
+
+    /**
+     * Get a company by ticker, loading it from the DB on a miss
+     * @param ticker Ticker symbol in any case
+     * @return Cached company, or null if the ticker does not exist
+     */
+    public Company get(String ticker) {
+        String key = normalize(ticker);
+        Map<String, Company> working = workingCopies(false);
+        if (working != null && working.containsKey(key)) {
+            return working.get(key);
+        }
+        Company company = companies.get(key);
+        if (company != null) {
+            hits.incrementAndGet();
+            return company;
+        }
+
+        misses.incrementAndGet();
+        company = companyRepository.findByTickerSymbol(key);
+        if (company == null) {
+            return null;
+        }
+        Company existing = companies.putIfAbsent(key, company);
+        if (existing != null) {
+            return existing;
+        }
+        versions.bump(key);
+        return company;
+    }
+
+    /**
+     * Get a company to change in the current transaction. Outside a transaction this is
+     * the cached instance itself.
+     * @param ticker Ticker symbol in any case
+     * @return Copy seen by get() in this transaction only, or null if the ticker does not exist
+     */
+    public Company getForUpdate(String ticker) {
+        Company cached = get(ticker);
+        if (cached == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return cached;
+        }
+        return workingCopies(true).computeIfAbsent(normalize(ticker), key -> new Company(cached));
+    }
+
+    /**
+     * All cached companies
+     */
+    public List<Company> getAll() {
+        return new ArrayList<>(companies.values());
+    }
+
+    /**
+     * Publish a changed company and schedule it for the next write-behind flush, once the
+     * current transaction commits
+     */
+    public void markDirty(Company company) {
+        String key = normalize(company.getTickerSymbol());
+        AfterCommit.run(() -> {
+            companies.put(key, company);
+            dirtySince.putIfAbsent(key, System.currentTimeMillis());
+            versions.bump(key);
+        });
+    }
+
+    /**
+     * Write dirty companies back to the table
+     */
+    @Scheduled(fixedDelayString = "${companies.cache.flush-interval-ms:500}")
+    public void flush() {
+        for (String ticker : dirtySince.keySet()) {
+            Long since = dirtySince.remove(ticker);
+            Company company = companies.get(ticker);
+            if (since == null || company == null) {
+                continue;
+            }
+            try {
+                companyRepository.updateTradingState(company.getId(), company.getLastStockPrice(), company.getAvailableShares());
+                writesFlushed.incrementAndGet();
+            } catch (Exception e) {
+                // Keep it dirty so the next flush retries
+                dirtySince.merge(ticker, since, Math::min);
+                System.err.println("Failed to write company " + ticker + ": " + e.getMessage());
+            }
+        }
+        lastFlushMillis = System.currentTimeMillis();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public CacheStats getStats() {
+        long now = System.currentTimeMillis();
+        long oldestDirty = dirtySince.values().stream().mapToLong(Long::longValue).min().orElse(now);
+        return new CacheStats(
+                companies.size(),
+                hits.get(),
+                misses.get(),
+                dirtySince.size(),
+                now - oldestDirty,
+                now - lastFlushMillis,
+                writesFlushed.get());
+    }
+
+    // ticker -> copy changed by the current transaction, bound to it until it completes
+    @SuppressWarnings("unchecked")
+    private Map<String, Company> workingCopies(boolean create) {
+        Map<String, Company> working = (Map<String, Company>) TransactionSynchronizationManager.getResource(this);
+        if (working != null || !create) {
+            return working;
+        }
+        Map<String, Company> created = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CompanyCache.this);
+            }
+        });
+        return created;
+    }
+
+    private static String normalize(String ticker) {
+        return ticker.trim().toUpperCase();
+    }
+
+    /**
+     * Cache metrics - hit rate and how far the table lags behind the cache
+     */
+    public static class CacheStats {
+        private final int size;
+        private final long hits;
+        private final long misses;
+        private final int dirtyEntries;
+        private final long maxStalenessMillis;     // age of the oldest unflushed change
+        private final long millisSinceLastFlush;
+        private final long writesFlushed;
+
+        public CacheStats(int size, long hits, long misses, int dirtyEntries,
+                          long maxStalenessMillis, long millisSinceLastFlush, long writesFlushed) {
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.dirtyEntries = dirtyEntries;
+            this.maxStalenessMillis = maxStalenessMillis;
+            this.millisSinceLastFlush = millisSinceLastFlush;
+            this.writesFlushed = writesFlushed;
+        }
+
+        public int getSize() { return size; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public int getDirtyEntries() { return dirtyEntries; }
+        public long getMaxStalenessMillis() { return maxStalenessMillis; }
+        public long getMillisSinceLastFlush() { return millisSinceLastFlush; }
+        public long getWritesFlushed() { return writesFlushed; }
+
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package first.transactions.service;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Continuous JDK Flight Recorder recording (the "jfr" Spring profile turns it on).
+ *
+ * The recording keeps the last max-age / max-size of data on disk with the given JFR
+ * settings - "profile" adds allocation samples and lock contention to the default
+ * set - next to the TradeEvents, and an admin can dump it when latency spikes.
+ */
+@Component
+public class FlightRecording {
+
+    private final boolean enabled;
+    private final String settings;
+    private final Duration maxAge;
+    private final long maxSizeBytes;
+
+    private volatile Recording recording;
+
+    public FlightRecording(@Value("${profiling.jfr.enabled:false}") boolean enabled,
+                           @Value("${profiling.jfr.settings:profile}") String settings,
+                           @Value("${profiling.jfr.max-age-minutes:60}") long maxAgeMinutes,
+                           @Value("${profiling.jfr.max-size-mb:256}") long maxSizeMb) {
+        this.enabled = enabled;
+        this.settings = settings;
+        this.maxAge = Duration.ofMinutes(maxAgeMinutes);
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || !FlightRecorder.isAvailable()) {
+            return;
+        }
+        try {
+            Recording continuous = new Recording(Configuration.getConfiguration(settings));
+            continuous.setName("continuous");
+            continuous.setToDisk(true);
+            continuous.setMaxAge(maxAge);
+            continuous.setMaxSize(maxSizeBytes);
+            continuous.start();
+            recording = continuous;
+        } catch (IOException | ParseException e) {
+            System.err.println("Could not start flight recording with settings " + settings + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write what the recorder currently holds to a file. Without the continuous recording
+     * this is a snapshot of any other running recording (e.g. -XX:StartFlightRecording).
+     * @return The .jfr file, to be deleted by the caller; null if nothing is being recorded
+     */
+    public Path dump() throws IOException {
+        Path file = Files.createTempFile("transactions-", ".jfr");
+        Recording current = recording;
+        if (current != null) {
+            current.dump(file);
+            return file;
+        }
+        if (FlightRecorder.isAvailable()) {
+            try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+                if (snapshot.getSize() > 0) {
+                    snapshot.dump(file);
+                    return file;
+                }
+            }
+        }
+        Files.deleteIfExists(file);
+        return null;
+    }
+
+    /**
+     * Whether the continuous recording is running
+     */
+    public boolean isRecording() {
+        return recording != null;
+    }
+
+    public String getSettings() {
+        return settings;
+    }
+
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    @PreDestroy
+    public void stop() {
+        Recording current = recording;
+        recording = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+}
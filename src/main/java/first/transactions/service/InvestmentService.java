@@ -2,37 +2,64 @@ package first.transactions.service;
 
 import first.transactions.model.Company;
 import first.transactions.model.Investment;
+import first.transactions.model.LedgerEntryType;
+import first.transactions.model.OrderSide;
+import first.transactions.model.TradeRejection;
 import first.transactions.model.User;
-import first.transactions.repository.CompanyRepository;
 import first.transactions.repository.InvestmentRepository;
 import first.transactions.repository.UserRepository;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @Service
 @Transactional
 public class InvestmentService {
 
     private final InvestmentRepository investmentRepository;
-    private final CompanyRepository companyRepository;
+    private final CompanyCache companyCache;
     private final UserRepository userRepository;
     private final StockPriceService stockPriceService;
     private final PortfolioService portfolioService;
+    private final MarkToMarketService markToMarketService;
+    private final OrderReservations orderReservations;
+    private final TradeSequencer tradeSequencer;
+    private final LedgerService ledgerService;
+    private final AccountLocks accountLocks;
+    private final TransactionTemplate transactionTemplate;
+    private final TradingMetrics metrics;
 
     public InvestmentService(InvestmentRepository investmentRepository,
-                           CompanyRepository companyRepository,
+                           CompanyCache companyCache,
                            UserRepository userRepository,
                            StockPriceService stockPriceService,
-                           PortfolioService portfolioService) {
+                           PortfolioService portfolioService,
+                           MarkToMarketService markToMarketService,
+                           OrderReservations orderReservations,
+                           TradeSequencer tradeSequencer,
+                           LedgerService ledgerService,
+                           AccountLocks accountLocks,
+                           PlatformTransactionManager transactionManager,
+                           TradingMetrics metrics) {
         this.investmentRepository = investmentRepository;
-        this.companyRepository = companyRepository;
+        this.companyCache = companyCache;
         this.userRepository = userRepository;
         this.stockPriceService = stockPriceService;
         this.portfolioService = portfolioService;
+        this.markToMarketService = markToMarketService;
+        this.orderReservations = orderReservations;
+        this.tradeSequencer = tradeSequencer;
+        this.ledgerService = ledgerService;
+        this.accountLocks = accountLocks;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.metrics = metrics;
     }
 
     /**
@@ -42,26 +69,66 @@ public class InvestmentService {
      * @param username Username of investor
      * @return Success message or error
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public InvestmentResult buyStock(String ticker, Double amountUsd, String username) {
+        long start = System.nanoTime();
+        boolean executed = false;
+        try {
+            // Trades of a ticker run one at a time on its sequencer thread, each in its own transaction
+            InvestmentResult result = tradeSequencer.execute(ticker.toUpperCase(),
+                    () -> traced(OrderSide.BUY, ticker, username,
+                            () -> transactionTemplate.execute(status -> executeBuy(ticker, amountUsd, username))));
+            executed = result.isSuccess();
+            return result;
+        } finally {
+            metrics.trade(OrderSide.BUY, start, executed);
+        }
+    }
+
+    private InvestmentResult executeBuy(String ticker, Double amountUsd, String username) {
+        TradeEvents.Lookup lookup = new TradeEvents.Lookup();
+        lookup.begin();
+
         // Find the company by ticker
-        Company company = companyRepository.findByTickerSymbol(ticker.toUpperCase());
+        Company company = companyCache.getForUpdate(ticker.toUpperCase());
         if (company == null) {
+            commit(lookup, ticker, username);
+            metrics.rejected(OrderSide.BUY, TradeRejection.TICKER_NOT_FOUND);
             return InvestmentResult.error("Ticker not found: " + ticker);
         }
 
+        // Backpressure from the price history writer
+        if (!stockPriceService.canRecordTicks()) {
+            commit(lookup, ticker, username);
+            metrics.rejected(OrderSide.BUY, TradeRejection.HISTORY_BACKLOG);
+            return InvestmentResult.error("Price history is backed up, please retry");
+        }
+
         // Get logged-in user
         User investor = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException(username));
 
-        // Check if user has sufficient balance
-        if (investor.getBalance() < amountUsd) {
+        // Check if user has sufficient balance (cash held by open orders is not available),
+        // holding the account so a concurrent transfer cannot spend the same cash. This runs
+        // on the ticker's sequencer thread, which must never wait: a busy account fails the trade.
+        if (!accountLocks.tryLockUntilCompletion(investor.getId())) {
+            commit(lookup, ticker, username);
+            metrics.rejected(OrderSide.BUY, TradeRejection.ACCOUNT_BUSY);
+            return InvestmentResult.error("Your account is busy with another transfer, please retry");
+        }
+        double balance = ledgerService.getBalance(investor.getId());
+        double availableBalance = balance - orderReservations.reservedCash(investor.getId());
+        commit(lookup, ticker, username);
+        if (availableBalance < amountUsd) {
+            metrics.rejected(OrderSide.BUY, TradeRejection.INSUFFICIENT_BALANCE);
             return InvestmentResult.error(String.format(
                 "Insufficient balance. Available: $%.2f, Required: $%.2f", 
-                investor.getBalance(), amountUsd));
+                availableBalance, amountUsd));
         }
 
         // Check if company has available shares
         if (company.getAvailableShares() <= 0) {
+            metrics.rejected(OrderSide.BUY, TradeRejection.NO_SHARES_AVAILABLE);
             return InvestmentResult.error("No shares available for this company");
         }
 
@@ -71,11 +138,12 @@ public class InvestmentService {
         double sharesPurchased = amountUsd / latestPrice;
         long sharesToDeduct = (long) sharesPurchased;
 
-        // Deduct balance from user
-        investor.setBalance(investor.getBalance() - amountUsd);
-        userRepository.save(investor);
+        // Pay the market for the shares
+        ledgerService.post(LedgerEntryType.STOCK_BUY, investor.getId(), LedgerService.MARKET_ACCOUNT, amountUsd, ticker.toUpperCase());
 
         // Find existing investment for this user & ticker or create new one
+        TradeEvents.PositionUpdate positionUpdate = new TradeEvents.PositionUpdate();
+        positionUpdate.begin();
         try {
             investmentRepository.findByUserIdAndTickerSymbol(investor.getId(), ticker.toUpperCase())
                     .ifPresentOrElse(investment -> {
@@ -83,6 +151,7 @@ public class InvestmentService {
                         investment.setAmountUsd(investment.getAmountUsd() + amountUsd);
                         investment.setSharesPurchased(investment.getSharesPurchased() + sharesPurchased);
                         investmentRepository.save(investment);
+                        markToMarketService.updatePosition(investor.getId(), ticker, investment.getSharesPurchased());
                     }, () -> {
                         // Create new investment
                         Investment newInvestment = new Investment();
@@ -91,6 +160,7 @@ public class InvestmentService {
                         newInvestment.setAmountUsd(amountUsd);
                         newInvestment.setSharesPurchased(sharesPurchased);
                         investmentRepository.save(newInvestment);
+                        markToMarketService.updatePosition(investor.getId(), ticker, sharesPurchased);
                     });
         } catch (org.springframework.dao.IncorrectResultSizeDataAccessException ex) {
             // Handle duplicate records - consolidate them
@@ -99,14 +169,20 @@ public class InvestmentService {
             consolidatedInvestment.setAmountUsd(consolidatedInvestment.getAmountUsd() + amountUsd);
             consolidatedInvestment.setSharesPurchased(consolidatedInvestment.getSharesPurchased() + sharesPurchased);
             investmentRepository.save(consolidatedInvestment);
+            markToMarketService.updatePosition(investor.getId(), ticker, consolidatedInvestment.getSharesPurchased());
         }
 
+        commit(positionUpdate, ticker, username);
+
         // Update company shares
         company.setAvailableShares(company.getAvailableShares() - sharesToDeduct);
-        companyRepository.save(company);
+        companyCache.markDirty(company);
 
         // Update portfolio
-        portfolioService.updatePortfolioAfterInvestment(username);
+        TradeEvents.PortfolioUpdate portfolioUpdate = new TradeEvents.PortfolioUpdate();
+        portfolioUpdate.begin();
+        portfolioService.updatePortfolioAfterInvestment(investor, balance - amountUsd);
+        commit(portfolioUpdate, ticker, username);
 
         return InvestmentResult.success("Investment successful in " + ticker);
     }
@@ -118,13 +194,41 @@ public class InvestmentService {
      * @param username Username of investor
      * @return Success message or error
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public InvestmentResult sellStock(String ticker, Double sharesToSell, String username) {
+        long start = System.nanoTime();
+        boolean executed = false;
+        try {
+            // Trades of a ticker run one at a time on its sequencer thread, each in its own transaction
+            InvestmentResult result = tradeSequencer.execute(ticker.toUpperCase(),
+                    () -> traced(OrderSide.SELL, ticker, username,
+                            () -> transactionTemplate.execute(status -> executeSell(ticker, sharesToSell, username))));
+            executed = result.isSuccess();
+            return result;
+        } finally {
+            metrics.trade(OrderSide.SELL, start, executed);
+        }
+    }
+
+    private InvestmentResult executeSell(String ticker, Double sharesToSell, String username) {
+        TradeEvents.Lookup lookup = new TradeEvents.Lookup();
+        lookup.begin();
+
         // Find the company by ticker
-        Company company = companyRepository.findByTickerSymbol(ticker.toUpperCase());
+        Company company = companyCache.getForUpdate(ticker.toUpperCase());
         if (company == null) {
+            commit(lookup, ticker, username);
+            metrics.rejected(OrderSide.SELL, TradeRejection.TICKER_NOT_FOUND);
             return InvestmentResult.error("Ticker not found: " + ticker);
         }
 
+        // Backpressure from the price history writer
+        if (!stockPriceService.canRecordTicks()) {
+            commit(lookup, ticker, username);
+            metrics.rejected(OrderSide.SELL, TradeRejection.HISTORY_BACKLOG);
+            return InvestmentResult.error("Price history is backed up, please retry");
+        }
+
         // Get logged-in user
         User investor = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException(username));
@@ -139,7 +243,10 @@ public class InvestmentService {
             investmentOpt = Optional.of(consolidatedInvestment);
         }
 
+        commit(lookup, ticker, username);
+
         if (investmentOpt.isEmpty()) {
+            metrics.rejected(OrderSide.SELL, TradeRejection.NO_POSITION);
             return InvestmentResult.error(
                 "No investment found for ticker: " + ticker + ". You don't own any shares of this company.");
         }
@@ -147,46 +254,87 @@ public class InvestmentService {
         Investment investment = investmentOpt.get();
         double totalShares = investment.getSharesPurchased();
 
-        // Check if user has enough shares
-        if (sharesToSell > totalShares) {
+        // Check if user has enough shares (shares held by open sell orders are not available)
+        double availableShares = totalShares - orderReservations.reservedShares(investor.getId(), ticker.toUpperCase());
+        if (sharesToSell > availableShares) {
+            metrics.rejected(OrderSide.SELL, TradeRejection.INSUFFICIENT_SHARES);
             return InvestmentResult.error(String.format(
                 "Insufficient shares to sell. You own %.3f shares, but trying to sell %.3f shares of %s",
-                totalShares, sharesToSell, ticker));
+                availableShares, sharesToSell, ticker));
         }
 
         double amountUsd = sharesToSell * company.getLastStockPrice();
 
-        // Increase investor balance
-        investor.setBalance(investor.getBalance() + amountUsd);
-        userRepository.save(investor);
+        // Market pays the investor for the shares
+        ledgerService.post(LedgerEntryType.STOCK_SELL, LedgerService.MARKET_ACCOUNT, investor.getId(), amountUsd, ticker.toUpperCase());
 
         // Update stock price (down after sale)
         stockPriceService.updateStockPrice(company, -amountUsd);
 
         // Update investment (partial or full sell)
+        TradeEvents.PositionUpdate positionUpdate = new TradeEvents.PositionUpdate();
+        positionUpdate.begin();
         if (sharesToSell.equals(totalShares)) {
             // Sold everything
             investmentRepository.delete(investment);
+            markToMarketService.updatePosition(investor.getId(), ticker, 0.0);
         } else {
             // Partial sale
             double remainingShares = totalShares - sharesToSell;
             investment.setSharesPurchased(remainingShares);
             investment.setAmountUsd(remainingShares * company.getLastStockPrice());
             investmentRepository.save(investment);
+            markToMarketService.updatePosition(investor.getId(), ticker, remainingShares);
         }
 
+        commit(positionUpdate, ticker, username);
+
         // Update company available shares
         company.setAvailableShares(company.getAvailableShares() + sharesToSell.longValue());
-        companyRepository.save(company);
+        companyCache.markDirty(company);
 
         // Update portfolio
-        portfolioService.updatePortfolioAfterInvestment(username);
+        TradeEvents.PortfolioUpdate portfolioUpdate = new TradeEvents.PortfolioUpdate();
+        portfolioUpdate.begin();
+        portfolioService.updatePortfolioAfterInvestment(investor);
+        commit(portfolioUpdate, ticker, username);
 
         return InvestmentResult.success(String.format(
                 "Sale successful! Sold %.3f shares of %s for $%.2f. New stock price: $%.2f",
                 sharesToSell, ticker, amountUsd, company.getLastStockPrice()));
     }
 
+    /**
+     * Run a trade inside a Trade flight recorder event; the stage events nest inside it
+     */
+    private InvestmentResult traced(OrderSide side, String ticker, String username, Supplier<InvestmentResult> trade) {
+        TradeEvents.Trade event = new TradeEvents.Trade();
+        event.begin();
+        InvestmentResult result = null;
+        try {
+            result = trade.get();
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.side = side.name();
+                event.ticker = ticker.toUpperCase();
+                event.username = username;
+                event.executed = result != null && result.isSuccess();
+                event.commit();
+            }
+        }
+    }
+
+    private static void commit(TradeEvents.InvestorStage event, String ticker, String username) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.ticker = ticker.toUpperCase();
+            event.username = username;
+            event.commit();
+        }
+    }
+
     /**
      * Get user's investment portfolio
      * @param username Username
@@ -0,0 +1,268 @@
+package first.transactions.service;
+
+import first.transactions.model.BalanceCheckpoint;
+import first.transactions.model.LedgerEntry;
+import first.transactions.model.LedgerEntryType;
+import first.transactions.repository.BalanceCheckpointRepository;
+import first.transactions.repository.LedgerEntryRepository;
+import first.transactions.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only double-entry cash ledger.
+ *
+ * Every cash movement inserts a debit and a credit entry; nothing is read-modified-
+ * written, so concurrent movements on the same account never contend on a row.
+ * A balance is the account's checkpoint plus the entries after it. A scheduled job
+ * rolls checkpoints forward over entries older than a settle lag and refreshes the
+ * users.balance projection.
+ *
+ * Entry ids are handed out before their transaction commits, so a committed id says
+ * nothing about smaller ids still in flight (a long batch, a lock wait, a slow commit).
+ * Ids come from this JVM's pooled sequence in increasing order, so every write registers
+ * itself before its ids are assigned and leaves after completion;
+ * a checkpoint never moves past the lowest id of a write still in flight, and skips its
+ * round while a write is between registering and learning its ids.
+ */
+@Service
+public class LedgerService {
+
+    // Money entering or leaving the platform (deposits)
+    public static final long EXTERNAL_ACCOUNT = -1L;
+    // Counterparty of stock bought from / sold to the market
+    public static final long MARKET_ACCOUNT = -2L;
+
+    private static final long PENDING = -1L;
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final BalanceCheckpointRepository checkpointRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long settleLagMillis;
+
+    // Ledger writes of open transactions: token -> lowest entry id written (PENDING until known)
+    private final Map<Long, Long> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong inFlightTokens = new AtomicLong();
+
+    public LedgerService(LedgerEntryRepository ledgerEntryRepository,
+                         BalanceCheckpointRepository checkpointRepository,
+                         UserRepository userRepository,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${ledger.checkpoint.settle-lag-ms:5000}") long settleLagMillis) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.settleLagMillis = settleLagMillis;
+    }
+
+    /**
+     * Move cash between two accounts
+     * @param type Reason for the movement
+     * @param fromAccount Debited account (user id or system account)
+     * @param toAccount Credited account
+     * @param amount Positive amount
+     * @param reference Free text shown on statements (ticker, recipient...)
+     */
+    @Transactional
+    public void post(LedgerEntryType type, Long fromAccount, Long toAccount, double amount, String reference) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Ledger amount must be positive: " + amount);
+        }
+        if (fromAccount.equals(toAccount)) {
+            throw new IllegalArgumentException("Cannot post from an account to itself: " + fromAccount);
+        }
+        save(List.of(
+                new LedgerEntry(fromAccount, toAccount, -amount, type, reference),
+                new LedgerEntry(toAccount, fromAccount, amount, type, reference)));
+    }
+
+    /**
+     * Record many movements of one type in the current transaction, written with JDBC batching
+     * @param type Reason for the movements
+     * @param postings Movements to record
+     */
+    @Transactional
+    public void postAll(LedgerEntryType type, List<Posting> postings) {
+        List<LedgerEntry> entries = new ArrayList<>(postings.size() * 2);
+        for (Posting posting : postings) {
+            if (posting.amount <= 0 || posting.fromAccount.equals(posting.toAccount)) {
+                throw new IllegalArgumentException("Invalid ledger posting " + posting.fromAccount + " -> "
+                        + posting.toAccount + ": " + posting.amount);
+            }
+            entries.add(new LedgerEntry(posting.fromAccount, posting.toAccount, -posting.amount, type, posting.reference));
+            entries.add(new LedgerEntry(posting.toAccount, posting.fromAccount, posting.amount, type, posting.reference));
+        }
+        save(entries);
+    }
+
+    // Insert entries, keeping them in the in-flight set until their transaction completes
+    private void save(List<LedgerEntry> entries) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ledgerEntryRepository.saveAll(entries);
+            return;
+        }
+        Long token = inFlightTokens.incrementAndGet();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                inFlight.remove(token);
+            }
+        });
+        // Registered before the ids exist, so a checkpoint can never miss them
+        inFlight.put(token, PENDING);
+        ledgerEntryRepository.saveAll(entries);
+        long lowest = Long.MAX_VALUE;
+        for (LedgerEntry entry : entries) {
+            lowest = Math.min(lowest, entry.getId());
+        }
+        inFlight.put(token, lowest);
+    }
+
+    /**
+     * Current balance of an account: latest checkpoint plus the entries after it
+     * @param accountId User id or system account
+     * @return Balance including uncommitted entries of the current transaction
+     */
+    @Transactional(readOnly = true)
+    public double getBalance(Long accountId) {
+        BalanceCheckpoint checkpoint = checkpointRepository.findById(accountId).orElse(null);
+        if (checkpoint != null) {
+            return checkpoint.getBalance() + ledgerEntryRepository.sumAmountAfter(accountId, checkpoint.getLastEntryId());
+        }
+        return openingBalance(accountId) + ledgerEntryRepository.sumAmountAfter(accountId, 0L);
+    }
+
+    /**
+     * Current balances of several accounts in three statements, however many accounts
+     * @param accountIds User ids (at most 1000, Oracle's IN list limit)
+     * @return Balance per account id
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Double> getBalances(Collection<Long> accountIds) {
+        Map<Long, Double> balances = new HashMap<>();
+        for (BalanceCheckpoint checkpoint : checkpointRepository.findAllById(accountIds)) {
+            balances.put(checkpoint.getAccountId(), checkpoint.getBalance());
+        }
+        List<Long> withoutCheckpoint = new ArrayList<>();
+        for (Long accountId : accountIds) {
+            if (!balances.containsKey(accountId)) {
+                withoutCheckpoint.add(accountId);
+            }
+        }
+        if (!withoutCheckpoint.isEmpty()) {
+            for (Object[] row : userRepository.findBalancesByIdIn(withoutCheckpoint)) {
+                balances.put((Long) row[0], row[1] != null ? ((Number) row[1]).doubleValue() : 0.0);
+            }
+        }
+        for (Object[] row : ledgerEntryRepository.sumAmountsAfterCheckpoints(accountIds)) {
+            balances.merge((Long) row[0], ((Number) row[1]).doubleValue(), Double::sum);
+        }
+        for (Long accountId : accountIds) {
+            balances.putIfAbsent(accountId, 0.0);
+        }
+        return balances;
+    }
+
+    /**
+     * Roll checkpoints forward over settled entries
+     */
+    @Scheduled(fixedDelayString = "${ledger.checkpoint.interval-ms:5000}")
+    public void checkpoint() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> advanceCheckpoints());
+        } catch (Exception e) {
+            System.err.println("Failed to checkpoint ledger balances: " + e.getMessage());
+        }
+    }
+
+    private void advanceCheckpoints() {
+        // Every entry up to the highest checkpointed id is already folded into some checkpoint
+        long from = checkpointRepository.findHighestCheckpointedEntryId();
+        Long upTo = ledgerEntryRepository.findMaxIdCreatedBefore(LocalDateTime.now().minusNanos(settleLagMillis * 1_000_000L));
+        if (upTo == null) {
+            return;
+        }
+        // Read after the committed maximum: a write holding a smaller id was registered before it
+        for (long lowest : inFlight.values()) {
+            if (lowest == PENDING) {
+                return;
+            }
+            upTo = Math.min(upTo, lowest - 1);
+        }
+        if (upTo <= from) {
+            return;
+        }
+
+        Map<Long, Double> deltas = new HashMap<>();
+        for (Object[] row : ledgerEntryRepository.sumByAccountBetween(from, upTo)) {
+            deltas.put((Long) row[0], ((Number) row[1]).doubleValue());
+        }
+
+        Map<Long, BalanceCheckpoint> checkpoints = new HashMap<>();
+        for (BalanceCheckpoint checkpoint : checkpointRepository.findAllById(deltas.keySet())) {
+            checkpoints.put(checkpoint.getAccountId(), checkpoint);
+        }
+
+        List<BalanceCheckpoint> changed = new ArrayList<>(deltas.size());
+        for (Map.Entry<Long, Double> delta : deltas.entrySet()) {
+            Long accountId = delta.getKey();
+            BalanceCheckpoint checkpoint = checkpoints.get(accountId);
+            if (checkpoint == null) {
+                // First checkpoint starts from the balance the account had before the ledger
+                checkpoint = new BalanceCheckpoint(accountId, openingBalance(accountId), from);
+            }
+            checkpoint.advance(delta.getValue(), upTo);
+            changed.add(checkpoint);
+        }
+        checkpointRepository.saveAll(changed);
+
+        for (BalanceCheckpoint checkpoint : changed) {
+            if (checkpoint.getAccountId() > 0) {
+                userRepository.updateBalance(checkpoint.getAccountId(), checkpoint.getBalance());
+            }
+        }
+    }
+
+    // users.balance is only written by checkpoints, so before the first one it is the pre-ledger balance
+    private double openingBalance(Long accountId) {
+        if (accountId <= 0) {
+            return 0.0;
+        }
+        Double balance = userRepository.findBalanceById(accountId);
+        return balance != null ? balance : 0.0;
+    }
+
+    /**
+     * One cash movement for postAll
+     */
+    public static class Posting {
+        private final Long fromAccount;
+        private final Long toAccount;
+        private final double amount;
+        private final String reference;
+
+        public Posting(Long fromAccount, Long toAccount, double amount, String reference) {
+            this.fromAccount = fromAccount;
+            this.toAccount = toAccount;
+            this.amount = amount;
+            this.reference = reference;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package first.transactions.service;
+
+import first.transactions.model.Investment;
+import first.transactions.repository.InvestmentRepository;
+import first.transactions.repository.PortfolioRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Incremental portfolio revaluation.
+ * Keeps a reverse index ticker -> (userId -> shares held) so a price move only
+ * touches the portfolios that actually hold the traded ticker.
+ *
+ * Portfolios are shifted by an UPDATE relative to their current values, never by
+ * writing back values read earlier, so revaluations from different trade sequencer
+ * shards cannot overwrite each other. The index follows committed positions only.
+ */
+@Service
+@Transactional
+public class MarkToMarketService {
+
+    // Oracle rejects IN lists with more than 1000 entries
+    private static final int MAX_IN_LIST_SIZE = 1000;
+
+    private final InvestmentRepository investmentRepository;
+    private final PortfolioRepository portfolioRepository;
+    private final PortfolioLeaderboard leaderboard;
+
+    // ticker -> (userId -> shares held), loaded lazily per ticker
+    private final Map<String, Map<Long, Double>> holdersByTicker = new ConcurrentHashMap<>();
+
+    public MarkToMarketService(InvestmentRepository investmentRepository,
+                               PortfolioRepository portfolioRepository,
+                               PortfolioLeaderboard leaderboard) {
+        this.investmentRepository = investmentRepository;
+        this.portfolioRepository = portfolioRepository;
+        this.leaderboard = leaderboard;
+    }
+
+    /**
+     * Apply a price move to every portfolio holding the ticker
+     * @param ticker Traded ticker symbol
+     * @param oldPrice Price before the trade
+     * @param newPrice Price after the trade
+     * @return Number of portfolios revalued
+     */
+    public int revalue(String ticker, double oldPrice, double newPrice) {
+        double priceDelta = newPrice - oldPrice;
+        if (priceDelta == 0.0) {
+            return 0;
+        }
+
+        TradeEvents.Revaluation event = new TradeEvents.Revaluation();
+        event.begin();
+        int revalued = 0;
+        // Recorded on every path, so a slow holder index load with no holders still shows up
+        try {
+            Map<Long, Double> holders = getHolders(ticker);
+            List<Long> userIds = new ArrayList<>(holders.keySet());
+            for (int from = 0; from < userIds.size(); from += MAX_IN_LIST_SIZE) {
+                List<Long> chunk = userIds.subList(from, Math.min(from + MAX_IN_LIST_SIZE, userIds.size()));
+                revalued += portfolioRepository.applyPriceMove(ticker.toUpperCase(), priceDelta, chunk, LocalDateTime.now());
+                leaderboard.updateRows(portfolioRepository.findLeaderboardRowsByUserIdIn(chunk));
+            }
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.ticker = ticker;
+                event.userCount = revalued;
+                event.commit();
+            }
+        }
+        return revalued;
+    }
+
+    /**
+     * Record a user's new position in a ticker after a buy or sell; applied when the
+     * current transaction commits, so a rolled back trade leaves the index alone
+     * @param userId Holder
+     * @param ticker Ticker symbol
+     * @param shares Shares now held (0 removes the holder)
+     */
+    public void updatePosition(Long userId, String ticker, double shares) {
+        AfterCommit.run(() -> {
+            // Tickers that were never loaded will pick the position up from the DB
+            Map<Long, Double> holders = holdersByTicker.get(ticker.toUpperCase());
+            if (holders == null) {
+                return;
+            }
+
+            if (shares > 0) {
+                holders.put(userId, shares);
+            } else {
+                holders.remove(userId);
+            }
+        });
+    }
+
+    /**
+     * Get holders of a ticker, building the index entry from investments on first use
+     */
+    private Map<Long, Double> getHolders(String ticker) {
+        return holdersByTicker.computeIfAbsent(ticker.toUpperCase(), this::loadHolders);
+    }
+
+    private Map<Long, Double> loadHolders(String ticker) {
+        Map<Long, Double> holders = new ConcurrentHashMap<>();
+        for (Investment investment : investmentRepository.findBytickerSymbol(ticker)) {
+            if (investment.getSharesPurchased() != null && investment.getSharesPurchased() > 0) {
+                holders.merge(investment.getUserId(), investment.getSharesPurchased(), Double::sum);
+            }
+        }
+        return holders;
+    }
+}
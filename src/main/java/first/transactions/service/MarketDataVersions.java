@@ -0,0 +1,83 @@
+package first.transactions.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Change counters for market data, used as HTTP validators.
+ *
+ * Every price tick or company change bumps the version of its ticker and of the
+ * companies table. ETags combine a version with the boot time, so a version number
+ * reused after a restart never validates a stale client copy.
+ */
+@Service
+public class MarketDataVersions {
+
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+    private final Version table = new Version();
+    private final Map<String, Version> tickers = new ConcurrentHashMap<>();
+
+    /**
+     * Record a change to a ticker (price, shares...) - also changes the table version
+     * @param ticker Ticker symbol in any case
+     */
+    public void bump(String ticker) {
+        tickers.computeIfAbsent(normalize(ticker), t -> new Version()).increment();
+        table.increment();
+    }
+
+    /**
+     * Record a change to the companies table not tied to one ticker
+     */
+    public void bumpTable() {
+        table.increment();
+    }
+
+    public long tableVersion() {
+        return table.value.get();
+    }
+
+    public long tableLastModified() {
+        return table.changedAt;
+    }
+
+    public long tickerVersion(String ticker) {
+        Version version = tickers.get(normalize(ticker));
+        return version != null ? version.value.get() : 0;
+    }
+
+    public long tickerLastModified(String ticker) {
+        Version version = tickers.get(normalize(ticker));
+        return version != null ? version.changedAt : table.startedAt;
+    }
+
+    /**
+     * Strong ETag for a version, optionally qualified by the representation
+     * (query parameters, media type) it describes
+     */
+    public String etag(long version, String variant) {
+        String tag = bootId + "-" + version;
+        if (variant != null && !variant.isEmpty()) {
+            tag += "-" + Integer.toHexString(variant.hashCode());
+        }
+        return "\"" + tag + "\"";
+    }
+
+    private static String normalize(String ticker) {
+        return ticker.trim().toUpperCase();
+    }
+
+    private static final class Version {
+        private final AtomicLong value = new AtomicLong();
+        private final long startedAt = System.currentTimeMillis();
+        private volatile long changedAt = startedAt;
+
+        private void increment() {
+            value.incrementAndGet();
+            changedAt = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package first.transactions.service;
+
+import first.transactions.model.OrderSide;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory order books, one per ticker.
+ * Every access to a book runs on its ticker's TradeSequencer thread, so books are
+ * single-writer and need no locks. Books are not persisted - only their fills are
+ * (see OrderFillWriter).
+ */
+@Service
+public class MatchingEngine {
+
+    private final Map<String, OrderBook> books = new ConcurrentHashMap<>();
+    private final TradeSequencer tradeSequencer;
+    private final int maxOrdersPerBook;
+    private final int maxPriceLevels;
+
+    public MatchingEngine(TradeSequencer tradeSequencer,
+                          @Value("${matching.max-orders-per-book:65536}") int maxOrdersPerBook,
+                          @Value("${matching.max-price-levels:4096}") int maxPriceLevels) {
+        this.tradeSequencer = tradeSequencer;
+        this.maxOrdersPerBook = maxOrdersPerBook;
+        this.maxPriceLevels = maxPriceLevels;
+    }
+
+    /**
+     * Match an order and rest the remainder (limit orders only)
+     * @param ticker Ticker symbol (normalized)
+     * @param side Buy or sell
+     * @param userId Order owner
+     * @param priceTicks Limit price in cents
+     * @param quantity Quantity in thousandths of a share
+     * @param immediateOrCancel true for market orders
+     * @return Resting order id and the fills produced
+     */
+    public MatchResult submit(String ticker, OrderSide side, long userId, long priceTicks,
+                              long quantity, boolean immediateOrCancel) {
+        return tradeSequencer.execute(ticker, () -> {
+            OrderBook book = getBook(ticker);
+            List<Fill> fills = new ArrayList<>();
+            long orderId = book.submit(side, userId, priceTicks, quantity, immediateOrCancel,
+                    (makerOrderId, makerUserId, takerUserId, takerSide, fillPrice, fillQuantity) ->
+                            fills.add(new Fill(ticker, makerOrderId, makerUserId, takerUserId,
+                                    takerSide, fillPrice, fillQuantity, priceTicks)));
+            return new MatchResult(orderId, fills);
+        });
+    }
+
+    /**
+     * Cancel a resting order
+     * @return The cancelled order, or null if it was not live or not owned by the user
+     */
+    public CancelledOrder cancel(String ticker, long orderId, long userId) {
+        return tradeSequencer.execute(ticker, () -> {
+            OrderBook book = books.get(ticker);
+            if (book == null) {
+                return null;
+            }
+            OrderSide side = book.orderSide(orderId);
+            long price = book.orderPrice(orderId);
+            long cancelled = book.cancel(orderId, userId);
+            return cancelled > 0 ? new CancelledOrder(side, price, cancelled) : null;
+        });
+    }
+
+    /**
+     * Aggregated depth snapshot, best price first
+     */
+    public DepthSnapshot depth(String ticker, int levels) {
+        long[] bidPrices = new long[levels];
+        long[] bidQuantities = new long[levels];
+        long[] askPrices = new long[levels];
+        long[] askQuantities = new long[levels];
+
+        return tradeSequencer.execute(ticker, () -> {
+            OrderBook book = books.get(ticker);
+            int bidCount = book != null ? book.depth(OrderSide.BUY, bidPrices, bidQuantities) : 0;
+            int askCount = book != null ? book.depth(OrderSide.SELL, askPrices, askQuantities) : 0;
+            return new DepthSnapshot(bidPrices, bidQuantities, bidCount, askPrices, askQuantities, askCount);
+        });
+    }
+
+    private OrderBook getBook(String ticker) {
+        return books.computeIfAbsent(ticker, t -> new OrderBook(t, maxOrdersPerBook, maxPriceLevels));
+    }
+
+    /**
+     * A single execution between a resting (maker) order and an incoming (taker) order
+     */
+    public static class Fill {
+        private final String tickerSymbol;
+        private final long makerOrderId;
+        private final long makerUserId;
+        private final long takerUserId;
+        private final OrderSide takerSide;
+        private final long priceTicks;
+        private final long quantity;
+        private final long takerLimitTicks;
+
+        public Fill(String tickerSymbol, long makerOrderId, long makerUserId, long takerUserId,
+                    OrderSide takerSide, long priceTicks, long quantity, long takerLimitTicks) {
+            this.tickerSymbol = tickerSymbol;
+            this.makerOrderId = makerOrderId;
+            this.makerUserId = makerUserId;
+            this.takerUserId = takerUserId;
+            this.takerSide = takerSide;
+            this.priceTicks = priceTicks;
+            this.quantity = quantity;
+            this.takerLimitTicks = takerLimitTicks;
+        }
+
+        public String getTickerSymbol() { return tickerSymbol; }
+        public long getMakerOrderId() { return makerOrderId; }
+        public long getMakerUserId() { return makerUserId; }
+        public long getTakerUserId() { return takerUserId; }
+        public OrderSide getTakerSide() { return takerSide; }
+        public long getTakerLimitTicks() { return takerLimitTicks; }
+        public long getQuantity() { return quantity; }
+        public long getPriceTicks() { return priceTicks; }
+
+        public long getBuyerId() { return takerSide == OrderSide.BUY ? takerUserId : makerUserId; }
+        public long getSellerId() { return takerSide == OrderSide.BUY ? makerUserId : takerUserId; }
+
+        public double getPrice() { return (double) priceTicks / OrderBook.PRICE_SCALE; }
+        public double getShares() { return (double) quantity / OrderBook.QUANTITY_SCALE; }
+        public double getNotional() { return getPrice() * getShares(); }
+
+        // Cash the buyer reserved for this quantity: the taker's limit, or the maker's own price
+        public double getBuyerReservedCash() {
+            long reservedTicks = takerSide == OrderSide.BUY ? takerLimitTicks : priceTicks;
+            return (double) reservedTicks / OrderBook.PRICE_SCALE * getShares();
+        }
+    }
+
+    public static class MatchResult {
+        private final long restingOrderId;
+        private final List<Fill> fills;
+
+        public MatchResult(long restingOrderId, List<Fill> fills) {
+            this.restingOrderId = restingOrderId;
+            this.fills = fills;
+        }
+
+        public long getRestingOrderId() { return restingOrderId; }
+        public List<Fill> getFills() { return fills; }
+
+        public long getFilledQuantity() {
+            long filled = 0;
+            for (Fill fill : fills) {
+                filled += fill.getQuantity();
+            }
+            return filled;
+        }
+
+        public double getFilledNotional() {
+            double notional = 0.0;
+            for (Fill fill : fills) {
+                notional += fill.getNotional();
+            }
+            return notional;
+        }
+    }
+
+    public static class CancelledOrder {
+        private final OrderSide side;
+        private final long priceTicks;
+        private final long quantity;
+
+        public CancelledOrder(OrderSide side, long priceTicks, long quantity) {
+            this.side = side;
+            this.priceTicks = priceTicks;
+            this.quantity = quantity;
+        }
+
+        public OrderSide getSide() { return side; }
+        public double getPrice() { return (double) priceTicks / OrderBook.PRICE_SCALE; }
+        public double getShares() { return (double) quantity / OrderBook.QUANTITY_SCALE; }
+    }
+
+    public static class DepthSnapshot {
+        private final long[] bidPrices;
+        private final long[] bidQuantities;
+        private final int bidCount;
+        private final long[] askPrices;
+        private final long[] askQuantities;
+        private final int askCount;
+
+        public DepthSnapshot(long[] bidPrices, long[] bidQuantities, int bidCount,
+                             long[] askPrices, long[] askQuantities, int askCount) {
+            this.bidPrices = bidPrices;
+            this.bidQuantities = bidQuantities;
+            this.bidCount = bidCount;
+            this.askPrices = askPrices;
+            this.askQuantities = askQuantities;
+            this.askCount = askCount;
+        }
+
+        public long[] getBidPrices() { return bidPrices; }
+        public long[] getBidQuantities() { return bidQuantities; }
+        public int getBidCount() { return bidCount; }
+        public long[] getAskPrices() { return askPrices; }
+        public long[] getAskQuantities() { return askQuantities; }
+        public int getAskCount() { return askCount; }
+    }
+}
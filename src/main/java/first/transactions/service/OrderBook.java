@@ -0,0 +1,347 @@
+package first.transactions.service;
+
+import first.transactions.model.OrderSide;
+
+/**
+ * Price-time priority limit order book for a single ticker.
+ *
+ * Orders live in pre-allocated parallel arrays (a slot pool with a free list) and
+ * each side keeps its price levels in sorted primitive arrays with the best price
+ * last, so the book itself allocates nothing per order when submitting, matching or
+ * cancelling. Fills go to the caller's FillHandler; MatchingEngine turns them into
+ * Fill objects (plus a list and a MatchResult per order) for OrderFillWriter.
+ * Prices are in cents and quantities in thousandths of a share.
+ *
+ * An order never trades with its owner's own resting orders: matching stops at the
+ * first one and the incoming remainder is cancelled rather than rested (cancel newest).
+ *
+ * Not thread-safe - callers must serialize access to a book.
+ */
+public class OrderBook {
+
+    public static final long PRICE_SCALE = 100;       // cents
+    public static final long QUANTITY_SCALE = 1000;   // 0.001 shares
+
+    private static final int NONE = -1;
+
+    /**
+     * Receives every fill produced by {@link #submit}
+     */
+    public interface FillHandler {
+        void onFill(long makerOrderId, long makerUserId, long takerUserId,
+                    OrderSide takerSide, long priceTicks, long quantity);
+    }
+
+    private final String tickerSymbol;
+
+    // Order slots
+    private final long[] orderUserId;
+    private final long[] orderPrice;
+    private final long[] orderRemaining;
+    private final int[] orderGeneration;
+    private final int[] orderNext;
+    private final int[] orderPrev;
+    private final boolean[] orderIsBuy;
+    private final int[] freeSlots;
+    private int freeCount;
+
+    private final PriceLevels bids;
+    private final PriceLevels asks;
+
+    public OrderBook(String tickerSymbol, int maxOrders, int maxLevels) {
+        this.tickerSymbol = tickerSymbol;
+        this.orderUserId = new long[maxOrders];
+        this.orderPrice = new long[maxOrders];
+        this.orderRemaining = new long[maxOrders];
+        this.orderGeneration = new int[maxOrders];
+        this.orderNext = new int[maxOrders];
+        this.orderPrev = new int[maxOrders];
+        this.orderIsBuy = new boolean[maxOrders];
+        this.freeSlots = new int[maxOrders];
+        for (int i = 0; i < maxOrders; i++) {
+            freeSlots[i] = maxOrders - 1 - i;
+        }
+        this.freeCount = maxOrders;
+        this.bids = new PriceLevels(true, maxLevels);
+        this.asks = new PriceLevels(false, maxLevels);
+    }
+
+    public String getTickerSymbol() {
+        return tickerSymbol;
+    }
+
+    /**
+     * Match an incoming order against the opposite side and rest any remainder
+     * @param side Buy or sell
+     * @param userId Order owner
+     * @param priceTicks Limit price in cents (worst price the taker accepts)
+     * @param quantity Quantity in thousandths of a share
+     * @param immediateOrCancel true to drop the unfilled remainder instead of resting it
+     * @param fills Receives each fill
+     * @return Id of the resting order, or 0 if nothing rests in the book (filled, immediate-or-cancel,
+     *         or cancelled on reaching one of the owner's own resting orders)
+     */
+    public long submit(OrderSide side, long userId, long priceTicks, long quantity,
+                       boolean immediateOrCancel, FillHandler fills) {
+        boolean isBuy = side == OrderSide.BUY;
+        PriceLevels opposite = isBuy ? asks : bids;
+        long remaining = quantity;
+        boolean selfTrade = false;
+
+        while (remaining > 0 && opposite.count > 0 && !selfTrade) {
+            int level = opposite.count - 1;
+            long levelPrice = opposite.price[level];
+            if (isBuy ? levelPrice > priceTicks : levelPrice < priceTicks) {
+                break;
+            }
+
+            int slot = opposite.head[level];
+            while (slot != NONE && remaining > 0) {
+                // The owner's own order would fill both sides of the ledger with one account
+                if (orderUserId[slot] == userId) {
+                    selfTrade = true;
+                    break;
+                }
+                long fillQuantity = Math.min(remaining, orderRemaining[slot]);
+                remaining -= fillQuantity;
+                orderRemaining[slot] -= fillQuantity;
+                opposite.quantity[level] -= fillQuantity;
+
+                fills.onFill(orderId(slot), orderUserId[slot], userId, side, levelPrice, fillQuantity);
+
+                int next = orderNext[slot];
+                if (orderRemaining[slot] == 0) {
+                    opposite.head[level] = next;
+                    if (next == NONE) {
+                        opposite.tail[level] = NONE;
+                    } else {
+                        orderPrev[next] = NONE;
+                    }
+                    releaseSlot(slot);
+                }
+                slot = next;
+            }
+
+            if (opposite.head[level] == NONE) {
+                opposite.count--;
+            }
+        }
+
+        if (remaining == 0 || immediateOrCancel || selfTrade) {
+            return 0;
+        }
+        return rest(isBuy, userId, priceTicks, remaining);
+    }
+
+    /**
+     * Cancel a resting order
+     * @param orderId Order id returned by submit
+     * @param userId Owner - orders of other users are never cancelled
+     * @return Quantity that was still open, or 0 if the order was not live
+     */
+    public long cancel(long orderId, long userId) {
+        int slot = liveSlot(orderId);
+        if (slot == NONE || orderUserId[slot] != userId) {
+            return 0;
+        }
+
+        PriceLevels levels = orderIsBuy[slot] ? bids : asks;
+        int level = levels.find(orderPrice[slot]);
+        int prev = orderPrev[slot];
+        int next = orderNext[slot];
+
+        if (prev == NONE) {
+            levels.head[level] = next;
+        } else {
+            orderNext[prev] = next;
+        }
+        if (next == NONE) {
+            levels.tail[level] = prev;
+        } else {
+            orderPrev[next] = prev;
+        }
+
+        long cancelled = orderRemaining[slot];
+        levels.quantity[level] -= cancelled;
+        if (levels.head[level] == NONE) {
+            levels.remove(level);
+        }
+        releaseSlot(slot);
+        return cancelled;
+    }
+
+    public boolean isLive(long orderId) {
+        return liveSlot(orderId) != NONE;
+    }
+
+    public long remainingQuantity(long orderId) {
+        int slot = liveSlot(orderId);
+        return slot == NONE ? 0 : orderRemaining[slot];
+    }
+
+    public long orderPrice(long orderId) {
+        int slot = liveSlot(orderId);
+        return slot == NONE ? 0 : orderPrice[slot];
+    }
+
+    public OrderSide orderSide(long orderId) {
+        int slot = liveSlot(orderId);
+        if (slot == NONE) {
+            return null;
+        }
+        return orderIsBuy[slot] ? OrderSide.BUY : OrderSide.SELL;
+    }
+
+    public long bestBid() {
+        return bids.count > 0 ? bids.price[bids.count - 1] : 0;
+    }
+
+    public long bestAsk() {
+        return asks.count > 0 ? asks.price[asks.count - 1] : 0;
+    }
+
+    public int openOrders() {
+        return freeSlots.length - freeCount;
+    }
+
+    /**
+     * Copy aggregated depth, best price first
+     * @return Number of levels copied
+     */
+    public int depth(OrderSide side, long[] prices, long[] quantities) {
+        PriceLevels levels = side == OrderSide.BUY ? bids : asks;
+        int n = Math.min(levels.count, Math.min(prices.length, quantities.length));
+        for (int i = 0; i < n; i++) {
+            int level = levels.count - 1 - i;
+            prices[i] = levels.price[level];
+            quantities[i] = levels.quantity[level];
+        }
+        return n;
+    }
+
+    private long rest(boolean isBuy, long userId, long priceTicks, long quantity) {
+        if (freeCount == 0) {
+            throw new IllegalStateException("Order book full for " + tickerSymbol);
+        }
+        PriceLevels levels = isBuy ? bids : asks;
+        int level = levels.findOrInsert(priceTicks);
+
+        int slot = freeSlots[--freeCount];
+        orderGeneration[slot]++;
+        orderUserId[slot] = userId;
+        orderPrice[slot] = priceTicks;
+        orderRemaining[slot] = quantity;
+        orderIsBuy[slot] = isBuy;
+        orderNext[slot] = NONE;
+        orderPrev[slot] = levels.tail[level];
+
+        if (levels.tail[level] == NONE) {
+            levels.head[level] = slot;
+        } else {
+            orderNext[levels.tail[level]] = slot;
+        }
+        levels.tail[level] = slot;
+        levels.quantity[level] += quantity;
+        return orderId(slot);
+    }
+
+    private void releaseSlot(int slot) {
+        orderRemaining[slot] = 0;
+        freeSlots[freeCount++] = slot;
+    }
+
+    // Order id = generation in the high bits, slot in the low bits, so stale ids never match a reused slot
+    private long orderId(int slot) {
+        return ((long) orderGeneration[slot] << 32) | slot;
+    }
+
+    private int liveSlot(long orderId) {
+        int slot = (int) orderId;
+        if (orderId <= 0 || slot < 0 || slot >= orderRemaining.length) {
+            return NONE;
+        }
+        if (orderGeneration[slot] != (int) (orderId >>> 32) || orderRemaining[slot] == 0) {
+            return NONE;
+        }
+        return slot;
+    }
+
+    /**
+     * Price levels of one side, sorted so the best price is always at index count - 1
+     */
+    private static final class PriceLevels {
+        private final boolean descendingIsBetter;
+        private final long[] price;
+        private final long[] quantity;
+        private final int[] head;
+        private final int[] tail;
+        private int count;
+
+        private PriceLevels(boolean bids, int maxLevels) {
+            this.descendingIsBetter = bids;
+            this.price = new long[maxLevels];
+            this.quantity = new long[maxLevels];
+            this.head = new int[maxLevels];
+            this.tail = new int[maxLevels];
+        }
+
+        // Bids sort ascending (highest last), asks sort descending (lowest last)
+        private long key(long p) {
+            return descendingIsBetter ? p : -p;
+        }
+
+        // Binary search: index of the level, or -(insertion point) - 1
+        private int search(long p) {
+            long k = key(p);
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midKey = key(price[mid]);
+                if (midKey < k) {
+                    low = mid + 1;
+                } else if (midKey > k) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private int find(long p) {
+            return search(p);
+        }
+
+        private int findOrInsert(long p) {
+            int index = search(p);
+            if (index >= 0) {
+                return index;
+            }
+            if (count == price.length) {
+                throw new IllegalStateException("Too many price levels");
+            }
+            index = -(index + 1);
+            int moved = count - index;
+            System.arraycopy(price, index, price, index + 1, moved);
+            System.arraycopy(quantity, index, quantity, index + 1, moved);
+            System.arraycopy(head, index, head, index + 1, moved);
+            System.arraycopy(tail, index, tail, index + 1, moved);
+            price[index] = p;
+            quantity[index] = 0;
+            head[index] = NONE;
+            tail[index] = NONE;
+            count++;
+            return index;
+        }
+
+        private void remove(int index) {
+            int moved = count - index - 1;
+            System.arraycopy(price, index + 1, price, index, moved);
+            System.arraycopy(quantity, index + 1, quantity, index, moved);
+            System.arraycopy(head, index + 1, head, index, moved);
+            System.arraycopy(tail, index + 1, tail, index, moved);
+            count--;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package first.transactions.service;
+
+import first.transactions.model.Company;
+import first.transactions.model.FailedFill;
+import first.transactions.model.Investment;
+import first.transactions.model.LedgerEntryType;
+import first.transactions.model.User;
+import first.transactions.repository.FailedFillRepository;
+import first.transactions.repository.InvestmentRepository;
+import first.transactions.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persists order book fills off the order path.
+ * Fills are written by a single background thread, in match order, to the existing
+ * ledger / investments / companies / stockhistory tables. Reservations are released
+ * only after the fill is committed.
+ *
+ * A failing fill is retried with exponential backoff, then recorded in failed_fills
+ * with its reservations still held, and replayed from there until it commits. A fill
+ * that cannot even be recorded is kept in memory for the next replay.
+ */
+@Service
+public class OrderFillWriter {
+
+    private final UserRepository userRepository;
+    private final InvestmentRepository investmentRepository;
+    private final FailedFillRepository failedFillRepository;
+    private final CompanyCache companyCache;
+    private final StockPriceService stockPriceService;
+    private final MarkToMarketService markToMarketService;
+    private final PortfolioService portfolioService;
+    private final OrderReservations reservations;
+    private final TradeSequencer tradeSequencer;
+    private final LedgerService ledgerService;
+    private final AccountLocks accountLocks;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long backoffMs;
+
+    // Fills whose failure could not be written to failed_fills
+    private final Queue<MatchingEngine.Fill> unrecorded = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingFailures = new AtomicInteger();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-fill-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public OrderFillWriter(UserRepository userRepository,
+                           InvestmentRepository investmentRepository,
+                           FailedFillRepository failedFillRepository,
+                           CompanyCache companyCache,
+                           StockPriceService stockPriceService,
+                           MarkToMarketService markToMarketService,
+                           PortfolioService portfolioService,
+                           OrderReservations reservations,
+                           TradeSequencer tradeSequencer,
+                           LedgerService ledgerService,
+                           AccountLocks accountLocks,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${orders.fill.retry.max-attempts:5}") int maxAttempts,
+                           @Value("${orders.fill.retry.backoff-ms:50}") long backoffMs) {
+        this.userRepository = userRepository;
+        this.investmentRepository = investmentRepository;
+        this.failedFillRepository = failedFillRepository;
+        this.companyCache = companyCache;
+        this.stockPriceService = stockPriceService;
+        this.markToMarketService = markToMarketService;
+        this.portfolioService = portfolioService;
+        this.reservations = reservations;
+        this.tradeSequencer = tradeSequencer;
+        this.ledgerService = ledgerService;
+        this.accountLocks = accountLocks;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = backoffMs;
+    }
+
+    /**
+     * Re-take the reservations of fills that failed before a restart - in-memory
+     * reservations did not survive it, the failed_fills rows did
+     */
+    @PostConstruct
+    public void restoreReservations() {
+        List<FailedFill> failed = failedFillRepository.findAllByOrderByIdAsc();
+        for (FailedFill failedFill : failed) {
+            MatchingEngine.Fill fill = failedFill.toFill();
+            reservations.holdCash(fill.getBuyerId(), fill.getBuyerReservedCash());
+            reservations.holdShares(fill.getSellerId(), fill.getTickerSymbol(), fill.getShares());
+        }
+        pendingFailures.set(failed.size());
+    }
+
+    /**
+     * Queue fills for persistence, returns immediately
+     */
+    public void enqueue(List<MatchingEngine.Fill> fills) {
+        if (fills.isEmpty()) {
+            return;
+        }
+        executor.execute(() -> {
+            for (MatchingEngine.Fill fill : fills) {
+                RuntimeException failure = persistWithRetry(fill, null);
+                if (failure == null) {
+                    release(fill);
+                } else {
+                    System.err.println("Failed to persist fill for " + fill.getTickerSymbol() + " after "
+                            + maxAttempts + " attempts, keeping its reservations: " + failure.getMessage());
+                    pendingFailures.incrementAndGet();
+                    record(fill, failure);
+                }
+            }
+        });
+    }
+
+    /**
+     * Replay failed fills, oldest first, on the writer thread
+     */
+    @Scheduled(fixedDelayString = "${orders.fill.replay-interval-ms:30000}")
+    public void replayFailedFills() {
+        if (pendingFailures.get() > 0) {
+            executor.execute(this::replay);
+        }
+    }
+
+    /**
+     * Fills that failed and are still waiting to be persisted
+     */
+    public int getPendingFailures() {
+        return pendingFailures.get();
+    }
+
+    private void replay() {
+        for (int i = unrecorded.size(); i > 0; i--) {
+            MatchingEngine.Fill fill = unrecorded.poll();
+            RuntimeException failure = persistWithRetry(fill, null);
+            if (failure == null) {
+                replayed(fill);
+            } else {
+                record(fill, failure);
+            }
+        }
+
+        List<FailedFill> failed;
+        try {
+            failed = failedFillRepository.findAllByOrderByIdAsc();
+        } catch (RuntimeException e) {
+            System.err.println("Could not read failed fills: " + e.getMessage());
+            return;
+        }
+        for (FailedFill failedFill : failed) {
+            MatchingEngine.Fill fill = failedFill.toFill();
+            RuntimeException failure = persistWithRetry(fill, failedFill.getId());
+            if (failure == null) {
+                replayed(fill);
+            } else {
+                failedFill.failedAgain(failure.getMessage(), maxAttempts);
+                try {
+                    failedFillRepository.save(failedFill);
+                } catch (RuntimeException e) {
+                    System.err.println("Could not update failed fill " + failedFill.getId() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Persist a fill, retrying with exponential backoff. Only this writer thread sleeps
+     * between attempts - each attempt runs on the ticker's sequencer thread.
+     * @param failedFillId failed_fills row removed in the same transaction, or null
+     * @return null once committed, otherwise the last failure
+     */
+    private RuntimeException persistWithRetry(MatchingEngine.Fill fill, Long failedFillId) {
+        long backoff = backoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // Company price is ticker state - update it on the ticker's sequencer thread
+                tradeSequencer.execute(fill.getTickerSymbol(), () -> {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        persist(fill);
+                        if (failedFillId != null) {
+                            failedFillRepository.deleteById(failedFillId);
+                        }
+                    });
+                    return null;
+                });
+                return null;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    return e;
+                }
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return e;
+                }
+                backoff *= 2;
+            }
+        }
+    }
+
+    // Write the failure to failed_fills, or keep it in memory if even that fails
+    private void record(MatchingEngine.Fill fill, RuntimeException failure) {
+        try {
+            failedFillRepository.save(new FailedFill(fill, failure.getMessage(), maxAttempts));
+        } catch (RuntimeException e) {
+            System.err.println("Could not record failed fill for " + fill.getTickerSymbol() + ": " + e.getMessage());
+            unrecorded.add(fill);
+        }
+    }
+
+    private void replayed(MatchingEngine.Fill fill) {
+        pendingFailures.decrementAndGet();
+        release(fill);
+    }
+
+    private void release(MatchingEngine.Fill fill) {
+        reservations.releaseCash(fill.getBuyerId(), fill.getBuyerReservedCash());
+        reservations.releaseShares(fill.getSellerId(), fill.getTickerSymbol(), fill.getShares());
+    }
+
+    private void persist(MatchingEngine.Fill fill) {
+        String ticker = fill.getTickerSymbol();
+        double shares = fill.getShares();
+        double notional = fill.getNotional();
+
+        User buyer = userRepository.findById(fill.getBuyerId())
+                .orElseThrow(() -> new IllegalStateException("Buyer not found: " + fill.getBuyerId()));
+        User seller = userRepository.findById(fill.getSellerId())
+                .orElseThrow(() -> new IllegalStateException("Seller not found: " + fill.getSellerId()));
+
+        // The buyer is debited - hold the account like any other debit. This runs on the
+        // ticker's sequencer thread, which must never wait: a busy account retries the fill.
+        if (!accountLocks.tryLockUntilCompletion(buyer.getId())) {
+            throw new CannotAcquireLockException("Buyer account busy: " + buyer.getId());
+        }
+
+        // Last traded price moves to the fill price
+        Company company = companyCache.getForUpdate(ticker);
+        double oldPrice = company.getLastStockPrice() != null ? company.getLastStockPrice() : fill.getPrice();
+        company.setLastStockPrice(fill.getPrice());
+        companyCache.markDirty(company);
+
+        stockPriceService.recordTick(ticker, fill.getPrice(), shares);
+
+        markToMarketService.revalue(ticker, oldPrice, fill.getPrice());
+
+        // Cash moves from buyer to seller
+        ledgerService.post(LedgerEntryType.ORDER_FILL, buyer.getId(), seller.getId(), notional, ticker);
+
+        // Shares move from seller to buyer
+        Investment sellerInvestment = investmentRepository.findByUserIdAndTickerSymbol(seller.getId(), ticker)
+                .orElseThrow(() -> new IllegalStateException("Seller holds no " + ticker));
+        double sellerShares = sellerInvestment.getSharesPurchased() - shares;
+        if (sellerShares <= 1e-9) {
+            investmentRepository.delete(sellerInvestment);
+            sellerShares = 0.0;
+        } else {
+            // Reduce cost basis pro rata
+            sellerInvestment.setAmountUsd(sellerInvestment.getAmountUsd() * sellerShares / sellerInvestment.getSharesPurchased());
+            sellerInvestment.setSharesPurchased(sellerShares);
+            investmentRepository.save(sellerInvestment);
+        }
+        markToMarketService.updatePosition(seller.getId(), ticker, sellerShares);
+
+        Investment buyerInvestment = investmentRepository.findByUserIdAndTickerSymbol(buyer.getId(), ticker)
+                .orElseGet(() -> {
+                    Investment newInvestment = new Investment();
+                    newInvestment.setUserId(buyer.getId());
+                    newInvestment.setTickerSymbol(ticker);
+                    newInvestment.setAmountUsd(0.0);
+                    newInvestment.setSharesPurchased(0.0);
+                    return newInvestment;
+                });
+        buyerInvestment.setAmountUsd(buyerInvestment.getAmountUsd() + notional);
+        buyerInvestment.setSharesPurchased(buyerInvestment.getSharesPurchased() + shares);
+        investmentRepository.save(buyerInvestment);
+        markToMarketService.updatePosition(buyer.getId(), ticker, buyerInvestment.getSharesPurchased());
+
+        portfolioService.updatePortfolioAfterInvestment(buyer);
+        portfolioService.updatePortfolioAfterInvestment(seller);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,89 @@
+package first.transactions.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cash and shares held back by open orders.
+ * A reservation is taken when an order is accepted and released once its fills
+ * are persisted or the order is cancelled, so users can never commit the same
+ * money or shares to two orders.
+ */
+@Component
+public class OrderReservations {
+
+    // userId -> reserved cash
+    private final Map<Long, Double> reservedCash = new ConcurrentHashMap<>();
+
+    // userId -> (ticker -> reserved shares)
+    private final Map<Long, Map<String, Double>> reservedShares = new ConcurrentHashMap<>();
+
+    public double reservedCash(Long userId) {
+        return reservedCash.getOrDefault(userId, 0.0);
+    }
+
+    public double reservedShares(Long userId, String ticker) {
+        Map<String, Double> byTicker = reservedShares.get(userId);
+        return byTicker == null ? 0.0 : byTicker.getOrDefault(ticker, 0.0);
+    }
+
+    /**
+     * Reserve cash if the user's balance still covers it
+     * @return false if balance minus existing reservations is below amount
+     */
+    public synchronized boolean tryReserveCash(Long userId, double amount, double balance) {
+        if (reservedCash(userId) + amount > balance) {
+            return false;
+        }
+        reservedCash.merge(userId, amount, Double::sum);
+        return true;
+    }
+
+    /**
+     * Reserve cash unconditionally - restores the reservation of a fill still waiting to be persisted
+     */
+    public void holdCash(Long userId, double amount) {
+        reservedCash.merge(userId, amount, Double::sum);
+    }
+
+    public void releaseCash(Long userId, double amount) {
+        reservedCash.computeIfPresent(userId, (id, reserved) -> {
+            double left = reserved - amount;
+            return left > 1e-9 ? left : null;
+        });
+    }
+
+    /**
+     * Reserve shares if the user's holding still covers them
+     * @return false if shares owned minus existing reservations is below shares
+     */
+    public synchronized boolean tryReserveShares(Long userId, String ticker, double shares, double owned) {
+        if (reservedShares(userId, ticker) + shares > owned + 1e-9) {
+            return false;
+        }
+        reservedShares.computeIfAbsent(userId, id -> new ConcurrentHashMap<>())
+                .merge(ticker, shares, Double::sum);
+        return true;
+    }
+
+    /**
+     * Reserve shares unconditionally - restores the reservation of a fill still waiting to be persisted
+     */
+    public void holdShares(Long userId, String ticker, double shares) {
+        reservedShares.computeIfAbsent(userId, id -> new ConcurrentHashMap<>())
+                .merge(ticker, shares, Double::sum);
+    }
+
+    public void releaseShares(Long userId, String ticker, double shares) {
+        Map<String, Double> byTicker = reservedShares.get(userId);
+        if (byTicker == null) {
+            return;
+        }
+        byTicker.computeIfPresent(ticker, (t, reserved) -> {
+            double left = reserved - shares;
+            return left > 1e-9 ? left : null;
+        });
+    }
+}
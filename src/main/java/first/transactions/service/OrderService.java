@@ -0,0 +1,252 @@
+package first.transactions.service;
+
+import first.transactions.dto.OrderRequest;
+import first.transactions.dto.OrderResponse;
+import first.transactions.model.Company;
+import first.transactions.model.Investment;
+import first.transactions.model.OrderSide;
+import first.transactions.model.OrderType;
+import first.transactions.model.User;
+import first.transactions.repository.InvestmentRepository;
+import first.transactions.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Order entry for the in-memory order books.
+ * Validates and reserves against the user's balance or holding, matches the order
+ * and hands fills to OrderFillWriter - no DB row is locked on the order path.
+ */
+@Service
+public class OrderService {
+
+    private final MatchingEngine matchingEngine;
+    private final OrderReservations reservations;
+    private final OrderFillWriter orderFillWriter;
+    private final CompanyCache companyCache;
+    private final StockPriceService stockPriceService;
+    private final UserRepository userRepository;
+    private final InvestmentRepository investmentRepository;
+    private final LedgerService ledgerService;
+    private final AccountLocks accountLocks;
+    private final TransactionTemplate transactionTemplate;
+    private final double marketOrderCollar;
+
+    public OrderService(MatchingEngine matchingEngine,
+                        OrderReservations reservations,
+                        OrderFillWriter orderFillWriter,
+                        CompanyCache companyCache,
+                        StockPriceService stockPriceService,
+                        UserRepository userRepository,
+                        InvestmentRepository investmentRepository,
+                        LedgerService ledgerService,
+                        AccountLocks accountLocks,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${matching.market-order-collar:0.10}") double marketOrderCollar) {
+        this.matchingEngine = matchingEngine;
+        this.reservations = reservations;
+        this.orderFillWriter = orderFillWriter;
+        this.companyCache = companyCache;
+        this.stockPriceService = stockPriceService;
+        this.userRepository = userRepository;
+        this.investmentRepository = investmentRepository;
+        this.ledgerService = ledgerService;
+        this.accountLocks = accountLocks;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.marketOrderCollar = marketOrderCollar;
+    }
+
+    /**
+     * Place a limit or market order
+     * @param request Order details (already validated)
+     * @param username Username of the order owner
+     * @return Order status or error
+     */
+    public OrderResult placeOrder(OrderRequest request, String username) {
+        String ticker = request.getTicker().toUpperCase();
+        Company company = companyCache.get(ticker);
+        if (company == null) {
+            return OrderResult.error("Ticker not found: " + ticker);
+        }
+        // Backpressure from the price history writer - fills record ticks too
+        if (!stockPriceService.canRecordTicks()) {
+            return OrderResult.error("Price history is backed up, please retry");
+        }
+
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException(username));
+
+        // Market orders are immediate-or-cancel limit orders at a collar around the last price
+        long priceTicks;
+        boolean immediateOrCancel = request.getType() == OrderType.MARKET;
+        if (immediateOrCancel) {
+            double lastPrice = company.getLastStockPrice() != null ? company.getLastStockPrice() : 100.0;
+            double collar = request.getSide() == OrderSide.BUY ? 1 + marketOrderCollar : 1 - marketOrderCollar;
+            priceTicks = Math.max(1, Math.round(lastPrice * collar * OrderBook.PRICE_SCALE));
+        } else {
+            if (request.getLimitPrice() == null) {
+                return OrderResult.error("Limit price is required for LIMIT orders");
+            }
+            priceTicks = Math.round(request.getLimitPrice() * OrderBook.PRICE_SCALE);
+        }
+
+        long quantity = Math.round(request.getQuantity() * OrderBook.QUANTITY_SCALE);
+        double shares = (double) quantity / OrderBook.QUANTITY_SCALE;
+        double price = (double) priceTicks / OrderBook.PRICE_SCALE;
+
+        // Reserve what the order can at most consume
+        if (request.getSide() == OrderSide.BUY) {
+            double required = price * shares;
+            String rejection = transactionTemplate.execute(status -> reserveCash(user.getId(), required));
+            if (rejection != null) {
+                return OrderResult.error(rejection);
+            }
+        } else {
+            double owned = investmentRepository.findByUserIdAndTickerSymbol(user.getId(), ticker)
+                    .map(Investment::getSharesPurchased)
+                    .orElse(0.0);
+            if (!reservations.tryReserveShares(user.getId(), ticker, shares, owned)) {
+                return OrderResult.error(String.format(
+                        "Insufficient shares to sell. Available: %.3f shares of %s",
+                        owned - reservations.reservedShares(user.getId(), ticker), ticker));
+            }
+        }
+
+        MatchingEngine.MatchResult match;
+        try {
+            match = matchingEngine.submit(ticker, request.getSide(), user.getId(), priceTicks, quantity, immediateOrCancel);
+        } catch (IllegalStateException e) {
+            releaseUnfilled(user.getId(), ticker, request.getSide(), price, shares);
+            return OrderResult.error("Order rejected: " + e.getMessage());
+        }
+
+        long filled = match.getFilledQuantity();
+        long open = match.getRestingOrderId() != 0 ? quantity - filled : 0;
+
+        // Market order and self-trade remainders never rest - give their reservation back
+        if (match.getRestingOrderId() == 0 && filled < quantity) {
+            releaseUnfilled(user.getId(), ticker, request.getSide(), price,
+                    (double) (quantity - filled) / OrderBook.QUANTITY_SCALE);
+        }
+
+        orderFillWriter.enqueue(match.getFills());
+
+        String status;
+        if (filled == quantity) {
+            status = "FILLED";
+        } else if (open > 0) {
+            status = filled > 0 ? "PARTIALLY_FILLED" : "OPEN";
+        } else {
+            status = "CANCELLED";
+        }
+
+        double filledShares = (double) filled / OrderBook.QUANTITY_SCALE;
+        OrderResponse response = new OrderResponse(
+                match.getRestingOrderId() != 0 ? match.getRestingOrderId() : null,
+                ticker,
+                request.getSide(),
+                request.getType(),
+                status,
+                filledShares,
+                (double) open / OrderBook.QUANTITY_SCALE,
+                filled > 0 ? match.getFilledNotional() / filledShares : null);
+
+        return OrderResult.success(response);
+    }
+
+    /**
+     * Cancel a resting order
+     * @param ticker Ticker of the order book
+     * @param orderId Order id returned when the order was placed
+     * @param username Username of the order owner
+     * @return Success message or error
+     */
+    public OrderResult cancelOrder(String ticker, long orderId, String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException(username));
+
+        String normalizedTicker = ticker.toUpperCase();
+        MatchingEngine.CancelledOrder cancelled = matchingEngine.cancel(normalizedTicker, orderId, user.getId());
+        if (cancelled == null) {
+            return OrderResult.error("Order not found or already filled");
+        }
+
+        releaseUnfilled(user.getId(), normalizedTicker, cancelled.getSide(), cancelled.getPrice(), cancelled.getShares());
+        return OrderResult.success(String.format(
+                "Order cancelled. %.3f shares of %s released", cancelled.getShares(), normalizedTicker));
+    }
+
+    /**
+     * Aggregated order book depth for a ticker
+     */
+    public MatchingEngine.DepthSnapshot getDepth(String ticker, int levels) {
+        return matchingEngine.depth(ticker.toUpperCase(), levels);
+    }
+
+    /**
+     * Reserve cash against the balance, holding the account from the balance read until the
+     * reservation is taken so a concurrent transfer or trade cannot spend the same cash
+     * @return null once reserved, otherwise why not
+     */
+    private String reserveCash(Long userId, double required) {
+        if (!accountLocks.tryLockUntilCompletion(userId)) {
+            return "Your account is busy with another transfer, please retry";
+        }
+        double balance = ledgerService.getBalance(userId);
+        if (!reservations.tryReserveCash(userId, required, balance)) {
+            return String.format("Insufficient balance. Available: $%.2f, Required: $%.2f",
+                    balance - reservations.reservedCash(userId), required);
+        }
+        return null;
+    }
+
+    private void releaseUnfilled(Long userId, String ticker, OrderSide side, double price, double shares) {
+        if (side == OrderSide.BUY) {
+            reservations.releaseCash(userId, price * shares);
+        } else {
+            reservations.releaseShares(userId, ticker, shares);
+        }
+    }
+
+    /**
+     * Result wrapper for order operations
+     */
+    public static class OrderResult {
+        private final boolean success;
+        private final String message;
+        private final OrderResponse order;
+
+        private OrderResult(boolean success, String message, OrderResponse order) {
+            this.success = success;
+            this.message = message;
+            this.order = order;
+        }
+
+        public static OrderResult success(OrderResponse order) {
+            return new OrderResult(true, order.getStatus(), order);
+        }
+
+        public static OrderResult success(String message) {
+            return new OrderResult(true, message, null);
+        }
+
+        public static OrderResult error(String message) {
+            return new OrderResult(false, message, null);
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public OrderResponse getOrder() {
+            return order;
+        }
+    }
+}
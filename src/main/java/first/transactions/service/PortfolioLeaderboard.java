@@ -0,0 +1,271 @@
+package first.transactions.service;
+
+import first.transactions.model.LeaderboardMetric;
+import first.transactions.model.Portfolio;
+import first.transactions.model.User;
+import first.transactions.repository.PortfolioRepository;
+import first.transactions.repository.UserRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Live ranking of portfolios by profit, profit percentage and total value.
+ *
+ * One RankTree per metric: a revaluation moves the user's entry in O(log n), and rank
+ * lookups and top-N reads never scan the portfolios. Changes are applied after their
+ * transaction commits, and a change older than the one already applied for the user
+ * is ignored. A removal is final: changes for a removed user that commit later are
+ * ignored too.
+ */
+@Service
+public class PortfolioLeaderboard {
+
+    private final PortfolioRepository portfolioRepository;
+    private final UserRepository userRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<LeaderboardMetric, RankTree> trees = new EnumMap<>(LeaderboardMetric.class);
+    private final Map<Long, Snapshot> snapshots = new HashMap<>();
+    // Users whose portfolio was deleted - ids are never reused
+    private final Set<Long> removed = new HashSet<>();
+
+    public PortfolioLeaderboard(PortfolioRepository portfolioRepository, UserRepository userRepository) {
+        this.portfolioRepository = portfolioRepository;
+        this.userRepository = userRepository;
+        for (LeaderboardMetric metric : LeaderboardMetric.values()) {
+            trees.put(metric, new RankTree());
+        }
+    }
+
+    /**
+     * Load every portfolio once; from then on the leaderboard only follows revaluations
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        apply(snapshots(portfolioRepository.findLeaderboardRows()));
+    }
+
+    /**
+     * Record a revalued portfolio; applied when the current transaction commits
+     * @param portfolio Portfolio with its new values
+     */
+    public void update(Portfolio portfolio) {
+        updateAll(List.of(portfolio));
+    }
+
+    /**
+     * Record several revalued portfolios; applied when the current transaction commits
+     * @param portfolios Portfolios with their new values
+     */
+    public void updateAll(List<Portfolio> portfolios) {
+        List<Snapshot> changes = new ArrayList<>(portfolios.size());
+        for (Portfolio portfolio : portfolios) {
+            if (portfolio.getUser() != null) {
+                changes.add(new Snapshot(portfolio.getUser().getId(), portfolio.getProfit(),
+                        portfolio.getProfitPercentage(), portfolio.getTotalValue(), portfolio.getLastUpdated()));
+            }
+        }
+        AfterCommit.run(() -> apply(changes));
+    }
+
+    /**
+     * Record portfolios revalued in bulk; applied when the current transaction commits
+     * @param rows (userId, profit, profitPercentage, totalValue, lastUpdated) rows read after the update
+     */
+    public void updateRows(List<Object[]> rows) {
+        List<Snapshot> changes = snapshots(rows);
+        AfterCommit.run(() -> apply(changes));
+    }
+
+    /**
+     * Drop a user from the leaderboard for good when the transaction commits
+     * @param userId Owner of the deleted portfolio
+     */
+    public void remove(Long userId) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                removed.add(userId);
+                Snapshot previous = snapshots.remove(userId);
+                if (previous != null) {
+                    for (LeaderboardMetric metric : LeaderboardMetric.values()) {
+                        trees.get(metric).remove(previous.valueOf(metric), userId);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Best portfolios by a metric
+     * @param metric Ranking metric
+     * @param offset Standings to skip
+     * @param limit Most standings to return
+     * @return Standings in rank order
+     */
+    public List<Standing> top(LeaderboardMetric metric, int offset, int limit) {
+        if (offset < 0 || limit < 1) {
+            throw new IllegalArgumentException("offset must be >= 0 and limit >= 1");
+        }
+        List<Long> userIds = new ArrayList<>(Math.min(limit, 1000));
+        List<Snapshot> ranked = new ArrayList<>(Math.min(limit, 1000));
+        lock.readLock().lock();
+        try {
+            trees.get(metric).collect(offset, limit, userIds);
+            for (Long userId : userIds) {
+                ranked.add(snapshots.get(userId));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // One primary-key lookup for the names on this page
+        Map<Long, String> usernames = new HashMap<>();
+        for (User user : userRepository.findAllById(userIds)) {
+            usernames.put(user.getId(), user.getUsername());
+        }
+        List<Standing> standings = new ArrayList<>(ranked.size());
+        for (int i = 0; i < ranked.size(); i++) {
+            Snapshot snapshot = ranked.get(i);
+            standings.add(new Standing(offset + i + 1, snapshot.userId, usernames.get(snapshot.userId), snapshot));
+        }
+        return standings;
+    }
+
+    /**
+     * Current standing of one user
+     * @param metric Ranking metric
+     * @param userId User to look up
+     * @return Standing, or null if the user has no portfolio yet
+     */
+    public Standing standingOf(LeaderboardMetric metric, Long userId) {
+        Snapshot snapshot;
+        long rank;
+        lock.readLock().lock();
+        try {
+            snapshot = snapshots.get(userId);
+            if (snapshot == null) {
+                return null;
+            }
+            rank = trees.get(metric).rank(snapshot.valueOf(metric), userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+        String username = userRepository.findById(userId).map(User::getUsername).orElse(null);
+        return new Standing(rank, userId, username, snapshot);
+    }
+
+    /**
+     * Number of ranked portfolios
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return snapshots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<Snapshot> snapshots(List<Object[]> rows) {
+        List<Snapshot> snapshots = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            snapshots.add(new Snapshot((Long) row[0], (Double) row[1], (Double) row[2], (Double) row[3], (LocalDateTime) row[4]));
+        }
+        return snapshots;
+    }
+
+    private void apply(List<Snapshot> changes) {
+        lock.writeLock().lock();
+        try {
+            for (Snapshot change : changes) {
+                // A revaluation committed after the user's deletion
+                if (removed.contains(change.userId)) {
+                    continue;
+                }
+                Snapshot previous = snapshots.get(change.userId);
+                if (previous != null) {
+                    // Commits of the same portfolio can finish out of order
+                    if (previous.lastUpdated != null && change.lastUpdated != null
+                            && change.lastUpdated.isBefore(previous.lastUpdated)) {
+                        continue;
+                    }
+                    for (LeaderboardMetric metric : LeaderboardMetric.values()) {
+                        trees.get(metric).remove(previous.valueOf(metric), change.userId);
+                    }
+                }
+                snapshots.put(change.userId, change);
+                for (LeaderboardMetric metric : LeaderboardMetric.values()) {
+                    trees.get(metric).insert(change.valueOf(metric), change.userId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static final class Snapshot {
+        private final Long userId;
+        private final double profit;
+        private final double profitPercentage;
+        private final double totalValue;
+        private final LocalDateTime lastUpdated;
+
+        private Snapshot(Long userId, Double profit, Double profitPercentage, Double totalValue, LocalDateTime lastUpdated) {
+            this.userId = userId;
+            this.profit = profit != null ? profit : 0.0;
+            this.profitPercentage = profitPercentage != null ? profitPercentage : 0.0;
+            this.totalValue = totalValue != null ? totalValue : 0.0;
+            this.lastUpdated = lastUpdated;
+        }
+
+        private double valueOf(LeaderboardMetric metric) {
+            return switch (metric) {
+                case PROFIT -> profit;
+                case PROFIT_PERCENTAGE -> profitPercentage;
+                case TOTAL_VALUE -> totalValue;
+            };
+        }
+    }
+
+    /**
+     * A user's place on the leaderboard
+     */
+    public static class Standing {
+        private final long rank;
+        private final Long userId;
+        private final String username;
+        private final double profit;
+        private final double profitPercentage;
+        private final double totalValue;
+
+        private Standing(long rank, Long userId, String username, Snapshot snapshot) {
+            this.rank = rank;
+            this.userId = userId;
+            this.username = username;
+            this.profit = snapshot.profit;
+            this.profitPercentage = snapshot.profitPercentage;
+            this.totalValue = snapshot.totalValue;
+        }
+
+        public long getRank() { return rank; }
+        public Long getUserId() { return userId; }
+        public String getUsername() { return username; }
+        public double getProfit() { return profit; }
+        public double getProfitPercentage() { return profitPercentage; }
+        public double getTotalValue() { return totalValue; }
+    }
+}
@@ -1,48 +1,75 @@
 package first.transactions.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import first.transactions.dto.PortfolioItem;
+import first.transactions.dto.PortfolioPage;
 import first.transactions.model.Investment;
 import first.transactions.model.Portfolio;
 import first.transactions.model.User;
-import first.transactions.repository.CompanyRepository;
 import first.transactions.repository.InvestmentRepository;
 import first.transactions.repository.PortfolioRepository;
 import first.transactions.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import first.transactions.service.PortfolioService;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class PortfolioService {
+
+    // Oracle rejects IN lists with more than 1000 entries
+    private static final int MAX_IN_LIST_SIZE = 1000;
     
     private final PortfolioRepository portfolioRepository;
     private final UserRepository userRepository;
     private final InvestmentRepository investmentRepository;
-    private final CompanyRepository companyRepository;
+    private final CompanyCache companyCache;
+    private final LedgerService ledgerService;
+    private final PortfolioLeaderboard leaderboard;
+    private final ObjectMapper objectMapper;
+    private final TradingMetrics metrics;
+    private final int maxPageSize;
     
     public PortfolioService(PortfolioRepository portfolioRepository,
                            UserRepository userRepository,
                            InvestmentRepository investmentRepository,
-                           CompanyRepository companyRepository) {
+                           CompanyCache companyCache,
+                           LedgerService ledgerService,
+                           PortfolioLeaderboard leaderboard,
+                           ObjectMapper objectMapper,
+                           TradingMetrics metrics,
+                           @Value("${admin.export.max-page-size:500}") int maxPageSize) {
         this.portfolioRepository = portfolioRepository;
         this.userRepository = userRepository;
         this.investmentRepository = investmentRepository;
-        this.companyRepository = companyRepository;
+        this.companyCache = companyCache;
+        this.ledgerService = ledgerService;
+        this.leaderboard = leaderboard;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.maxPageSize = maxPageSize;
     }
     
     /**
      * Get or create portfolio for a user by username
      */
     public Portfolio getPortfolioByUsername(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
-        
-        return getOrCreatePortfolio(user);
+        // Portfolio and user in one select; the user is only looked up on its own to create a portfolio
+        return portfolioRepository.findByUserUsername(username)
+                .orElseGet(() -> getOrCreatePortfolio(userRepository.findByUsername(username)
+                        .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username))));
     }
     
     /**
@@ -63,7 +90,9 @@ public class PortfolioService {
                 .orElseGet(() -> {
                     Portfolio newPortfolio = new Portfolio(user);
                     recalculatePortfolio(newPortfolio);
-                    return portfolioRepository.save(newPortfolio);
+                    Portfolio saved = portfolioRepository.save(newPortfolio);
+                    leaderboard.update(saved);
+                    return saved;
                 });
     }
     
@@ -71,43 +100,36 @@ public class PortfolioService {
      * Recalculate portfolio from current investments and save
      */
     public Portfolio recalculatePortfolio(String username) {
+        long start = System.nanoTime();
         Portfolio portfolio = getPortfolioByUsername(username);
         recalculatePortfolio(portfolio);
-        return portfolioRepository.save(portfolio);
+        leaderboard.update(portfolio);
+        Portfolio saved = portfolioRepository.save(portfolio);
+        metrics.portfolioRecalculated(start);
+        return saved;
     }
     
     /**
      * Internal method to recalculate portfolio values
      */
     private void recalculatePortfolio(Portfolio portfolio) {
-        User user = portfolio.getUser();
-        
-        // Update cash balance from user
-        portfolio.updateCashBalance(user.getBalance());
-        
-        // Get all investments for this user
-        List<Investment> investments = investmentRepository.findByUserId(user.getId());
+        Long userId = portfolio.getUser().getId();
+        recalculatePortfolio(portfolio, ledgerService.getBalance(userId), investmentRepository.findByUserId(userId));
+    }
+
+    /**
+     * Recalculate portfolio values from already loaded cash and investments
+     */
+    private void recalculatePortfolio(Portfolio portfolio, double cashBalance, List<Investment> investments) {
+        // Update cash balance from the ledger
+        portfolio.updateCashBalance(cashBalance);
         
         if (investments.isEmpty()) {
             // No investments
             portfolio.updateInvestmentData(0.0, 0.0, 0);
         } else {
             // Group investments by ticker and sum them up
-            Map<String, InvestmentSummary> groupedInvestments = investments.stream()
-                    .collect(Collectors.groupingBy(
-                        Investment::getTickerSymbol,
-                        Collectors.reducing(
-                            new InvestmentSummary(),
-                            investment -> new InvestmentSummary(
-                                investment.getSharesPurchased(),
-                                investment.getAmountUsd()
-                            ),
-                            (s1, s2) -> new InvestmentSummary(
-                                s1.totalShares + s2.totalShares,
-                                s1.totalInvested + s2.totalInvested
-                            )
-                        )
-                    ));
+            Map<String, InvestmentSummary> groupedInvestments = groupByTicker(investments);
             
             // Calculate current value of all investments
             double currentInvestmentsValue = 0.0;
@@ -118,7 +140,7 @@ public class PortfolioService {
                 InvestmentSummary summary = entry.getValue();
                 
                 // Get current stock price
-                var company = companyRepository.findByTickerSymbol(ticker);
+                var company = companyCache.get(ticker);
                 double currentPrice = company != null ? company.getLastStockPrice() : 0.0;
                 
                 // Calculate current value for this holding
@@ -136,28 +158,84 @@ public class PortfolioService {
         }
     }
 
+    /**
+     * Sum shares and invested amount per ticker
+     * @param investments Investments of one user
+     * @return Summary per ticker symbol
+     */
+    public static Map<String, InvestmentSummary> groupByTicker(List<Investment> investments) {
+        return investments.stream()
+                .collect(Collectors.groupingBy(
+                    Investment::getTickerSymbol,
+                    Collectors.reducing(
+                        new InvestmentSummary(),
+                        investment -> new InvestmentSummary(
+                            investment.getSharesPurchased(),
+                            investment.getAmountUsd()
+                        ),
+                        (s1, s2) -> new InvestmentSummary(
+                            s1.totalShares + s2.totalShares,
+                            s1.totalInvested + s2.totalInvested
+                        )
+                    )
+                ));
+    }
+
+    /**
+     * Recalculate every portfolio, creating missing ones. Portfolios are loaded with their
+     * users in one select, and cash and investments are read per chunk of users, so the
+     * statement count does not grow with the number of users.
+     */
     public void recalculateAllPortfolios() {
-        List<User> users = userRepository.findAll();  // assuming you have this
-        List<Portfolio> updated = new ArrayList<>();
+        List<Portfolio> portfolios = new ArrayList<>(portfolioRepository.findAllWithUser());
+        for (User user : userRepository.findWithoutPortfolio()) {
+            portfolios.add(new Portfolio(user));
+        }
 
-        for (User user : users) {
-            String username = user.getUsername();
-            Portfolio portfolio = getPortfolioByUsername(username);
-            System.out.println("old profit of"+ username + "is" + portfolio.getProfit() );
-            recalculatePortfolio(portfolio);
-            System.out.println( "updated profit of " + username + "to" + portfolio.getProfit());
+        for (int from = 0; from < portfolios.size(); from += MAX_IN_LIST_SIZE) {
+            List<Portfolio> chunk = portfolios.subList(from, Math.min(from + MAX_IN_LIST_SIZE, portfolios.size()));
+            List<Long> userIds = new ArrayList<>(chunk.size());
+            for (Portfolio portfolio : chunk) {
+                userIds.add(portfolio.getUser().getId());
+            }
+            Map<Long, Double> balances = ledgerService.getBalances(userIds);
+            Map<Long, List<Investment>> investments = investmentRepository.findByUserIdIn(userIds).stream()
+                    .collect(Collectors.groupingBy(Investment::getUserId));
 
+            for (Portfolio portfolio : chunk) {
+                Long userId = portfolio.getUser().getId();
+                recalculatePortfolio(portfolio, balances.get(userId), investments.getOrDefault(userId, List.of()));
+            }
+            portfolioRepository.saveAll(chunk);
         }
-
+        leaderboard.updateAll(portfolios);
     }
     
     /**
      * Update portfolio when user makes an investment
+     * @param user Investor, already loaded by the trade so it is not looked up again
      */
-    public void updatePortfolioAfterInvestment(String username) {
-        Portfolio portfolio = getPortfolioByUsername(username);
+    public void updatePortfolioAfterInvestment(User user) {
+        long start = System.nanoTime();
+        Portfolio portfolio = getOrCreatePortfolio(user);
         recalculatePortfolio(portfolio);
         portfolioRepository.save(portfolio);
+        leaderboard.update(portfolio);
+        metrics.portfolioRecalculated(start);
+    }
+
+    /**
+     * Update portfolio after a trade that already read the user's cash from the ledger
+     * @param user Investor, already loaded by the trade
+     * @param cashBalance Ledger balance after the trade
+     */
+    public void updatePortfolioAfterInvestment(User user, double cashBalance) {
+        long start = System.nanoTime();
+        Portfolio portfolio = getOrCreatePortfolio(user);
+        recalculatePortfolio(portfolio, cashBalance, investmentRepository.findByUserId(user.getId()));
+        portfolioRepository.save(portfolio);
+        leaderboard.update(portfolio);
+        metrics.portfolioRecalculated(start);
     }
     
     /**
@@ -167,6 +245,7 @@ public class PortfolioService {
         Portfolio portfolio = getPortfolioByUsername(username);
         portfolio.updateCashBalance(newBalance);
         portfolioRepository.save(portfolio);
+        leaderboard.update(portfolio);
     }
     
     /**
@@ -176,17 +255,55 @@ public class PortfolioService {
         return portfolioRepository.findAll();
     }
     
+    /**
+     * One page of portfolios in id order (admin function)
+     * @param cursor Last portfolio id of the previous page, or null for the first page
+     * @param limit Page size (capped by admin.export.max-page-size)
+     * @return Portfolios and the cursor of the next page
+     */
+    @Transactional(readOnly = true)
+    public PortfolioPage getPortfoliosPage(Long cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        // One extra row tells whether there is a next page
+        List<PortfolioItem> rows = portfolioRepository.findPageAfter(cursor, PageRequest.of(0, pageSize + 1));
+        if (rows.size() <= pageSize) {
+            return new PortfolioPage(rows, null);
+        }
+        List<PortfolioItem> page = new ArrayList<>(rows.subList(0, pageSize));
+        return new PortfolioPage(page, page.get(pageSize - 1).getId());
+    }
+
+    /**
+     * Write every portfolio as a JSON array straight from a database cursor (admin function).
+     * Rows are DTO projections, so memory stays constant however many portfolios there are.
+     * @param out Response body
+     */
+    @Transactional(readOnly = true)
+    public void writePortfolios(OutputStream out) throws IOException {
+        try (Stream<PortfolioItem> rows = portfolioRepository.streamAll();
+             JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartArray();
+            Iterator<PortfolioItem> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                json.writeObject(iterator.next());
+            }
+            json.writeEndArray();
+        }
+    }
+    
     /**
      * Delete portfolio (cleanup when user is deleted)
      */
     public void deletePortfolioByUserId(Long userId) {
         portfolioRepository.deleteByUserId(userId);
+        leaderboard.remove(userId);
     }
     
     /**
      * Helper class for investment calculations
      */
-    private static class InvestmentSummary {
+    public static class InvestmentSummary {
         double totalShares = 0.0;
         double totalInvested = 0.0;
         
@@ -196,5 +313,8 @@ public class PortfolioService {
             this.totalShares = totalShares;
             this.totalInvested = totalInvested;
         }
+
+        public double getTotalShares() { return totalShares; }
+        public double getTotalInvested() { return totalInvested; }
     }
 }
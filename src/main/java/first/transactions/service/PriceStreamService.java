@@ -0,0 +1,330 @@
+package first.transactions.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes price ticks to Server-Sent Events subscribers.
+ *
+ * Connections are async SseEmitters, so no request thread is held per subscriber.
+ * Updates are conflated twice: per ticker before fan-out, and per connection before
+ * sending - a slow client only ever has the latest price of each ticker it watches
+ * pending, so its buffer is bounded by its ticker count. A small dispatcher pool does
+ * the fan-out and a separate writer pool the socket writes, keeping the trade path
+ * free of network I/O and fan-out free of blocking writes.
+ *
+ * A servlet write blocks while the client's TCP window is full. A watchdog drops any
+ * connection whose write has been stuck longer than the write timeout, so it gets no
+ * further updates and a lagging client cannot keep taking writer threads; the stuck
+ * write itself ends when the container's socket timeout closes the connection.
+ */
+@Service
+public class PriceStreamService {
+
+    private final long emitterTimeoutMillis;
+    private final int maxTickersPerConnection;
+    private final int maxSubscribers;
+    private final long writeTimeoutNanos;
+
+    // ticker -> connections watching it
+    private final Map<String, Set<Subscription>> subscribers = new ConcurrentHashMap<>();
+
+    // ticker -> newest tick not yet fanned out
+    private final Map<String, PriceUpdate> latest = new ConcurrentHashMap<>();
+    private final Map<String, AtomicBoolean> fanOutScheduled = new ConcurrentHashMap<>();
+
+    // Open connections, for the watchdog
+    private final Set<Subscription> open = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService dispatcher;
+    private final ExecutorService writers;
+    private final ScheduledExecutorService watchdog;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong conflated = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public PriceStreamService(@Value("${prices.stream.timeout-ms:1800000}") long emitterTimeoutMillis,
+                              @Value("${prices.stream.max-tickers-per-connection:50}") int maxTickersPerConnection,
+                              @Value("${prices.stream.max-subscribers:50000}") int maxSubscribers,
+                              @Value("${prices.stream.dispatch-threads:0}") int dispatchThreads,
+                              @Value("${prices.stream.writer-threads:0}") int writerThreads,
+                              @Value("${prices.stream.write-timeout-ms:5000}") long writeTimeoutMillis) {
+        this.emitterTimeoutMillis = emitterTimeoutMillis;
+        this.maxTickersPerConnection = maxTickersPerConnection;
+        this.maxSubscribers = maxSubscribers;
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        this.dispatcher = Executors.newFixedThreadPool(dispatchThreads > 0 ? dispatchThreads : processors, daemonThreads("price-stream-"));
+        this.writers = Executors.newFixedThreadPool(writerThreads > 0 ? writerThreads : 2 * processors, daemonThreads("price-stream-writer-"));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(daemonThreads("price-stream-watchdog-"));
+        long checkInterval = Math.max(1, writeTimeoutMillis / 2);
+        this.watchdog.scheduleWithFixedDelay(this::dropStuckWriters, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Open a stream for a set of tickers
+     * @param tickers Tickers to watch (any case)
+     * @return Emitter for the controller to return
+     * @throws IllegalArgumentException if the ticker list is empty or too long
+     * @throws IllegalStateException if the subscriber limit is reached
+     */
+    public SseEmitter subscribe(Set<String> tickers) {
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String ticker : tickers) {
+            if (!ticker.isBlank()) {
+                normalized.add(ticker.trim().toUpperCase());
+            }
+        }
+        if (normalized.isEmpty()) {
+            throw new IllegalArgumentException("At least one ticker is required");
+        }
+        if (normalized.size() > maxTickersPerConnection) {
+            throw new IllegalArgumentException("At most " + maxTickersPerConnection + " tickers per stream");
+        }
+        if (connections.incrementAndGet() > maxSubscribers) {
+            connections.decrementAndGet();
+            throw new IllegalStateException("Too many price stream subscribers");
+        }
+
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Subscription subscription = new Subscription(emitter, normalized);
+        open.add(subscription);
+        emitter.onCompletion(() -> unsubscribe(subscription));
+        emitter.onTimeout(() -> unsubscribe(subscription));
+        emitter.onError(e -> unsubscribe(subscription));
+
+        for (String ticker : normalized) {
+            subscribers.computeIfAbsent(ticker, t -> ConcurrentHashMap.newKeySet()).add(subscription);
+
+            // Start every subscriber from the last known price
+            PriceUpdate last = latest.get(ticker);
+            if (last != null) {
+                subscription.offer(last);
+            }
+        }
+        return emitter;
+    }
+
+    /**
+     * Publish a traded price. Called on the trade path, so it only records the tick
+     * and schedules fan-out.
+     */
+    public void publish(String ticker, double price, double volume, LocalDateTime time) {
+        published.incrementAndGet();
+        AtomicBoolean scheduled = fanOutScheduled.computeIfAbsent(ticker, t -> new AtomicBoolean());
+        latest.put(ticker, new PriceUpdate(ticker, price, volume, time));
+
+        if (scheduled.compareAndSet(false, true)) {
+            dispatcher.execute(() -> fanOut(ticker, scheduled));
+        } else {
+            // A fan-out is queued and will pick up this tick instead of the previous one
+            conflated.incrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Set<Subscription> set : subscribers.values()) {
+            for (Subscription subscription : set) {
+                subscription.emitter.complete();
+            }
+        }
+        watchdog.shutdownNow();
+        dispatcher.shutdown();
+        writers.shutdown();
+        try {
+            dispatcher.awaitTermination(1, TimeUnit.SECONDS);
+            writers.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public StreamStats getStats() {
+        return new StreamStats(connections.get(), subscribers.size(), published.get(), sent.get(), conflated.get(), dropped.get());
+    }
+
+    private void fanOut(String ticker, AtomicBoolean scheduled) {
+        // Clear first so a tick arriving during fan-out schedules another pass
+        scheduled.set(false);
+        PriceUpdate update = latest.get(ticker);
+        Set<Subscription> watching = subscribers.get(ticker);
+        if (update == null || watching == null) {
+            return;
+        }
+        for (Subscription subscription : watching) {
+            subscription.offer(update);
+        }
+    }
+
+    // Drop connections whose client has stopped reading
+    private void dropStuckWriters() {
+        long now = System.nanoTime();
+        for (Subscription subscription : open) {
+            long started = subscription.writeStarted;
+            if (started != 0 && now - started > writeTimeoutNanos) {
+                if (unsubscribe(subscription)) {
+                    dropped.incrementAndGet();
+                    subscription.pending.clear();
+                    System.err.println("Dropping price stream connection, write blocked for "
+                            + TimeUnit.NANOSECONDS.toMillis(now - started) + "ms");
+                    subscription.emitter.completeWithError(new IOException("Price stream write timed out"));
+                }
+            }
+        }
+    }
+
+    private boolean unsubscribe(Subscription subscription) {
+        if (!subscription.closed.compareAndSet(false, true)) {
+            return false;
+        }
+        open.remove(subscription);
+        connections.decrementAndGet();
+        for (String ticker : subscription.tickers) {
+            Set<Subscription> set = subscribers.get(ticker);
+            if (set != null) {
+                set.remove(subscription);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * One SSE connection with a latest-value-wins slot per ticker
+     */
+    private final class Subscription {
+        private final SseEmitter emitter;
+        private final Set<String> tickers;
+        private final Map<String, PriceUpdate> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // System.nanoTime() when the current write began, 0 when not writing
+        private volatile long writeStarted;
+
+        private Subscription(SseEmitter emitter, Set<String> tickers) {
+            this.emitter = emitter;
+            this.tickers = tickers;
+        }
+
+        private void offer(PriceUpdate update) {
+            if (closed.get()) {
+                return;
+            }
+            if (pending.put(update.getTicker(), update) != null) {
+                conflated.incrementAndGet();
+            }
+            if (draining.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                for (String ticker : pending.keySet()) {
+                    PriceUpdate update = pending.remove(ticker);
+                    if (update == null || closed.get()) {
+                        continue;
+                    }
+                    writeStarted = System.nanoTime();
+                    try {
+                        emitter.send(SseEmitter.event()
+                                .name("price")
+                                .data(update, MediaType.APPLICATION_JSON));
+                        sent.incrementAndGet();
+                    } catch (IOException | IllegalStateException e) {
+                        writeStarted = 0;
+                        // Client went away - drop the connection
+                        pending.clear();
+                        unsubscribe(this);
+                        emitter.completeWithError(e);
+                        return;
+                    }
+                    writeStarted = 0;
+                }
+                draining.set(false);
+                // Re-check: an offer may have landed after the loop but before the flag was cleared
+            } while (!pending.isEmpty() && draining.compareAndSet(false, true));
+        }
+    }
+
+    /**
+     * Price event payload
+     */
+    public static class PriceUpdate {
+        private final String ticker;
+        private final double price;
+        private final double volume;
+        private final LocalDateTime time;
+
+        public PriceUpdate(String ticker, double price, double volume, LocalDateTime time) {
+            this.ticker = ticker;
+            this.price = price;
+            this.volume = volume;
+            this.time = time;
+        }
+
+        public String getTicker() { return ticker; }
+        public double getPrice() { return price; }
+        public double getVolume() { return volume; }
+        public LocalDateTime getTime() { return time; }
+    }
+
+    /**
+     * Stream counters - conflated is the number of updates replaced before they were sent,
+     * dropped the number of connections closed because a write was stuck
+     */
+    public static class StreamStats {
+        private final int connections;
+        private final int tickers;
+        private final long published;
+        private final long sent;
+        private final long conflated;
+        private final long dropped;
+
+        public StreamStats(int connections, int tickers, long published, long sent, long conflated, long dropped) {
+            this.connections = connections;
+            this.tickers = tickers;
+            this.published = published;
+            this.sent = sent;
+            this.conflated = conflated;
+            this.dropped = dropped;
+        }
+
+        public int getConnections() { return connections; }
+        public int getTickers() { return tickers; }
+        public long getPublished() { return published; }
+        public long getSent() { return sent; }
+        public long getConflated() { return conflated; }
+        public long getDropped() { return dropped; }
+    }
+}
@@ -0,0 +1,145 @@
+package first.transactions.service;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Order-statistic tree of (value, user id) entries, highest value first.
+ *
+ * A treap whose nodes carry their subtree size: inserts and removals are O(log n)
+ * expected, the rank of an entry is the sum of left subtree sizes on the way down, and
+ * reading positions [offset, offset + limit) skips whole subtrees. Ties on value are
+ * ordered by user id so every entry has one position. Not thread-safe.
+ */
+public final class RankTree {
+    private Node root;
+
+    public void insert(double value, long userId) {
+        Node node = new Node(value, userId);
+        Node[] parts = split(root, value, userId);
+        root = merge(merge(parts[0], node), parts[1]);
+    }
+
+    public void remove(double value, long userId) {
+        root = remove(root, value, userId);
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    // 1-based position of an entry that is in the tree
+    public long rank(double value, long userId) {
+        long before = 0;
+        Node node = root;
+        while (node != null) {
+            int cmp = compare(value, userId, node);
+            if (cmp == 0) {
+                return before + size(node.left) + 1;
+            }
+            if (cmp < 0) {
+                node = node.left;
+            } else {
+                before += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        throw new IllegalStateException("Entry is not ranked: " + userId);
+    }
+
+    // User ids at positions [offset, offset + limit), in order
+    public void collect(int offset, int limit, List<Long> out) {
+        collect(root, offset, offset + limit, 0, out);
+    }
+
+    private static void collect(Node node, int from, int to, int base, List<Long> out) {
+        if (node == null || base >= to || base + node.size <= from) {
+            return;
+        }
+        int position = base + size(node.left);
+        collect(node.left, from, to, base, out);
+        if (position >= from && position < to) {
+            out.add(node.userId);
+        }
+        collect(node.right, from, to, position + 1, out);
+    }
+
+    // Entries before (value, userId) and the rest
+    private static Node[] split(Node node, double value, long userId) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        if (compare(value, userId, node) > 0) {
+            Node[] parts = split(node.right, value, userId);
+            node.right = parts[0];
+            node.update();
+            return new Node[]{node, parts[1]};
+        }
+        Node[] parts = split(node.left, value, userId);
+        node.left = parts[1];
+        node.update();
+        return new Node[]{parts[0], node};
+    }
+
+    // Every entry of left comes before every entry of right
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static Node remove(Node node, double value, long userId) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(value, userId, node);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            node.left = remove(node.left, value, userId);
+        } else {
+            node.right = remove(node.right, value, userId);
+        }
+        node.update();
+        return node;
+    }
+
+    private static int compare(double value, long userId, Node node) {
+        int cmp = Double.compare(node.value, value);
+        return cmp != 0 ? cmp : Long.compare(userId, node.userId);
+    }
+
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static final class Node {
+        private final double value;
+        private final long userId;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private int size = 1;
+        private Node left;
+        private Node right;
+
+        private Node(double value, long userId) {
+            this.value = value;
+            this.userId = userId;
+        }
+
+        private void update() {
+            size = 1 + RankTree.size(left) + RankTree.size(right);
+        }
+    }
+}
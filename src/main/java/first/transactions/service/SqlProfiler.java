@@ -0,0 +1,464 @@
+package first.transactions.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Always-on SQL instrumentation, fed by the profiling DataSource.
+ *
+ * Each HTTP request gets a profile on its thread (carried onto the trade sequencer by
+ * propagate) that counts statements, database time - execution plus result set fetches -
+ * and rows read. When the request ends the profile is folded into its endpoint's totals,
+ * and a statement repeated n-plus-one-threshold times in one request is reported as an
+ * N+1 for the endpoint. Executions slower than the threshold are kept, with their
+ * parameters, in a fixed-size ring so they can be explained later. String parameters
+ * (usernames, emails, password hashes) are masked unless
+ * profiler.sql.mask-string-parameters is turned off.
+ */
+@Component
+public class SqlProfiler {
+
+    public static final String BACKGROUND = "(background)";
+
+    private static final ThreadLocal<RequestProfile> CURRENT = new ThreadLocal<>();
+    private static final int MAX_CAPTURED_PARAMETERS = 32;
+    private static final int MAX_PARAMETER_LENGTH = 100;
+    private static final int MAX_REPEATED_PER_ENDPOINT = 5;
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+
+    private final boolean enabled;
+    private final long slowThresholdNanos;
+    private final int nPlusOneThreshold;
+    private final int maxEndpoints;
+    private final boolean maskStrings;
+
+    private final Map<String, EndpointTotals> endpoints = new ConcurrentHashMap<>();
+    private final EndpointTotals background = new EndpointTotals(BACKGROUND);
+    private final SlowQuery[] slowLog;
+    private final AtomicLong slowSequence = new AtomicLong();
+
+    public SqlProfiler(@Value("${profiler.sql.enabled:true}") boolean enabled,
+                       @Value("${profiler.sql.slow-threshold-ms:100}") long slowThresholdMillis,
+                       @Value("${profiler.sql.slow-log-size:200}") int slowLogSize,
+                       @Value("${profiler.sql.n-plus-one-threshold:10}") int nPlusOneThreshold,
+                       @Value("${profiler.sql.max-endpoints:500}") int maxEndpoints,
+                       @Value("${profiler.sql.mask-string-parameters:true}") boolean maskStrings) {
+        this.enabled = enabled;
+        this.slowThresholdNanos = slowThresholdMillis * 1_000_000L;
+        this.slowLog = new SlowQuery[Math.max(1, slowLogSize)];
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.maxEndpoints = maxEndpoints;
+        this.maskStrings = maskStrings;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start profiling the current thread's request
+     * @return Profile to pass to end
+     */
+    public RequestProfile begin() {
+        RequestProfile profile = new RequestProfile();
+        CURRENT.set(profile);
+        return profile;
+    }
+
+    /**
+     * Stop profiling and fold the request into its endpoint's totals
+     * @param profile Profile returned by begin
+     * @param endpoint Method and URL pattern, e.g. "POST /investments/invest/buy"
+     */
+    public void end(RequestProfile profile, String endpoint) {
+        CURRENT.remove();
+        EndpointTotals totals = endpoints.get(endpoint);
+        if (totals == null) {
+            // Unmapped paths would otherwise grow the map without bound
+            totals = endpoints.size() < maxEndpoints
+                    ? endpoints.computeIfAbsent(endpoint, EndpointTotals::new)
+                    : endpoints.computeIfAbsent("(other)", EndpointTotals::new);
+        }
+        totals.add(profile, nPlusOneThreshold);
+    }
+
+    /**
+     * Run a command on another thread as part of the calling thread's request
+     * @param command Work handed to another thread (e.g. a trade sequencer loop)
+     * @return Command that attributes its statements to the caller's request
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> command) {
+        RequestProfile profile = CURRENT.get();
+        if (profile == null) {
+            return command;
+        }
+        return () -> {
+            RequestProfile previous = CURRENT.get();
+            CURRENT.set(profile);
+            try {
+                return command.get();
+            } finally {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        };
+    }
+
+    /**
+     * Called by the profiling DataSource when a statement has executed
+     * @param sql Statement text (with ? placeholders when prepared)
+     * @param prepared Whether literals are already parameters
+     * @param parameters Bound parameters, may be null
+     * @param elapsedNanos Execution time
+     * @return Execution that result set fetches are added to
+     */
+    public Execution executed(String sql, boolean prepared, Object[] parameters, long elapsedNanos) {
+        String shape = prepared ? sql : normalize(sql);
+        RequestProfile profile = CURRENT.get();
+        Execution execution = new Execution(profile);
+        if (profile != null) {
+            profile.statements++;
+            profile.dbNanos += elapsedNanos;
+            profile.shapes.merge(shape, 1, Integer::sum);
+        } else {
+            background.addStatement(elapsedNanos);
+        }
+        if (elapsedNanos >= slowThresholdNanos) {
+            long id = slowSequence.incrementAndGet();
+            SlowQuery slow = new SlowQuery(id, profile != null ? profile.endpointHint : null, sql,
+                    parameters, elapsedNanos, execution);
+            slowLog[(int) ((id - 1) % slowLog.length)] = slow;
+        }
+        return execution;
+    }
+
+    /**
+     * Per-endpoint totals, most statements per request first
+     */
+    public List<EndpointStats> getEndpointStats() {
+        List<EndpointStats> stats = new ArrayList<>(endpoints.size() + 1);
+        for (EndpointTotals totals : endpoints.values()) {
+            stats.add(totals.snapshot());
+        }
+        stats.sort(Comparator.comparingDouble(EndpointStats::getStatementsPerRequest).reversed());
+        stats.add(background.snapshot());
+        return stats;
+    }
+
+    /**
+     * Slow statements still in the ring, newest first
+     */
+    public List<SlowQuery> getSlowQueries() {
+        List<SlowQuery> queries = new ArrayList<>(slowLog.length);
+        for (SlowQuery query : slowLog) {
+            if (query != null) {
+                queries.add(query);
+            }
+        }
+        queries.sort(Comparator.comparingLong(SlowQuery::getId).reversed());
+        return queries;
+    }
+
+    /**
+     * Clear endpoint totals and the slow log
+     */
+    public void reset() {
+        endpoints.clear();
+        background.reset();
+        Arrays.fill(slowLog, null);
+    }
+
+    /**
+     * Execution plan of a captured slow query, with its captured parameters bound
+     * @param id Slow query id
+     * @param connection Connection to explain on
+     * @return Plan lines, or null if the query is no longer in the ring
+     * @throws IllegalArgumentException if the statement is not a query
+     */
+    public List<String> explain(long id, Connection connection) throws SQLException {
+        SlowQuery query = null;
+        for (SlowQuery candidate : slowLog) {
+            if (candidate != null && candidate.id == id) {
+                query = candidate;
+            }
+        }
+        if (query == null) {
+            return null;
+        }
+        String sql = query.sql.trim();
+        String keyword = sql.length() >= 6 ? sql.substring(0, 6).toLowerCase(Locale.ROOT) : sql;
+        if (!keyword.startsWith("select") && !keyword.startsWith("with")) {
+            throw new IllegalArgumentException("Only queries can be explained");
+        }
+
+        List<String> plan = new ArrayList<>();
+        boolean oracle = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("oracle");
+        try (PreparedStatement explain = connection.prepareStatement((oracle ? "EXPLAIN PLAN FOR " : "EXPLAIN ") + sql)) {
+            for (int i = 0; i < query.parameters.length; i++) {
+                explain.setObject(i + 1, query.parameters[i]);
+            }
+            if (oracle) {
+                explain.execute();
+            } else {
+                try (ResultSet rows = explain.executeQuery()) {
+                    while (rows.next()) {
+                        plan.add(rows.getString(1));
+                    }
+                }
+            }
+        }
+        if (oracle) {
+            try (PreparedStatement display = connection.prepareStatement("SELECT PLAN_TABLE_OUTPUT FROM TABLE(DBMS_XPLAN.DISPLAY())");
+                 ResultSet rows = display.executeQuery()) {
+                while (rows.next()) {
+                    plan.add(rows.getString(1));
+                }
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Copy of bound parameters for the slow log, strings masked or cut to a readable length
+     */
+    public Object[] capture(Object[] parameters, int count) {
+        int size = Math.min(count, MAX_CAPTURED_PARAMETERS);
+        Object[] captured = new Object[size];
+        for (int i = 0; i < size; i++) {
+            Object value = parameters[i];
+            if (value instanceof String text) {
+                // Still a string, so explain can bind it
+                value = maskStrings ? "*** (" + text.length() + " chars)"
+                        : text.length() > MAX_PARAMETER_LENGTH ? text.substring(0, MAX_PARAMETER_LENGTH) : text;
+            }
+            captured[i] = value;
+        }
+        return captured;
+    }
+
+    // Same shape for statements that differ only in literals
+    private static String normalize(String sql) {
+        return NUMBER_LITERAL.matcher(STRING_LITERAL.matcher(sql).replaceAll("?")).replaceAll("?");
+    }
+
+    /**
+     * Statements of one request; only touched by the thread currently serving the request
+     */
+    public static final class RequestProfile {
+        private long statements;
+        private long dbNanos;
+        private long rows;
+        private final Map<String, Integer> shapes = new HashMap<>();
+        private String endpointHint;
+
+        /**
+         * Name slow queries of this request before it ends (the URL pattern is only known afterwards)
+         */
+        public void setEndpointHint(String endpointHint) {
+            this.endpointHint = endpointHint;
+        }
+    }
+
+    /**
+     * One statement execution; its result set adds fetch time and rows
+     */
+    public static final class Execution {
+        private final RequestProfile profile;
+        private volatile long rows;
+
+        private Execution(RequestProfile profile) {
+            this.profile = profile;
+        }
+
+        public void fetched(long elapsedNanos, boolean row) {
+            if (row) {
+                rows++;
+            }
+            if (profile != null) {
+                profile.dbNanos += elapsedNanos;
+                if (row) {
+                    profile.rows++;
+                }
+            }
+        }
+    }
+
+    private static final class EndpointTotals {
+        private final String endpoint;
+        private long requests;
+        private long statements;
+        private long dbNanos;
+        private long rows;
+        private long maxStatements;
+        private long nPlusOneRequests;
+        private final Map<String, Integer> repeated = new HashMap<>();
+
+        private EndpointTotals(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        private synchronized void add(RequestProfile profile, int nPlusOneThreshold) {
+            requests++;
+            statements += profile.statements;
+            dbNanos += profile.dbNanos;
+            rows += profile.rows;
+            maxStatements = Math.max(maxStatements, profile.statements);
+
+            boolean flagged = false;
+            for (Map.Entry<String, Integer> shape : profile.shapes.entrySet()) {
+                if (shape.getValue() >= nPlusOneThreshold) {
+                    flagged = true;
+                    repeated.merge(shape.getKey(), shape.getValue(), Math::max);
+                }
+            }
+            if (flagged) {
+                nPlusOneRequests++;
+                // Keep the worst offenders only
+                while (repeated.size() > MAX_REPEATED_PER_ENDPOINT) {
+                    repeated.entrySet().stream().min(Map.Entry.comparingByValue())
+                            .ifPresent(smallest -> repeated.remove(smallest.getKey()));
+                }
+            }
+        }
+
+        private synchronized void addStatement(long elapsedNanos) {
+            statements++;
+            dbNanos += elapsedNanos;
+        }
+
+        private synchronized void reset() {
+            requests = 0;
+            statements = 0;
+            dbNanos = 0;
+            rows = 0;
+            maxStatements = 0;
+            nPlusOneRequests = 0;
+            repeated.clear();
+        }
+
+        private synchronized EndpointStats snapshot() {
+            List<RepeatedStatement> worst = new ArrayList<>(repeated.size());
+            repeated.forEach((sql, count) -> worst.add(new RepeatedStatement(sql, count)));
+            worst.sort(Comparator.comparingInt(RepeatedStatement::getMaxPerRequest).reversed());
+            return new EndpointStats(endpoint, requests, statements, dbNanos / 1_000_000.0, rows,
+                    maxStatements, nPlusOneRequests, worst);
+        }
+    }
+
+    /**
+     * SQL totals of one endpoint
+     */
+    public static class EndpointStats {
+        private final String endpoint;
+        private final long requests;
+        private final long statements;
+        private final double dbTimeMillis;
+        private final long rowsFetched;
+        private final long maxStatementsPerRequest;
+        private final long nPlusOneRequests;
+        private final List<RepeatedStatement> repeatedStatements;
+
+        public EndpointStats(String endpoint, long requests, long statements, double dbTimeMillis, long rowsFetched,
+                             long maxStatementsPerRequest, long nPlusOneRequests, List<RepeatedStatement> repeatedStatements) {
+            this.endpoint = endpoint;
+            this.requests = requests;
+            this.statements = statements;
+            this.dbTimeMillis = dbTimeMillis;
+            this.rowsFetched = rowsFetched;
+            this.maxStatementsPerRequest = maxStatementsPerRequest;
+            this.nPlusOneRequests = nPlusOneRequests;
+            this.repeatedStatements = repeatedStatements;
+        }
+
+        public String getEndpoint() { return endpoint; }
+        public long getRequests() { return requests; }
+        public long getStatements() { return statements; }
+        public double getDbTimeMillis() { return dbTimeMillis; }
+        public long getRowsFetched() { return rowsFetched; }
+        public long getMaxStatementsPerRequest() { return maxStatementsPerRequest; }
+        public long getSuspectedNPlusOneRequests() { return nPlusOneRequests; }
+        public List<RepeatedStatement> getRepeatedStatements() { return repeatedStatements; }
+
+        public double getStatementsPerRequest() {
+            return requests > 0 ? (double) statements / requests : 0;
+        }
+
+        public double getDbTimeMillisPerRequest() {
+            return requests > 0 ? dbTimeMillis / requests : 0;
+        }
+    }
+
+    /**
+     * A statement shape that one request of the endpoint ran many times
+     */
+    public static class RepeatedStatement {
+        private final String sql;
+        private final int maxPerRequest;
+
+        public RepeatedStatement(String sql, int maxPerRequest) {
+            this.sql = sql;
+            this.maxPerRequest = maxPerRequest;
+        }
+
+        public String getSql() { return sql; }
+        public int getMaxPerRequest() { return maxPerRequest; }
+    }
+
+    /**
+     * A statement that took longer than the slow threshold
+     */
+    public static class SlowQuery {
+        private final long id;
+        private final LocalDateTime executedAt = LocalDateTime.now();
+        private final String endpoint;
+        private final String sql;
+        private final Object[] parameters;
+        private final double elapsedMillis;
+        private final Execution execution;
+
+        private SlowQuery(long id, String endpoint, String sql, Object[] parameters, long elapsedNanos, Execution execution) {
+            this.id = id;
+            this.endpoint = endpoint;
+            this.sql = sql;
+            this.parameters = parameters != null ? parameters : new Object[0];
+            this.elapsedMillis = elapsedNanos / 1_000_000.0;
+            this.execution = execution;
+        }
+
+        public long getId() { return id; }
+        public LocalDateTime getExecutedAt() { return executedAt; }
+        public String getEndpoint() { return endpoint != null ? endpoint : BACKGROUND; }
+        public String getSql() { return sql; }
+        public double getElapsedMillis() { return elapsedMillis; }
+        public long getRowsFetched() { return execution.rows; }
+
+        public List<String> getParameters() {
+            List<String> rendered = new ArrayList<>(parameters.length);
+            for (Object parameter : parameters) {
+                rendered.add(String.valueOf(parameter));
+            }
+            return rendered;
+        }
+    }
+}
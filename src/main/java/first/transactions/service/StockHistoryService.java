@@ -1,11 +1,15 @@
 package first.transactions.service;
 
+import first.transactions.model.CandleInterval;
+import first.transactions.model.StockCandle;
 import first.transactions.model.StockHistory;
 import first.transactions.repository.StockHistoryRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 @Service
@@ -13,30 +17,118 @@ import java.util.List;
 public class StockHistoryService {
 
     private final StockHistoryRepository stockHistoryRepository;
+    private final CandleService candleService;
+    private final TickStore tickStore;
 
-    public StockHistoryService(StockHistoryRepository stockHistoryRepository) {
+    public StockHistoryService(StockHistoryRepository stockHistoryRepository, CandleService candleService, TickStore tickStore) {
         this.stockHistoryRepository = stockHistoryRepository;
+        this.candleService = candleService;
+        this.tickStore = tickStore;
     }
 
     /**
      * Get all stock history for a ticker symbol
-     * Simple delegation to repository - keeping same interface as before
+     * Served from the tick store when it holds the ticker, otherwise from the repository
      * @param ticker Stock ticker symbol
-     * @return List of stock history entries
+     * @return List of stock history entries, oldest first when served from the tick store
      */
     public List<StockHistory> getHistoryByTicker(String ticker) {
-        return stockHistoryRepository.findByTickerSymbol(ticker);
+        return getHistoryByTicker(ticker, null);
+    }
+
+    /**
+     * Get all stock history for a ticker symbol, downsampled for charting
+     * @param ticker Stock ticker symbol
+     * @param maxPoints Most points to return (LTTB downsampling), or null for every tick
+     * @return List of stock history entries
+     */
+    public List<StockHistory> getHistoryByTicker(String ticker, Integer maxPoints) {
+        if (tickStore.covers(ticker)) {
+            return toHistory(ticker, tickStore.range(ticker, null, null), maxPoints);
+        }
+        return downsample(stockHistoryRepository.findByTickerSymbol(ticker), maxPoints);
     }
 
     /**
      * Get stock history for a ticker between two dates
-     * Simple delegation to repository - keeping same interface as before
+     * Served from the tick store when it holds the ticker, otherwise from the repository
      * @param ticker Stock ticker symbol
      * @param start Start date
      * @param end End date
      * @return List of stock history entries
      */
     public List<StockHistory> getHistoryBetweenDates(String ticker, LocalDateTime start, LocalDateTime end) {
-        return stockHistoryRepository.findByTickerSymbolAndPriceDateBetween(ticker, start, end);
+        return getHistoryBetweenDates(ticker, start, end, null);
+    }
+
+    /**
+     * Get stock history for a ticker between two dates, downsampled for charting
+     * @param ticker Stock ticker symbol
+     * @param start Start date
+     * @param end End date
+     * @param maxPoints Most points to return (LTTB downsampling), or null for every tick
+     * @return List of stock history entries
+     */
+    public List<StockHistory> getHistoryBetweenDates(String ticker, LocalDateTime start, LocalDateTime end, Integer maxPoints) {
+        if (tickStore.covers(ticker)) {
+            return toHistory(ticker, tickStore.range(ticker, start, end), maxPoints);
+        }
+        return downsample(stockHistoryRepository.findByTickerSymbolAndPriceDateBetween(ticker, start, end), maxPoints);
+    }
+
+    // Entities for the existing JSON shape, built only for the points that are returned;
+    // ids are not kept by the tick store
+    private static List<StockHistory> toHistory(String ticker, TickStore.TickRange range, Integer maxPoints) {
+        int[] indexes = maxPoints != null ? ChartDownsampler.lttb(new ChartDownsampler.Series() {
+            public int size() { return range.size(); }
+            public long timeAt(int index) { return range.millisAt(index); }
+            public double valueAt(int index) { return range.priceAt(index); }
+        }, maxPoints) : null;
+
+        int size = indexes != null ? indexes.length : range.size();
+        List<StockHistory> history = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int index = indexes != null ? indexes[i] : i;
+            StockHistory entry = new StockHistory();
+            entry.setTickerSymbol(ticker);
+            entry.setPriceDate(range.timeAt(index));
+            entry.setStockPrice(range.priceAt(index));
+            history.add(entry);
+        }
+        return history;
+    }
+
+    private static List<StockHistory> downsample(List<StockHistory> history, Integer maxPoints) {
+        if (maxPoints == null) {
+            return history;
+        }
+        List<StockHistory> sorted = new ArrayList<>(history);
+        sorted.removeIf(h -> h.getPriceDate() == null);
+        sorted.sort(Comparator.comparing(StockHistory::getPriceDate));
+        int[] indexes = ChartDownsampler.lttb(new ChartDownsampler.Series() {
+            public int size() { return sorted.size(); }
+            public long timeAt(int index) { return TickStore.toMillis(sorted.get(index).getPriceDate()); }
+            public double valueAt(int index) { return sorted.get(index).getStockPrice(); }
+        }, maxPoints);
+
+        List<StockHistory> points = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            points.add(sorted.get(index));
+        }
+        return points;
+    }
+
+    /**
+     * Get pre-aggregated OHLCV candles for a ticker
+     * @param ticker Stock ticker symbol
+     * @param interval Candle interval
+     * @param start Start date (defaults to 500 bars before end)
+     * @param end End date (defaults to now)
+     * @return Candles, oldest first
+     */
+    public List<StockCandle> getCandles(String ticker, CandleInterval interval, LocalDateTime start, LocalDateTime end) {
+        LocalDateTime to = end != null ? end : LocalDateTime.now();
+        LocalDateTime from = start != null ? start : to.minus(interval.getLength().multipliedBy(500));
+        return candleService.getCandles(ticker.toUpperCase(), interval, interval.bucketStart(from), to);
     }
 }
\ No newline at end of file
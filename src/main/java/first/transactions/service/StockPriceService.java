@@ -6,8 +6,6 @@ import first.transactions.repository.CompanyRepository;
 import first.transactions.repository.InvestmentRepository;
 import first.transactions.repository.UserRepository;
 import org.springframework.stereotype.Service;
-import first.transactions.repository.StockHistoryRepository;
-import first.transactions.model.StockHistory;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -15,13 +13,23 @@ import java.util.List;
 @Service
 public class StockPriceService {
 
-    private final PortfolioService portfolioService;
+    private final MarkToMarketService markToMarketService;
     private final InvestmentRepository investmentRepository;
-    private final StockHistoryRepository stockHistoryRepository;
-    public StockPriceService(PortfolioService portfolioService, InvestmentRepository investmentRepository, StockHistoryRepository stockHistoryRepository, CompanyRepository companyRepository, UserRepository userRepository) {
-        this.portfolioService = portfolioService;
+    private final TickJournal tickJournal;
+    private final CandleService candleService;
+    private final PriceStreamService priceStreamService;
+    private final TickStore tickStore;
+    private final MarketDataVersions marketDataVersions;
+    private final TradingMetrics metrics;
+    public StockPriceService(MarkToMarketService markToMarketService, InvestmentRepository investmentRepository, TickJournal tickJournal, CandleService candleService, PriceStreamService priceStreamService, TickStore tickStore, MarketDataVersions marketDataVersions, TradingMetrics metrics, CompanyRepository companyRepository, UserRepository userRepository) {
+        this.markToMarketService = markToMarketService;
         this.investmentRepository = investmentRepository;
-        this.stockHistoryRepository = stockHistoryRepository;
+        this.tickJournal = tickJournal;
+        this.candleService = candleService;
+        this.priceStreamService = priceStreamService;
+        this.tickStore = tickStore;
+        this.marketDataVersions = marketDataVersions;
+        this.metrics = metrics;
     }
 
     /**
@@ -30,35 +38,23 @@ public class StockPriceService {
      * @param money Positive for investment (buy), negative for sell
      */
     public void updateStockPrice(Company company, double money) {
+        long start = System.nanoTime();
+        TradeEvents.Pricing pricing = new TradeEvents.Pricing();
+        pricing.begin();
         double currentPrice = company.getLastStockPrice() != null ? company.getLastStockPrice() : 100.0;
         long totalShares = company.getTotalShares() != null ? company.getTotalShares() : 1000L;
 
-        // Convert total company value to money
-        double companyMarketValue = totalShares * currentPrice;
-
-        // Sensitivity factor: larger k → bigger price impact
-        double k = 5;
-
-        // Price change proportional to money relative to company market value
-        double priceChange = currentPrice * k * (money / companyMarketValue);
-
-        // Calculate new price
-        double newPrice = currentPrice + priceChange;
-
-        // Clamp minimum price
-        newPrice = Math.max(newPrice, 0.01);
+        double newPrice = calculateNewPrice(currentPrice, totalShares, money);
 
         company.setLastStockPrice(newPrice);
 
         // add the new price to the history (3ashan el chart)
-        StockHistory stockHistory = new StockHistory();
-        stockHistory.setPriceDate(LocalDateTime.now());
-        stockHistory.setStockPrice(newPrice);
-        stockHistory.setTickerSymbol(company.getTickerSymbol());
-        stockHistoryRepository.save(stockHistory);
+        recordTick(company.getTickerSymbol(), newPrice, Math.abs(money) / newPrice);
 
 
         //e7seb el profit beta3 kol investment
+        TradeEvents.InvestmentUpdate investmentUpdate = new TradeEvents.InvestmentUpdate();
+        investmentUpdate.begin();
         List<Investment> investments = investmentRepository.findBytickerSymbol(company.getTickerSymbol());
         for (Investment investment : investments) {
             double avgBuyPrice = investment.getAmountUsd() / investment.getSharesPurchased();
@@ -66,10 +62,87 @@ public class StockPriceService {
             investment.setProfit(profit);
             investmentRepository.save(investment);
         }
+        investmentUpdate.end();
+        if (investmentUpdate.shouldCommit()) {
+            investmentUpdate.ticker = company.getTickerSymbol();
+            investmentUpdate.userCount = investments.size();
+            investmentUpdate.commit();
+        }
+
+
+        // revalue only the portfolios holding this ticker (shares * price delta)
+        markToMarketService.revalue(company.getTickerSymbol(), currentPrice, newPrice);
+        metrics.priceUpdated(start);
+
+        pricing.end();
+        if (pricing.shouldCommit()) {
+            pricing.ticker = company.getTickerSymbol();
+            pricing.oldPrice = currentPrice;
+            pricing.newPrice = newPrice;
+            pricing.commit();
+        }
+    }
+
+    /**
+     * Price after a trade of the given size - pure math, no side effects
+     * @param currentPrice Price before the trade
+     * @param totalShares Company's total shares
+     * @param money Positive for investment (buy), negative for sell
+     * @return New price, never below 0.01
+     */
+    public static double calculateNewPrice(double currentPrice, long totalShares, double money) {
+        // Convert total company value to money
+        double companyMarketValue = totalShares * currentPrice;
+
+        // Sensitivity factor: larger k → bigger price impact
+        double k = 5;
+
+        // Price change proportional to money relative to company market value
+        double priceChange = currentPrice * k * (money / companyMarketValue);
+
+        // Calculate new price
+        double newPrice = currentPrice + priceChange;
 
+        // Clamp minimum price
+        newPrice = Math.max(newPrice, 0.01);
 
-        //e7seb kol el profit beta3 el user
-        portfolioService.recalculateAllPortfolios();
+        return newPrice;
+    }
 
+    /**
+     * Whether a trade's price tick could be recorded now. While the tick journal is full a
+     * trade's tick would wait for the writer and could be dropped, so trades are turned away.
+     */
+    public boolean canRecordTicks() {
+        return !tickJournal.isFull();
+    }
+
+    /**
+     * Record a traded price: history tick (written in batches by the journal), tick store, candles,
+     * HTTP cache versions and the live price stream. Inside a transaction all of it waits for the
+     * commit, so a rolled back trade never shows up in history, charts or the stream.
+     * @param ticker Ticker symbol
+     * @param price Traded price
+     * @param volume Shares traded
+     */
+    public void recordTick(String ticker, double price, double volume) {
+        AfterCommit.run(() -> {
+            TradeEvents.HistoryWrite event = new TradeEvents.HistoryWrite();
+            event.begin();
+            LocalDateTime now = LocalDateTime.now();
+            tickJournal.append(ticker, price, now);
+            tickStore.append(ticker, now, price);
+            candleService.onTick(ticker, now, price, volume);
+            // After the tick is readable, so a client seeing the new version gets the new data
+            marketDataVersions.bump(ticker);
+            priceStreamService.publish(ticker, price, volume, now);
+            metrics.tick();
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.ticker = ticker;
+                event.commit();
+            }
+        });
     }
 }
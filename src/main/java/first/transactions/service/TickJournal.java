@@ -0,0 +1,198 @@
+package first.transactions.service;
+
+import first.transactions.model.StockHistory;
+import first.transactions.repository.StockHistoryRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous writer for price ticks (stockhistory rows).
+ *
+ * The trade path only enqueues a tick. A background thread drains the bounded queue
+ * and writes ticks in JDBC batches, one transaction per batch (group commit), when
+ * either the batch size or the flush interval is reached. Appends run on trade sequencer
+ * threads, so a full queue holds them back for at most the append timeout; trades are
+ * turned away while the queue is full (see {@link #isFull}), so a tick is only dropped
+ * from stockhistory (the tick store and candles still have it) if the writer stays stuck
+ * for that long, and the drop is counted. A batch that fails is retried with backoff,
+ * then written row by row so only the rows that keep failing are lost, and those are
+ * counted too. Pending ticks are flushed on shutdown.
+ * Readers may see a tick up to one flush interval after the trade.
+ */
+@Service
+public class TickJournal {
+
+    private final StockHistoryRepository stockHistoryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<StockHistory> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long appendTimeoutMillis;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final Thread flusher;
+    private final AtomicLong droppedTicks = new AtomicLong();
+    private final AtomicLong failedTicks = new AtomicLong();
+    private volatile boolean running = true;
+
+    public TickJournal(StockHistoryRepository stockHistoryRepository,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${ticks.journal.capacity:10000}") int capacity,
+                       @Value("${ticks.journal.batch-size:500}") int batchSize,
+                       @Value("${ticks.journal.flush-interval-ms:200}") long flushIntervalMillis,
+                       @Value("${ticks.journal.retry.max-attempts:3}") int maxAttempts,
+                       @Value("${ticks.journal.retry.backoff-ms:100}") long backoffMillis,
+                       @Value("${ticks.journal.append-timeout-ms:100}") long appendTimeoutMillis) {
+        this.stockHistoryRepository = stockHistoryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = backoffMillis;
+        this.appendTimeoutMillis = appendTimeoutMillis;
+        this.flusher = new Thread(this::run, "tick-journal");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queue a price tick for persistence, waiting up to the append timeout for room
+     * @param ticker Ticker symbol
+     * @param price New price
+     * @param priceDate Time of the tick
+     * @return false if the queue stayed full and the tick was dropped
+     */
+    public boolean append(String ticker, double price, LocalDateTime priceDate) {
+        StockHistory tick = new StockHistory();
+        tick.setTickerSymbol(ticker);
+        tick.setStockPrice(price);
+        tick.setPriceDate(priceDate);
+
+        try {
+            // Bounded, so a stuck writer cannot stall the trade sequencer for long
+            if (queue.offer(tick, appendTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        droppedTicks.incrementAndGet();
+        System.err.println("Dropped price tick " + ticker + " " + priceDate + ": journal queue full");
+        return false;
+    }
+
+    /**
+     * Whether the queue is full - a trade now would have to wait for the writer to record its tick
+     */
+    public boolean isFull() {
+        return queue.remainingCapacity() == 0;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Ticks dropped because the queue stayed full for the append timeout
+     */
+    public long getDroppedTicks() {
+        return droppedTicks.get();
+    }
+
+    /**
+     * Ticks that could not be written, even one by one
+     */
+    public long getFailedTicks() {
+        return failedTicks.get();
+    }
+
+    private void run() {
+        List<StockHistory> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                // Shutdown - fall through and write whatever was collected
+            }
+            flush(batch);
+        }
+    }
+
+    // Wait for a full batch or the end of the flush interval, whichever comes first
+    private void collect(List<StockHistory> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                return;
+            }
+            StockHistory tick = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (tick != null) {
+                batch.add(tick);
+            }
+        }
+    }
+
+    private void flush(List<StockHistory> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long backoff = backoffMillis;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> stockHistoryRepository.saveAll(batch));
+                batch.clear();
+                return;
+            } catch (Exception e) {
+                System.err.println("Failed to write " + batch.size() + " price ticks (attempt " + attempt + "): " + e.getMessage());
+                // Ids taken by the rolled back insert - the next attempt draws new ones
+                batch.forEach(tick -> tick.setId(null));
+            }
+            if (attempt < maxAttempts && !sleep(backoff)) {
+                break;
+            }
+            backoff *= 2;
+        }
+
+        // Keep the rows that can be written
+        for (StockHistory tick : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> stockHistoryRepository.save(tick));
+            } catch (Exception e) {
+                failedTicks.incrementAndGet();
+                System.err.println("Dropped price tick " + tick.getTickerSymbol() + " " + tick.getPriceDate() + ": " + e.getMessage());
+            }
+        }
+        batch.clear();
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // The flusher notices within one flush interval and drains the queue before exiting
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+    }
+}
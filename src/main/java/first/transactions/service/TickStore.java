@@ -0,0 +1,489 @@
+package first.transactions.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Embedded append-only price tick store, one directory of memory-mapped segment files
+ * per ticker.
+ *
+ * A segment has a small header (magic, base time, tick count) followed by fixed-width
+ * 8 byte records: the tick time as milliseconds after the segment base and the price
+ * as a fixed-point int with 4 decimals - a third of a boxed StockHistory row, and
+ * fixed width so a time range is found by binary search. A segment is rolled when it
+ * is full or its time offsets would overflow. Ranges are returned as read-only views
+ * over the mapped files, without copying. The stockhistory table stays the source of
+ * truth; TickStoreMigration feeds this store from it at startup.
+ *
+ * Prices are rounded to 4 decimals, so history served from here can differ from the
+ * table's unrounded doubles by up to 0.00005. A ticker with a price the format cannot
+ * hold (negative, or above 214748.3647) gets an unsupported marker file in its
+ * directory and is read from the database from then on, across restarts.
+ */
+@Service
+public class TickStore {
+
+    // Price stored as an int with 4 implied decimals
+    public static final int PRICE_SCALE = 10_000;
+
+    private static final int MAGIC = 0x5449434B;    // "TICK"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int COUNT_OFFSET = 16;
+    private static final int RECORD_BYTES = 8;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String UNSUPPORTED_MARKER = "unsupported";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentRecords;
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    // Tickers with a tick the format cannot hold - always read from the database
+    private final Set<String> unsupported = ConcurrentHashMap.newKeySet();
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public TickStore(@Value("${ticks.store.enabled:true}") boolean enabled,
+                     @Value("${ticks.store.dir:data/ticks}") String directory,
+                     @Value("${ticks.store.segment-records:1048576}") int segmentRecords) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentRecords = segmentRecords;
+        if (enabled) {
+            loadUnsupported();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Append a tick. Ticks of a ticker are expected in time order; an earlier time
+     * than the last stored tick is recorded at the last tick's time.
+     * @param ticker Ticker symbol (any case)
+     * @param time Tick time
+     * @param price Traded price, stored rounded to 4 decimals
+     */
+    public void append(String ticker, LocalDateTime time, double price) {
+        if (!enabled) {
+            return;
+        }
+        String key = ticker.toUpperCase();
+        if (unsupported.contains(key)) {
+            // Never read from here again, so not worth storing
+            return;
+        }
+        long scaled = Math.round(price * PRICE_SCALE);
+        if (scaled < 0 || scaled > Integer.MAX_VALUE) {
+            // Out of range for the fixed-point format - serve this ticker from the database
+            markUnsupported(key);
+            System.err.println("Tick store cannot hold price " + price + " of " + key + ", reading it from the database");
+            rejected.incrementAndGet();
+            return;
+        }
+        series(key).append(toMillis(time), (int) scaled);
+        appended.incrementAndGet();
+    }
+
+    /**
+     * Whether reads for a ticker can be served from this store
+     * @param ticker Ticker symbol (any case)
+     */
+    public boolean covers(String ticker) {
+        return enabled && !unsupported.contains(ticker.toUpperCase());
+    }
+
+    /**
+     * Ticks of a ticker with from <= time <= to, oldest first
+     * @param ticker Ticker symbol (any case)
+     * @param from Inclusive start, or null for the first tick
+     * @param to Inclusive end, or null for the last tick
+     * @return View over the mapped segments
+     */
+    public TickRange range(String ticker, LocalDateTime from, LocalDateTime to) {
+        Series s = series.get(ticker.toUpperCase());
+        if (s == null) {
+            s = existingSeries(ticker.toUpperCase());
+        }
+        if (s == null) {
+            return new TickRange(List.of());
+        }
+        long fromMillis = from != null ? toMillis(from) : Long.MIN_VALUE;
+        long toMillis = to != null ? toMillis(to) : Long.MAX_VALUE;
+        return s.range(fromMillis, toMillis);
+    }
+
+    /**
+     * Time of the newest stored tick of a ticker
+     * @return Tick time, or null if the ticker has no ticks
+     */
+    public LocalDateTime lastTime(String ticker) {
+        Series s = series.get(ticker.toUpperCase());
+        if (s == null) {
+            s = existingSeries(ticker.toUpperCase());
+        }
+        return s != null && s.lastMillis != Long.MIN_VALUE ? fromMillis(s.lastMillis) : null;
+    }
+
+    public StoreStats getStats() {
+        long ticks = 0;
+        int segments = 0;
+        for (Series s : series.values()) {
+            for (Segment segment : s.segments) {
+                ticks += segment.count;
+                segments++;
+            }
+        }
+        return new StoreStats(series.size(), segments, ticks, appended.get(), rejected.get());
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Series s : series.values()) {
+            for (Segment segment : s.segments) {
+                segment.buffer.force();
+            }
+        }
+    }
+
+    static long toMillis(LocalDateTime time) {
+        // LocalDateTime has no zone; UTC is only used as a fixed, reversible encoding
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    private synchronized void markUnsupported(String key) {
+        if (unsupported.contains(key)) {
+            return;
+        }
+        // Marker first, so a restart cannot serve the ticker's incomplete series
+        Path tickerDirectory = directory.resolve(fileName(key));
+        try {
+            Files.createDirectories(tickerDirectory);
+            Files.writeString(tickerDirectory.resolve(UNSUPPORTED_MARKER), key);
+        } catch (IOException e) {
+            System.err.println("Cannot write unsupported marker of " + key + ": " + e.getMessage());
+        }
+        unsupported.add(key);
+    }
+
+    // Tickers marked unsupported by an earlier run - the marker holds the ticker symbol
+    private void loadUnsupported() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> tickerDirectories = Files.list(directory)) {
+            for (Path marker : tickerDirectories.map(d -> d.resolve(UNSUPPORTED_MARKER)).filter(Files::isRegularFile).toList()) {
+                unsupported.add(Files.readString(marker).trim());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read unsupported markers in " + directory, e);
+        }
+    }
+
+    private Series series(String key) {
+        Series s = series.get(key);
+        if (s != null) {
+            return s;
+        }
+        s = existingSeries(key);
+        return s != null ? s : series.computeIfAbsent(key, Series::new);
+    }
+
+    // Open the segments of a ticker written by an earlier run, if any
+    private Series existingSeries(String key) {
+        Path tickerDirectory = directory.resolve(fileName(key));
+        if (!Files.isDirectory(tickerDirectory)) {
+            return null;
+        }
+        return series.computeIfAbsent(key, k -> {
+            Series s = new Series(k);
+            try (Stream<Path> files = Files.list(tickerDirectory)) {
+                // Skip a file left empty by a crash while it was being created
+                files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX) && p.toFile().length() > 0)
+                        .sorted()
+                        .forEach(p -> s.open(openSegment(p, null)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open tick segments of " + k, e);
+            }
+            return s;
+        });
+    }
+
+    private Segment openSegment(Path file, Long baseMillis) {
+        long size = HEADER_BYTES + (long) segmentRecords * RECORD_BYTES;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            boolean created = channel.size() == 0;
+            long mappedSize = created ? size : channel.size();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize);
+            if (created) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putLong(8, baseMillis);
+                buffer.putInt(COUNT_OFFSET, 0);
+                return new Segment(buffer, baseMillis, 0);
+            }
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IllegalStateException("Not a tick segment: " + file);
+            }
+            return new Segment(buffer, buffer.getLong(8), buffer.getInt(COUNT_OFFSET));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map tick segment " + file, e);
+        }
+    }
+
+    private static String fileName(String key) {
+        return key.replaceAll("[^A-Z0-9._-]", "_");
+    }
+
+    /**
+     * All segments of one ticker, oldest first. Appends are serialized per ticker;
+     * readers need no lock because a record is complete before count is published.
+     */
+    private final class Series {
+        private final String key;
+        private final List<Segment> segments = new CopyOnWriteArrayList<>();
+        private volatile long lastMillis = Long.MIN_VALUE;
+
+        private Series(String key) {
+            this.key = key;
+        }
+
+        private void open(Segment segment) {
+            segments.add(segment);
+            if (segment.count > 0) {
+                lastMillis = segment.baseMillis + segment.offsetAt(segment.count - 1);
+            }
+        }
+
+        private synchronized void append(long millis, int price) {
+            long time = Math.max(millis, lastMillis);
+            Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (segment == null || segment.count >= segment.capacity() || time - segment.baseMillis > Integer.MAX_VALUE) {
+                segment = newSegment(time);
+            }
+            segment.append((int) (time - segment.baseMillis), price);
+            lastMillis = time;
+        }
+
+        private Segment newSegment(long baseMillis) {
+            Path tickerDirectory = directory.resolve(fileName(key));
+            try {
+                Files.createDirectories(tickerDirectory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create tick directory " + tickerDirectory, e);
+            }
+            // Zero-padded base time keeps segment files in time order when listed
+            Path file = tickerDirectory.resolve(String.format("%020d%s", baseMillis, SEGMENT_SUFFIX));
+            Segment segment = openSegment(file, baseMillis);
+            segments.add(segment);
+            return segment;
+        }
+
+        private TickRange range(long fromMillis, long toMillis) {
+            List<ByteBuffer> slices = new ArrayList<>();
+            List<Long> bases = new ArrayList<>();
+            for (Segment segment : segments) {
+                int count = segment.count;
+                if (count == 0 || segment.baseMillis > toMillis) {
+                    continue;
+                }
+                int first = segment.lowerBound(fromMillis, count);
+                int end = segment.upperBound(toMillis, count);
+                if (first < end) {
+                    slices.add(segment.buffer.slice(HEADER_BYTES + first * RECORD_BYTES, (end - first) * RECORD_BYTES).asReadOnlyBuffer());
+                    bases.add(segment.baseMillis);
+                }
+            }
+            return new TickRange(slices, bases);
+        }
+    }
+
+    /**
+     * One mapped segment file
+     */
+    private static final class Segment {
+        private final MappedByteBuffer buffer;
+        private final long baseMillis;
+        private volatile int count;
+
+        private Segment(MappedByteBuffer buffer, long baseMillis, int count) {
+            this.buffer = buffer;
+            this.baseMillis = baseMillis;
+            this.count = count;
+        }
+
+        private int capacity() {
+            return (buffer.capacity() - HEADER_BYTES) / RECORD_BYTES;
+        }
+
+        private int offsetAt(int index) {
+            return buffer.getInt(HEADER_BYTES + index * RECORD_BYTES);
+        }
+
+        private void append(int offset, int price) {
+            int position = HEADER_BYTES + count * RECORD_BYTES;
+            buffer.putInt(position, offset);
+            buffer.putInt(position + 4, price);
+            buffer.putInt(COUNT_OFFSET, count + 1);
+            // Volatile write publishes the record to readers
+            count = count + 1;
+        }
+
+        // First index with time >= millis
+        private int lowerBound(long millis, int count) {
+            if (millis <= baseMillis) {
+                return 0;
+            }
+            long target = millis - baseMillis;
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (offsetAt(mid) < target) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // First index with time > millis
+        private int upperBound(long millis, int count) {
+            if (millis - baseMillis >= Integer.MAX_VALUE) {
+                return count;
+            }
+            long target = millis - baseMillis;
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (offsetAt(mid) <= target) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Read-only view of a contiguous run of ticks spanning one or more segments.
+     * Indexed access reads straight from the mapped files. Not thread-safe.
+     */
+    public static final class TickRange {
+        private final List<ByteBuffer> slices;
+        private final long[] bases;
+        private final int[] starts;
+        private final int size;
+        // Not shared between threads - a range is read by the request that created it
+        private int lastSlice;
+
+        private TickRange(List<ByteBuffer> slices) {
+            this(slices, List.of());
+        }
+
+        private TickRange(List<ByteBuffer> slices, List<Long> bases) {
+            this.slices = slices;
+            this.bases = new long[slices.size()];
+            this.starts = new int[slices.size()];
+            int total = 0;
+            for (int i = 0; i < slices.size(); i++) {
+                this.bases[i] = bases.get(i);
+                this.starts[i] = total;
+                total += slices.get(i).capacity() / RECORD_BYTES;
+            }
+            this.size = total;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /** Tick time as epoch milliseconds (UTC encoding of the LocalDateTime) */
+        public long millisAt(int index) {
+            int slice = sliceOf(index);
+            return bases[slice] + slices.get(slice).getInt((index - starts[slice]) * RECORD_BYTES);
+        }
+
+        public LocalDateTime timeAt(int index) {
+            return fromMillis(millisAt(index));
+        }
+
+        /** Price rounded to 4 decimals */
+        public double priceAt(int index) {
+            int slice = sliceOf(index);
+            return (double) slices.get(slice).getInt((index - starts[slice]) * RECORD_BYTES + 4) / PRICE_SCALE;
+        }
+
+        private int sliceOf(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Tick " + index + " of " + size);
+            }
+            // Reads are mostly sequential - try the slice of the previous read first
+            int slice = lastSlice;
+            if (index >= starts[slice] && (slice + 1 == starts.length || index < starts[slice + 1])) {
+                return slice;
+            }
+            slice = starts.length - 1;
+            while (starts[slice] > index) {
+                slice--;
+            }
+            lastSlice = slice;
+            return slice;
+        }
+    }
+
+    /**
+     * Store counters - rejected ticks had prices the fixed-point format cannot hold
+     */
+    public static class StoreStats {
+        private final int tickers;
+        private final int segments;
+        private final long storedTicks;
+        private final long appended;
+        private final long rejected;
+
+        public StoreStats(int tickers, int segments, long storedTicks, long appended, long rejected) {
+            this.tickers = tickers;
+            this.segments = segments;
+            this.storedTicks = storedTicks;
+            this.appended = appended;
+            this.rejected = rejected;
+        }
+
+        public int getTickers() { return tickers; }
+        public int getSegments() { return segments; }
+        public long getStoredTicks() { return storedTicks; }
+        public long getAppended() { return appended; }
+        public long getRejected() { return rejected; }
+    }
+}
@@ -0,0 +1,70 @@
+package first.transactions.service;
+
+import first.transactions.repository.StockHistoryRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Feeds the tick store from the stockhistory table at startup, before any trade can
+ * append, so the store holds every tick in time order. Only rows newer than a ticker's
+ * last stored tick are copied, so restarts are incremental.
+ */
+@Component
+public class TickStoreMigration {
+
+    private final TickStore tickStore;
+    private final StockHistoryRepository stockHistoryRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public TickStoreMigration(TickStore tickStore,
+                              StockHistoryRepository stockHistoryRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.tickStore = tickStore;
+        this.stockHistoryRepository = stockHistoryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        if (!tickStore.isEnabled()) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        long copied = 0;
+        for (String ticker : stockHistoryRepository.findDistinctTickerSymbols()) {
+            if (!tickStore.covers(ticker)) {
+                // Marked unsupported by an earlier run - read from the table anyway
+                continue;
+            }
+            copied += transactionTemplate.execute(status -> copyTicker(ticker));
+        }
+        if (copied > 0) {
+            System.out.println("Copied " + copied + " stockhistory ticks into the tick store in "
+                    + (System.currentTimeMillis() - started) + "ms");
+        }
+    }
+
+    private long copyTicker(String ticker) {
+        LocalDateTime after = tickStore.lastTime(ticker);
+        long copied = 0;
+        try (Stream<Object[]> rows = stockHistoryRepository.streamTicksAfter(ticker, after)) {
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                if (row[0] == null) {
+                    continue;
+                }
+                tickStore.append(ticker, (LocalDateTime) row[0], ((Number) row[1]).doubleValue());
+                copied++;
+            }
+        }
+        return copied;
+    }
+}
@@ -0,0 +1,123 @@
+package first.transactions.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events for the stages of a trade.
+ *
+ * A Trade event spans the whole command on its sequencer thread and the stage events
+ * nest inside it, so in a recording a slow trade can be lined up with the GC pauses,
+ * lock waits, allocation samples and socket reads of the same thread and time range.
+ * Events are cheap when no recording is running: begin/end are intrinsics and the
+ * fields are only filled in when shouldCommit() says the event will be written.
+ */
+public final class TradeEvents {
+
+    private static final String CATEGORY = "Stock Market";
+
+    private TradeEvents() {
+    }
+
+    @Name("first.transactions.Trade")
+    @Label("Trade")
+    @Category({CATEGORY, "Trading"})
+    @Description("A market buy or sell, from sequencer pickup to commit")
+    @StackTrace(false)
+    public static final class Trade extends Event {
+        @Label("Side")
+        public String side;
+        @Label("Ticker")
+        public String ticker;
+        @Label("Username")
+        public String username;
+        @Label("Executed")
+        public boolean executed;
+    }
+
+    /**
+     * A stage of one investor's trade - the fields its events share
+     */
+    public abstract static class InvestorStage extends Event {
+        @Label("Ticker")
+        public String ticker;
+        @Label("Username")
+        public String username;
+    }
+
+    @Name("first.transactions.TradeLookup")
+    @Label("Trade Lookup")
+    @Category({CATEGORY, "Trading"})
+    @Description("Company, investor and available cash or shares read before a trade")
+    @StackTrace(false)
+    public static final class Lookup extends InvestorStage {
+    }
+
+    @Name("first.transactions.PositionUpdate")
+    @Label("Position Update")
+    @Category({CATEGORY, "Trading"})
+    @Description("The investor's own investment row and holder index entry updated for a trade")
+    @StackTrace(false)
+    public static final class PositionUpdate extends InvestorStage {
+    }
+
+    @Name("first.transactions.PortfolioUpdate")
+    @Label("Portfolio Update")
+    @Category({CATEGORY, "Portfolio"})
+    @Description("The investor's own portfolio recalculated after a trade")
+    @StackTrace(false)
+    public static final class PortfolioUpdate extends InvestorStage {
+    }
+
+    @Name("first.transactions.Pricing")
+    @Label("Pricing")
+    @Category({CATEGORY, "Pricing"})
+    @Description("Price impact of a trade, including the tick, holder profit and revaluation stages it triggers")
+    @StackTrace(false)
+    public static final class Pricing extends Event {
+        @Label("Ticker")
+        public String ticker;
+        @Label("Old Price")
+        public double oldPrice;
+        @Label("New Price")
+        public double newPrice;
+    }
+
+    @Name("first.transactions.HistoryWrite")
+    @Label("History Write")
+    @Category({CATEGORY, "Pricing"})
+    @Description("Tick handed to the journal, tick store, candles and price stream")
+    @StackTrace(false)
+    public static final class HistoryWrite extends Event {
+        @Label("Ticker")
+        public String ticker;
+    }
+
+    @Name("first.transactions.InvestmentUpdate")
+    @Label("Investment Update")
+    @Category({CATEGORY, "Trading"})
+    @Description("Profit of every holder's investment row updated for a price move")
+    @StackTrace(false)
+    public static final class InvestmentUpdate extends Event {
+        @Label("Ticker")
+        public String ticker;
+        @Label("User Count")
+        public int userCount;
+    }
+
+    @Name("first.transactions.Revaluation")
+    @Label("Portfolio Revaluation")
+    @Category({CATEGORY, "Portfolio"})
+    @Description("Portfolios of the ticker's holders revalued for a price move")
+    @StackTrace(false)
+    public static final class Revaluation extends Event {
+        @Label("Ticker")
+        public String ticker;
+        @Label("User Count")
+        public int userCount;
+    }
+}
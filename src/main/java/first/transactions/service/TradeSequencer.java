@@ -0,0 +1,202 @@
+package first.transactions.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Single-writer-per-ticker command sequencer.
+ *
+ * Trade commands are sharded by ticker onto single-threaded event loops, each fed
+ * by a pre-allocated ring buffer (disruptor style: producers claim a sequence, fill
+ * the slot in place and publish it). Every command for a ticker runs on the same
+ * thread in claim order, so ticker state (order book, company price, available
+ * shares) is mutated without locks, and different tickers scale across cores.
+ */
+@Component
+public class TradeSequencer {
+
+    private static final int SPINS_BEFORE_PARK = 200;
+    private static final long IDLE_PARK_NANOS = 50_000;
+
+    private final Shard[] shards;
+
+    public TradeSequencer(@Value("${trading.sequencer.shards:0}") int shardCount,
+                          @Value("${trading.sequencer.ring-size:1024}") int ringSize) {
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        if (Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two: " + ringSize);
+        }
+
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard("trade-sequencer-" + i, ringSize);
+        }
+    }
+
+    /**
+     * Run a command on the ticker's event loop and wait for its result
+     * @param ticker Ticker symbol (normalized) - decides the shard
+     * @param command Command to run
+     * @return The command's result; exceptions thrown by it are rethrown here
+     */
+    public <T> T execute(String ticker, Supplier<T> command) {
+        // The loop's SQL belongs to the caller's request
+        return shardFor(ticker).execute(SqlProfiler.propagate(command));
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Commands claimed but not yet run, across all shards
+     */
+    public long queueDepth() {
+        long depth = 0;
+        for (Shard shard : shards) {
+            depth += shard.depth();
+        }
+        return depth;
+    }
+
+    private Shard shardFor(String ticker) {
+        return shards[(ticker.hashCode() & Integer.MAX_VALUE) % shards.length];
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (Shard shard : shards) {
+            shard.stop();
+        }
+    }
+
+    /**
+     * A ring slot, reused for every sequence that maps onto it
+     */
+    private static final class Slot {
+        private volatile long writableSequence;   // sequence allowed to claim this slot next
+        private volatile long publishedSequence = -1;
+        private volatile boolean done;
+        private Supplier<?> command;
+        private Object result;
+        private RuntimeException error;
+        private Thread waiter;
+    }
+
+    /**
+     * One event loop with its ring buffer
+     */
+    private static final class Shard implements Runnable {
+        private final Slot[] ring;
+        private final int mask;
+        private final AtomicLong claimSequence = new AtomicLong();
+        private final Thread thread;
+        private volatile long consumedSequence;
+        private volatile boolean running = true;
+
+        private Shard(String name, int ringSize) {
+            this.ring = new Slot[ringSize];
+            this.mask = ringSize - 1;
+            for (int i = 0; i < ringSize; i++) {
+                ring[i] = new Slot();
+                ring[i].writableSequence = i;
+            }
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T execute(Supplier<T> command) {
+            // Commands issued from the loop itself run inline - waiting on our own ring would deadlock
+            if (Thread.currentThread() == thread) {
+                return command.get();
+            }
+
+            long sequence = claimSequence.getAndIncrement();
+            Slot slot = ring[(int) (sequence & mask)];
+
+            // Backpressure: wait until the previous lap's caller has collected its result
+            int spins = 0;
+            while (slot.writableSequence != sequence) {
+                spins = idle(spins);
+            }
+
+            slot.command = command;
+            slot.waiter = Thread.currentThread();
+            slot.done = false;
+            slot.publishedSequence = sequence;
+            LockSupport.unpark(thread);
+
+            while (!slot.done) {
+                LockSupport.park(this);
+            }
+
+            Object result = slot.result;
+            RuntimeException error = slot.error;
+            slot.command = null;
+            slot.result = null;
+            slot.error = null;
+            slot.waiter = null;
+            slot.writableSequence = sequence + ring.length;
+
+            if (error != null) {
+                throw error;
+            }
+            return (T) result;
+        }
+
+        @Override
+        public void run() {
+            long next = 0;
+            int spins = 0;
+
+            while (running || claimSequence.get() > next) {
+                Slot slot = ring[(int) (next & mask)];
+                if (slot.publishedSequence != next) {
+                    spins = idle(spins);
+                    continue;
+                }
+                spins = 0;
+
+                try {
+                    slot.result = slot.command.get();
+                } catch (RuntimeException e) {
+                    slot.error = e;
+                } catch (Error e) {
+                    slot.error = new IllegalStateException("Trade command failed", e);
+                }
+                next++;
+                consumedSequence = next;
+
+                Thread waiter = slot.waiter;
+                slot.done = true;
+                LockSupport.unpark(waiter);
+            }
+        }
+
+        private long depth() {
+            return claimSequence.get() - consumedSequence;
+        }
+
+        private void stop() throws InterruptedException {
+            running = false;
+            LockSupport.unpark(thread);
+            thread.join(5000);
+        }
+
+        private static int idle(int spins) {
+            if (spins < SPINS_BEFORE_PARK) {
+                Thread.onSpinWait();
+                return spins + 1;
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+            return spins;
+        }
+    }
+}
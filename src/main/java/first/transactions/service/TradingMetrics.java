@@ -0,0 +1,100 @@
+package first.transactions.service;
+
+import first.transactions.model.OrderSide;
+import first.transactions.model.TradeRejection;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms and counters of the trading, pricing, portfolio and JWT hot paths.
+ *
+ * Every meter is registered up front and kept in a field or an array indexed by enum
+ * ordinal, so recording is a nanoTime difference and a histogram bucket increment:
+ * no tag lookups and no allocation per trade. Durations are published as Prometheus
+ * histograms, so quantiles can be aggregated across instances.
+ */
+@Component
+public class TradingMetrics {
+
+    public enum JwtOutcome { CACHED, VERIFIED, INVALID, ANONYMOUS }
+
+    private final Timer[] tradeDuration = new Timer[OrderSide.values().length];
+    private final Counter[] trades = new Counter[OrderSide.values().length];
+    private final Counter[][] rejections = new Counter[OrderSide.values().length][TradeRejection.values().length];
+    private final Timer priceUpdateDuration;
+    private final Counter ticks;
+    private final Timer recalculateDuration;
+    private final Timer[] jwtDuration = new Timer[JwtOutcome.values().length];
+
+    public TradingMetrics(MeterRegistry registry) {
+        for (OrderSide side : OrderSide.values()) {
+            String tag = side.name().toLowerCase();
+            tradeDuration[side.ordinal()] = histogram("trading.trade.duration", "Market buy/sell latency, sequencer wait included", registry, "side", tag);
+            trades[side.ordinal()] = Counter.builder("trading.trades")
+                    .description("Executed market trades")
+                    .tag("side", tag)
+                    .register(registry);
+            for (TradeRejection reason : TradeRejection.values()) {
+                rejections[side.ordinal()][reason.ordinal()] = Counter.builder("trading.trade.rejections")
+                        .description("Market trades rejected before execution")
+                        .tag("side", tag)
+                        .tag("reason", reason.getCode())
+                        .register(registry);
+            }
+        }
+        priceUpdateDuration = histogram("pricing.update.duration", "Price impact, tick recording and revaluation of one trade", registry);
+        ticks = Counter.builder("pricing.ticks")
+                .description("Price ticks recorded")
+                .register(registry);
+        recalculateDuration = histogram("portfolio.recalculate.duration", "Recalculation of one portfolio, from loading its cash and investments to the save", registry);
+        for (JwtOutcome outcome : JwtOutcome.values()) {
+            jwtDuration[outcome.ordinal()] = histogram("security.jwt.duration", "JWT filter latency", registry,
+                    "outcome", outcome.name().toLowerCase());
+        }
+    }
+
+    /**
+     * Record a market trade's latency and, if it executed, count it
+     * @param side Buy or sell
+     * @param startNanos System.nanoTime() before the trade
+     * @param executed Whether the trade went through
+     */
+    public void trade(OrderSide side, long startNanos, boolean executed) {
+        tradeDuration[side.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (executed) {
+            trades[side.ordinal()].increment();
+        }
+    }
+
+    public void rejected(OrderSide side, TradeRejection reason) {
+        rejections[side.ordinal()][reason.ordinal()].increment();
+    }
+
+    public void priceUpdated(long startNanos) {
+        priceUpdateDuration.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void tick() {
+        ticks.increment();
+    }
+
+    public void portfolioRecalculated(long startNanos) {
+        recalculateDuration.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void jwtFiltered(JwtOutcome outcome, long startNanos) {
+        jwtDuration[outcome.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer histogram(String name, String description, MeterRegistry registry, String... tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
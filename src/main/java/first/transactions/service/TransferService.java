@@ -1,27 +1,100 @@
 package first.transactions.service;
 
+import first.transactions.model.LedgerEntryType;
+import first.transactions.model.TransferDirection;
+import first.transactions.model.TransferTotals;
 import first.transactions.model.Transfers;
 import first.transactions.model.User;
 import first.transactions.repository.TransferRepository;
+import first.transactions.repository.TransferTotalsRepository;
 import first.transactions.repository.UserRepository;
+import first.transactions.dto.BatchTransferRequest;
+import first.transactions.dto.BatchTransferResponse;
+import first.transactions.dto.TransferHistoryFilter;
+import first.transactions.dto.TransferHistoryItem;
+import first.transactions.dto.TransferHistoryPage;
 import first.transactions.dto.TransferRequest;
+import first.transactions.dto.TransferTotalsResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class TransferService {
 
     private final TransferRepository transferRepository;
+    private final TransferTotalsRepository transferTotalsRepository;
     private final UserRepository userRepository;
-
-    public TransferService(TransferRepository transferRepository, UserRepository userRepository) {
+    private final LedgerService ledgerService;
+    private final AccountLocks accountLocks;
+    private final OrderReservations orderReservations;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int maxBatchSize;
+    private final int maxHistoryPageSize;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    public TransferService(TransferRepository transferRepository,
+                           TransferTotalsRepository transferTotalsRepository,
+                           UserRepository userRepository,
+                           LedgerService ledgerService,
+                           AccountLocks accountLocks,
+                           OrderReservations orderReservations,
+                           PlatformTransactionManager transactionManager,
+                           ObjectMapper objectMapper,
+                           @Value("${transfers.batch.max-size:500}") int maxBatchSize,
+                           @Value("${transfers.history.max-page-size:500}") int maxHistoryPageSize,
+                           @Value("${transfers.retry.max-attempts:3}") int maxAttempts,
+                           @Value("${transfers.retry.backoff-ms:5}") long backoffMillis) {
         this.transferRepository = transferRepository;
+        this.transferTotalsRepository = transferTotalsRepository;
         this.userRepository = userRepository;
+        this.ledgerService = ledgerService;
+        this.accountLocks = accountLocks;
+        this.orderReservations = orderReservations;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+        this.maxBatchSize = maxBatchSize;
+        this.maxHistoryPageSize = maxHistoryPageSize;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = backoffMillis;
     }
 
     /**
@@ -30,7 +103,12 @@ public class TransferService {
      * @param username Username of the sender
      * @return Success message or error
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public TransferResult createTransfer(Transfers transfers, String username) {
+        return inTransactionWithRetry(() -> doCreateTransfer(transfers, username));
+    }
+
+    private TransferResult doCreateTransfer(Transfers transfers, String username) {
         // Get the user
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException(username));
@@ -51,30 +129,35 @@ public class TransferService {
             return TransferResult.error("Recipient user '" + recipientUsername + "' does not exist");
         }
 
-        // Check sufficient balance
-        if (user.getBalance() < transfers.getAmount()) {
+        // Prevent self-transfer
+        if (recipientUsername.equals(user.getUsername())) {
+            return TransferResult.error("Cannot transfer money to yourself");
+        }
+
+        // Check sufficient balance, holding the sender's account until commit
+        accountLocks.lockUntilCompletion(user.getId());
+        double balance = availableBalance(user.getId());
+        if (balance < transfers.getAmount()) {
             return TransferResult.error(String.format(
                 "Insufficient balance. Available: $%.2f, Required: $%.2f", 
-                user.getBalance(), transfers.getAmount()));
+                balance, transfers.getAmount()));
         }
 
         // Get recipient user
         User recipientUser = userRepository.findByUsername(recipientUsername)
                 .orElseThrow(() -> new UsernameNotFoundException("Recipient not found: " + recipientUsername));
 
-        // Update balances
-        user.setBalance(user.getBalance() - transfers.getAmount());
-        recipientUser.setBalance(recipientUser.getBalance() + transfers.getAmount());
+        // Move the cash
+        ledgerService.post(LedgerEntryType.TRANSFER, user.getId(), recipientUser.getId(), transfers.getAmount(), "Transfer to " + recipientUsername);
 
         // Create transaction records for both users
-        Transfers senderTx = new Transfers(transfers.getAmount(), "Sent to " + recipientUsername, user);
-        Transfers recipientTx = new Transfers(transfers.getAmount(), "Received from " + user.getUsername(), recipientUser);
+        Transfers senderTx = Transfers.sent(transfers.getAmount(), recipientUsername, user);
+        Transfers recipientTx = Transfers.received(transfers.getAmount(), user.getUsername(), recipientUser);
 
         // Save everything
         transferRepository.save(senderTx);
         transferRepository.save(recipientTx);
-        userRepository.save(user);
-        userRepository.save(recipientUser);
+        recordTotals(List.of(senderTx, recipientTx), 1);
 
         return TransferResult.success(String.format(
             "Transfer created for %s with amount: $%.2f", 
@@ -87,7 +170,12 @@ public class TransferService {
      * @param senderUsername Username of sender
      * @return Success message or error
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public TransferResult sendToUser(TransferRequest transferRequest, String senderUsername) {
+        return inTransactionWithRetry(() -> doSendToUser(transferRequest, senderUsername));
+    }
+
+    private TransferResult doSendToUser(TransferRequest transferRequest, String senderUsername) {
         // Get sender
         User sender = userRepository.findByUsername(senderUsername)
                 .orElseThrow(() -> new UsernameNotFoundException(senderUsername));
@@ -103,36 +191,124 @@ public class TransferService {
             return TransferResult.error("Transfer amount must be positive");
         }
 
-        // Check sufficient balance
-        if (sender.getBalance() < amount) {
-            return TransferResult.error(String.format(
-                "Insufficient balance. Available: $%.2f, Required: $%.2f", 
-                sender.getBalance(), amount));
-        }
-
         // Prevent self-transfer
         if (sender.getId().equals(receiver.getId())) {
             return TransferResult.error("Cannot transfer money to yourself");
         }
 
-        // Update balances
-        sender.setBalance(sender.getBalance() - amount);
-        receiver.setBalance(receiver.getBalance() + amount);
+        // Check sufficient balance, holding the sender's account until commit
+        accountLocks.lockUntilCompletion(sender.getId());
+        double balance = availableBalance(sender.getId());
+        if (balance < amount) {
+            return TransferResult.error(String.format(
+                "Insufficient balance. Available: $%.2f, Required: $%.2f", 
+                balance, amount));
+        }
+
+        // Move the cash
+        ledgerService.post(LedgerEntryType.TRANSFER, sender.getId(), receiver.getId(), amount, "Transfer to " + receiver.getUsername());
 
         // Create transaction records
-        Transfers senderTx = new Transfers(-amount, "Sent to " + receiver.getUsername(), sender);
-        Transfers receiverTx = new Transfers(amount, "Received from " + sender.getUsername(), receiver);
+        Transfers senderTx = Transfers.sent(-amount, receiver.getUsername(), sender);
+        Transfers receiverTx = Transfers.received(amount, sender.getUsername(), receiver);
 
         // Save everything
         transferRepository.save(senderTx);
         transferRepository.save(receiverTx);
-        userRepository.save(sender);
-        userRepository.save(receiver);
+        recordTotals(List.of(senderTx, receiverTx), 1);
 
         return TransferResult.success(String.format(
             "Successfully transferred $%.2f to %s", amount, receiver.getUsername()));
     }
 
+    /**
+     * Pay many users from one sender in a single transaction (payroll / dividends).
+     * Recipients are loaded with one query and all ledger entries and transfer rows
+     * are written with JDBC batching. Either every transfer is applied or none is, so the
+     * sender stays locked for the whole batch - transfers.batch.max-size keeps that short
+     * (about half a second for 500 lines on embedded H2).
+     * @param request List of (targetUserID, amount) pairs
+     * @param senderUsername Username of sender
+     * @return Count, total and throughput, or the first validation error
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BatchTransferResult sendBatch(BatchTransferRequest request, String senderUsername) {
+        long started = System.nanoTime();
+        return inTransactionWithRetry(() -> doSendBatch(request, senderUsername, started));
+    }
+
+    private BatchTransferResult doSendBatch(BatchTransferRequest request, String senderUsername, long started) {
+        User sender = userRepository.findByUsername(senderUsername)
+                .orElseThrow(() -> new UsernameNotFoundException(senderUsername));
+
+        List<TransferRequest> transfers = request.getTransfers();
+        if (transfers == null || transfers.isEmpty()) {
+            return BatchTransferResult.error("At least one transfer is required");
+        }
+        if (transfers.size() > maxBatchSize) {
+            return BatchTransferResult.error("At most " + maxBatchSize + " transfers per batch");
+        }
+
+        // Validate every line before touching anything
+        double total = 0.0;
+        Set<Long> recipientIds = new HashSet<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequest transfer = transfers.get(i);
+            if (transfer.getTargetUserID() == null) {
+                return BatchTransferResult.error("Transfer " + i + ": recipient is required");
+            }
+            if (transfer.getAmount() <= 0) {
+                return BatchTransferResult.error("Transfer " + i + ": amount must be positive");
+            }
+            if (transfer.getTargetUserID().equals(sender.getId())) {
+                return BatchTransferResult.error("Transfer " + i + ": cannot transfer money to yourself");
+            }
+            recipientIds.add(transfer.getTargetUserID());
+            total += transfer.getAmount();
+        }
+
+        // One query for all recipients
+        Map<Long, User> recipients = new HashMap<>();
+        for (User recipient : userRepository.findAllById(recipientIds)) {
+            recipients.put(recipient.getId(), recipient);
+        }
+        if (recipients.size() != recipientIds.size()) {
+            recipientIds.removeAll(recipients.keySet());
+            return BatchTransferResult.error("Recipient users not found: " + recipientIds);
+        }
+
+        accountLocks.lockUntilCompletion(sender.getId());
+        double balance = availableBalance(sender.getId());
+        if (balance < total) {
+            return BatchTransferResult.error(String.format(
+                "Insufficient balance. Available: $%.2f, Required: $%.2f", balance, total));
+        }
+
+        List<LedgerService.Posting> postings = new ArrayList<>(transfers.size());
+        List<Transfers> records = new ArrayList<>(transfers.size() * 2);
+        for (TransferRequest transfer : transfers) {
+            User receiver = recipients.get(transfer.getTargetUserID());
+            double amount = transfer.getAmount();
+            postings.add(new LedgerService.Posting(sender.getId(), receiver.getId(), amount, "Transfer to " + receiver.getUsername()));
+            records.add(Transfers.sent(-amount, receiver.getUsername(), sender));
+            records.add(Transfers.received(amount, sender.getUsername(), receiver));
+        }
+
+        ledgerService.postAll(LedgerEntryType.TRANSFER, postings);
+        transferRepository.saveAll(records);
+        recordTotals(records, 1);
+        // Flush here so the measured time includes the batched inserts
+        transferRepository.flush();
+
+        long durationNanos = System.nanoTime() - started;
+        double seconds = durationNanos / 1e9;
+        return BatchTransferResult.success(new BatchTransferResponse(
+                transfers.size(),
+                total,
+                durationNanos / 1_000_000,
+                seconds > 0 ? transfers.size() / seconds : transfers.size()));
+    }
+
     /**
      * Get all transfers for a user
      * @param username Username
@@ -142,6 +318,88 @@ public class TransferService {
         return transferRepository.findByUserUsername(username);
     }
 
+    /**
+     * Get one page of a user's transfers, newest first.
+     * Paging seeks past the last (createdAt, id) seen instead of using an offset, so
+     * every page costs the same however deep it is.
+     * @param username Username
+     * @param filter Optional date and amount bounds
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param limit Page size (capped at transfers.history.max-page-size)
+     * @return Page of transfers and the cursor of the next page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public TransferHistoryPage getTransferHistory(String username, TransferHistoryFilter filter, String cursor, int limit) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException(username));
+
+        int pageSize = Math.max(1, Math.min(limit, maxHistoryPageSize));
+        LocalDateTime cursorTime = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = decodeCursor(cursor);
+            cursorTime = LocalDateTime.parse(parts[0]);
+            cursorId = Long.parseLong(parts[1]);
+        }
+
+        // One extra row tells whether there is a next page
+        List<TransferHistoryItem> rows = transferRepository.findHistoryPage(user.getId(),
+                filter.getFrom(), filter.getTo(), filter.getMinAmount(), filter.getMaxAmount(),
+                cursorTime, cursorId, PageRequest.of(0, pageSize + 1));
+        if (rows.size() <= pageSize) {
+            return new TransferHistoryPage(rows, null);
+        }
+        List<TransferHistoryItem> page = rows.subList(0, pageSize);
+        TransferHistoryItem last = page.get(pageSize - 1);
+        return new TransferHistoryPage(new ArrayList<>(page), encodeCursor(last));
+    }
+
+    /**
+     * Write all of a user's matching transfers as a JSON array, newest first, straight
+     * from a database cursor. Rows are DTO projections, not managed entities, so memory
+     * stays constant however long the history is.
+     * @param username Username
+     * @param filter Optional date and amount bounds
+     * @param out Response body
+     */
+    @Transactional(readOnly = true)
+    public void writeTransferHistory(String username, TransferHistoryFilter filter, OutputStream out) throws IOException {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException(username));
+
+        try (Stream<TransferHistoryItem> rows = transferRepository.streamHistory(user.getId(),
+                     filter.getFrom(), filter.getTo(), filter.getMinAmount(), filter.getMaxAmount());
+             JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartArray();
+            Iterator<TransferHistoryItem> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                json.writeObject(iterator.next());
+            }
+            json.writeEndArray();
+        }
+    }
+
+    private static String encodeCursor(TransferHistoryItem last) {
+        String raw = last.getCreatedAt() + "," + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            LocalDateTime.parse(parts[0]);
+            Long.parseLong(parts[1]);
+            return parts;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
     /**
      * Delete a transfer (if it belongs to the user)
      * @param transferId Transfer ID to delete
@@ -173,6 +431,7 @@ public class TransferService {
 
         // Delete the transfer
         transferRepository.delete(transfer);
+        recordTotals(List.of(transfer), -1);
 
         return TransferResult.success("Transfer deleted successfully");
     }
@@ -182,15 +441,121 @@ public class TransferService {
      * @param username Username
      * @return Total amount
      */
+    @Transactional(readOnly = true)
     public double calculateTotalTransfers(String username) {
-        // Verify user exists
-        userRepository.findByUsername(username)
+        User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException(username));
 
-        List<Transfers> transfers = transferRepository.findByUserUsername(username);
-        return transfers.stream()
-                .mapToDouble(Transfers::getAmount)
-                .sum();
+        // Running aggregate - constant time regardless of history length
+        return transferTotalsRepository.findById(user.getId())
+                .map(TransferTotals::getNetAmount)
+                .orElse(0.0);
+    }
+
+    /**
+     * Get running and time-windowed transfer totals for a user
+     * @param username Username
+     * @return Lifetime totals plus last 30 days and year to date
+     */
+    @Transactional(readOnly = true)
+    public TransferTotalsResponse getTransferTotals(String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException(username));
+
+        TransferTotals totals = transferTotalsRepository.findById(user.getId())
+                .orElseGet(() -> new TransferTotals(user.getId()));
+        LocalDateTime now = LocalDateTime.now();
+        return new TransferTotalsResponse(
+                totals.getTotalSent(),
+                totals.getTotalReceived(),
+                totals.getTransferCount(),
+                totals.getNetAmount(),
+                sumSince(user.getId(), now.minusDays(30)),
+                sumSince(user.getId(), LocalDate.now().withDayOfYear(1).atStartOfDay()));
+    }
+
+    /**
+     * Create the aggregate rows of users that predate them from their transfer history
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillTotals() {
+        transferTotalsRepository.backfillMissing();
+    }
+
+    private TransferTotalsResponse.WindowTotals sumSince(Long userId, LocalDateTime since) {
+        Object[] row = transferRepository.sumSince(userId, since).get(0);
+        return new TransferTotalsResponse.WindowTotals(
+                ((Number) row[0]).doubleValue(),
+                ((Number) row[1]).doubleValue(),
+                ((Number) row[2]).longValue());
+    }
+
+    /**
+     * Apply transfer records to their users' running aggregates.
+     * Rows are updated in ascending user id order, so two transactions touching the
+     * same users take the row locks in the same order and cannot deadlock.
+     * @param records Records just saved (sign 1) or deleted (sign -1)
+     */
+    private void recordTotals(List<Transfers> records, int sign) {
+        Map<Long, double[]> deltas = new TreeMap<>();
+        for (Transfers record : records) {
+            // sent, received, count, net
+            double[] delta = deltas.computeIfAbsent(record.getUser().getId(), id -> new double[4]);
+            if (record.getDirection() == TransferDirection.SENT) {
+                delta[0] += sign * Math.abs(record.getAmount());
+            } else if (record.getDirection() == TransferDirection.RECEIVED) {
+                delta[1] += sign * Math.abs(record.getAmount());
+            }
+            delta[2] += sign;
+            delta[3] += sign * record.getAmount();
+        }
+
+        for (Map.Entry<Long, double[]> entry : deltas.entrySet()) {
+            double[] d = entry.getValue();
+            if (transferTotalsRepository.addToTotals(entry.getKey(), d[0], d[1], (long) d[2], d[3]) == 0) {
+                createTotalsRow(entry.getKey());
+                transferTotalsRepository.addToTotals(entry.getKey(), d[0], d[1], (long) d[2], d[3]);
+            }
+        }
+    }
+
+    // First transfer of a user registered after startup: create its empty row in a separate
+    // transaction so losing a race with another first transfer does not roll this one back
+    private void createTotalsRow(Long userId) {
+        try {
+            newTransactionTemplate.executeWithoutResult(status -> transferTotalsRepository.insertEmpty(userId));
+        } catch (DataIntegrityViolationException e) {
+            // Created concurrently - the update can go ahead
+        }
+    }
+
+    // Cash not already promised to resting buy orders
+    private double availableBalance(Long userId) {
+        return ledgerService.getBalance(userId) - orderReservations.reservedCash(userId);
+    }
+
+    /**
+     * Run work in its own transaction, retrying with jittered exponential backoff when it
+     * loses a concurrency conflict (lock timeout, deadlock victim, optimistic failure).
+     * Account locks are released when each attempt's transaction completes.
+     */
+    private <T> T inTransactionWithRetry(Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                long delay = backoffMillis << (attempt - 1);
+                try {
+                    Thread.sleep(delay + ThreadLocalRandom.current().nextLong(delay + 1));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
     }
 
     /**
@@ -221,4 +586,39 @@ public class TransferService {
             return message;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Result wrapper for batch transfers
+     */
+    public static class BatchTransferResult {
+        private final boolean success;
+        private final String message;
+        private final BatchTransferResponse response;
+
+        private BatchTransferResult(boolean success, String message, BatchTransferResponse response) {
+            this.success = success;
+            this.message = message;
+            this.response = response;
+        }
+
+        public static BatchTransferResult success(BatchTransferResponse response) {
+            return new BatchTransferResult(true, "Batch transfer completed", response);
+        }
+
+        public static BatchTransferResult error(String message) {
+            return new BatchTransferResult(false, message, null);
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public BatchTransferResponse getResponse() {
+            return response;
+        }
+    }
+}
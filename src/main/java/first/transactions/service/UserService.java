@@ -1,12 +1,24 @@
 package first.transactions.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import first.transactions.dto.UserPage;
+import first.transactions.dto.UserResponseDto;
+import first.transactions.model.LedgerEntryType;
 import first.transactions.model.User;
 import first.transactions.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -14,10 +26,17 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PortfolioService portfolioService;
+    private final LedgerService ledgerService;
+    private final ObjectMapper objectMapper;
+    private final int maxPageSize;
 
-    public UserService(UserRepository userRepository, PortfolioService portfolioService) {
+    public UserService(UserRepository userRepository, PortfolioService portfolioService, LedgerService ledgerService,
+                       ObjectMapper objectMapper, @Value("${admin.export.max-page-size:500}") int maxPageSize) {
         this.userRepository = userRepository;
         this.portfolioService = portfolioService;
+        this.ledgerService = ledgerService;
+        this.objectMapper = objectMapper;
+        this.maxPageSize = maxPageSize;
     }
 
     /**
@@ -28,14 +47,55 @@ public class UserService {
         return userRepository.findAll();
     }
 
+    /**
+     * One page of users in id order (admin only). Balances are as of the last ledger checkpoint.
+     * @param cursor Last user id of the previous page, or null for the first page
+     * @param limit Page size (capped by admin.export.max-page-size)
+     * @return Users and the cursor of the next page
+     */
+    @Transactional(readOnly = true)
+    public UserPage getUsersPage(Long cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        // One extra row tells whether there is a next page
+        List<UserResponseDto> rows = userRepository.findPageAfter(cursor, PageRequest.of(0, pageSize + 1));
+        if (rows.size() <= pageSize) {
+            return new UserPage(rows, null);
+        }
+        List<UserResponseDto> page = new ArrayList<>(rows.subList(0, pageSize));
+        return new UserPage(page, page.get(pageSize - 1).getId());
+    }
+
+    /**
+     * Write every user as a JSON array straight from a database cursor (admin only).
+     * Rows are DTO projections, so memory stays constant however many users there are.
+     * @param out Response body
+     */
+    @Transactional(readOnly = true)
+    public void writeUsers(OutputStream out) throws IOException {
+        try (Stream<UserResponseDto> rows = userRepository.streamAll();
+             JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartArray();
+            Iterator<UserResponseDto> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                json.writeObject(iterator.next());
+            }
+            json.writeEndArray();
+        }
+    }
+
     /**
      * Get user profile by username
      * @param username Username
      * @return User profile
      */
-    public User getUserProfile(String username) {
-        return userRepository.findByUsername(username)
+    @Transactional(readOnly = true)
+    public UserResponseDto getUserProfile(String username) {
+        UserResponseDto profile = userRepository.findProfileByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        // Show the live ledger balance
+        profile.setBalance(ledgerService.getBalance(profile.getId()));
+        return profile;
     }
 
     /**
@@ -49,7 +109,7 @@ public class UserService {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException(username));
 
-        double oldBalance = user.getBalance();
+        double oldBalance = ledgerService.getBalance(user.getId());
         double newBalance = oldBalance + amount;
 
         // Business rule: prevent extremely high balances  
@@ -57,9 +117,8 @@ public class UserService {
             return UserResult.error("Total balance cannot exceed $10,000,000");
         }
 
-        // Update balance
-        user.setBalance(newBalance);
-        userRepository.save(user);
+        // Record the deposit
+        ledgerService.post(LedgerEntryType.DEPOSIT, LedgerService.EXTERNAL_ACCOUNT, user.getId(), amount, "Deposit");
 
         // Update portfolio to reflect new cash balance
         try {
@@ -136,11 +195,15 @@ public class UserService {
     /**
      * Get user by username
      * @param username Username to find
-     * @return User object
+     * @return Profile fields of the user
      */
-    public User getUserByUsername(String username) {
-        return userRepository.findByUsername(username)
+    @Transactional(readOnly = true)
+    public UserResponseDto getUserByUsername(String username) {
+        UserResponseDto user = userRepository.findProfileByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        // The balance column is only as fresh as the last ledger checkpoint
+        user.setBalance(ledgerService.getBalance(user.getId()));
+        return user;
     }
 
 
@@ -0,0 +1,30 @@
+-- stockhistory ids move from IDENTITY to STOCKHISTORY_SEQ so the tick journal's inserts can be
+-- JDBC-batched. Run once against an existing Oracle schema before starting the release that maps
+-- StockHistory to the sequence; ddl-auto=update neither drops the identity nor moves the sequence
+-- past the existing ids. Safe to re-run.
+DECLARE
+    next_id   NUMBER;
+    seq_count NUMBER;
+BEGIN
+    BEGIN
+        EXECUTE IMMEDIATE 'ALTER TABLE stockhistory MODIFY (id DROP IDENTITY)';
+    EXCEPTION
+        WHEN OTHERS THEN
+            -- ORA-30673: the column is not an identity column (already migrated)
+            IF SQLCODE != -30673 THEN
+                RAISE;
+            END IF;
+    END;
+
+    -- Hibernate's pooled optimizer (allocationSize = 50) treats each sequence value as the top of
+    -- a block of 50 ids, so the first value must be MAX(id) + 50 for the first block to start at
+    -- MAX(id) + 1, and INCREMENT BY must equal the allocation size.
+    SELECT NVL(MAX(id), 0) + 50 INTO next_id FROM stockhistory;
+
+    SELECT COUNT(*) INTO seq_count FROM user_sequences WHERE sequence_name = 'STOCKHISTORY_SEQ';
+    IF seq_count > 0 THEN
+        EXECUTE IMMEDIATE 'DROP SEQUENCE STOCKHISTORY_SEQ';
+    END IF;
+    EXECUTE IMMEDIATE 'CREATE SEQUENCE STOCKHISTORY_SEQ START WITH ' || next_id || ' INCREMENT BY 50';
+END;
+/
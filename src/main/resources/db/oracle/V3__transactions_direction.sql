@@ -0,0 +1,22 @@
+-- transactions (Transfers) get an explicit direction column that the transfer totals aggregate
+-- on, instead of matching the 'Sent to ' / 'Received from ' recipient text. Run once against an
+-- existing Oracle schema before starting the release that maps Transfers.direction, so rows
+-- written before it are classified before the totals backfill reads them. Safe to re-run.
+BEGIN
+    BEGIN
+        EXECUTE IMMEDIATE 'ALTER TABLE transactions ADD (direction VARCHAR2(8 CHAR))';
+    EXCEPTION
+        WHEN OTHERS THEN
+            -- ORA-01430: the column already exists (added by ddl-auto or an earlier run)
+            IF SQLCODE != -1430 THEN
+                RAISE;
+            END IF;
+    END;
+
+    EXECUTE IMMEDIATE 'UPDATE transactions SET direction = ''SENT'' '
+        || 'WHERE direction IS NULL AND recipient LIKE ''Sent to %''';
+    EXECUTE IMMEDIATE 'UPDATE transactions SET direction = ''RECEIVED'' '
+        || 'WHERE direction IS NULL AND recipient LIKE ''Received from %''';
+    COMMIT;
+END;
+/
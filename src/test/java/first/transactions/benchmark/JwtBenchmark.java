@@ -0,0 +1,58 @@
+package first.transactions.benchmark;
+
+import first.transactions.jwt.JwtUtil;
+import first.transactions.jwt.VerifiedTokenCache;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issue and verification, and the verified-token cache hit that JwtFilter takes
+ * on repeat requests.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private JwtUtil jwtUtil;
+    private VerifiedTokenCache tokenCache;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        tokenCache = new VerifiedTokenCache(10_000, 300_000);
+        token = jwtUtil.generateToken("bench-user", "INVESTOR");
+
+        Authentication authentication = new UsernamePasswordAuthenticationToken("bench-user", null, Collections.emptyList());
+        tokenCache.put(token, authentication, System.currentTimeMillis() + 3_600_000);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("bench-user", "INVESTOR");
+    }
+
+    @Benchmark
+    public Claims parseToken() {
+        return jwtUtil.parseToken(token);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtil.validateToken(token, "bench-user");
+    }
+
+    @Benchmark
+    public Authentication cachedToken() {
+        return tokenCache.get(token);
+    }
+}
@@ -0,0 +1,71 @@
+package first.transactions.benchmark;
+
+import first.transactions.service.RankTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leaderboard tree operations over a large population of portfolios - no Spring context.
+ * revalue is what one portfolio revaluation costs per metric; sortAll is the client-side
+ * ranking the leaderboard replaces (sorting every portfolio's value).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LeaderboardBenchmark {
+
+    @Param({"100000"})
+    private int users;
+
+    private RankTree tree;
+    private double[] values;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tree = new RankTree();
+        values = new double[users];
+        random = new SplittableRandom(42);
+        for (int userId = 0; userId < users; userId++) {
+            values[userId] = random.nextDouble(-10_000, 10_000);
+            tree.insert(values[userId], userId);
+        }
+    }
+
+    @Benchmark
+    public int revalue() {
+        int userId = random.nextInt(users);
+        tree.remove(values[userId], userId);
+        values[userId] += random.nextDouble(-50, 50);
+        tree.insert(values[userId], userId);
+        return tree.size();
+    }
+
+    @Benchmark
+    public long rank() {
+        int userId = random.nextInt(users);
+        return tree.rank(values[userId], userId);
+    }
+
+    @Benchmark
+    public List<Long> top10() {
+        List<Long> out = new ArrayList<>(10);
+        tree.collect(0, 10, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] sortAll() {
+        double[] copy = values.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
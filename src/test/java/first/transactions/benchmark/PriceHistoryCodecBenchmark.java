@@ -0,0 +1,61 @@
+package first.transactions.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import first.transactions.config.PriceHistoryCodec;
+import first.transactions.model.StockHistory;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing a bulk price history response: Jackson JSON (the default) against the
+ * application/x-price-history binary encoding. Prints the encoded sizes on setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PriceHistoryCodecBenchmark {
+
+    @Param({"10000"})
+    private int points;
+
+    private List<StockHistory> history;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = new ObjectMapper().findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        history = new ArrayList<>(points);
+        LocalDateTime time = LocalDateTime.of(2025, 3, 14, 9, 30);
+        double price = 187.25;
+        for (long i = 0; i < points; i++) {
+            StockHistory point = new StockHistory();
+            point.setId(i);
+            point.setTickerSymbol("AAPL");
+            point.setPriceDate(time);
+            point.setStockPrice(price);
+            history.add(point);
+            time = time.plusNanos((37 + i % 400) * 1_000_000L);
+            price = Math.round((price + (i % 7 - 3) * 0.0137) * 10_000) / 10_000.0;
+        }
+        System.out.println("json bytes=" + json().length + " binary bytes=" + binary().length);
+    }
+
+    @Benchmark
+    public byte[] json() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(history);
+    }
+
+    @Benchmark
+    public byte[] binary() {
+        return PriceHistoryCodec.encode("AAPL", history);
+    }
+}
@@ -0,0 +1,56 @@
+package first.transactions.benchmark;
+
+import first.transactions.model.Investment;
+import first.transactions.service.PortfolioService;
+import first.transactions.service.StockPriceService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory trade pricing and portfolio aggregation - no Spring context, no database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PricingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int holdings;
+
+    private List<Investment> investments;
+    private double price = 100.0;
+    private double money = 2500.0;
+
+    @Setup
+    public void setUp() {
+        investments = new ArrayList<>(holdings);
+        for (int i = 0; i < holdings; i++) {
+            Investment investment = new Investment();
+            investment.setUserId(1L);
+            investment.setTickerSymbol("T" + (i % 50));
+            investment.setSharesPurchased(10.0 + i);
+            investment.setAmountUsd(1000.0 + i);
+            investments.add(investment);
+        }
+    }
+
+    @Benchmark
+    public double updateStockPrice() {
+        // Alternate buys and sells so the price stays in range across iterations
+        money = -money;
+        price = StockPriceService.calculateNewPrice(price, 1_000_000L, money);
+        return price;
+    }
+
+    @Benchmark
+    public Map<String, PortfolioService.InvestmentSummary> recalculatePortfolioAggregation() {
+        return PortfolioService.groupByTicker(investments);
+    }
+}
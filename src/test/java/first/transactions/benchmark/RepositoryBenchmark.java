@@ -0,0 +1,117 @@
+package first.transactions.benchmark;
+
+import first.transactions.TransactionsApplication;
+import first.transactions.model.Company;
+import first.transactions.model.Investment;
+import first.transactions.model.Portfolio;
+import first.transactions.model.User;
+import first.transactions.model.UserRole;
+import first.transactions.repository.CompanyRepository;
+import first.transactions.repository.InvestmentRepository;
+import first.transactions.repository.UserRepository;
+import first.transactions.service.CompanyCache;
+import first.transactions.service.PortfolioService;
+import first.transactions.service.StockPriceService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Same hot paths as PricingBenchmark, but through the services and repositories on
+ * the embedded H2 database from src/test/resources/application.properties.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositoryBenchmark {
+
+    private static final int USERS = 200;
+    private static final int TICKERS = 20;
+
+    @Param({"5", "20"})
+    private int holdingsPerUser;
+
+    private ConfigurableApplicationContext context;
+    private PortfolioService portfolioService;
+    private StockPriceService stockPriceService;
+    private InvestmentRepository investmentRepository;
+    private Company company;
+    private double money = 2500.0;
+    private final List<Long> userIds = new ArrayList<>();
+    private int nextUser;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(TransactionsApplication.class).run();
+        portfolioService = context.getBean(PortfolioService.class);
+        stockPriceService = context.getBean(StockPriceService.class);
+        investmentRepository = context.getBean(InvestmentRepository.class);
+
+        CompanyRepository companyRepository = context.getBean(CompanyRepository.class);
+        for (int t = 0; t < TICKERS; t++) {
+            Company c = new Company();
+            c.setTickerSymbol("T" + t);
+            c.setName("Company " + t);
+            c.setLastStockPrice(100.0);
+            c.setTotalShares(1_000_000L);
+            c.setAvailableShares(1_000_000L);
+            companyRepository.save(c);
+        }
+
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        List<Investment> investments = new ArrayList<>();
+        for (int u = 0; u < USERS; u++) {
+            User user = new User();
+            user.setUsername("bench" + u);
+            user.setEmail("bench" + u + "@example.com");
+            user.setPassword("bench-password");
+            user.setBalance(100_000.0);
+            user.setRole(UserRole.INVESTOR);
+            user = userRepository.save(user);
+            userIds.add(user.getId());
+
+            for (int h = 0; h < holdingsPerUser; h++) {
+                Investment investment = new Investment();
+                investment.setUserId(user.getId());
+                investment.setTickerSymbol("T" + ((u + h) % TICKERS));
+                investment.setSharesPurchased(10.0);
+                investment.setAmountUsd(1000.0);
+                investments.add(investment);
+            }
+        }
+        investmentRepository.saveAll(investments);
+
+        company = context.getBean(CompanyCache.class).get("T0");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Portfolio recalculatePortfolio() {
+        nextUser = (nextUser + 1) % USERS;
+        return portfolioService.recalculatePortfolio("bench" + nextUser);
+    }
+
+    @Benchmark
+    public List<Investment> findInvestmentsByUser() {
+        nextUser = (nextUser + 1) % USERS;
+        return investmentRepository.findByUserId(userIds.get(nextUser));
+    }
+
+    @Benchmark
+    public double updateStockPrice() {
+        money = -money;
+        stockPriceService.updateStockPrice(company, money);
+        return company.getLastStockPrice();
+    }
+}
@@ -0,0 +1,95 @@
+package first.transactions.benchmark;
+
+import first.transactions.service.ChartDownsampler;
+import first.transactions.service.TickStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Range reads from the memory-mapped tick store over several million ticks of one
+ * ticker (one tick every 100ms, spanning several segments) - no Spring context.
+ * downsampleAll is what a chart request with maxPoints=800 costs over the whole series.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TickStoreBenchmark {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Param({"5000000"})
+    private int ticks;
+
+    private Path directory;
+    private TickStore store;
+    private int nextHour;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("tick-store-bench");
+        store = new TickStore(true, directory.toString(), 1 << 20);
+        double price = 100.0;
+        for (int i = 0; i < ticks; i++) {
+            price = Math.max(1.0, price + ((i * 7919) % 21 - 10) * 0.01);
+            store.append("BENCH", START.plusNanos(i * 100_000_000L), price);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int findOneHour() {
+        // Binary search only: 36,000 ticks somewhere in the series
+        nextHour = (nextHour + 1) % 100;
+        LocalDateTime from = START.plusHours(nextHour);
+        return store.range("BENCH", from, from.plusHours(1)).size();
+    }
+
+    @Benchmark
+    public double scanOneHour() {
+        nextHour = (nextHour + 1) % 100;
+        LocalDateTime from = START.plusHours(nextHour);
+        TickStore.TickRange range = store.range("BENCH", from, from.plusHours(1));
+        double sum = 0;
+        for (int i = 0; i < range.size(); i++) {
+            sum += range.priceAt(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double scanAll() {
+        TickStore.TickRange range = store.range("BENCH", null, null);
+        double max = 0;
+        for (int i = 0; i < range.size(); i++) {
+            max = Math.max(max, range.priceAt(i));
+        }
+        return max;
+    }
+
+    @Benchmark
+    public int[] downsampleAll() {
+        TickStore.TickRange range = store.range("BENCH", null, null);
+        return ChartDownsampler.lttb(new ChartDownsampler.Series() {
+            public int size() { return range.size(); }
+            public long timeAt(int index) { return range.millisAt(index); }
+            public double valueAt(int index) { return range.priceAt(index); }
+        }, 800);
+    }
+}
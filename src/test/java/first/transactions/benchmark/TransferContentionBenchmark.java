@@ -0,0 +1,97 @@
+package first.transactions.benchmark;
+
+import first.transactions.TransactionsApplication;
+import first.transactions.dto.TransferRequest;
+import first.transactions.model.User;
+import first.transactions.model.UserRole;
+import first.transactions.repository.UserRepository;
+import first.transactions.service.TransferService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent peer-to-peer transfer throughput on the embedded H2 database, with a few
+ * "celebrity" accounts that most transfers go to or come from. Paying a celebrity only
+ * locks the payer; a celebrity paying out serializes on its own account lock.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransferContentionBenchmark {
+
+    private static final int USERS = 500;
+
+    @Param({"1", "4"})
+    private int celebrities;
+
+    private ConfigurableApplicationContext context;
+    private TransferService transferService;
+    private final Long[] userIds = new Long[USERS];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(TransactionsApplication.class).run();
+        transferService = context.getBean(TransferService.class);
+
+        // The first accounts are the celebrities
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        for (int u = 0; u < USERS; u++) {
+            User user = new User();
+            user.setUsername("p2p" + u);
+            user.setEmail("p2p" + u + "@example.com");
+            user.setPassword("bench-password");
+            user.setBalance(u < celebrities ? 1_000_000_000.0 : 1_000_000.0);
+            user.setRole(UserRole.INVESTOR);
+            userIds[u] = userRepository.save(user).getId();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean payCelebrity() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return send(celebrities + random.nextInt(USERS - celebrities), random.nextInt(celebrities));
+    }
+
+    @Benchmark
+    public boolean celebrityPays() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return send(random.nextInt(celebrities), celebrities + random.nextInt(USERS - celebrities));
+    }
+
+    @Benchmark
+    public boolean mixed() {
+        // Half the transfers touch a celebrity in either direction, the rest are between random users
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int celebrity = random.nextInt(celebrities);
+        int other = celebrities + random.nextInt(USERS - celebrities);
+        switch (random.nextInt(4)) {
+            case 0:
+                return send(other, celebrity);
+            case 1:
+                return send(celebrity, other);
+            default:
+                int peer = celebrities + random.nextInt(USERS - celebrities);
+                return peer != other && send(other, peer);
+        }
+    }
+
+    private boolean send(int from, int to) {
+        TransferRequest request = new TransferRequest();
+        request.setTargetUserID(userIds[to]);
+        request.setAmount(0.01);
+        return transferService.sendToUser(request, "p2p" + from).isSuccess();
+    }
+}
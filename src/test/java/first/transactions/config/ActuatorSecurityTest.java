@@ -0,0 +1,58 @@
+package first.transactions.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.http.HttpStatus;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * The Prometheus scrape needs no token on the management port only, and the shipped
+ * configuration actually has a separate management port.
+ */
+@AutoConfigureObservability
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "management.server.port=0",
+        "management.endpoints.web.exposure.include=health,info,metrics,prometheus"
+})
+class ActuatorSecurityTest {
+
+    @Autowired
+    private TestRestTemplate rest;
+    @LocalServerPort
+    private int serverPort;
+    @LocalManagementPort
+    private int managementPort;
+
+    @Test
+    void prometheusIsOpenOnlyOnTheManagementPort() {
+        assertEquals(HttpStatus.OK, status(managementPort, "/actuator/prometheus"));
+        assertEquals(HttpStatus.FORBIDDEN, status(serverPort, "/actuator/prometheus"));
+        assertEquals(HttpStatus.FORBIDDEN, status(managementPort, "/actuator/metrics"));
+        assertEquals(HttpStatus.OK, status(managementPort, "/actuator/health"));
+    }
+
+    @Test
+    void shippedManagementPortIsNotTheServerPort() throws Exception {
+        // The test classpath shadows the shipped file, so read it from the source tree
+        Properties shipped = PropertiesLoaderUtils.loadProperties(
+                new FileSystemResource("src/main/resources/application.properties"));
+        assertNotNull(shipped.getProperty("management.server.port"));
+        assertNotEquals(shipped.getProperty("server.port"), shipped.getProperty("management.server.port"));
+    }
+
+    private HttpStatus status(int port, String path) {
+        return HttpStatus.valueOf(rest.getForEntity("http://localhost:" + port + path, String.class).getStatusCode().value());
+    }
+}
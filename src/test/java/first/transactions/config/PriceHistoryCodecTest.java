@@ -0,0 +1,74 @@
+package first.transactions.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import first.transactions.model.StockHistory;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceHistoryCodecTest {
+
+    private static List<StockHistory> history(int points) {
+        List<StockHistory> history = new ArrayList<>(points);
+        LocalDateTime time = LocalDateTime.of(2025, 3, 14, 9, 30, 0, 123_000_000);
+        double price = 187.25;
+        for (long i = 0; i < points; i++) {
+            StockHistory point = new StockHistory();
+            point.setId(1000 + i);
+            point.setTickerSymbol("AAPL");
+            point.setPriceDate(time);
+            point.setStockPrice(price);
+            history.add(point);
+            time = time.plusNanos((37 + i % 400) * 1_000_000L);
+            price = Math.round((price + (i % 7 - 3) * 0.0137) * 10_000) / 10_000.0;
+        }
+        return history;
+    }
+
+    @Test
+    void roundTripKeepsTickerTimesAndPrices() {
+        List<StockHistory> original = history(5_000);
+        // Out-of-order points and a price drop exercise negative deltas
+        original.add(1, original.remove(3));
+
+        List<StockHistory> decoded = PriceHistoryCodec.decode(PriceHistoryCodec.encode("AAPL", original));
+
+        assertEquals(original.size(), decoded.size());
+        for (int i = 0; i < original.size(); i++) {
+            assertEquals("AAPL", decoded.get(i).getTickerSymbol());
+            assertEquals(original.get(i).getPriceDate(), decoded.get(i).getPriceDate());
+            assertEquals(original.get(i).getStockPrice(), decoded.get(i).getStockPrice(), 1e-9);
+            assertNull(decoded.get(i).getId());
+        }
+    }
+
+    @Test
+    void emptyHistoryRoundTrips() {
+        assertTrue(PriceHistoryCodec.decode(PriceHistoryCodec.encode("MSFT", List.of())).isEmpty());
+    }
+
+    @Test
+    void rejectsForeignData() {
+        assertThrows(IllegalArgumentException.class, () -> PriceHistoryCodec.decode(new byte[] {1, 2, 3, 4, 5}));
+        byte[] encoded = PriceHistoryCodec.encode("AAPL", history(10));
+        byte[] truncated = java.util.Arrays.copyOf(encoded, encoded.length - 3);
+        assertThrows(IllegalArgumentException.class, () -> PriceHistoryCodec.decode(truncated));
+    }
+
+    @Test
+    void isAtLeastFiveTimesSmallerThanJson() throws Exception {
+        List<StockHistory> history = history(10_000);
+        ObjectMapper json = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        int jsonBytes = json.writeValueAsBytes(history).length;
+        int binaryBytes = PriceHistoryCodec.encode("AAPL", history).length;
+
+        assertTrue(jsonBytes >= 5 * binaryBytes, "json=" + jsonBytes + " binary=" + binaryBytes);
+    }
+}
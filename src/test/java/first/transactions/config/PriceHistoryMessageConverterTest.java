@@ -0,0 +1,70 @@
+package first.transactions.config;
+
+import first.transactions.model.StockHistory;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The binary converter only claims bodies declared as stock history lists.
+ */
+class PriceHistoryMessageConverterTest {
+
+    private final MockMvc mvc = MockMvcBuilders.standaloneSetup(new Endpoints())
+            .setMessageConverters(new MappingJackson2HttpMessageConverter(), new PriceHistoryMessageConverter())
+            .build();
+
+    @Test
+    void historyIsWrittenBinaryWhenAccepted() throws Exception {
+        byte[] body = mvc.perform(get("/history").accept(PriceHistoryCodec.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(PriceHistoryCodec.MEDIA_TYPE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<StockHistory> decoded = PriceHistoryCodec.decode(body);
+        assertEquals(1, decoded.size());
+        assertEquals(12.5, decoded.get(0).getStockPrice(), 1e-9);
+    }
+
+    @Test
+    void otherListsAreNotAcceptable() throws Exception {
+        mvc.perform(get("/names").accept(PriceHistoryCodec.MEDIA_TYPE)).andExpect(status().isNotAcceptable());
+        mvc.perform(get("/wildcard").accept(PriceHistoryCodec.MEDIA_TYPE)).andExpect(status().isNotAcceptable());
+        mvc.perform(get("/names")).andExpect(status().isOk());
+    }
+
+    @RestController
+    static class Endpoints {
+
+        @GetMapping("/history")
+        ResponseEntity<List<StockHistory>> history() {
+            StockHistory point = new StockHistory();
+            point.setTickerSymbol("PHMC");
+            point.setPriceDate(LocalDateTime.of(2026, 1, 5, 9, 30));
+            point.setStockPrice(12.5);
+            return ResponseEntity.ok(List.of(point));
+        }
+
+        @GetMapping("/names")
+        List<String> names() {
+            return List.of("a", "b");
+        }
+
+        @GetMapping("/wildcard")
+        ResponseEntity<?> wildcard() {
+            return ResponseEntity.ok(List.of("a"));
+        }
+    }
+}
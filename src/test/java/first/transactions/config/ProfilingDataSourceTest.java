@@ -0,0 +1,94 @@
+package first.transactions.config;
+
+import first.transactions.service.SqlProfiler;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Statements, their parameters and their fetches reach the profiler through the
+ * delegating wrappers, with string parameters masked unless configured otherwise.
+ */
+class ProfilingDataSourceTest {
+
+    private JdbcDataSource target;
+
+    @BeforeEach
+    void createTable() throws Exception {
+        target = new JdbcDataSource();
+        target.setURL("jdbc:h2:mem:profiling" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        try (Connection connection = target.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE people (id INT PRIMARY KEY, email VARCHAR(100))");
+            statement.execute("INSERT INTO people VALUES (1, 'a@example.com'), (2, 'b@example.com'), (3, 'c@example.com')");
+        }
+    }
+
+    @Test
+    void preparedQueryIsReportedWithMaskedStringsAndItsRows() throws Exception {
+        SqlProfiler profiler = profiler(true);
+        SqlProfiler.RequestProfile profile = profiler.begin();
+        try (Connection connection = new ProfilingDataSource(target, profiler).getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT id FROM people WHERE email <> ? AND id > ?")) {
+            statement.setString(1, "b@example.com");
+            statement.setInt(2, 0);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    rows.getInt(1);
+                }
+            }
+            assertInstanceOf(org.h2.jdbc.JdbcConnection.class, connection.unwrap(org.h2.jdbc.JdbcConnection.class));
+        }
+        profiler.end(profile, "GET /people");
+
+        SqlProfiler.SlowQuery query = profiler.getSlowQueries().get(0);
+        assertEquals("SELECT id FROM people WHERE email <> ? AND id > ?", query.getSql());
+        assertEquals(List.of("*** (13 chars)", "0"), query.getParameters());
+        assertEquals(2, query.getRowsFetched());
+        SqlProfiler.EndpointStats stats = profiler.getEndpointStats().get(0);
+        assertEquals("GET /people", stats.getEndpoint());
+        assertEquals(1, stats.getStatements());
+        assertEquals(2, stats.getRowsFetched());
+    }
+
+    @Test
+    void plainStatementsAndUnmaskedParameters() throws Exception {
+        SqlProfiler profiler = profiler(false);
+        try (Connection connection = new ProfilingDataSource(target, profiler).getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement("UPDATE people SET email = ? WHERE id = ?")) {
+                statement.setString(1, "new@example.com");
+                statement.setNull(2, java.sql.Types.INTEGER);
+                statement.executeUpdate();
+            }
+            try (Statement statement = connection.createStatement()) {
+                assertTrue(statement.execute("SELECT COUNT(*) FROM people WHERE id = 3"));
+                try (ResultSet rows = statement.getResultSet()) {
+                    assertTrue(rows.next());
+                    assertFalse(rows.next());
+                }
+            }
+        }
+
+        List<SqlProfiler.SlowQuery> queries = profiler.getSlowQueries();
+        assertEquals("SELECT COUNT(*) FROM people WHERE id = 3", queries.get(0).getSql());
+        assertEquals(1, queries.get(0).getRowsFetched());
+        assertEquals(List.of("new@example.com", "null"), queries.get(1).getParameters());
+        // Outside a request the statements are charged to the background totals
+        assertEquals(2, profiler.getEndpointStats().get(0).getStatements());
+    }
+
+    // Slow threshold 0, so every execution reaches the slow log
+    private static SqlProfiler profiler(boolean maskStrings) {
+        return new SqlProfiler(true, 0, 10, 10, 500, maskStrings);
+    }
+}
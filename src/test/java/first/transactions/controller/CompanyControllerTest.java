@@ -0,0 +1,64 @@
+package first.transactions.controller;
+
+import first.transactions.service.MarketDataVersions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * The company list answers a matching If-None-Match with 304 until a company changes.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CompanyControllerTest {
+
+    @Autowired
+    private TestRestTemplate rest;
+    @Autowired
+    private MarketDataVersions versions;
+
+    @Test
+    void matchingEtagIsNotModifiedUntilTheTableChanges() {
+        ResponseEntity<String> first = getCompanies(null);
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+
+        ResponseEntity<String> revalidated = getCompanies(etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, revalidated.getStatusCode());
+        assertNull(revalidated.getBody());
+        assertEquals(etag, revalidated.getHeaders().getETag());
+
+        versions.bumpTable();
+        ResponseEntity<String> changed = getCompanies(etag);
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertNotNull(changed.getBody());
+        assertNotEquals(etag, changed.getHeaders().getETag());
+    }
+
+    @Test
+    void unknownEtagGetsTheFullList() {
+        ResponseEntity<String> response = getCompanies("\"stale-1\"");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+    }
+
+    private ResponseEntity<String> getCompanies(String ifNoneMatch) {
+        HttpHeaders headers = new HttpHeaders();
+        if (ifNoneMatch != null) {
+            headers.setIfNoneMatch(ifNoneMatch);
+        }
+        return rest.exchange("/companies", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+}
@@ -0,0 +1,184 @@
+package first.transactions.controller;
+
+import first.transactions.model.Company;
+import first.transactions.model.User;
+import first.transactions.model.UserRole;
+import first.transactions.repository.CompanyRepository;
+import first.transactions.repository.UserRepository;
+import first.transactions.service.PortfolioService;
+import first.transactions.service.SqlProfiler;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Number of SQL statements each endpoint issues, as the SQL profiler charges them to the
+ * request: its own thread plus the sequencer commands it hands off (a JDBC batch counts
+ * once). Scheduled writers and other requests are not counted; a higher count means a
+ * fetch plan regressed (lazy loads, repeated lookups).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class SqlStatementCountTest {
+
+    private static final String PASSWORD = "password123";
+
+    @Autowired
+    private TestRestTemplate rest;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CompanyRepository companyRepository;
+    @Autowired
+    private PortfolioService portfolioService;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private SqlProfiler profiler;
+
+    @Test
+    void userProfile() {
+        HttpHeaders auth = investorWithTransfers("profileuser");
+        // Profile projection, then checkpoint, opening balance and ledger tail
+        assertStatements(4, "GET /users/user_profile", () -> get("/users/user_profile", auth));
+    }
+
+    @Test
+    void myPortfolio() {
+        HttpHeaders auth = investorWithTransfers("portfoliouser");
+        get("/portfolio/my-portfolio", auth);
+        // Portfolio joined with its user; the user's transfers are never loaded
+        assertStatements(1, "GET /portfolio/my-portfolio", () -> get("/portfolio/my-portfolio", auth));
+    }
+
+    @Test
+    void buy() {
+        HttpHeaders auth = investorWithTransfers("buyeruser");
+        createCompany("CNTB");
+        get("/portfolio/my-portfolio", auth);
+        // Warm the company cache and the mark-to-market holder index
+        post("/investments/invest/buy?ticker=CNTB&amountUsd=10", auth);
+        // User, balance (3), the ticker's investments, holders' portfolios, ledger entries (one batch),
+        // revaluation flush (2), position, portfolio, position flush, investments, portfolio update
+        assertStatements(14, "POST /investments/invest/buy", () -> post("/investments/invest/buy?ticker=CNTB&amountUsd=10", auth));
+    }
+
+    @Test
+    void recalculateAllPortfoliosDoesNotGrowWithUsers() {
+        for (int i = 0; i < 3; i++) {
+            investorWithTransfers("recalcuser" + i);
+        }
+        portfolioService.recalculateAllPortfolios();
+        long few = countStatements("recalculateAllPortfolios", this::recalculateAllPortfolios);
+        for (int i = 3; i < 12; i++) {
+            investorWithTransfers("recalcuser" + i);
+        }
+        portfolioService.recalculateAllPortfolios();
+        long many = countStatements("recalculateAllPortfolios", this::recalculateAllPortfolios);
+        assertTrue(many - few <= 1, "recalculateAllPortfolios issued " + few + " then " + many + " statements");
+    }
+
+    // Investor with a deposit, so the user has rows in the transactions collection
+    private HttpHeaders investorWithTransfers(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword(passwordEncoder.encode(PASSWORD));
+        user.setRole(UserRole.INVESTOR);
+        userRepository.save(user);
+
+        Map<?, ?> login = exchange("/auth/login", HttpMethod.POST,
+                new HttpEntity<>(Map.of("username", username, "password", PASSWORD)), Map.class).getBody();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth((String) login.get("token"));
+        HttpHeaders json = new HttpHeaders(headers);
+        json.set(HttpHeaders.CONTENT_TYPE, "application/json");
+        assertEquals(200, exchange("/users/add_balance", HttpMethod.POST, new HttpEntity<>("1000.0", json), String.class)
+                .getStatusCode().value());
+        return headers;
+    }
+
+    private void createCompany(String ticker) {
+        Company company = new Company();
+        company.setTickerSymbol(ticker);
+        company.setName(ticker);
+        company.setLastStockPrice(10.0);
+        company.setTotalShares(1_000_000L);
+        company.setAvailableShares(1_000_000L);
+        companyRepository.save(company);
+    }
+
+    private ResponseEntity<String> get(String path, HttpHeaders auth) {
+        ResponseEntity<String> response = exchange(path, HttpMethod.GET, new HttpEntity<>(auth), String.class);
+        assertEquals(200, response.getStatusCode().value(), response.getBody());
+        return response;
+    }
+
+    private ResponseEntity<String> post(String path, HttpHeaders auth) {
+        ResponseEntity<String> response = exchange(path, HttpMethod.POST, new HttpEntity<>(auth), String.class);
+        assertEquals(200, response.getStatusCode().value(), response.getBody());
+        return response;
+    }
+
+    // Profiled the way the request filter profiles a request, so only this thread's statements count
+    private void recalculateAllPortfolios() {
+        SqlProfiler.RequestProfile profile = profiler.begin();
+        try {
+            portfolioService.recalculateAllPortfolios();
+        } finally {
+            profiler.end(profile, "recalculateAllPortfolios");
+        }
+    }
+
+    private void assertStatements(long expected, String endpoint, Runnable call) {
+        long actual = countStatements(endpoint, call);
+        assertEquals(expected, actual, "SQL statements");
+    }
+
+    private long countStatements(String endpoint, Runnable call) {
+        long requests = total(endpoint, SqlProfiler.EndpointStats::getRequests);
+        long before = total(endpoint, SqlProfiler.EndpointStats::getStatements);
+        call.run();
+        assertEquals(requests + 1, total(endpoint, SqlProfiler.EndpointStats::getRequests), endpoint + " requests");
+        return total(endpoint, SqlProfiler.EndpointStats::getStatements) - before;
+    }
+
+    // Every request of the test, warm-ups included, so none is still being folded in when a baseline is read
+    private <T> ResponseEntity<T> exchange(String path, HttpMethod method, HttpEntity<?> entity, Class<T> type) {
+        long requests = requests();
+        ResponseEntity<T> response = rest.exchange(path, method, entity, type);
+        // The profiling filter folds a request in after its response has been written
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (requests() == requests && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(requests + 1, requests(), method + " " + path + " was not profiled");
+        return response;
+    }
+
+    private long requests() {
+        return profiler.getEndpointStats().stream()
+                .filter(stats -> !stats.getEndpoint().equals(SqlProfiler.BACKGROUND))
+                .mapToLong(SqlProfiler.EndpointStats::getRequests)
+                .sum();
+    }
+
+    private long total(String endpoint, ToLongFunction<SqlProfiler.EndpointStats> value) {
+        return profiler.getEndpointStats().stream()
+                .filter(stats -> stats.getEndpoint().equals(endpoint))
+                .mapToLong(value)
+                .sum();
+    }
+}
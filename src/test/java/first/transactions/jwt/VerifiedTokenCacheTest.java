@@ -0,0 +1,124 @@
+package first.transactions.jwt;
+
+import first.transactions.service.TradingMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Cached tokens expire with the token or the TTL, whichever comes first, and a role
+ * change reaches requests once the old entry is gone.
+ */
+class VerifiedTokenCacheTest {
+
+    private final JwtUtil jwtUtil = new JwtUtil();
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void entryIsEvictedWhenTheTokenExpires() throws InterruptedException {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 60_000);
+        Authentication authentication = authentication("INVESTOR");
+
+        cache.put("short", authentication, System.currentTimeMillis() + 50);
+        cache.put("expired", authentication, System.currentTimeMillis() - 1);
+        assertSame(authentication, cache.get("short"));
+        assertNull(cache.get("expired"));
+
+        Thread.sleep(80);
+        assertNull(cache.get("short"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void ttlCapsLongLivedTokens() throws InterruptedException {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 50);
+
+        cache.put("token", authentication("INVESTOR"), System.currentTimeMillis() + 3_600_000);
+        Thread.sleep(80);
+
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void fullCacheMakesRoomOnlyFromExpiredEntries() throws InterruptedException {
+        VerifiedTokenCache cache = new VerifiedTokenCache(2, 60_000);
+        cache.put("a", authentication("INVESTOR"), System.currentTimeMillis() + 3_600_000);
+        cache.put("b", authentication("INVESTOR"), System.currentTimeMillis() + 50);
+        Thread.sleep(80);
+
+        cache.put("c", authentication("INVESTOR"), System.currentTimeMillis() + 3_600_000);
+        assertNotNull(cache.get("c"));
+        assertEquals(2, cache.size());
+
+        cache.put("d", authentication("INVESTOR"), System.currentTimeMillis() + 3_600_000);
+        assertNull(cache.get("d"), "live entries are never pushed out");
+        assertNotNull(cache.get("a"));
+    }
+
+    @Test
+    void roleChangeReachesLegacyTokensOnceTheirEntryExpires() throws Exception {
+        String[] role = {"INVESTOR"};
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 100);
+        JwtFilter filter = new JwtFilter(jwtUtil,
+                username -> User.withUsername(username).password("").roles(role[0]).build(),
+                cache, new TradingMetrics(new SimpleMeterRegistry()));
+        // Issued before tokens carried the role, so the role comes from the user
+        String legacy = jwtUtil.generateToken("legacy");
+
+        assertEquals("ROLE_INVESTOR", authorityOf(filter, legacy));
+        role[0] = "SUPER_ADMIN";
+        assertEquals("ROLE_INVESTOR", authorityOf(filter, legacy), "served from the cache");
+
+        Thread.sleep(150);
+        assertEquals("ROLE_SUPER_ADMIN", authorityOf(filter, legacy));
+    }
+
+    @Test
+    void tokenReissuedWithANewRoleIsNotServedTheOldEntry() throws Exception {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 60_000);
+        JwtFilter filter = new JwtFilter(jwtUtil,
+                username -> { throw new AssertionError("role tokens never load the user"); },
+                cache, new TradingMetrics(new SimpleMeterRegistry()));
+        String before = jwtUtil.generateToken("promoted", "INVESTOR");
+        String after = jwtUtil.generateToken("promoted", "SUPER_ADMIN");
+
+        assertEquals("ROLE_INVESTOR", authorityOf(filter, before));
+        assertEquals("ROLE_SUPER_ADMIN", authorityOf(filter, after));
+        assertEquals("ROLE_INVESTOR", authorityOf(filter, before));
+        assertEquals(2, cache.size());
+    }
+
+    private static String authorityOf(JwtFilter filter, String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/user_profile");
+        request.setServletPath("/users/user_profile");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication.getAuthorities().iterator().next().getAuthority();
+    }
+
+    private static Authentication authentication(String role) {
+        List<GrantedAuthority> authorities = List.of(() -> "ROLE_" + role);
+        return new UsernamePasswordAuthenticationToken("user", null, authorities);
+    }
+}
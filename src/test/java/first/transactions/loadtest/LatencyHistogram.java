@@ -0,0 +1,77 @@
+package first.transactions.loadtest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear latency histogram in microseconds.
+ * Values below 64us are exact; above that each power of two is split into 32
+ * sub-buckets, so any reported percentile is within about 3% of the true value.
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR_LIMIT = 64;
+    private static final int SUB_BUCKETS = 32;
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int OCTAVES = 40;        // up to ~2^45us, far beyond any timeout
+
+    private final AtomicLongArray counts = new AtomicLongArray(LINEAR_LIMIT + OCTAVES * SUB_BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(indexOf(value));
+        total.incrementAndGet();
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return total.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Value at a percentile
+     * @param percentile 0-100, e.g. 99.9
+     * @return Latency in microseconds (bucket midpoint)
+     */
+    public long percentile(double percentile) {
+        long count = total.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(valueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int index = LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (int) ((value >> shift) - SUB_BUCKETS);
+        return Math.min(index, LINEAR_LIMIT + OCTAVES * SUB_BUCKETS - 1);
+    }
+
+    private static long valueOf(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long sub = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        long lower = sub << shift;
+        long upper = ((sub + 1) << shift) - 1;
+        return (lower + upper) / 2;
+    }
+}
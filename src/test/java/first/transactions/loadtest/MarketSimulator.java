@@ -0,0 +1,318 @@
+package first.transactions.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import first.transactions.TransactionsApplication;
+import first.transactions.model.Company;
+import first.transactions.repository.CompanyRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load generator with a synthetic market.
+ *
+ * Starts the app on the embedded H2 database from src/test/resources (or targets a
+ * running server with -Dload.base-url), lists a set of simulated companies, registers
+ * and funds users through the REST API and then drives a weighted mix of buys, sells,
+ * portfolio reads and price history reads. Prints throughput and p50/p99/p999 latency
+ * per endpoint.
+ *
+ * Run: mvn -Ploadtest -DskipTests test-compile exec:java -Dload.users=200 -Dload.duration-seconds=60
+ *
+ * Options (system properties):
+ *   load.base-url          target server; when absent an embedded instance is started
+ *   load.users             users to register (default 100)
+ *   load.concurrency       requests in flight (default 200)
+ *   load.duration-seconds  measured run time (default 30)
+ *   load.tickers           comma separated tickers (default 10 simulated companies)
+ *   load.mix               endpoint weights, e.g. buy:40,sell:20,portfolio:25,history:15
+ */
+public class MarketSimulator {
+
+    private static final String PASSWORD = "load-test-password";
+
+    private final String baseUrl;
+    private final int users;
+    private final int concurrency;
+    private final int durationSeconds;
+    private final List<String> tickers;
+    private final Map<String, Integer> mix;
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+    private long elapsedNanos;
+
+    public MarketSimulator(String baseUrl, int users, int concurrency, int durationSeconds,
+                           List<String> tickers, Map<String, Integer> mix) {
+        this.baseUrl = baseUrl;
+        this.users = users;
+        this.concurrency = concurrency;
+        this.durationSeconds = durationSeconds;
+        this.tickers = tickers;
+        this.mix = mix;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        for (String endpoint : mix.keySet()) {
+            stats.put(endpoint, new EndpointStats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = Integer.getInteger("load.users", 100);
+        int concurrency = Integer.getInteger("load.concurrency", 200);
+        int durationSeconds = Integer.getInteger("load.duration-seconds", 30);
+        Map<String, Integer> mix = parseMix(System.getProperty("load.mix", "buy:40,sell:20,portfolio:25,history:15"));
+
+        String baseUrl = System.getProperty("load.base-url");
+        ConfigurableApplicationContext context = null;
+        List<String> tickers;
+
+        if (baseUrl == null) {
+            context = new SpringApplicationBuilder(TransactionsApplication.class).run();
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            baseUrl = "http://localhost:" + port;
+            tickers = listSimulatedCompanies(context.getBean(CompanyRepository.class), System.getProperty("load.tickers"));
+        } else {
+            String configured = System.getProperty("load.tickers");
+            if (configured == null) {
+                throw new IllegalArgumentException("load.tickers is required with load.base-url");
+            }
+            tickers = List.of(configured.split(","));
+        }
+
+        try {
+            MarketSimulator simulator = new MarketSimulator(baseUrl, users, concurrency, durationSeconds, tickers, mix);
+            List<String> tokens = simulator.registerUsers();
+            simulator.run(tokens);
+            simulator.printReport();
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * Register, log in and fund every simulated user
+     * @return One bearer token per user
+     */
+    public List<String> registerUsers() throws Exception {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+
+        // Registration hashes passwords with BCrypt - do it in parallel
+        ExecutorService executor = newWorkerExecutor(Math.min(users, concurrency));
+        List<Future<String>> futures = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            String username = "sim" + runId + "u" + i;
+            futures.add(executor.submit(() -> registerUser(username)));
+        }
+        executor.shutdown();
+
+        List<String> tokens = new ArrayList<>(users);
+        for (Future<String> future : futures) {
+            tokens.add(future.get());
+        }
+        System.out.printf("Registered and funded %d users against %s%n", users, baseUrl);
+        return tokens;
+    }
+
+    private String registerUser(String username) throws Exception {
+        Map<String, Object> registration = new LinkedHashMap<>();
+        registration.put("username", username);
+        registration.put("password", PASSWORD);
+        registration.put("email", username + "@example.com");
+        expectOk(post("/auth/register", null, objectMapper.writeValueAsString(registration)), "register " + username);
+
+        Map<String, Object> login = new LinkedHashMap<>();
+        login.put("username", username);
+        login.put("password", PASSWORD);
+        HttpResponse<String> loginResponse = post("/auth/login", null, objectMapper.writeValueAsString(login));
+        expectOk(loginResponse, "login " + username);
+        String token = objectMapper.readTree(loginResponse.body()).get("token").asText();
+
+        expectOk(post("/users/add_balance", token, "1000000"), "fund " + username);
+        return token;
+    }
+
+    /**
+     * Drive the configured mix until the duration elapses
+     * @param tokens Bearer tokens of the simulated users
+     */
+    public void run(List<String> tokens) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+        String[] weighted = expandMix();
+
+        ExecutorService executor = newWorkerExecutor(concurrency);
+        long started = System.nanoTime();
+        for (int worker = 0; worker < concurrency; worker++) {
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    String endpoint = weighted[random.nextInt(weighted.length)];
+                    String token = tokens.get(random.nextInt(tokens.size()));
+                    String ticker = tickers.get(random.nextInt(tickers.size()));
+                    call(endpoint, token, ticker, random);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(durationSeconds + 60L, TimeUnit.SECONDS);
+        elapsedNanos = System.nanoTime() - started;
+    }
+
+    public void printReport() {
+        double seconds = elapsedNanos / 1e9;
+        long totalRequests = 0;
+
+        System.out.println();
+        System.out.printf("%-10s %9s %7s %10s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (Map.Entry<String, EndpointStats> entry : stats.entrySet()) {
+            EndpointStats s = entry.getValue();
+            LatencyHistogram h = s.histogram;
+            totalRequests += h.getCount();
+            System.out.printf("%-10s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey(), h.getCount(), s.errors.get(), h.getCount() / seconds,
+                    h.percentile(50) / 1000.0, h.percentile(99) / 1000.0,
+                    h.percentile(99.9) / 1000.0, h.getMax() / 1000.0);
+        }
+        System.out.printf("%nTotal: %d requests in %.1fs (%.1f req/s)%n", totalRequests, seconds, totalRequests / seconds);
+    }
+
+    private void call(String endpoint, String token, String ticker, ThreadLocalRandom random) {
+        EndpointStats endpointStats = stats.get(endpoint);
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response;
+            switch (endpoint) {
+                case "buy" -> response = post("/investments/invest/buy?ticker=" + ticker
+                        + "&amountUsd=" + (10 + random.nextInt(490)), token, "");
+                case "sell" -> response = post("/investments/invest/sell?ticker=" + ticker
+                        + "&sharesToSell=" + String.format(Locale.ROOT, "%.3f", 0.01 + random.nextDouble(0.5)), token, "");
+                case "portfolio" -> response = get("/portfolio/my-portfolio", token);
+                case "history" -> response = get("/api/stock-history/" + ticker, token);
+                default -> throw new IllegalArgumentException("Unknown endpoint " + endpoint);
+            }
+            // 400 is a business rejection (e.g. nothing to sell) - still a served request
+            if (response.statusCode() >= 500 || response.statusCode() == 401 || response.statusCode() == 403) {
+                endpointStats.errors.incrementAndGet();
+            }
+        } catch (Exception e) {
+            endpointStats.errors.incrementAndGet();
+        } finally {
+            endpointStats.histogram.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+
+    private HttpResponse<String> post(String path, String token, String json) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path, String token) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void expectOk(HttpResponse<String> response, String step) {
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException(step + " failed with " + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    private String[] expandMix() {
+        List<String> weighted = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                weighted.add(entry.getKey());
+            }
+        }
+        return weighted.toArray(new String[0]);
+    }
+
+    /**
+     * Virtual threads when running on Java 21+, a fixed platform pool otherwise.
+     * Looked up reflectively so the harness still compiles for Java 17.
+     */
+    static ExecutorService newWorkerExecutor(int concurrency) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Virtual threads unavailable - using " + concurrency + " platform threads");
+            return Executors.newFixedThreadPool(concurrency);
+        }
+    }
+
+    private static List<String> listSimulatedCompanies(CompanyRepository companyRepository, String configured) {
+        List<String> tickers = new ArrayList<>();
+        if (configured != null) {
+            tickers.addAll(List.of(configured.split(",")));
+        } else {
+            for (int i = 0; i < 10; i++) {
+                tickers.add("SIM" + (char) ('A' + i));
+            }
+        }
+
+        for (String ticker : tickers) {
+            if (companyRepository.findByTickerSymbol(ticker) == null) {
+                Company company = new Company();
+                company.setTickerSymbol(ticker);
+                company.setName("Simulated " + ticker);
+                company.setLastStockPrice(50 + ThreadLocalRandom.current().nextDouble(150));
+                company.setTotalShares(10_000_000L);
+                company.setAvailableShares(10_000_000L);
+                companyRepository.save(company);
+            }
+        }
+        return tickers;
+    }
+
+    static Map<String, Integer> parseMix(String spec) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split(":");
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                mix.put(pair[0].trim(), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("load.mix has no positive weights: " + spec);
+        }
+        return mix;
+    }
+
+    private static final class EndpointStats {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final AtomicLong errors = new AtomicLong();
+    }
+}
@@ -0,0 +1,62 @@
+package first.transactions.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountLocksTest {
+
+    private final AccountLocks locks = new AccountLocks(16, 2000);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void tryLockFailsAtOnceWhileAnotherTransactionHoldsTheAccount() throws Exception {
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                locks.lockUntilCompletion(7L);
+                held.countDown();
+                release.await(10, TimeUnit.SECONDS);
+                complete();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        });
+        assertTrue(held.await(10, TimeUnit.SECONDS));
+
+        TransactionSynchronizationManager.initSynchronization();
+        long start = System.nanoTime();
+        assertFalse(locks.tryLockUntilCompletion(7L));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500), "tryLock waited");
+
+        release.countDown();
+        holder.get(10, TimeUnit.SECONDS);
+        assertTrue(locks.tryLockUntilCompletion(7L));
+        complete();
+    }
+
+    // What the transaction manager does when the transaction ends
+    private static void complete() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package first.transactions.service;
+
+import first.transactions.model.CandleInterval;
+import first.transactions.model.StockCandle;
+import first.transactions.repository.StockCandleRepository;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ticks fold into OHLCV candles, ended buckets are written, and a failed write loses
+ * nothing and merges a stored row only once.
+ */
+class CandleServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 5, 9, 30);
+
+    private final Map<StockCandle.CandleKey, StockCandle> rows = new ConcurrentHashMap<>();
+    private boolean failWrites;
+    private final CandleService candles = new CandleService(repository());
+
+    @Test
+    void ticksFoldIntoCandlesAndEndedBucketsAreWritten() {
+        candles.onTick("CSA", T0.plusSeconds(10), 10.0, 1.0);
+        candles.onTick("CSA", T0.plusSeconds(20), 12.0, 2.0);
+        candles.onTick("CSA", T0.plusSeconds(30), 9.0, 1.0);
+        candles.onTick("CSA", T0.plusSeconds(70), 11.0, 1.0);
+
+        candles.flush();
+
+        assertCandle(row("CSA", CandleInterval.ONE_MINUTE, T0), 10.0, 12.0, 9.0, 9.0, 4.0, 3);
+        assertCandle(row("CSA", CandleInterval.ONE_MINUTE, T0.plusMinutes(1)), 11.0, 11.0, 11.0, 11.0, 1.0, 1);
+        assertCandle(row("CSA", CandleInterval.FIVE_MINUTES, T0), 10.0, 12.0, 9.0, 11.0, 5.0, 4);
+    }
+
+    @Test
+    void failedWriteIsRetriedByTheNextFlush() {
+        candles.onTick("CSB", T0, 10.0, 1.0);
+        failWrites = true;
+        candles.flush();
+        assertTrue(rows.isEmpty());
+
+        // Nothing changed since, the open candles are written anyway
+        failWrites = false;
+        candles.flush();
+        assertCandle(row("CSB", CandleInterval.ONE_MINUTE, T0), 10.0, 10.0, 10.0, 10.0, 1.0, 1);
+
+        // The T0 minute ends, and the write of its final state fails
+        candles.onTick("CSB", T0.plusSeconds(30), 12.0, 1.0);
+        candles.onTick("CSB", T0.plusSeconds(70), 11.0, 1.0);
+        failWrites = true;
+        candles.flush();
+        assertNull(row("CSB", CandleInterval.ONE_MINUTE, T0.plusMinutes(1)));
+
+        failWrites = false;
+        candles.flush();
+        assertCandle(row("CSB", CandleInterval.ONE_MINUTE, T0), 10.0, 12.0, 10.0, 12.0, 2.0, 2);
+        assertCandle(row("CSB", CandleInterval.ONE_MINUTE, T0.plusMinutes(1)), 11.0, 11.0, 11.0, 11.0, 1.0, 1);
+    }
+
+    @Test
+    void storedRowIsMergedOnceEvenIfTheFirstWriteFails() {
+        // Written before a restart
+        StockCandle stored = new StockCandle("CSC", CandleInterval.ONE_MINUTE, T0, 8.0, 15.0, 8.0, 9.0, 5.0, 2);
+        rows.put(key(stored), stored);
+
+        candles.onTick("CSC", T0.plusSeconds(40), 10.0, 1.0);
+        failWrites = true;
+        candles.flush();
+        failWrites = false;
+        candles.flush();
+        candles.flush();
+
+        assertCandle(row("CSC", CandleInterval.ONE_MINUTE, T0), 8.0, 15.0, 8.0, 10.0, 6.0, 3);
+    }
+
+    private StockCandle row(String ticker, CandleInterval interval, LocalDateTime bucketStart) {
+        return rows.get(new StockCandle.CandleKey(ticker, interval, bucketStart));
+    }
+
+    private static StockCandle.CandleKey key(StockCandle candle) {
+        return new StockCandle.CandleKey(candle.getTickerSymbol(), candle.getInterval(), candle.getBucketStart());
+    }
+
+    private static void assertCandle(StockCandle candle, double open, double high, double low, double close,
+                                     double volume, long tradeCount) {
+        assertEquals(open, candle.getOpen(), 1e-9);
+        assertEquals(high, candle.getHigh(), 1e-9);
+        assertEquals(low, candle.getLow(), 1e-9);
+        assertEquals(close, candle.getClose(), 1e-9);
+        assertEquals(volume, candle.getVolume(), 1e-9);
+        assertEquals(tradeCount, candle.getTradeCount());
+    }
+
+    // Rows keyed like the table; saveAll fails while failWrites is set
+    private StockCandleRepository repository() {
+        return (StockCandleRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{StockCandleRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findById" -> {
+                            return Optional.ofNullable(rows.get((StockCandle.CandleKey) args[0]));
+                        }
+                        case "saveAll" -> {
+                            if (failWrites) {
+                                throw new IllegalStateException("write failed");
+                            }
+                            for (Object candle : (Iterable<?>) args[0]) {
+                                rows.put(key((StockCandle) candle), (StockCandle) candle);
+                            }
+                            return List.of();
+                        }
+                        case "toString" -> {
+                            return "StockCandleRepository stub";
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,87 @@
+package first.transactions.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Short series pass through, long ones keep their ends and their spikes.
+ */
+class ChartDownsamplerTest {
+
+    @Test
+    void seriesThatFitsIsReturnedWhole() {
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, ChartDownsampler.lttb(series(1, 2, 3, 4, 5), 5));
+        assertArrayEquals(new int[]{0, 1}, ChartDownsampler.lttb(series(1, 2), 100));
+        assertArrayEquals(new int[0], ChartDownsampler.lttb(series(), 3));
+    }
+
+    @Test
+    void minimumKeepsTheEndsAndTheMostProminentPoint() {
+        int[] selected = ChartDownsampler.lttb(series(1, 1, 1, 9, 1, 1, 1), ChartDownsampler.MIN_POINTS);
+
+        assertArrayEquals(new int[]{0, 3, 6}, selected);
+    }
+
+    @Test
+    void firstAndLastPointsAreAlwaysKept() {
+        double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.sin(i / 10.0) * 100;
+        }
+        for (int maxPoints : new int[]{3, 4, 10, 99, 999}) {
+            int[] selected = ChartDownsampler.lttb(series(values), maxPoints);
+
+            assertEquals(maxPoints, selected.length);
+            assertEquals(0, selected[0]);
+            assertEquals(values.length - 1, selected[selected.length - 1]);
+            for (int i = 1; i < selected.length; i++) {
+                assertTrue(selected[i] > selected[i - 1], "indexes ascend: " + Arrays.toString(selected));
+            }
+        }
+    }
+
+    @Test
+    void singleSpikeSurvives() {
+        double[] values = new double[10_000];
+        Arrays.fill(values, 50.0);
+        values[6_543] = 500.0;
+        values[2_001] = 1.0;
+
+        int[] selected = ChartDownsampler.lttb(series(values), 50);
+
+        assertTrue(Arrays.stream(selected).anyMatch(i -> i == 6_543), "peak kept");
+        assertTrue(Arrays.stream(selected).anyMatch(i -> i == 2_001), "trough kept");
+    }
+
+    @Test
+    void fewerThanThreePointsIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ChartDownsampler.lttb(series(1, 2, 3), 2));
+        assertThrows(IllegalArgumentException.class, () -> ChartDownsampler.lttb(series(), 0));
+    }
+
+    // One point per second
+    private static ChartDownsampler.Series series(double... values) {
+        return new ChartDownsampler.Series() {
+            @Override
+            public int size() {
+                return values.length;
+            }
+
+            @Override
+            public long timeAt(int index) {
+                return 1_700_000_000_000L + index * 1000L;
+            }
+
+            @Override
+            public double valueAt(int index) {
+                return values[index];
+            }
+        };
+    }
+}
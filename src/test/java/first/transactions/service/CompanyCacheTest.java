@@ -0,0 +1,87 @@
+package first.transactions.service;
+
+import first.transactions.model.Company;
+import first.transactions.repository.CompanyRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * A trade's company changes are private to its transaction until it commits, and gone
+ * if it rolls back.
+ */
+@SpringBootTest
+class CompanyCacheTest {
+
+    @Autowired
+    private CompanyCache companyCache;
+    @Autowired
+    private CompanyRepository companyRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void rolledBackChangeNeverReachesTheCacheOrTheTable() {
+        createCompany("CCRB");
+        Company cached = companyCache.get("CCRB");
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            Company company = companyCache.getForUpdate("ccrb");
+            company.setLastStockPrice(99.0);
+            company.setAvailableShares(500L);
+            companyCache.markDirty(company);
+            assertSame(company, companyCache.get("CCRB"));
+            status.setRollbackOnly();
+        });
+        companyCache.flush();
+
+        assertSame(cached, companyCache.get("CCRB"));
+        assertEquals(10.0, cached.getLastStockPrice(), 1e-9);
+        assertEquals(1000L, companyRepository.findByTickerSymbol("CCRB").getAvailableShares());
+    }
+
+    @Test
+    void committedChangeIsHiddenFromOtherThreadsUntilCommit() throws Exception {
+        createCompany("CCCM");
+        Company cached = companyCache.get("CCCM");
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            Company company = companyCache.getForUpdate("CCCM");
+            assertNotSame(cached, company);
+            company.setLastStockPrice(12.0);
+            companyCache.markDirty(company);
+            try {
+                Company seenElsewhere = CompletableFuture.supplyAsync(() -> companyCache.get("CCCM")).get(5, TimeUnit.SECONDS);
+                assertSame(cached, seenElsewhere);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertEquals(12.0, companyCache.get("CCCM").getLastStockPrice(), 1e-9);
+        assertEquals(10.0, cached.getLastStockPrice(), 1e-9);
+        companyCache.flush();
+        assertEquals(12.0, companyRepository.findByTickerSymbol("CCCM").getLastStockPrice(), 1e-9);
+    }
+
+    private void createCompany(String ticker) {
+        Company company = new Company();
+        company.setTickerSymbol(ticker);
+        company.setName(ticker);
+        company.setLastStockPrice(10.0);
+        company.setTotalShares(1000L);
+        company.setAvailableShares(1000L);
+        companyRepository.save(company);
+    }
+}
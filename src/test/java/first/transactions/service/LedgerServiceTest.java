@@ -0,0 +1,64 @@
+package first.transactions.service;
+
+import first.transactions.model.LedgerEntryType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checkpoints must not skip entries whose transaction commits after later entries have
+ * committed and settled.
+ */
+@SpringBootTest(properties = {
+        "ledger.checkpoint.interval-ms=3600000",
+        "ledger.checkpoint.settle-lag-ms=50"
+})
+class LedgerServiceTest {
+
+    private static final long ACCOUNT = 900_001L;
+
+    @Autowired
+    private LedgerService ledgerService;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void entryCommittedAfterTheSettleLagStaysInTheBalance() throws Exception {
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // A long transaction takes the smaller entry id and holds it uncommitted
+        CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(status -> {
+            ledgerService.post(LedgerEntryType.DEPOSIT, LedgerService.EXTERNAL_ACCOUNT, ACCOUNT, 100.0, "slow");
+            written.countDown();
+            try {
+                assertTrue(commit.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        assertTrue(written.await(10, TimeUnit.SECONDS));
+
+        // A later entry commits and settles while the first is still open
+        ledgerService.post(LedgerEntryType.DEPOSIT, LedgerService.EXTERNAL_ACCOUNT, ACCOUNT, 10.0, "fast");
+        Thread.sleep(200);
+        ledgerService.checkpoint();
+
+        commit.countDown();
+        slow.get(10, TimeUnit.SECONDS);
+        Thread.sleep(200);
+        ledgerService.checkpoint();
+
+        assertEquals(110.0, ledgerService.getBalance(ACCOUNT), 1e-9);
+    }
+}
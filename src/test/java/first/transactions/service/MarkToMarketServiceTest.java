@@ -0,0 +1,129 @@
+package first.transactions.service;
+
+import first.transactions.model.Investment;
+import first.transactions.model.Portfolio;
+import first.transactions.model.User;
+import first.transactions.model.UserRole;
+import first.transactions.repository.InvestmentRepository;
+import first.transactions.repository.PortfolioRepository;
+import first.transactions.repository.UserRepository;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Revaluations of one portfolio from different tickers must all land, the holder
+ * index must only follow committed positions, and every revaluation is recorded.
+ */
+@SpringBootTest
+class MarkToMarketServiceTest {
+
+    @Autowired
+    private MarkToMarketService markToMarketService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+    @Autowired
+    private InvestmentRepository investmentRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentRevaluationsOfOnePortfolioAddUp() throws Exception {
+        Long userId = holder("mtm_concurrent");
+        hold(userId, "MTMA", 10.0);
+        hold(userId, "MTMB", 5.0);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // Two tickers live on different sequencer shards, so their revaluations overlap
+        CompletableFuture<Void> a = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 50; i++) {
+                transaction.executeWithoutResult(status -> markToMarketService.revalue("MTMA", 10.0, 12.0));
+            }
+        });
+        CompletableFuture<Void> b = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 50; i++) {
+                transaction.executeWithoutResult(status -> markToMarketService.revalue("MTMB", 10.0, 9.0));
+            }
+        });
+        a.get(30, TimeUnit.SECONDS);
+        b.get(30, TimeUnit.SECONDS);
+
+        Portfolio portfolio = portfolioRepository.findByUserId(userId).orElseThrow();
+        assertEquals(50 * (10.0 * 2.0 - 5.0 * 1.0), portfolio.getInvestmentsValue(), 1e-6);
+        assertEquals(portfolio.getInvestmentsValue(), portfolio.getProfit(), 1e-6);
+        assertEquals(portfolio.getInvestmentsValue(), portfolio.getTotalValue(), 1e-6);
+    }
+
+    @Test
+    void rolledBackPositionChangeLeavesTheIndexAlone() {
+        Long userId = holder("mtm_rollback");
+        hold(userId, "MTMC", 10.0);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> markToMarketService.revalue("MTMC", 10.0, 11.0));
+
+        // The trade that would have closed the position rolls back
+        transaction.executeWithoutResult(status -> {
+            markToMarketService.updatePosition(userId, "MTMC", 0.0);
+            status.setRollbackOnly();
+        });
+
+        Integer revalued = transaction.execute(status -> markToMarketService.revalue("MTMC", 11.0, 12.0));
+        assertEquals(1, revalued);
+        assertEquals(20.0, portfolioRepository.findByUserId(userId).orElseThrow().getInvestmentsValue(), 1e-6);
+    }
+
+    @Test
+    void revaluationWithoutHoldersIsStillRecorded() throws Exception {
+        Path dump = Files.createTempFile("revaluation", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("first.transactions.Revaluation");
+            recording.start();
+            assertEquals(0, markToMarketService.revalue("MTMD", 10.0, 11.0));
+            recording.stop();
+            recording.dump(dump);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump).stream()
+                    .filter(event -> "MTMD".equals(event.getString("ticker")))
+                    .toList();
+            assertEquals(1, events.size());
+            assertEquals(0, events.get(0).getInt("userCount"));
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    private Long holder(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("unused");
+        user.setRole(UserRole.INVESTOR);
+        user = userRepository.save(user);
+        portfolioRepository.save(new Portfolio(user));
+        return user.getId();
+    }
+
+    private void hold(Long userId, String ticker, double shares) {
+        Investment investment = new Investment();
+        investment.setUserId(userId);
+        investment.setTickerSymbol(ticker);
+        investment.setAmountUsd(0.0);
+        investment.setSharesPurchased(shares);
+        investmentRepository.save(investment);
+    }
+}
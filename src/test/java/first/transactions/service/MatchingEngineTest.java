@@ -0,0 +1,66 @@
+package first.transactions.service;
+
+import first.transactions.model.OrderSide;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Fills as OrderFillWriter sees them: who buys, who sells and which reservation each fill frees.
+ */
+class MatchingEngineTest {
+
+    private final TradeSequencer tradeSequencer = new TradeSequencer(1, 16);
+    private final MatchingEngine engine = new MatchingEngine(tradeSequencer, 16, 8);
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        tradeSequencer.shutdown();
+    }
+
+    @Test
+    void buyTakerFillsAtMakerPricesAndFreesItsLimitReservation() {
+        engine.submit("TEST", OrderSide.SELL, 1, 1000, 1000, false);
+        engine.submit("TEST", OrderSide.SELL, 2, 1020, 1000, false);
+
+        MatchingEngine.MatchResult result = engine.submit("TEST", OrderSide.BUY, 9, 1050, 1500, true);
+
+        assertEquals(0, result.getRestingOrderId());
+        assertEquals(1500, result.getFilledQuantity());
+        assertEquals(10.0 * 1.0 + 10.2 * 0.5, result.getFilledNotional(), 1e-9);
+
+        MatchingEngine.Fill partial = result.getFills().get(1);
+        assertEquals(9, partial.getBuyerId());
+        assertEquals(2, partial.getSellerId());
+        assertEquals(10.2, partial.getPrice(), 1e-9);
+        assertEquals(0.5, partial.getShares(), 1e-9);
+        // The taker reserved its limit price, not the fill price
+        assertEquals(10.5 * 0.5, partial.getBuyerReservedCash(), 1e-9);
+    }
+
+    @Test
+    void restingBuyerFreesWhatItReservedAtItsOwnPrice() {
+        engine.submit("TEST", OrderSide.BUY, 1, 990, 1000, false);
+
+        MatchingEngine.MatchResult result = engine.submit("TEST", OrderSide.SELL, 9, 900, 1000, true);
+
+        MatchingEngine.Fill fill = result.getFills().get(0);
+        assertEquals(1, fill.getBuyerId());
+        assertEquals(9, fill.getSellerId());
+        assertEquals(9.9, fill.getPrice(), 1e-9);
+        assertEquals(9.9, fill.getBuyerReservedCash(), 1e-9);
+    }
+
+    @Test
+    void cancelReportsTheOpenRemainder() {
+        long orderId = engine.submit("TEST", OrderSide.SELL, 1, 1000, 1000, false).getRestingOrderId();
+        engine.submit("TEST", OrderSide.BUY, 9, 1000, 250, false);
+
+        MatchingEngine.CancelledOrder cancelled = engine.cancel("TEST", orderId, 1);
+
+        assertEquals(OrderSide.SELL, cancelled.getSide());
+        assertEquals(0.75, cancelled.getShares(), 1e-9);
+        assertEquals(0, engine.depth("TEST", 5).getAskCount());
+    }
+}
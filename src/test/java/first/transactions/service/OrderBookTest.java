@@ -0,0 +1,142 @@
+package first.transactions.service;
+
+import first.transactions.model.OrderSide;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Price-time priority, partial fills and immediate-or-cancel remainders of one book.
+ */
+class OrderBookTest {
+
+    // makerOrderId, makerUserId, priceTicks, quantity of each fill
+    private final List<long[]> fills = new ArrayList<>();
+    private final OrderBook.FillHandler recorder = (makerOrderId, makerUserId, takerUserId, takerSide, priceTicks, quantity) ->
+            fills.add(new long[]{makerOrderId, makerUserId, priceTicks, quantity});
+
+    private final OrderBook book = new OrderBook("TEST", 16, 8);
+
+    @Test
+    void bestPriceFillsFirstThenOlderOrdersAtTheSamePrice() {
+        long first = book.submit(OrderSide.SELL, 1, 1010, 1000, false, recorder);
+        long second = book.submit(OrderSide.SELL, 2, 1010, 1000, false, recorder);
+        long better = book.submit(OrderSide.SELL, 3, 1005, 1000, false, recorder);
+
+        assertEquals(0, book.submit(OrderSide.BUY, 9, 1010, 2500, false, recorder));
+
+        assertEquals(3, fills.size());
+        assertFill(fills.get(0), better, 3, 1005, 1000);
+        assertFill(fills.get(1), first, 1, 1010, 1000);
+        assertFill(fills.get(2), second, 2, 1010, 500);
+        assertEquals(500, book.remainingQuantity(second));
+        assertEquals(1010, book.bestAsk());
+    }
+
+    @Test
+    void partiallyFilledMakerKeepsItsPlaceInTheQueue() {
+        long first = book.submit(OrderSide.BUY, 1, 990, 1000, false, recorder);
+        long second = book.submit(OrderSide.BUY, 2, 990, 1000, false, recorder);
+
+        book.submit(OrderSide.SELL, 9, 990, 400, false, recorder);
+        book.submit(OrderSide.SELL, 9, 990, 400, false, recorder);
+
+        assertEquals(2, fills.size());
+        assertEquals(first, fills.get(0)[0]);
+        assertEquals(first, fills.get(1)[0]);
+        assertEquals(200, book.remainingQuantity(first));
+        assertEquals(1000, book.remainingQuantity(second));
+    }
+
+    @Test
+    void takerRemainderRestsAtItsLimitPrice() {
+        book.submit(OrderSide.SELL, 1, 1000, 300, false, recorder);
+
+        long resting = book.submit(OrderSide.BUY, 2, 1000, 1000, false, recorder);
+
+        assertTrue(book.isLive(resting));
+        assertEquals(700, book.remainingQuantity(resting));
+        assertEquals(1000, book.bestBid());
+        assertEquals(0, book.bestAsk());
+    }
+
+    @Test
+    void limitStopsMatchingAtWorsePrices() {
+        book.submit(OrderSide.SELL, 1, 1000, 1000, false, recorder);
+        book.submit(OrderSide.SELL, 2, 1100, 1000, false, recorder);
+
+        assertEquals(0, book.submit(OrderSide.BUY, 9, 1050, 5000, true, recorder));
+
+        assertEquals(1, fills.size());
+        assertEquals(1000, fills.get(0)[2]);
+        assertEquals(1100, book.bestAsk());
+        assertEquals(0, book.bestBid(), "an immediate-or-cancel remainder never rests");
+    }
+
+    @Test
+    void orderStopsAtItsOwnersRestingOrderAndIsCancelled() {
+        long other = book.submit(OrderSide.SELL, 1, 1000, 500, false, recorder);
+        long own = book.submit(OrderSide.SELL, 9, 1000, 1000, false, recorder);
+        long behind = book.submit(OrderSide.SELL, 2, 1000, 1000, false, recorder);
+
+        assertEquals(0, book.submit(OrderSide.BUY, 9, 1000, 2000, false, recorder));
+
+        assertEquals(1, fills.size());
+        assertFill(fills.get(0), other, 1, 1000, 500);
+        assertEquals(1000, book.remainingQuantity(own));
+        assertEquals(1000, book.remainingQuantity(behind));
+        assertEquals(0, book.bestBid(), "the remainder never rests against its owner's order");
+        assertEquals(1000, book.bestAsk());
+    }
+
+    @Test
+    void cancelRemovesOnlyTheOwnersOrderAndFreesTheLevel() {
+        long order = book.submit(OrderSide.BUY, 1, 990, 1000, false, recorder);
+
+        assertEquals(0, book.cancel(order, 2));
+        assertEquals(1000, book.cancel(order, 1));
+
+        assertFalse(book.isLive(order));
+        assertEquals(0, book.bestBid());
+        assertEquals(0, book.openOrders());
+    }
+
+    @Test
+    void reusedSlotDoesNotRespondToTheOldOrderId() {
+        long old = book.submit(OrderSide.BUY, 1, 990, 1000, false, recorder);
+        book.cancel(old, 1);
+        long reused = book.submit(OrderSide.BUY, 1, 990, 1000, false, recorder);
+
+        assertEquals((int) old, (int) reused);
+        assertFalse(book.isLive(old));
+        assertEquals(0, book.cancel(old, 1));
+        assertTrue(book.isLive(reused));
+    }
+
+    @Test
+    void depthListsBestPricesFirst() {
+        book.submit(OrderSide.BUY, 1, 980, 100, false, recorder);
+        book.submit(OrderSide.BUY, 1, 990, 200, false, recorder);
+        book.submit(OrderSide.BUY, 2, 990, 300, false, recorder);
+        long[] prices = new long[4];
+        long[] quantities = new long[4];
+
+        assertEquals(2, book.depth(OrderSide.BUY, prices, quantities));
+        assertEquals(990, prices[0]);
+        assertEquals(500, quantities[0]);
+        assertEquals(980, prices[1]);
+        assertEquals(100, quantities[1]);
+    }
+
+    private static void assertFill(long[] fill, long makerOrderId, long makerUserId, long priceTicks, long quantity) {
+        assertEquals(makerOrderId, fill[0]);
+        assertEquals(makerUserId, fill[1]);
+        assertEquals(priceTicks, fill[2]);
+        assertEquals(quantity, fill[3]);
+    }
+}
@@ -0,0 +1,43 @@
+package first.transactions.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderReservationsTest {
+
+    private final OrderReservations reservations = new OrderReservations();
+
+    @Test
+    void cashCannotBeReservedTwice() {
+        assertTrue(reservations.tryReserveCash(1L, 60.0, 100.0));
+        assertFalse(reservations.tryReserveCash(1L, 60.0, 100.0));
+        assertTrue(reservations.tryReserveCash(1L, 40.0, 100.0));
+
+        reservations.releaseCash(1L, 60.0);
+        assertEquals(40.0, reservations.reservedCash(1L), 1e-9);
+        assertTrue(reservations.tryReserveCash(1L, 60.0, 100.0));
+    }
+
+    @Test
+    void sharesAreReservedPerTicker() {
+        assertTrue(reservations.tryReserveShares(1L, "AAA", 5.0, 5.0));
+        assertFalse(reservations.tryReserveShares(1L, "AAA", 0.5, 5.0));
+        assertTrue(reservations.tryReserveShares(1L, "BBB", 5.0, 5.0));
+
+        reservations.releaseShares(1L, "AAA", 5.0);
+        assertEquals(0.0, reservations.reservedShares(1L, "AAA"), 1e-9);
+        assertEquals(5.0, reservations.reservedShares(1L, "BBB"), 1e-9);
+    }
+
+    @Test
+    void heldReservationsCountAgainstNewOrders() {
+        reservations.holdCash(1L, 80.0);
+        reservations.holdShares(1L, "AAA", 3.0);
+
+        assertFalse(reservations.tryReserveCash(1L, 30.0, 100.0));
+        assertFalse(reservations.tryReserveShares(1L, "AAA", 3.0, 5.0));
+    }
+}
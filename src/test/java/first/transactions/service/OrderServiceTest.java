@@ -0,0 +1,212 @@
+package first.transactions.service;
+
+import first.transactions.dto.OrderRequest;
+import first.transactions.model.Company;
+import first.transactions.model.Investment;
+import first.transactions.model.LedgerEntryType;
+import first.transactions.model.OrderSide;
+import first.transactions.model.OrderType;
+import first.transactions.model.User;
+import first.transactions.model.UserRole;
+import first.transactions.repository.CompanyRepository;
+import first.transactions.repository.FailedFillRepository;
+import first.transactions.repository.InvestmentRepository;
+import first.transactions.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Market order collars and the reservations of orders whose fills persist, fail and
+ * get replayed.
+ */
+@SpringBootTest(properties = {
+        "matching.market-order-collar=0.10",
+        "orders.fill.retry.backoff-ms=1",
+        "orders.fill.replay-interval-ms=3600000"
+})
+class OrderServiceTest {
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private OrderReservations reservations;
+    @Autowired
+    private OrderFillWriter orderFillWriter;
+    @Autowired
+    private LedgerService ledgerService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private InvestmentRepository investmentRepository;
+    @Autowired
+    private CompanyRepository companyRepository;
+    @Autowired
+    private FailedFillRepository failedFillRepository;
+    @Autowired
+    private AccountLocks accountLocks;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void marketBuyOnlyFillsInsideTheCollarAndFreesItsReservation() throws Exception {
+        createCompany("OSTA", 10.0);
+        User near = seller("osta_near", "OSTA", 1.0);
+        User far = seller("osta_far", "OSTA", 1.0);
+        User buyer = buyer("osta_buyer", 100.0);
+        assertTrue(orderService.placeOrder(new OrderRequest("OSTA", OrderSide.SELL, OrderType.LIMIT, 1.0, 10.5), near.getUsername()).isSuccess());
+        assertTrue(orderService.placeOrder(new OrderRequest("OSTA", OrderSide.SELL, OrderType.LIMIT, 1.0, 11.5), far.getUsername()).isSuccess());
+
+        OrderService.OrderResult result = orderService.placeOrder(
+                new OrderRequest("OSTA", OrderSide.BUY, OrderType.MARKET, 2.0, null), buyer.getUsername());
+
+        // Collar is 11.00: the 10.50 ask fills, the 11.50 ask is out of reach and nothing rests
+        assertTrue(result.isSuccess());
+        assertEquals(1.0, result.getOrder().getFilledQuantity(), 1e-9);
+        assertEquals(10.5, result.getOrder().getAveragePrice(), 1e-9);
+        assertEquals(0.0, result.getOrder().getOpenQuantity(), 1e-9);
+        assertEquals(11.5, orderService.getDepth("OSTA", 1).getAskPrices()[0] / 100.0, 1e-9);
+
+        awaitTrue(() -> reservations.reservedCash(buyer.getId()) == 0.0);
+        awaitTrue(() -> reservations.reservedShares(near.getId(), "OSTA") == 0.0);
+        assertEquals(1.0, reservations.reservedShares(far.getId(), "OSTA"), 1e-9);
+        assertEquals(100.0 - 10.5, ledgerService.getBalance(buyer.getId()), 1e-9);
+    }
+
+    @Test
+    void marketSellOnlyFillsInsideTheCollar() {
+        createCompany("OSTB", 10.0);
+        User high = buyer("ostb_high", 100.0);
+        User low = buyer("ostb_low", 100.0);
+        User seller = seller("ostb_seller", "OSTB", 2.0);
+        orderService.placeOrder(new OrderRequest("OSTB", OrderSide.BUY, OrderType.LIMIT, 1.0, 9.5), high.getUsername());
+        orderService.placeOrder(new OrderRequest("OSTB", OrderSide.BUY, OrderType.LIMIT, 1.0, 8.5), low.getUsername());
+
+        OrderService.OrderResult result = orderService.placeOrder(
+                new OrderRequest("OSTB", OrderSide.SELL, OrderType.MARKET, 2.0, null), seller.getUsername());
+
+        // Collar is 9.00: only the 9.50 bid is inside it
+        assertEquals(1.0, result.getOrder().getFilledQuantity(), 1e-9);
+        assertEquals(9.5, result.getOrder().getAveragePrice(), 1e-9);
+        assertEquals(8.5, orderService.getDepth("OSTB", 1).getBidPrices()[0] / 100.0, 1e-9);
+    }
+
+    @Test
+    void buyIsRejectedWhileAnotherTransactionHoldsTheAccount() throws Exception {
+        createCompany("OSTD", 10.0);
+        User buyer = buyer("ostd_buyer", 100.0);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> transfer = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    accountLocks.lockUntilCompletion(buyer.getId());
+                    locked.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+        OrderService.OrderResult busy = orderService.placeOrder(
+                new OrderRequest("OSTD", OrderSide.BUY, OrderType.LIMIT, 1.0, 9.0), buyer.getUsername());
+        release.countDown();
+        transfer.get(10, TimeUnit.SECONDS);
+
+        assertFalse(busy.isSuccess());
+        assertTrue(busy.getMessage().contains("busy"), busy.getMessage());
+        assertEquals(0.0, reservations.reservedCash(buyer.getId()), 1e-9);
+        // Once the other transaction completes the account is free again
+        assertTrue(orderService.placeOrder(
+                new OrderRequest("OSTD", OrderSide.BUY, OrderType.LIMIT, 1.0, 9.0), buyer.getUsername()).isSuccess());
+        assertEquals(9.0, reservations.reservedCash(buyer.getId()), 1e-9);
+    }
+
+    @Test
+    void failedFillKeepsItsReservationsUntilAReplayPersistsIt() throws Exception {
+        createCompany("OSTC", 10.0);
+        User buyer = buyer("ostc_buyer", 100.0);
+        User seller = buyer("ostc_seller", 0.0);
+        MatchingEngine.Fill fill = new MatchingEngine.Fill("OSTC", 1, seller.getId(), buyer.getId(),
+                OrderSide.BUY, 1000, 1000, 1100);
+        reservations.holdCash(buyer.getId(), fill.getBuyerReservedCash());
+        reservations.holdShares(seller.getId(), "OSTC", fill.getShares());
+
+        // The seller holds no shares yet, so every attempt fails
+        orderFillWriter.enqueue(List.of(fill));
+
+        awaitTrue(() -> failedFillRepository.count() == 1);
+        assertEquals(1, orderFillWriter.getPendingFailures());
+        assertEquals(11.0, reservations.reservedCash(buyer.getId()), 1e-9);
+        assertEquals(1.0, reservations.reservedShares(seller.getId(), "OSTC"), 1e-9);
+        assertEquals(100.0, ledgerService.getBalance(buyer.getId()), 1e-9);
+
+        hold(seller.getId(), "OSTC", 1.0);
+        orderFillWriter.replayFailedFills();
+
+        awaitTrue(() -> failedFillRepository.count() == 0);
+        awaitTrue(() -> reservations.reservedCash(buyer.getId()) == 0.0);
+        assertEquals(0, orderFillWriter.getPendingFailures());
+        assertEquals(0.0, reservations.reservedShares(seller.getId(), "OSTC"), 1e-9);
+        assertEquals(90.0, ledgerService.getBalance(buyer.getId()), 1e-9);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not reached in time");
+            Thread.sleep(20);
+        }
+    }
+
+    private void createCompany(String ticker, double price) {
+        Company company = new Company();
+        company.setTickerSymbol(ticker);
+        company.setName(ticker);
+        company.setLastStockPrice(price);
+        company.setTotalShares(1_000_000L);
+        company.setAvailableShares(1_000_000L);
+        companyRepository.save(company);
+    }
+
+    private User buyer(String username, double cash) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("unused");
+        user.setRole(UserRole.INVESTOR);
+        user = userRepository.save(user);
+        if (cash > 0) {
+            ledgerService.post(LedgerEntryType.DEPOSIT, LedgerService.EXTERNAL_ACCOUNT, user.getId(), cash, "test");
+        }
+        return user;
+    }
+
+    private User seller(String username, String ticker, double shares) {
+        User user = buyer(username, 0.0);
+        hold(user.getId(), ticker, shares);
+        return user;
+    }
+
+    private void hold(Long userId, String ticker, double shares) {
+        Investment investment = new Investment();
+        investment.setUserId(userId);
+        investment.setTickerSymbol(ticker);
+        investment.setAmountUsd(shares * 10.0);
+        investment.setSharesPurchased(shares);
+        investmentRepository.save(investment);
+    }
+}
@@ -0,0 +1,89 @@
+package first.transactions.service;
+
+import first.transactions.model.LeaderboardMetric;
+import first.transactions.repository.PortfolioRepository;
+import first.transactions.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Standings follow revaluations, ignore changes that commit out of order and stay gone
+ * once a user is removed.
+ */
+class PortfolioLeaderboardTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 5, 9, 30);
+
+    // Outside a transaction, changes apply right away
+    private final PortfolioLeaderboard leaderboard = new PortfolioLeaderboard(
+            stub(PortfolioRepository.class), stub(UserRepository.class));
+
+    @Test
+    void revaluationMovesTheUserInEveryMetric() {
+        leaderboard.updateRows(rows(row(1, 10.0, 1.0, 500.0, T0), row(2, 20.0, 2.0, 300.0, T0), row(3, 5.0, 3.0, 100.0, T0)));
+        assertEquals(List.of(2L, 1L, 3L), userIds(LeaderboardMetric.PROFIT));
+        assertEquals(List.of(1L, 2L, 3L), userIds(LeaderboardMetric.TOTAL_VALUE));
+
+        leaderboard.updateRows(rows(row(3, 50.0, 0.5, 900.0, T0.plusSeconds(1))));
+
+        assertEquals(List.of(3L, 2L, 1L), userIds(LeaderboardMetric.PROFIT));
+        assertEquals(List.of(2L, 1L, 3L), userIds(LeaderboardMetric.PROFIT_PERCENTAGE));
+        assertEquals(1, leaderboard.standingOf(LeaderboardMetric.TOTAL_VALUE, 3L).getRank());
+        assertEquals(3, leaderboard.size());
+    }
+
+    @Test
+    void olderChangeCommittingLateIsIgnored() {
+        leaderboard.updateRows(rows(row(1, 10.0, 1.0, 100.0, T0), row(2, 20.0, 2.0, 200.0, T0)));
+        leaderboard.updateRows(rows(row(1, 30.0, 3.0, 300.0, T0.plusSeconds(2))));
+
+        leaderboard.updateRows(rows(row(1, 0.0, 0.0, 0.0, T0.plusSeconds(1))));
+
+        PortfolioLeaderboard.Standing standing = leaderboard.standingOf(LeaderboardMetric.PROFIT, 1L);
+        assertEquals(1, standing.getRank());
+        assertEquals(30.0, standing.getProfit(), 1e-9);
+    }
+
+    @Test
+    void removedUserIsNotBroughtBackByALateChange() {
+        leaderboard.updateRows(rows(row(1, 10.0, 1.0, 100.0, T0), row(2, 20.0, 2.0, 200.0, T0)));
+
+        leaderboard.remove(1L);
+        leaderboard.updateRows(rows(row(1, 99.0, 9.0, 999.0, T0.plusSeconds(1))));
+
+        assertNull(leaderboard.standingOf(LeaderboardMetric.PROFIT, 1L));
+        assertEquals(List.of(2L), userIds(LeaderboardMetric.PROFIT));
+        assertEquals(1, leaderboard.size());
+    }
+
+    private List<Long> userIds(LeaderboardMetric metric) {
+        return leaderboard.top(metric, 0, 10).stream().map(PortfolioLeaderboard.Standing::getUserId).toList();
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return List.of(rows);
+    }
+
+    private static Object[] row(long userId, double profit, double profitPercentage, double totalValue, LocalDateTime lastUpdated) {
+        return new Object[]{userId, profit, profitPercentage, totalValue, lastUpdated};
+    }
+
+    // Usernames are not looked at here - every lookup finds nothing
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type) {
+        return (T) Proxy.newProxyInstance(PortfolioLeaderboardTest.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findAllById" -> List.of();
+                    case "findById" -> Optional.empty();
+                    case "toString" -> type.getSimpleName() + " stub";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
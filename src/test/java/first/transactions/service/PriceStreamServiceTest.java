@@ -0,0 +1,84 @@
+package first.transactions.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A client that cannot keep up gets the latest price of each ticker, not every tick, and
+ * the publisher never waits for it.
+ */
+class PriceStreamServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 5, 9, 30);
+
+    // One dispatcher and one writer thread, so a blocked write holds up the whole stream
+    private final PriceStreamService stream = new PriceStreamService(60_000, 50, 100, 1, 1, 60_000);
+
+    @AfterEach
+    void shutdown() {
+        stream.shutdown();
+    }
+
+    @Test
+    void slowClientIsSentOnlyTheLatestPriceOfEachTicker() throws InterruptedException {
+        SseEmitter emitter = stream.subscribe(Set.of("psa", "PSB"));
+
+        // Sends lock the emitter, so holding it stalls the writer like a full TCP window
+        synchronized (emitter) {
+            for (int i = 1; i <= 100; i++) {
+                stream.publish("PSA", i, 1.0, T0.plusSeconds(i));
+                stream.publish("PSB", 1000 + i, 1.0, T0.plusSeconds(i));
+            }
+            assertEquals(0, stream.getStats().getSent());
+        }
+
+        // Every tick is either sent once or replaced by a newer one before it was sent
+        awaitTrue(() -> stream.getStats().getSent() + stream.getStats().getConflated() == 200);
+        PriceStreamService.StreamStats stats = stream.getStats();
+        assertEquals(200, stats.getPublished());
+        // The write in progress, the pending latest of both tickers, and a fan-out still queued per ticker
+        assertTrue(stats.getSent() >= 2 && stats.getSent() <= 5, "sent " + stats.getSent());
+    }
+
+    @Test
+    void newSubscriberStartsFromTheLastPrice() throws InterruptedException {
+        stream.publish("PSC", 10.0, 1.0, T0);
+        stream.publish("PSC", 11.0, 1.0, T0.plusSeconds(1));
+
+        stream.subscribe(Set.of("PSC"));
+
+        awaitTrue(() -> stream.getStats().getSent() == 1);
+        assertEquals(1, stream.getStats().getConnections());
+    }
+
+    @Test
+    void tickerListIsValidated() {
+        assertThrows(IllegalArgumentException.class, () -> stream.subscribe(Set.of(" ")));
+
+        PriceStreamService narrow = new PriceStreamService(60_000, 1, 1, 1, 1, 60_000);
+        try {
+            assertThrows(IllegalArgumentException.class, () -> narrow.subscribe(Set.of("PSD", "PSE")));
+            narrow.subscribe(Set.of("PSD"));
+            assertThrows(IllegalStateException.class, () -> narrow.subscribe(Set.of("PSE")));
+        } finally {
+            narrow.shutdown();
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not reached in time");
+            Thread.sleep(5);
+        }
+    }
+}
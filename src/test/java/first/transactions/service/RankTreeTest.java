@@ -0,0 +1,104 @@
+package first.transactions.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Ranks and pages of the treap match a sorted list through random inserts and removals.
+ */
+class RankTreeTest {
+
+    // Highest value first, ties by user id
+    private static final Comparator<double[]> ORDER = Comparator.<double[]>comparingDouble(e -> -e[0])
+            .thenComparingLong(e -> (long) e[1]);
+
+    private final RankTree tree = new RankTree();
+    private final List<double[]> reference = new ArrayList<>();
+
+    @Test
+    void matchesASortedListThroughInsertsAndRemovals() {
+        Random random = new Random(42);
+        for (int step = 0; step < 2000; step++) {
+            if (reference.isEmpty() || random.nextInt(3) > 0) {
+                // Few distinct values, so ties are common
+                insert(random.nextInt(20) - 10, step);
+            } else {
+                double[] entry = reference.get(random.nextInt(reference.size()));
+                tree.remove(entry[0], (long) entry[1]);
+                reference.remove(entry);
+            }
+            if (step % 100 == 0) {
+                assertMatchesReference();
+            }
+        }
+        assertMatchesReference();
+    }
+
+    @Test
+    void pagesStopAtTheEnd() {
+        for (int userId = 1; userId <= 5; userId++) {
+            insert(userId * 10.0, userId);
+        }
+
+        assertEquals(List.of(5L, 4L), page(0, 2));
+        assertEquals(List.of(2L, 1L), page(3, 10));
+        assertEquals(List.of(), page(5, 3));
+        assertEquals(List.of(), page(50, 3));
+    }
+
+    @Test
+    void tiesAreOrderedByUserId() {
+        insert(1.0, 7);
+        insert(1.0, 3);
+        insert(2.0, 9);
+
+        assertEquals(List.of(9L, 3L, 7L), page(0, 3));
+        assertEquals(2, tree.rank(1.0, 3));
+        assertEquals(3, tree.rank(1.0, 7));
+    }
+
+    @Test
+    void removingAMissingEntryChangesNothing() {
+        insert(1.0, 1);
+
+        tree.remove(1.0, 2);
+        tree.remove(2.0, 1);
+
+        assertEquals(1, tree.size());
+        assertThrows(IllegalStateException.class, () -> tree.rank(2.0, 1));
+    }
+
+    private void insert(double value, long userId) {
+        tree.insert(value, userId);
+        reference.add(new double[]{value, userId});
+    }
+
+    private List<Long> page(int offset, int limit) {
+        List<Long> out = new ArrayList<>();
+        tree.collect(offset, limit, out);
+        return out;
+    }
+
+    private void assertMatchesReference() {
+        reference.sort(ORDER);
+        assertEquals(reference.size(), tree.size());
+        List<Long> expected = new ArrayList<>(reference.size());
+        for (int i = 0; i < reference.size(); i++) {
+            double[] entry = reference.get(i);
+            expected.add((long) entry[1]);
+            assertEquals(i + 1, tree.rank(entry[0], (long) entry[1]));
+        }
+        assertEquals(expected, page(0, reference.size()));
+        for (int offset = 0; offset < reference.size(); offset += 7) {
+            int to = Math.min(reference.size(), offset + 7);
+            assertEquals(expected.subList(offset, to), page(offset, 7));
+        }
+    }
+}
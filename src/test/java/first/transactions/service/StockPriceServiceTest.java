@@ -0,0 +1,42 @@
+package first.transactions.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A tick recorded by a rolled back trade must not reach history, charts or clients.
+ */
+@SpringBootTest
+class StockPriceServiceTest {
+
+    @Autowired
+    private StockPriceService stockPriceService;
+    @Autowired
+    private MarketDataVersions marketDataVersions;
+    @Autowired
+    private TickStore tickStore;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void tickIsRecordedOnlyWhenTheTradeCommits() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        long version = marketDataVersions.tickerVersion("SPST");
+
+        transaction.executeWithoutResult(status -> {
+            stockPriceService.recordTick("SPST", 10.0, 1.0);
+            status.setRollbackOnly();
+        });
+        assertEquals(version, marketDataVersions.tickerVersion("SPST"));
+        assertEquals(0, tickStore.range("SPST", null, null).size());
+
+        transaction.executeWithoutResult(status -> stockPriceService.recordTick("SPST", 11.0, 1.0));
+        assertEquals(version + 1, marketDataVersions.tickerVersion("SPST"));
+        assertEquals(1, tickStore.range("SPST", null, null).size());
+    }
+}
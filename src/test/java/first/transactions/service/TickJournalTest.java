@@ -0,0 +1,146 @@
+package first.transactions.service;
+
+import first.transactions.model.StockHistory;
+import first.transactions.repository.StockHistoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Appends wait a bounded time for the writer to make room, and a failing batch only
+ * loses the rows that cannot be written on their own.
+ */
+class TickJournalTest {
+
+    private final List<StockHistory> saved = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private TickJournal journal;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        release.countDown();
+        journal.shutdown();
+    }
+
+    @Test
+    void fullQueueWaitsForTheWriterToMakeRoom() throws Exception {
+        // The writer takes the first tick and is stuck on it until released
+        journal = new TickJournal(repository(true, false), transactions(), 2, 1, 10, 1, 1, 10_000);
+        assertTrue(journal.append("AAA", 1, LocalDateTime.now()));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (journal.getQueueDepth() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(journal.append("AAA", 2, LocalDateTime.now()));
+        assertTrue(journal.append("AAA", 3, LocalDateTime.now()));
+        assertTrue(journal.isFull());
+
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> journal.append("AAA", 4, LocalDateTime.now()));
+        Thread.sleep(50);
+        assertFalse(waiting.isDone());
+        release.countDown();
+
+        assertTrue(waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(0, journal.getDroppedTicks());
+    }
+
+    @Test
+    void tickIsDroppedOnlyAfterTheAppendTimeout() {
+        // The writer is stuck on its first batch
+        journal = new TickJournal(repository(true, false), transactions(), 2, 1, 10, 1, 1, 20);
+
+        int accepted = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            if (journal.append("AAA", i, LocalDateTime.now())) {
+                accepted++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        assertTrue(accepted <= 3, "accepted " + accepted);
+        assertEquals(10 - accepted, journal.getDroppedTicks());
+        // Each dropped tick waited out its timeout, and no longer
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(20L * (10 - accepted)), "elapsed " + elapsed);
+        assertTrue(elapsed < TimeUnit.SECONDS.toNanos(2), "elapsed " + elapsed);
+    }
+
+    @Test
+    void failingBatchIsWrittenRowByRow() throws InterruptedException {
+        journal = new TickJournal(repository(false, true), transactions(), 100, 3, 10, 2, 1, 100);
+
+        assertTrue(journal.append("AAA", 1.0, LocalDateTime.now()));
+        assertTrue(journal.append("BAD", 2.0, LocalDateTime.now()));
+        assertTrue(journal.append("BBB", 3.0, LocalDateTime.now()));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (saved.size() + journal.getFailedTicks() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of("AAA", "BBB"), saved.stream().map(StockHistory::getTickerSymbol).toList());
+        assertEquals(1, journal.getFailedTicks());
+        assertFalse(saved.stream().anyMatch(tick -> tick.getTickerSymbol().equals("BAD")));
+    }
+
+    // saveAll either hangs until the test ends or always fails; save rejects the BAD ticker
+    private StockHistoryRepository repository(boolean hang, boolean failBatches) {
+        return (StockHistoryRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{StockHistoryRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "saveAll" -> {
+                            if (hang) {
+                                release.await();
+                            }
+                            if (failBatches) {
+                                throw new IllegalStateException("batch failed");
+                            }
+                            return args[0];
+                        }
+                        case "save" -> {
+                            StockHistory tick = (StockHistory) args[0];
+                            if (tick.getTickerSymbol().equals("BAD")) {
+                                throw new IllegalStateException("bad row");
+                            }
+                            saved.add(tick);
+                            return tick;
+                        }
+                        case "toString" -> {
+                            return "StockHistoryRepository stub";
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static PlatformTransactionManager transactions() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+    }
+}
@@ -0,0 +1,154 @@
+package first.transactions.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Segment layout, rollover, range bounds and what a restarted store finds on disk.
+ */
+class TickStoreTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 5, 9, 30);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void segmentHasHeaderAndFixedWidthRecords() throws Exception {
+        TickStore store = store(16);
+        store.append("tsa", T0, 12.5);
+        store.append("TSA", T0.plusNanos(1_500_000), 12.34567);
+        store.close();
+
+        List<Path> files = segments("TSA");
+        assertEquals(1, files.size());
+        assertEquals(String.format("%020d.seg", TickStore.toMillis(T0)), files.get(0).getFileName().toString());
+        ByteBuffer segment = ByteBuffer.wrap(Files.readAllBytes(files.get(0)));
+        assertEquals(32 + 16 * 8, segment.capacity());
+        assertEquals(0x5449434B, segment.getInt(0));
+        assertEquals(1, segment.getInt(4));
+        assertEquals(TickStore.toMillis(T0), segment.getLong(8));
+        assertEquals(2, segment.getInt(16));
+        assertEquals(0, segment.getInt(32));
+        assertEquals(125_000, segment.getInt(36));
+        assertEquals(1, segment.getInt(40));
+        // 4 decimals, rounded half up
+        assertEquals(123_457, segment.getInt(44));
+    }
+
+    @Test
+    void fullSegmentRollsOverAndRangesSpanSegments() {
+        TickStore store = store(4);
+        for (int i = 0; i < 10; i++) {
+            store.append("TSB", T0.plusSeconds(i), 10.0 + i);
+        }
+
+        assertEquals(3, store.getStats().getSegments());
+        TickStore.TickRange all = store.range("TSB", null, null);
+        assertEquals(10, all.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(T0.plusSeconds(i), all.timeAt(i));
+            assertEquals(10.0 + i, all.priceAt(i), 1e-9);
+        }
+        // Read backwards, so the slice lookup cannot lean on the previous read
+        TickStore.TickRange middle = store.range("TSB", T0.plusSeconds(3), T0.plusSeconds(8));
+        assertEquals(6, middle.size());
+        for (int i = 5; i >= 0; i--) {
+            assertEquals(13.0 + i, middle.priceAt(i), 1e-9);
+        }
+    }
+
+    @Test
+    void offsetOverflowRollsOver() {
+        TickStore store = store(16);
+        store.append("TSC", T0, 1.0);
+        store.append("TSC", T0.plusDays(30), 2.0);
+
+        assertEquals(2, store.getStats().getSegments());
+        TickStore.TickRange all = store.range("TSC", null, null);
+        assertEquals(T0.plusDays(30), all.timeAt(1));
+    }
+
+    @Test
+    void rangeBoundsAreInclusive() {
+        TickStore store = store(16);
+        for (int i = 0; i < 5; i++) {
+            store.append("TSD", T0.plusSeconds(10 * i), i);
+        }
+        // Out of order - stored at the previous tick's time
+        store.append("TSD", T0, 5.0);
+
+        assertEquals(2, store.range("TSD", T0.plusSeconds(10), T0.plusSeconds(20)).size());
+        assertEquals(1, store.range("TSD", T0.plusSeconds(11), T0.plusSeconds(29)).size());
+        assertEquals(0, store.range("TSD", T0.plusSeconds(11), T0.plusSeconds(19)).size());
+        assertEquals(1, store.range("TSD", T0.minusDays(1), T0).size());
+        assertEquals(0, store.range("TSD", T0.minusDays(1), T0.minusSeconds(1)).size());
+        assertEquals(2, store.range("TSD", T0.plusSeconds(40), null).size());
+        assertEquals(0, store.range("TSD", T0.plusSeconds(41), T0.plusDays(100)).size());
+        assertEquals(6, store.range("TSD", T0.minusYears(50), T0.plusYears(50)).size());
+        assertEquals(0, store.range("NONE", null, null).size());
+    }
+
+    @Test
+    void reopenedStoreReadsAndExtendsEarlierSegments() {
+        TickStore first = store(4);
+        for (int i = 0; i < 6; i++) {
+            first.append("TSE", T0.plusSeconds(i), 20.0 + i);
+        }
+        first.close();
+
+        TickStore reopened = store(4);
+        assertEquals(T0.plusSeconds(5), reopened.lastTime("tse"));
+        reopened.append("TSE", T0.plusSeconds(6), 26.0);
+        reopened.append("TSE", T0.plusSeconds(7), 27.0);
+        // The second segment had room for both
+        assertEquals(2, reopened.getStats().getSegments());
+
+        TickStore.TickRange all = reopened.range("TSE", null, null);
+        assertEquals(8, all.size());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(T0.plusSeconds(i), all.timeAt(i));
+            assertEquals(20.0 + i, all.priceAt(i), 1e-9);
+        }
+        assertNull(reopened.lastTime("NONE"));
+    }
+
+    @Test
+    void unsupportedTickerStaysUnsupportedAfterRestart() {
+        TickStore first = store(16);
+        first.append("TSF", T0, 10.0);
+        first.append("TSF", T0.plusSeconds(1), 300_000.0);
+        assertFalse(first.covers("tsf"));
+        assertTrue(first.covers("TSG"));
+        assertEquals(1, first.getStats().getRejected());
+        first.close();
+
+        TickStore reopened = store(16);
+        assertFalse(reopened.covers("TSF"));
+        assertTrue(reopened.covers("TSG"));
+        reopened.append("TSF", T0.plusSeconds(2), 11.0);
+        assertEquals(1, reopened.range("TSF", null, null).size());
+    }
+
+    private TickStore store(int segmentRecords) {
+        return new TickStore(true, directory.toString(), segmentRecords);
+    }
+
+    private List<Path> segments(String ticker) throws Exception {
+        try (Stream<Path> files = Files.list(directory.resolve(ticker))) {
+            return files.filter(p -> p.toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+}
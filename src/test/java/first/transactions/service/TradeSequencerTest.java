@@ -0,0 +1,183 @@
+package first.transactions.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Claim order within a ticker, failures handed back to the caller, a full ring holding
+ * producers back and shutdown running what was already claimed.
+ */
+class TradeSequencerTest {
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    // Only ever touched by the loop thread
+    private final List<String> log = new ArrayList<>();
+
+    private TradeSequencer sequencer;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        callers.shutdownNow();
+        if (sequencer != null) {
+            sequencer.shutdown();
+        }
+    }
+
+    @Test
+    void commandsOfATickerRunOnOneThreadInClaimOrder() throws Exception {
+        sequencer = new TradeSequencer(1, 16);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = submit("A", blockUntil(release, "first"));
+        awaitTrue(() -> sequencer.queueDepth() == 1);
+        CompletableFuture<String> second = submit("A", logged("second"));
+        awaitTrue(() -> sequencer.queueDepth() == 2);
+        CompletableFuture<String> third = submit("A", logged("third"));
+        awaitTrue(() -> sequencer.queueDepth() == 3);
+
+        release.countDown();
+
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("second", second.get(5, TimeUnit.SECONDS));
+        assertEquals("third", third.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("first", "second", "third"), log);
+        assertEquals(0, sequencer.queueDepth());
+    }
+
+    @Test
+    void everyCommandOfATickerSeesTheSameThread() throws Exception {
+        sequencer = new TradeSequencer(4, 16);
+        List<CompletableFuture<String>> threads = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            threads.add(submit("TSQA", () -> Thread.currentThread().getName()));
+        }
+
+        String loop = threads.get(0).get(5, TimeUnit.SECONDS);
+        assertTrue(loop.startsWith("trade-sequencer-"), loop);
+        for (CompletableFuture<String> thread : threads) {
+            assertEquals(loop, thread.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void nestedCommandRunsInlineOnTheLoop() {
+        sequencer = new TradeSequencer(1, 16);
+
+        String nested = sequencer.execute("A", () -> sequencer.execute("A", () -> Thread.currentThread().getName()));
+
+        assertEquals("trade-sequencer-0", nested);
+    }
+
+    @Test
+    void failuresAreRethrownToTheCallerAndTheLoopKeepsGoing() {
+        sequencer = new TradeSequencer(1, 16);
+        IllegalArgumentException failure = new IllegalArgumentException("bad trade");
+
+        assertSame(failure, assertThrows(IllegalArgumentException.class,
+                () -> sequencer.execute("A", () -> { throw failure; })));
+        IllegalStateException wrapped = assertThrows(IllegalStateException.class,
+                () -> sequencer.execute("A", () -> { throw new AssertionError("broken"); }));
+        assertTrue(wrapped.getCause() instanceof AssertionError);
+
+        assertEquals("still running", sequencer.execute("A", () -> "still running"));
+    }
+
+    @Test
+    void fullRingHoldsProducersBackUntilASlotIsCollected() throws Exception {
+        sequencer = new TradeSequencer(1, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = submit("A", blockUntil(release, "first"));
+        awaitTrue(() -> sequencer.queueDepth() == 1);
+        CompletableFuture<String> second = submit("A", logged("second"));
+        awaitTrue(() -> sequencer.queueDepth() == 2);
+        // Claims the first command's slot again, so it waits for that caller to collect its result
+        CompletableFuture<String> third = submit("A", logged("third"));
+        awaitTrue(() -> sequencer.queueDepth() == 3);
+
+        Thread.sleep(50);
+        assertFalse(third.isDone());
+        assertFalse(second.isDone());
+
+        release.countDown();
+
+        assertEquals("third", third.get(5, TimeUnit.SECONDS));
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("first", "second", "third"), log);
+    }
+
+    @Test
+    void shutdownRunsEveryClaimedCommandFirst() throws Exception {
+        sequencer = new TradeSequencer(1, 16);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = submit("A", blockUntil(release, "first"));
+        awaitTrue(() -> sequencer.queueDepth() == 1);
+        CompletableFuture<String> second = submit("A", logged("second"));
+        CompletableFuture<String> third = submit("A", logged("third"));
+        awaitTrue(() -> sequencer.queueDepth() == 3);
+
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(() -> {
+            try {
+                sequencer.shutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, callers);
+        Thread.sleep(50);
+        assertFalse(stopped.isDone());
+        release.countDown();
+
+        stopped.get(5, TimeUnit.SECONDS);
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("second", second.get(5, TimeUnit.SECONDS));
+        assertEquals("third", third.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("first", "second", "third"), log);
+        assertEquals(0, sequencer.queueDepth());
+    }
+
+    private <T> CompletableFuture<T> submit(String ticker, Supplier<T> command) {
+        return CompletableFuture.supplyAsync(() -> sequencer.execute(ticker, command), callers);
+    }
+
+    private Supplier<String> logged(String name) {
+        return () -> {
+            log.add(name);
+            return name;
+        };
+    }
+
+    // Holds the loop, so the commands behind it queue up in the ring
+    private Supplier<String> blockUntil(CountDownLatch release, String name) {
+        return () -> {
+            try {
+                assertTrue(release.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            log.add(name);
+            return name;
+        };
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not reached in time");
+            Thread.sleep(5);
+        }
+    }
+}
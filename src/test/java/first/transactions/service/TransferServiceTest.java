@@ -0,0 +1,160 @@
+package first.transactions.service;
+
+import first.transactions.dto.TransferHistoryFilter;
+import first.transactions.dto.TransferHistoryItem;
+import first.transactions.dto.TransferHistoryPage;
+import first.transactions.dto.TransferRequest;
+import first.transactions.dto.TransferTotalsResponse;
+import first.transactions.model.LedgerEntryType;
+import first.transactions.model.TransferDirection;
+import first.transactions.model.Transfers;
+import first.transactions.model.User;
+import first.transactions.model.UserRole;
+import first.transactions.repository.TransferRepository;
+import first.transactions.repository.TransferTotalsRepository;
+import first.transactions.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Transfer totals follow the records' direction, incrementally and when rebuilt from history;
+ * history pages follow a stable cursor.
+ */
+@SpringBootTest
+class TransferServiceTest {
+
+    @Autowired
+    private TransferService transferService;
+    @Autowired
+    private LedgerService ledgerService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransferRepository transferRepository;
+    @Autowired
+    private TransferTotalsRepository transferTotalsRepository;
+
+    @Test
+    void totalsAggregateOnDirectionNotRecipientText() {
+        User sender = user("tst_sender", 100.0);
+        User receiver = user("tst_receiver", 0.0);
+        assertTrue(transferService.sendToUser(request(receiver, 30.0), sender.getUsername()).isSuccess());
+        assertTrue(transferService.sendToUser(request(sender, 5.0), receiver.getUsername()).isSuccess());
+
+        // Recipient text is display only
+        for (Transfers record : transferRepository.findByUserUsername(sender.getUsername())) {
+            record.setRecipient("renamed");
+            transferRepository.save(record);
+        }
+        assertEquals(TransferDirection.SENT, transferRepository.findByUserUsername(receiver.getUsername()).stream()
+                .filter(t -> t.getAmount() < 0).findFirst().orElseThrow().getDirection());
+
+        assertTotals(transferService.getTransferTotals(sender.getUsername()), 30.0, 5.0);
+        assertTotals(transferService.getTransferTotals(receiver.getUsername()), 5.0, 30.0);
+
+        // Rebuilt from the transfer history, the totals come out the same
+        transferTotalsRepository.deleteAll();
+        transferService.backfillTotals();
+        assertTotals(transferService.getTransferTotals(sender.getUsername()), 30.0, 5.0);
+        assertTotals(transferService.getTransferTotals(receiver.getUsername()), 5.0, 30.0);
+    }
+
+    @Test
+    void transferToOwnUsernameIsRejected() {
+        User sender = user("tst_self", 50.0);
+        Transfers transfer = new Transfers();
+        transfer.setAmount(10.0);
+        transfer.setRecipient(" tst_self ");
+
+        TransferService.TransferResult result = transferService.createTransfer(transfer, sender.getUsername());
+
+        assertFalse(result.isSuccess());
+        assertEquals("Cannot transfer money to yourself", result.getMessage());
+        assertEquals(50.0, ledgerService.getBalance(sender.getId()), 1e-9);
+        assertTrue(transferRepository.findByUserUsername(sender.getUsername()).isEmpty());
+    }
+
+    @Test
+    void historyCursorIsStableAcrossInserts() {
+        User user = user("tst_history", 0.0);
+        LocalDateTime t0 = LocalDateTime.of(2026, 1, 5, 9, 30);
+        // Pairs share a timestamp, so the id breaks ties
+        for (int i = 6; i >= 0; i--) {
+            record(user, i, t0.plusMinutes(i / 2));
+        }
+        TransferHistoryFilter all = new TransferHistoryFilter();
+
+        List<Long> seen = new ArrayList<>();
+        TransferHistoryPage page = transferService.getTransferHistory(user.getUsername(), all, null, 3);
+        page.getTransfers().forEach(item -> seen.add(item.getId()));
+        // Newer transfers arrive while the client pages
+        record(user, 100, t0.plusDays(1));
+        record(user, 101, t0.plusMinutes(3));
+        while (page.getNextCursor() != null) {
+            page = transferService.getTransferHistory(user.getUsername(), all, page.getNextCursor(), 3);
+            page.getTransfers().forEach(item -> seen.add(item.getId()));
+        }
+
+        List<TransferHistoryItem> fresh = transferService.getTransferHistory(user.getUsername(), all, null, 100).getTransfers();
+        assertEquals(9, fresh.size());
+        List<Long> newestFirst = fresh.stream().map(TransferHistoryItem::getId).toList();
+        // Every record that existed when paging started, once each and in order; the later inserts sort ahead of the cursor
+        assertEquals(newestFirst.subList(2, 9), seen);
+        assertEquals(7, seen.stream().distinct().count());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        User user = user("tst_badcursor", 0.0);
+
+        assertThrows(IllegalArgumentException.class, () ->
+                transferService.getTransferHistory(user.getUsername(), new TransferHistoryFilter(), "not-a-cursor", 3));
+    }
+
+    private long record(User user, double amount, LocalDateTime createdAt) {
+        Transfers record = Transfers.received(amount, "tst_payer", user);
+        record.setCreatedAt(createdAt);
+        return transferRepository.save(record).getId();
+    }
+
+    private static void assertTotals(TransferTotalsResponse totals, double sent, double received) {
+        assertEquals(sent, totals.getTotalSent(), 1e-9);
+        assertEquals(received, totals.getTotalReceived(), 1e-9);
+        assertEquals(2, totals.getTransferCount());
+        assertEquals(received - sent, totals.getNetAmount(), 1e-9);
+        assertEquals(sent, totals.getLast30Days().getSent(), 1e-9);
+        assertEquals(received, totals.getLast30Days().getReceived(), 1e-9);
+    }
+
+    private static TransferRequest request(User receiver, double amount) {
+        TransferRequest request = new TransferRequest();
+        request.setTargetUserID(receiver.getId());
+        request.setAmount(amount);
+        return request;
+    }
+
+    private User user(String username, double cash) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("unused");
+        user.setRole(UserRole.INVESTOR);
+        user = userRepository.save(user);
+        if (cash > 0) {
+            ledgerService.post(LedgerEntryType.DEPOSIT, LedgerService.EXTERNAL_ACCOUNT, user.getId(), cash, "test");
+        }
+        return user;
+    }
+}
@@ -0,0 +1,102 @@
+package first.transactions.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import first.transactions.dto.UserPage;
+import first.transactions.dto.UserResponseDto;
+import first.transactions.model.LedgerEntryType;
+import first.transactions.model.User;
+import first.transactions.model.UserRole;
+import first.transactions.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lookups show the live ledger balance; admin exports: keyset pages cover every user once
+ * in id order, and the stream writes the same users as one JSON array.
+ */
+@SpringBootTest(properties = "admin.export.max-page-size=3")
+class UserServiceTest {
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private LedgerService ledgerService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void lookupByUsernameShowsTheLedgerBalance() {
+        User user = user("tst_lookup");
+        ledgerService.post(LedgerEntryType.DEPOSIT, LedgerService.EXTERNAL_ACCOUNT, user.getId(), 125.0, "test");
+
+        assertEquals(125.0, userService.getUserByUsername("tst_lookup").getBalance(), 1e-9);
+        assertEquals(125.0, userService.getUserProfile("tst_lookup").getBalance(), 1e-9);
+    }
+
+    @Test
+    void pagesWalkEveryUserOnceInIdOrder() {
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(user("tst_export_page" + i).getId());
+        }
+
+        List<Long> seen = new ArrayList<>();
+        UserPage page = userService.getUsersPage(null, 100);
+        assertEquals(3, page.getUsers().size(), "limit is capped");
+        page.getUsers().forEach(user -> seen.add(user.getId()));
+        while (page.getNextCursor() != null) {
+            assertEquals(seen.get(seen.size() - 1), page.getNextCursor());
+            page = userService.getUsersPage(page.getNextCursor(), 100);
+            page.getUsers().forEach(user -> seen.add(user.getId()));
+        }
+
+        assertEquals(userRepository.count(), seen.size());
+        for (int i = 1; i < seen.size(); i++) {
+            assertTrue(seen.get(i) > seen.get(i - 1), "ids ascend: " + seen);
+        }
+        assertTrue(seen.containsAll(created));
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void streamWritesEveryUserAsOneArray() throws Exception {
+        User user = user("tst_export_stream");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        userService.writeUsers(out);
+
+        JsonNode users = objectMapper.readTree(out.toByteArray());
+        assertTrue(users.isArray());
+        assertEquals(userRepository.count(), users.size());
+        UserResponseDto exported = null;
+        for (JsonNode node : users) {
+            if (node.get("id").asLong() == user.getId()) {
+                exported = objectMapper.treeToValue(node, UserResponseDto.class);
+            }
+        }
+        assertEquals("tst_export_stream", exported.getUsername());
+        assertEquals(UserRole.INVESTOR, exported.getRole());
+        assertNull(users.findValue("transactions"), "the transactions collection is never serialized");
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("unused");
+        user.setRole(UserRole.INVESTOR);
+        return userRepository.save(user);
+    }
+}